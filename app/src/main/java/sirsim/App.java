@@ -3,12 +3,24 @@
  */
 package sirsim;
 
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.output.BinaryRecordReader;
+import sirsim.output.ColumnarFile;
 import sirsim.percolation.KCorePercolation;
+import sirsim.sweep.SequentialStopping;
+import sirsim.sweep.Shard;
+import sirsim.sweep.ShardManifest;
+import sirsim.sweep.ShardMerge;
+import sirsim.theory.MessagePassing;
+import sirsim.theory.SpectralThreshold;
+import sirsim.utils.Array;
 import sirsim.utils.Logger;
 
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class App {
     public String getGreeting() {
@@ -18,6 +30,14 @@ public class App {
     public static void main(String[] args) {
         if (args.length > 0 && args[0].equalsIgnoreCase("kcore")) {
             runKCoreCLI(slice(args, 1));
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("tocsv")) {
+            runToCsvCLI(slice(args, 1));
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("merge")) {
+            runMergeCLI(slice(args, 1));
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("theory")) {
+            runTheoryCLI(slice(args, 1));
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("threshold")) {
+            runThresholdCLI(slice(args, 1));
         } else {
             System.out.println(new App().getGreeting());
         }
@@ -36,13 +56,163 @@ public class App {
         int trials = parseInt(opt, "--trials", 10);
         long seed = parseLong(opt, "--seed", System.currentTimeMillis());
         String out = opt.getOrDefault("--out", String.format("out/kcore/%d/results.csv", n));
+        // --shard i/n: only this shard's (p, trial) cells, written to shard-ii-of-nn/ next to --out (combine with merge)
+        Shard shard = opt.containsKey("--shard") ? Shard.parse(opt.get("--shard")) : Shard.ALL;
+        if (!shard.isAll() && !opt.containsKey("--seed")) {
+            log.error("kcore: --seed is required with --shard (all shards must draw the same trials)");
+            System.exit(2);
+        }
+        // --se s / --ci w: run each p until the standard error (or 95% CI width) of frac_kcore is reached,
+        // with --min-trials (default --trials) and --max-trials (default 1000); adds trials,frac_se columns
+        // --reduce antithetic|control|both: variance-reduced estimate per p (frac_se and variance_reduction columns)
+        KCorePercolation.Reduction reduction = opt.containsKey("--reduce") ? KCorePercolation.Reduction.parse(opt.get("--reduce")) : null;
+        if (reduction != null && (!shard.isAll() || opt.containsKey("--se") || opt.containsKey("--ci"))) {
+            log.error("kcore: --reduce cannot be combined with --shard or --se/--ci");
+            System.exit(2);
+        }
+        SequentialStopping.Rule rule = null;
+        if (opt.containsKey("--se") || opt.containsKey("--ci")) {
+            if (!shard.isAll()) {
+                log.error("kcore: --se/--ci cannot be combined with --shard (trial counts depend on earlier results)");
+                System.exit(2);
+            }
+            int minTrials = parseInt(opt, "--min-trials", trials);
+            int maxTrials = parseInt(opt, "--max-trials", Math.max(1000, minTrials));
+            rule = opt.containsKey("--se")
+                    ? SequentialStopping.Rule.stdErr(minTrials, maxTrials, parseDouble(opt, "--se", 0.005))
+                    : SequentialStopping.Rule.ci95(minTrials, maxTrials, parseDouble(opt, "--ci", 0.02));
+        }
 
         log.info("Run k-core percolation: N=%d, k=%d, z=%.3f, p in [%.3f, %.3f] steps=%d, trials=%d", n, k, z, pmin, pmax, steps, trials);
         try {
-            KCorePercolation.sweepER_Z(n, z, k, pmin, pmax, steps, trials, seed, Path.of(out));
+            if (reduction != null) {
+                KCorePercolation.sweepReducedER_Z(n, z, k, pmin, pmax, steps, trials, seed, reduction, Path.of(out));
+                log.info("Saved: %s", out);
+            } else if (rule != null) {
+                try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+                    KCorePercolation.sweepSequentialER_Z(n, z, k, pmin, pmax, steps, rule, seed, pool, Path.of(out));
+                }
+                log.info("Saved: %s", out);
+            } else if (shard.isAll()) {
+                KCorePercolation.sweepER_Z(n, z, k, pmin, pmax, steps, trials, seed, Path.of(out));
+                log.info("Saved: %s", out);
+            } else {
+                Path parent = Path.of(out).toAbsolutePath().getParent();
+                Path dir = parent.resolve(shard.dirName());
+                KCorePercolation.sweepShardER_Z(n, z, k, pmin, pmax, steps, trials, seed, shard, dir);
+                log.info("Saved shard %s: %s", shard, dir);
+            }
+        } catch (Exception e) {
+            log.error("kcore failed", e);
+            System.exit(1);
+        }
+    }
+
+    /** Columnar (.scol) or binary record (.srec) file to CSV: tocsv --in file.scol [--out file.csv] */
+    private static void runToCsvCLI(String[] args) {
+        Logger log = new Logger(App.class);
+        Map<String, String> opt = parseArgs(args);
+
+        String in = opt.get("--in");
+        if (in == null) {
+            log.error("tocsv: --in <file> is required");
+            System.exit(2);
+        }
+        String out = opt.getOrDefault("--out", in.replaceFirst("\\.(scol|srec)$", "") + ".csv");
+        try {
+            if (in.endsWith(".srec")) BinaryRecordReader.toCsv(Path.of(in), Path.of(out));
+            else ColumnarFile.toCsv(Path.of(in), Path.of(out));
+            log.info("Saved: %s", out);
+        } catch (Exception e) {
+            log.error("tocsv failed", e);
+            System.exit(1);
+        }
+    }
+
+    /** Combine a sharded sweep: merge --dir out/fastsir/<N> [--out dir-or-csv] */
+    private static void runMergeCLI(String[] args) {
+        Logger log = new Logger(App.class);
+        Map<String, String> opt = parseArgs(args);
+
+        String dir = opt.get("--dir");
+        if (dir == null) {
+            log.error("merge: --dir <directory containing shard-*-of-*> is required");
+            System.exit(2);
+        }
+        String out = opt.get("--out");
+        try {
+            // k-core のシャードは独自の形式なので KCorePercolation で結合（sweep は percolation に依存しない）
+            Path root = Path.of(dir);
+            if (ShardManifest.read(ShardMerge.shardDirs(root)[0]).model().equals("kcore")) {
+                Path csv = out != null ? Path.of(out) : root.resolve("results.csv");
+                KCorePercolation.mergeShards(root, csv);
+                log.info("Merged k-core shards -> %s", csv);
+            } else {
+                ShardMerge.merge(root, out == null ? null : Path.of(out));
+            }
+        } catch (IllegalStateException e) {
+            log.error("merge: %s", e.getMessage());
+            System.exit(3);
+        } catch (Exception e) {
+            log.error("merge failed", e);
+            System.exit(1);
+        }
+    }
+
+    /** Message-passing prediction of the SIR final size over a lambda grid on one ER graph. */
+    private static void runTheoryCLI(String[] args) {
+        Logger log = new Logger(App.class);
+        Map<String, String> opt = parseArgs(args);
+
+        int n = parseInt(opt, "--n", 100000);
+        double kAve = parseDouble(opt, "--kave", 25.0);
+        double gamma = parseDouble(opt, "--gamma", 1.0);
+        double alpha = parseDouble(opt, "--alpha", 0.0);
+        double beta = parseDouble(opt, "--beta", 0.0);
+        double lmin = parseDouble(opt, "--lmin", 0.0);
+        double lmax = parseDouble(opt, "--lmax", 1.5);
+        double lstep = parseDouble(opt, "--lstep", 0.01);
+        double rho = parseDouble(opt, "--rho", 0.0);
+        long seed = parseLong(opt, "--seed", 42L);
+        String out = opt.getOrDefault("--out", String.format("out/theory/%d/message_passing.csv", n));
+
+        log.info("Message passing: ER N=%d, <k>=%.2f, gamma=%.3f, alpha=%.2f, beta=%.2f, lambda in [%.3f, %.3f) step %.3f",
+                n, kAve, gamma, alpha, beta, lmin, lmax, lstep);
+        try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+            Graph g = ER.generateERFromKAve(n, kAve, seed);
+            long t0 = System.nanoTime();
+            MessagePassing.Point[] points = MessagePassing.solve(g, Array.arange(lmin, lmax, lstep), gamma, alpha, beta, rho, pool);
+            log.info("Solved %d lambdas in %.2f s", points.length, (System.nanoTime() - t0) / 1e9);
+            MessagePassing.writeCsv(points, Path.of(out));
             log.info("Saved: %s", out);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("theory failed", e);
+            System.exit(1);
+        }
+    }
+
+    /** Spectral epidemic-threshold estimates (adjacency and non-backtracking) for one ER graph. */
+    private static void runThresholdCLI(String[] args) {
+        Logger log = new Logger(App.class);
+        Map<String, String> opt = parseArgs(args);
+
+        int n = parseInt(opt, "--n", 100000);
+        double kAve = parseDouble(opt, "--kave", 25.0);
+        double gamma = parseDouble(opt, "--gamma", 1.0);
+        double alpha = parseDouble(opt, "--alpha", 0.0);
+        double beta = parseDouble(opt, "--beta", 0.0);
+        long seed = parseLong(opt, "--seed", 42L);
+
+        try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+            Graph g = ER.generateERFromKAve(n, kAve, seed);
+            long t0 = System.nanoTime();
+            SpectralThreshold.Estimate est = SpectralThreshold.estimate(g, gamma, alpha, beta, pool);
+            log.info("ER N=%d, <k>=%.2f, alpha=%.2f, beta=%.2f (%.2f s)", n, kAve, alpha, beta, (System.nanoTime() - t0) / 1e9);
+            log.info("Leading eigenvalue: adjacency %.6f, non-backtracking %.6f", est.adjacency(), est.nonBacktracking());
+            log.info("Threshold lambda_c: mean-field %.6f, non-backtracking (linear) %.6f, percolation %.6f",
+                    est.meanField(), est.nonBacktrackingLinear(), est.percolation());
+        } catch (Exception e) {
+            log.error("threshold failed", e);
             System.exit(1);
         }
     }
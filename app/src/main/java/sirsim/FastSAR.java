@@ -2,20 +2,34 @@ package sirsim;
 
 import sirsim.network.Graph;
 import sirsim.network.topology.ER;
+import sirsim.output.ColumnarWriter;
+import sirsim.output.OutputFormat;
+import sirsim.output.RecordSchema;
+import sirsim.output.ResultSink;
 import sirsim.simulation.FastSARSimulator;
+import sirsim.simulation.NodeStorage;
 import sirsim.simulation.SarResult;
+import sirsim.stats.CurveAggregator;
+import sirsim.stats.CurvePoints;
+import sirsim.stats.FinalSizeHistogram;
+import sirsim.stats.FinalSizePoints;
+import sirsim.sweep.AdaptiveLambdaSweep;
+import sirsim.sweep.FinalSizeSweeps;
+import sirsim.sweep.SequentialStopping;
+import sirsim.sweep.Shard;
+import sirsim.sweep.ShardManifest;
+import sirsim.sweep.SweepGrid;
+import sirsim.sweep.SweepJournal;
+import sirsim.sweep.SweepMode;
+import sirsim.sweep.SweepRunner;
 import sirsim.utils.Array;
 import sirsim.utils.Logger;
 
-import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.SplittableRandom;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.IntStream;
 
 public class FastSAR {
     
@@ -23,13 +37,44 @@ public class FastSAR {
     private static final Logger logger = new Logger(FastSAR.class);
     
     public static void main(String[] args) throws Exception {
+        // シャード実行（引数 "i/n"、省略時は全体）：セル番号を n で割った余りで分担し shard-ii-of-nn/ へ出力
+        // 全シャード完了後に App merge --dir out/fastsar/<N> で結合（網羅性を検証）
+        Shard shard = args.length > 0 ? Shard.parse(args[0]) : Shard.ALL;
+
         // 例: 無向ERネットワーク（CSR）
         int N = 100_000;
         int kAve = 25;
         // double p = (double)kAve / (N - 1);
 
-        // 書き出し設定
-        boolean isFinal = true;
+        // 掃引の種類（1つだけ選ぶ）
+        //   FINAL_SIZES: セルごとの最終規模とパラメータ点ごとの最終規模分布（ヒストグラム、大規模流行確率、条件付き平均）
+        //   TIME_SERIES: セルごとの時系列
+        //   CURVE_SUMMARY: 各実現値を書き出さず、パラメータ点ごとの平均・分散・分位点のみ（シャード実行不可）
+        //   ADAPTIVE: 適応 λ 掃引（最終規模）。粗い格子から始め、平均・標準偏差が急変する区間だけを細分し、
+        //     分散に応じて点ごとの反復数を配分
+        //   SEQUENTIAL: 逐次停止（最終規模）。各 (α, β, λ) で最終規模 / N の 95% 信頼区間幅が 0.02 以下になるまで
+        //     反復を追加（30〜4 * batchSize * iters 回）。使った反復数を sequential_final_sizes.csv に記録
+        //   STRATIFIED: 層化抽出（最終規模）。初期感染者を次数順位で degreeStrata 個の等サイズ層から均等に選び、層別平均で
+        //     最終規模 / N を推定（単純無作為抽出に対する分散削減率とともに stratified_final_sizes.csv へ）
+        SweepMode mode = SweepMode.FINAL_SIZES;
+        double binWidth = 1.0;    // 要約の時間ビン幅
+        // 要約の分位点（q05〜q95）のスケッチの相対精度（0 なら平均・分散のみで分位点の列は NaN）。
+        // スケッチは点 × ビン × 系列ごと（既定の格子で約36万個、数 GB）になるので必要なときだけ有効にする
+        double quantileAccuracy = 0.0;
+        double majorFraction = 0.01;     // 最終規模がこの割合以上なら大規模流行
+        boolean exactHistogram = false;  // true: 規模ごとのビン、false: 対数ビン（1桁あたり10ビン）
+        // 完了セルをジャーナルに記録し、再実行時は未完了のセルだけを計算して同じファイルへ追記（FINAL_SIZES / TIME_SERIES）
+        boolean checkpoint = true;
+        // 実行ごとのカウンタ（処理/古いイベント数・キュー最大長・伝播の試行/成立・所要時間）を metrics_XX.csv へ（格子のモードのみ）
+        // （JFR でも記録: -XX:StartFlightRecording で sirsim.SimulationRun / sirsim.SweepCell イベント）
+        boolean writeMetrics = false;
+        // ノード状態の格納方式（実行ごとのシミュレータ）：COMPACT は状態2ビット・時刻 float で1ノードあたり約36→16バイト
+        NodeStorage storage = NodeStorage.STANDARD;
+        // TIME_SERIES の実現値ごとの出力形式：COLUMNAR は列指向バイナリ results_XX.scol、
+        // BINARY は行ごとの生の64ビット値 results_XX.srec（FINAL_SIZES でも可、書式化なし）。CSV へは App tocsv で変換。
+        // どちらもジャーナルの対象外なので checkpoint = false の全体実行でのみ使える
+        OutputFormat format = OutputFormat.CSV;
+        int degreeStrata = 8;
         int batchSize = 12;
         int iters = 10;
 
@@ -51,71 +96,204 @@ public class FastSAR {
         int[] thresholdList = new int[N];
         Arrays.fill(thresholdList, threshold);
 
-        // CSV 出力先（既存ファイルがあればインデックスを付与して新規作成）
-        
+        // CSV 出力先（チェックポイント時は固定名、それ以外は既存ファイルがあればインデックスを付与して新規作成）
+        // バッチごとに1つの非同期シンク：ファイルは開いたまま、書式化と書き込みは専用スレッドで行う
+        Path basePath = Paths.get(String.format("out/fastsar/%d", N));
+        if (!shard.isAll()) basePath = basePath.resolve(shard.dirName());
+        double[] betaList = { beta };
+        mode.checkOptions(shard, checkpoint, writeMetrics, format);
+        // 格子を使わない最終規模の掃引（試行 j はグラフ j mod batchSize、初期感染者とシードは試行番号から決定し全 λ で共有）
+        FinalSizeSweeps<SimulatorSlot> sweeps = new FinalSizeSweeps<>(basePath, N, kAve, batchSize, k0, () -> new SimulatorSlot(storage),
+                (slot, g, init, seed, lambdas, a, b) -> finalFractions(slot, g, init, seed, lambdas, a, b, gamma, tMax, thresholdList));
+        if (mode == SweepMode.ADAPTIVE) {
+            AdaptiveLambdaSweep.Settings settings = new AdaptiveLambdaSweep.Settings(lambdaMin, lambdaMax, 16, lambdaStep, 0.05,
+                    30, 4 * batchSize * iters, 0.02, (long) lambdaList.length * batchSize * iters);
+            sweeps.runAdaptive(settings, (pool, g, a, b) -> new double[0], alphaList, betaList);
+            return;
+        }
+        if (mode == SweepMode.SEQUENTIAL) {
+            sweeps.runSequential(SequentialStopping.Rule.ci95(30, 4 * batchSize * iters, 0.02), lambdaList, alphaList, betaList);
+            return;
+        }
+        if (mode == SweepMode.STRATIFIED) {
+            sweeps.runStratified(degreeStrata, batchSize * iters, lambdaList, alphaList, betaList);
+            return;
+        }
+        boolean isFinal = mode == SweepMode.FINAL_SIZES;
+        boolean curvesOnly = mode == SweepMode.CURVE_SUMMARY;
+        // シャード実行では網羅性の検証にジャーナルを使うため常に記録
+        boolean journaled = checkpoint || !shard.isAll();
+        boolean columnar = format == OutputFormat.COLUMNAR;
+        ResultSink[] sinks = new ResultSink[batchSize];
+        ResultSink[] metricsSinks = new ResultSink[batchSize];
+        ColumnarWriter[] columnarWriters = new ColumnarWriter[batchSize];
+        // セルの内容アドレス：同じ設定・パラメータ・シードのセルは起動をまたいで再計算しない
+        long configKey = SweepJournal.key("fastsar", N, kAve, gamma, tMax, k0, threshold, isFinal ? 1 : 0);
 
-        // 進捗表示用カウント
-        final int lambdaCount = lambdaList.length;
-        final int alphaCount = alphaList.length;
-        final long totalTasks = (long) iters * alphaCount * lambdaCount;
-        logger.info("Total tasks: %d", totalTasks);
-        AtomicLong done = new AtomicLong(0);
+        // パラメータ格子：(グラフ, 反復, α, β, λ) の各セルを1タスクとしてワークスティーリングで実行
+        SweepGrid grid = new SweepGrid(batchSize, alphaList, betaList, lambdaList, iters);
+        CurvePoints curves = curvesOnly
+                ? new CurvePoints(alphaList, betaList, lambdaList, () -> CurveAggregator.forSar(tMax, binWidth, quantileAccuracy))
+                : null;
+        FinalSizePoints finalSizes = isFinal
+                ? new FinalSizePoints(alphaList, betaList, lambdaList, () -> exactHistogram
+                        ? FinalSizeHistogram.exact(N, majorFraction)
+                        : FinalSizeHistogram.logBinned(N, 10, majorFraction))
+                : null;
 
         int parallelism = Runtime.getRuntime().availableProcessors();
         logger.info("Parallelism: %d (available processors)", parallelism);
-        
-        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
-            Future<?> future = pool.submit(() -> IntStream.range(0, batchSize).parallel().forEach(batchIndex -> {
-                Graph g = ER.generateERFromKAve(N, kAve, 42L + batchIndex);
-                String idx = String.format("%02d", batchIndex);
-                Path basePath = Paths.get(String.format("out/fastsar/%d", N));
-                Path resultsPath = sirsim.utils.PathsEx.resolveIndexed(basePath.resolve(String.format("results_%s.csv", idx)));
-
-                logger.info("Batch %d started", batchIndex);
-                for (int itr = 0; itr < iters; itr++) {
-                    for (int ai = 0; ai < alphaCount; ai++) {
-                        double alpha = alphaList[ai];
-                        for (int li = 0; li < lambdaCount; li++) {
-                            double lambda = lambdaList[li];
-
-                            // 反復ごとに初期条件と乱数シードを変更
-                            SplittableRandom rng = new SplittableRandom(7L + (long) batchIndex * 10_000 + itr);
-                            int[] init = sampleUnique(rng, g.n, k0);
-                            long simSeed = 12345L + batchIndex * iters + itr;
-
-                            SarResult res = FastSARSimulator.simulate(g, lambda, gamma, tMax, thresholdList, alpha, beta, init, simSeed);
-
-                            // CSV 出力（パラメータ含む：itr,alpha,beta,lambda,time,A,R）
-                            try {
-                                if (isFinal) res.writeFinalStateCsv(resultsPath, itr, alpha, beta, lambda, true);
-                                else res.writeTimeSeriesCsv(resultsPath, itr, alpha, beta, lambda, true);
-                            } catch (IOException e) {
-                                logger.error("CSV output error (batch %d, iteration %d, alpha %.1f, lambda %.2f): %s", 
-                                    batchIndex, itr, alpha, lambda, e.getMessage());
-                                throw new RuntimeException(e);
-                            }
-                        }
-                        
-                        long d = done.incrementAndGet();
-                        if (d % 10_000 == 0 || d == totalTasks) {
-                            double pct = 100.0 * d / totalTasks;
-                            logger.info("Progress: %d/%d (%.1f%%)", d, totalTasks, pct);
-                        }
+
+        String[] resultNames = new String[batchSize];
+        String ext = format == OutputFormat.BINARY ? "srec" : "csv";
+        for (int b = 0; b < batchSize; b++) resultNames[b] = String.format("results_%02d.%s", b, ext);
+        // シャードの目印（モデル・設定・格子・出力ファイル）。結合時の整合性と網羅性の検証に使う
+        ShardManifest manifest = shard.isAll() ? null
+                : new ShardManifest("fastsar", shard, configKey, shard.size(grid.cellCount())).grid(grid).outputs(resultNames);
+        if (manifest != null) {
+            if (isFinal) manifest.finalSizes("A,R", lambdaList, N, majorFraction, exactHistogram ? 0 : 10);
+            manifest.claim(basePath);
+        }
+        // 最終規模の要約（再開時も全セル分を集計し直しているので固定名で上書き）
+        Path summaryPath = isFinal ? outputPath(basePath, "final_size_summary.csv", journaled) : null;
+        Path histPath = isFinal ? outputPath(basePath, "final_size_hist.csv", journaled) : null;
+        try (SweepJournal journal = journaled ? SweepJournal.open(basePath.resolve(SweepJournal.FILE_NAME), configKey) : null) {
+            if (journal != null && journal.resumed()) logger.info("Resuming: %d cells already done", journal.doneCount());
+            if (journal != null && isFinal) {
+                // 再開時は全セル分を集計し直して上書きする。新規のジャーナルなら既存の要約には触れない
+                journal.adopt(summaryPath);
+                journal.adopt(histPath);
+            }
+            try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+                for (int b = 0; b < batchSize && writeMetrics; b++) {
+                    // 診断用：ジャーナル対象外なので実行ごとに新しいファイル
+                    metricsSinks[b] = ResultSink.csv(outputPath(basePath, String.format("metrics_%02d.csv", b), false), RecordSchema.RUN_METRICS);
+                }
+                for (int b = 0; b < batchSize && !curvesOnly; b++) {
+                    if (columnar) {
+                        columnarWriters[b] = new ColumnarWriter(outputPath(basePath, String.format("results_%02d.scol", b), false));
+                        continue;
                     }
+                    Path resultsPath = outputPath(basePath, resultNames[b], journaled);
+                    if (journal != null) {
+                        // 再開時は未コミットの行（中断したセルの出力）を切り捨て、コミット済みの最終規模を集計へ戻す
+                        // （新規のジャーナルでは既存のファイルを拒否し、切り詰めない）
+                        journal.adopt(resultsPath);
+                        if (isFinal) finalSizes.replayCsv(resultsPath, "A", "R");
+                    }
+                    sinks[b] = format == OutputFormat.BINARY
+                            ? ResultSink.binary(resultsPath, RecordSchema.SAR_STATE)
+                            : ResultSink.csv(resultsPath, RecordSchema.SAR_STATE, journal);
                 }
-            }));
+                SweepRunner.run(pool, grid, shard, b -> ER.generateERFromKAve(N, kAve, grid.graphSeed(b)), () -> new SimulatorSlot(storage), (slot, g, cell) -> {
+                    long key = grid.cellKey(cell, configKey);
+                    if (journal != null && journal.isDone(key)) return;
+
+                    // 初期条件と乱数シードはセル座標から決定（スケジューリング順に依存しない）
+                    int[] init = sampleUnique(new SplittableRandom(cell.initSeed()), g.n, k0);
+                    // スレッドごとにシミュレータ（ノード配列）を再利用
+                    FastSARSimulator sim = slot.get(g, gamma, tMax, thresholdList);
+                    SarResult res = sim.reset(cell.lambda(), cell.alpha(), cell.beta(), cell.simSeed()).run(init);
+                    if (writeMetrics) sim.metrics().write(metricsSinks[cell.graph()], cell.itr());
+
+                    if (curvesOnly) {
+                        CurveAggregator agg = curves.at(cell.alphaIndex(), cell.betaIndex(), cell.lambdaIndex());
+                        synchronized (agg) {
+                            agg.add(res);
+                        }
+                        return;
+                    }
+
+                    if (columnar) {
+                        // 列指向バイナリへ1セグメント（符号化はこのスレッド、追記はライタのスレッドが順に行う）
+                        res.writeTimeSeriesColumnar(columnarWriters[cell.graph()], cell.itr(), cell.alpha(), cell.beta(), cell.lambda());
+                        return;
+                    }
 
-            future.get();
+                    // CSV 出力（パラメータ含む：itr,alpha,beta,lambda,time,A,R）。セルの行はまとめて書き、完了をジャーナルへ
+                    ResultSink sink = sinks[cell.graph()];
+                    sink.beginCell();
+                    try {
+                        if (isFinal) res.writeFinalState(sink, cell.itr(), cell.alpha(), cell.beta(), cell.lambda());
+                        else res.writeTimeSeries(sink, cell.itr(), cell.alpha(), cell.beta(), cell.lambda());
+                    } catch (RuntimeException e) {
+                        sink.abortCell();
+                        throw e;
+                    }
+                    sink.endCell(key);
+                    if (isFinal) addFinalSize(finalSizes.at(cell.alphaIndex(), cell.betaIndex(), cell.lambdaIndex()), finalSize(res));
+                });
+            } finally {
+                ResultSink.closeAll(sinks);
+                ResultSink.closeAll(metricsSinks);
+                ColumnarWriter.closeAll(columnarWriters);
+            }
         }
+        if (curvesOnly) {
+            Path curvesPath = outputPath(basePath, "curves_summary.csv", false);
+            curves.writeSummaryCsv(curvesPath);
+            logger.info("Saved: %s", curvesPath);
+        }
+        if (isFinal) {
+            finalSizes.writeSummaryCsv(summaryPath);
+            finalSizes.writeHistogramCsv(histPath);
+            logger.info("Saved: %s, %s", summaryPath, histPath);
+        }
+        if (manifest != null) manifest.complete(true).write(basePath);
         logger.info("All tasks completed");
     }
 
+    /** 1試行の各 λ の最終規模 / N（初期感染者とシードは全 λ で共有） */
+    private static double[] finalFractions(SimulatorSlot slot, Graph g, int[] init, long seed, double[] lambdas, double alpha, double beta,
+                                           double gamma, double tMax, int[] thresholdList) {
+        double[] sizes = new double[lambdas.length];
+        FastSARSimulator sim = slot.get(g, gamma, tMax, thresholdList);
+        for (int li = 0; li < lambdas.length; li++) sizes[li] = finalSize(sim.reset(lambdas[li], alpha, beta, seed).run(init)) / (double) g.n;
+        return sizes;
+    }
+
+    /** チェックポイント時は固定名（再開時に追記・上書き）、それ以外は未使用のインデックス付き名 */
+    private static Path outputPath(Path dir, String name, boolean fixed) {
+        Path p = dir.resolve(name);
+        return fixed ? p : sirsim.utils.PathsEx.resolveIndexed(p);
+    }
+
+    /** 最終規模（一度でも感染したノード数 = n - S）をパラメータ点のヒストグラムへ追加 */
+    private static void addFinalSize(FinalSizeHistogram hist, long size) {
+        synchronized (hist) {
+            hist.add(size);
+        }
+    }
+
+    private static long finalSize(SarResult res) {
+        return res.n - res.S.get(res.S.size() - 1);
+    }
+
+    /** ワーカースレッドごとのシミュレータ（直近のグラフに対してのみ再利用） */
+    private static final class SimulatorSlot {
+        private final NodeStorage storage;
+        private Graph g;
+        private FastSARSimulator sim;
+
+        SimulatorSlot(NodeStorage storage) {
+            this.storage = storage;
+        }
+
+        FastSARSimulator get(Graph g, double gamma, double tMax, int[] thresholdList) {
+            if (sim == null || this.g != g) {
+                this.g = g;
+                this.sim = new FastSARSimulator(g, 0.0, gamma, tMax, thresholdList, 0.0, 0.0, 0L, storage);
+            }
+            return sim;
+        }
+    }
+
     private static int[] sampleUnique(SplittableRandom rng, int n, int k) {
         if (k > n) {
             logger.error("sampleUnique: k(%d) > n(%d)", k, n);
             throw new IllegalArgumentException("k>n");
         }
-        logger.debug("sampleUnique: n=%d, k=%d", n, k);
+        if (logger.isDebugEnabled()) logger.debug("sampleUnique: n=%d, k=%d", n, k);
         boolean[] used = new boolean[n];
         int[] r = new int[k];
         for (int c = 0; c < k; ) {
@@ -2,13 +2,27 @@ package sirsim;
 
 import sirsim.network.Graph;
 import sirsim.network.topology.ER;
+import sirsim.output.ColumnarWriter;
+import sirsim.output.OutputFormat;
+import sirsim.output.RecordSchema;
+import sirsim.output.ResultSink;
+import sirsim.simulation.MultilevelSplitting;
+import sirsim.simulation.VacSIREnsemble;
 import sirsim.simulation.VacSIRSimulator;
 import sirsim.simulation.VacSirResult;
+import sirsim.stats.CurveAggregator;
+import sirsim.utils.Logger;
 
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class VacSIR {
+    private static final Logger logger = new Logger(VacSIR.class);
+
     public static void main(String[] args) throws Exception {
         // 例: 無向ERネットワーク（CSR）
         int N = 1_000_000;
@@ -21,33 +35,118 @@ public class VacSIR {
         // 初期感染者（ランダムに1人）
         int k0 = 1;
 
-        int r = 1; // 感染者の何人先までワクチンするか
+        int r = 1; // 感染者から何ホップ先までワクチンするか（任意の r >= 1）
         double omega = 0.45;
         double beta = 0.168;        // degree exponent for transmission rate
         int gamma = 3;       // recovery rate
         int tMax = 120;      // 打ち切り時刻
         double vacMax = 0.5; // 最大接種率
 
+        // 並列化：アンサンブルでは64本ずつのグループを並列に、逐次版では各ステップの曝露判定を並列に計算
+        // （結果はスレッド数によらず同一。並列に走るグループはそれぞれ N 個の long のビット平面を持つ）
+        boolean parallel = true;
+        ForkJoinPool pool = parallel ? ForkJoinPool.commonPool() : null;
+        // 最大64本の実現値をビットスライスで同時に計算（グラフ走査を共有）
+        boolean useEnsemble = true;
+        // 各実現値の時系列も書き出すか（false なら時刻ごとの平均・分散・分位点の要約のみ）
+        boolean writeRuns = false;
+        // 実現値ごとの時系列の形式：COLUMNAR は列指向バイナリ timeseries.scol、BINARY は行ごとの生の64ビット値
+        // timeseries.srec（CSV へは App tocsv で変換）
+        OutputFormat format = OutputFormat.CSV;
+
+        // 稀な事象の確率（固定努力の多水準分割）：累積感染者数が N * rareTarget に達する確率
+        // （rareCap = true なら接種数が上限 vacMax * N を超える確率）。水準は 10 から目標まで等比に rareLevels 個、
+        // 各水準 rareEffort 本の軌道をスナップショットから分岐し、独立な rareReplicates 回の反復で信頼区間を求める
+        boolean rareEvent = false;
+        boolean rareCap = false;
+        double rareTarget = 0.01;
+        int rareLevels = 8;
+        int rareEffort = 1000;
+        int rareReplicates = 16;
 
         // CSV 出力先（既存ファイルがあればインデックスを付与して新規作成）
-        var tsPath = sirsim.utils.PathsEx.resolveIndexed(Paths.get(String.format("out/vacsir/r=%d/omega=%.4f/N=%d/timeseries.csv", r, omega, N)));
+        var outDir = Paths.get(String.format("out/vacsir/r=%d/omega=%.4f/N=%d", r, omega, N));
+        if (rareEvent) {
+            VacSIRSimulator.Score score = rareCap ? VacSIRSimulator.Score.VACCINATIONS : VacSIRSimulator.Score.CUMULATIVE_INFECTIONS;
+            double target = rareCap ? Math.floor(vacMax * N) + 1 : Math.ceil(rareTarget * N);
+            double[] levels = new double[rareLevels];
+            for (int i = 0; i < rareLevels; i++) {
+                levels[i] = Math.ceil(10.0 * Math.pow(target / 10.0, (i + 1) / (double) rareLevels));
+            }
+            // 目標が小さいと丸めで同じ水準が並ぶので除く
+            levels = Arrays.stream(levels).distinct().toArray();
+            var settings = new MultilevelSplitting.Settings(levels, rareEffort, rareReplicates, 12345L);
+            MultilevelSplitting.Estimate est = MultilevelSplitting.estimate(ForkJoinPool.commonPool(), settings,
+                    () -> new VacSIRSimulator(g, omega, beta, gamma, tMax, vacMax, r, 0L).process(k0, score));
+            var rarePath = sirsim.utils.PathsEx.resolveIndexed(outDir.resolve("rare_event.csv"));
+            try (ResultSink sink = ResultSink.csv(rarePath, RecordSchema.RARE_EVENT)) {
+                sink.row().d(target).d(est.probability()).d(est.stdErr()).d(est.ciLow()).d(est.ciHigh())
+                        .l(est.replicates()).l(est.runs()).d(est.varianceReduction()).commit();
+            }
+            logger.info("P(%s >= %.0f) = %.4e (95%% CI %.4e - %.4e)", score, target, est.probability(), est.ciLow(), est.ciHigh());
+            logger.info("Saved: %s", rarePath);
+            return;
+        }
+        boolean columnar = format == OutputFormat.COLUMNAR;
+        String tsName = switch (format) {
+            case COLUMNAR -> "timeseries.scol";
+            case BINARY -> "timeseries.srec";
+            case CSV -> "timeseries.csv";
+        };
+        var tsPath = sirsim.utils.PathsEx.resolveIndexed(outDir.resolve(tsName));
+        var summaryPath = sirsim.utils.PathsEx.resolveIndexed(outDir.resolve("summary.csv"));
+        // 実現値ごとに即座に集計（時刻ごとの Welford 平均・分散と分位点スケッチ）
+        CurveAggregator curves = CurveAggregator.forVacSir(tMax, 0.01);
 
         // 進捗表示用カウント
 
-        // iters 回シミュレーションし、CSVに itr カラム付きで追記（進捗を表示）
-        for (int itr = 0; itr < iters; itr++) {
-            System.out.printf("itr %d/%d%n", itr + 1, iters);
-            System.out.flush();
-            // 反復ごとに初期条件と乱数シードを変更
-            int[] init = sampleUnique(new SplittableRandom(7L + itr), g.n, k0);
-            long simSeed = 12345L + itr;
+        try (ResultSink sink = !writeRuns || columnar ? null
+                : format == OutputFormat.BINARY ? ResultSink.binary(tsPath, RecordSchema.VACSIR_TIME_SERIES)
+                : ResultSink.csv(tsPath, RecordSchema.VACSIR_TIME_SERIES);
+             ColumnarWriter segments = writeRuns && columnar ? new ColumnarWriter(tsPath) : null) {
+            if (useEnsemble) {
+                int groups = (iters + VacSIREnsemble.MAX_LANES - 1) / VacSIREnsemble.MAX_LANES;
+                VacSirResult[][] res = new VacSirResult[groups][];
+                IntConsumer group = b -> {
+                    int base = b * VacSIREnsemble.MAX_LANES;
+                    int lanes = Math.min(VacSIREnsemble.MAX_LANES, iters - base);
+                    logger.info("itr %d-%d/%d", base + 1, base + lanes, iters);
+                    int[][] init = new int[lanes][];
+                    for (int k = 0; k < lanes; k++) init[k] = sampleUnique(new SplittableRandom(7L + base + k), g.n, k0);
+                    long simSeed = 12345L + base;
+                    res[b] = VacSIREnsemble.simulate(g, omega, beta, gamma, tMax, vacMax, init, r, simSeed);
+                };
+                if (pool != null) pool.submit(() -> IntStream.range(0, groups).parallel().forEach(group)).join();
+                else IntStream.range(0, groups).forEach(group);
+                // 集計と書き出しは実現値の番号順
+                for (int b = 0; b < groups; b++) {
+                    for (int k = 0; k < res[b].length; k++) {
+                        int itr = b * VacSIREnsemble.MAX_LANES + k;
+                        curves.add(res[b][k]);
+                        if (writeRuns && columnar) res[b][k].writeTimeSeriesColumnar(segments, itr);
+                        else if (writeRuns) res[b][k].writeTimeSeries(sink, itr);
+                    }
+                    res[b] = null;
+                }
+            } else {
+                // iters 回シミュレーションし、実現値ごとに集計（進捗を表示）
+                for (int itr = 0; itr < iters; itr++) {
+                    logger.info("itr %d/%d", itr + 1, iters);
+                    // 反復ごとに初期条件と乱数シードを変更
+                    int[] init = sampleUnique(new SplittableRandom(7L + itr), g.n, k0);
+                    long simSeed = 12345L + itr;
 
-            VacSirResult res = VacSIRSimulator.simulate(g, omega, beta, gamma, tMax, vacMax, init, r, simSeed);
+                    VacSirResult res = VacSIRSimulator.simulateParallel(g, omega, beta, gamma, tMax, vacMax, init, r, simSeed, pool);
 
-            // CSV 出力（パラメータ含む：itr,alpha,beta,lambda,time,I,R）
-            res.writeTimeSeriesCsv(tsPath, itr, true);
+                    curves.add(res);
+                    // CSV 出力（itr,t,S,I,V,R；書き込みは専用スレッドでまとめて行う）
+                    if (writeRuns && columnar) res.writeTimeSeriesColumnar(segments, itr);
+                    else if (writeRuns) res.writeTimeSeries(sink, itr);
+                }
+            }
         }
-        System.out.println();
+        curves.writeSummaryCsv(summaryPath);
+        logger.info("Saved: %s", summaryPath);
     }
 
     private static int[] sampleUnique(SplittableRandom rng, int n, int k) {
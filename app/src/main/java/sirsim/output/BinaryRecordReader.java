@@ -0,0 +1,69 @@
+package sirsim.output;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Sequential reader of files written by {@link BinaryTarget}. */
+public final class BinaryRecordReader implements AutoCloseable {
+    private final DataInputStream in;
+    private final RecordSchema schema;
+    private final byte[] row;
+
+    public BinaryRecordReader(Path path) throws IOException {
+        this(Files.newInputStream(path));
+    }
+
+    public BinaryRecordReader(InputStream stream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != BinaryTarget.MAGIC) throw new IOException("not a binary record file");
+        int version = in.readInt();
+        if (version != BinaryTarget.VERSION) throw new IOException("unsupported version " + version);
+        int width = in.readInt();
+        RecordSchema.Column[] cols = new RecordSchema.Column[width];
+        RecordSchema.Type[] types = RecordSchema.Type.values();
+        for (int c = 0; c < width; c++) {
+            RecordSchema.Type type = types[in.readUnsignedByte()];
+            byte[] name = new byte[in.readUnsignedShort()];
+            in.readFully(name);
+            cols[c] = new RecordSchema.Column(new String(name, StandardCharsets.UTF_8), type);
+        }
+        this.schema = new RecordSchema(cols);
+        this.row = new byte[width * Long.BYTES];
+    }
+
+    public RecordSchema schema() { return schema; }
+
+    /** Reads the next record into {@code slots}; returns false at end of file. */
+    public boolean next(long[] slots) throws IOException {
+        int got = in.readNBytes(row, 0, row.length);
+        if (got == 0) return false;
+        if (got < row.length) throw new EOFException("truncated record");
+        for (int c = 0, o = 0; c < schema.width(); c++, o += Long.BYTES) {
+            long v = 0;
+            for (int b = Long.BYTES - 1; b >= 0; b--) v = (v << 8) | (row[o + b] & 0xFFL);
+            slots[c] = v;
+        }
+        return true;
+    }
+
+    /** Converts a binary record file to CSV in the format of {@link CsvTarget} (the file is replaced). */
+    public static void toCsv(Path in, Path out) throws IOException {
+        Files.deleteIfExists(out);
+        try (BinaryRecordReader r = new BinaryRecordReader(in);
+             CsvTarget csv = new CsvTarget(out, r.schema())) {
+            long[] slots = new long[r.schema().width()];
+            while (r.next(slots)) csv.write(slots, 0, 1);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,96 @@
+package sirsim.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends records as raw little-endian 64-bit slots after a self-describing header
+ * (see {@link BinaryRecordReader}). Appending to an existing file requires the same schema.
+ */
+public final class BinaryTarget implements RecordTarget {
+    static final int MAGIC = 0x53524543;  // "SREC"
+    static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final RecordSchema schema;
+    private final FileChannel ch;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    public BinaryTarget(Path path, RecordSchema schema) throws IOException {
+        this.schema = schema;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        if (Files.exists(path) && Files.size(path) > 0L) {
+            try (BinaryRecordReader r = new BinaryRecordReader(path)) {
+                if (!r.schema().equals(schema)) {
+                    throw new IOException("schema mismatch in " + path + ": " + r.schema() + " vs " + schema);
+                }
+            }
+        }
+        this.ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (ch.size() == 0L) {
+            ByteBuffer header = ByteBuffer.wrap(header(schema));
+            while (header.hasRemaining()) ch.write(header);
+        }
+    }
+
+    static byte[] header(RecordSchema schema) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(schema.width());
+            for (int c = 0; c < schema.width(); c++) {
+                out.writeByte(schema.column(c).type().ordinal());
+                byte[] name = schema.column(c).name().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public void write(long[] slots, int offset, int rows) throws IOException {
+        int from = offset * schema.width();
+        int to = from + rows * schema.width();
+        for (int i = from; i < to; i++) {
+            if (!buf.hasRemaining()) flush();
+            buf.putLong(slots[i]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        flush();
+        ch.force(false);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return ch.size() + buf.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            ch.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package sirsim.output;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One segment of a columnar file: scalar run parameters plus equally long typed columns.
+ * Arrays are stored by reference; the table is meant to be written right after it is built.
+ */
+public final class ColumnTable {
+    public enum Type {
+        INT32(4), INT64(8), FLOAT32(4), FLOAT64(8);
+
+        final int bytes;
+        Type(int bytes) { this.bytes = bytes; }
+    }
+
+    /** Run parameter; integral parameters (e.g. itr) keep their type through the CSV conversion. */
+    public record Param(String name, boolean integral, long longValue, double doubleValue) {
+        public double value() { return integral ? longValue : doubleValue; }
+    }
+
+    /** Typed column; data is an int[], long[], float[] or double[] matching the type. */
+    public record Column(String name, Type type, Object data) {
+        public int length() {
+            return switch (type) {
+                case INT32 -> ((int[]) data).length;
+                case INT64 -> ((long[]) data).length;
+                case FLOAT32 -> ((float[]) data).length;
+                case FLOAT64 -> ((double[]) data).length;
+            };
+        }
+
+        /** Value of row i as a double (INT64 beyond 2^53 loses precision; use {@link #getLong}). */
+        public double getDouble(int i) {
+            return switch (type) {
+                case INT32 -> ((int[]) data)[i];
+                case INT64 -> ((long[]) data)[i];
+                case FLOAT32 -> ((float[]) data)[i];
+                case FLOAT64 -> ((double[]) data)[i];
+            };
+        }
+
+        public long getLong(int i) {
+            return switch (type) {
+                case INT32 -> ((int[]) data)[i];
+                case INT64 -> ((long[]) data)[i];
+                case FLOAT32, FLOAT64 -> (long) getDouble(i);
+            };
+        }
+
+        public boolean isInteger() { return type == Type.INT32 || type == Type.INT64; }
+    }
+
+    private final List<Param> params = new ArrayList<>();
+    private final List<Column> columns = new ArrayList<>();
+    private int rows = -1;
+
+    public ColumnTable param(String name, long value) {
+        params.add(new Param(name, true, value, value));
+        return this;
+    }
+
+    public ColumnTable param(String name, double value) {
+        params.add(new Param(name, false, (long) value, value));
+        return this;
+    }
+
+    public ColumnTable ints(String name, int[] values) { return add(new Column(name, Type.INT32, values)); }
+    public ColumnTable longs(String name, long[] values) { return add(new Column(name, Type.INT64, values)); }
+    public ColumnTable floats(String name, float[] values) { return add(new Column(name, Type.FLOAT32, values)); }
+    public ColumnTable doubles(String name, double[] values) { return add(new Column(name, Type.FLOAT64, values)); }
+
+    ColumnTable add(Column c) {
+        int len = c.length();
+        if (rows >= 0 && len != rows) {
+            throw new IllegalArgumentException("column " + c.name() + " has " + len + " rows, expected " + rows);
+        }
+        rows = len;
+        columns.add(c);
+        return this;
+    }
+
+    public List<Param> params() { return Collections.unmodifiableList(params); }
+    public List<Column> columns() { return Collections.unmodifiableList(columns); }
+    public int rows() { return Math.max(rows, 0); }
+
+    public Column column(String name) {
+        for (Column c : columns) if (c.name().equals(name)) return c;
+        throw new IllegalArgumentException("no column " + name);
+    }
+}
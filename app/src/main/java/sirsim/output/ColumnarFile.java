@@ -0,0 +1,340 @@
+package sirsim.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact columnar container for time series and per-node times.
+ *
+ * <p>A file is a sequence of segments, one per {@link ColumnTable} (typically one run), so runs can be
+ * appended. Each segment has a small header (magic, version, run parameters, column names and types,
+ * row count) followed by blocks of {@value #BLOCK_ROWS} rows. Within a block every column is encoded
+ * separately: integer columns as deltas, then the little-endian bytes are split into byte planes and
+ * deflated. Counts that change by one per event and monotone times compress to a few bits per row.
+ */
+public final class ColumnarFile {
+    static final int MAGIC = 0x53434F4C;  // "SCOL"
+    static final int VERSION = 1;
+    public static final int BLOCK_ROWS = 1 << 16;
+
+    private ColumnarFile() {}
+
+    /**
+     * Appends one segment (creates the file and parent directories if needed). Concurrent appends to one
+     * file must be serialized by the caller; {@link ColumnarWriter} does that without a shared lock.
+     */
+    public static void append(Path path, ColumnTable table) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (OutputStream os = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            write(out, table);
+        }
+    }
+
+    /** The bytes of one segment, as {@link #append} writes them. */
+    static byte[] encode(ColumnTable table) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            write(out, table);
+        }
+        return bos.toByteArray();
+    }
+
+    static void write(DataOutputStream out, ColumnTable table) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(table.params().size());
+        for (ColumnTable.Param p : table.params()) {
+            out.writeUTF(p.name());
+            out.writeBoolean(p.integral());
+            if (p.integral()) out.writeLong(p.longValue());
+            else out.writeDouble(p.doubleValue());
+        }
+        out.writeInt(table.columns().size());
+        for (ColumnTable.Column c : table.columns()) {
+            out.writeUTF(c.name());
+            out.writeByte(c.type().ordinal());
+        }
+        final int rows = table.rows();
+        out.writeLong(rows);
+        out.writeInt(BLOCK_ROWS);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            byte[] raw = new byte[BLOCK_ROWS * Long.BYTES];
+            byte[] shuffled = new byte[raw.length];
+            byte[] packed = new byte[raw.length + raw.length / 100 + 64];
+            for (int lo = 0; lo < rows; lo += BLOCK_ROWS) {
+                int len = Math.min(BLOCK_ROWS, rows - lo);
+                out.writeInt(len);
+                for (ColumnTable.Column c : table.columns()) {
+                    int width = c.type().bytes;
+                    encode(c, lo, len, raw);
+                    shuffle(raw, shuffled, len, width);
+                    deflater.reset();
+                    deflater.setInput(shuffled, 0, len * width);
+                    deflater.finish();
+                    int packedLen = 0;
+                    while (!deflater.finished()) {
+                        if (packedLen == packed.length) packed = Arrays.copyOf(packed, packed.length * 2);
+                        packedLen += deflater.deflate(packed, packedLen, packed.length - packedLen);
+                    }
+                    out.writeInt(packedLen);
+                    out.write(packed, 0, packedLen);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Little-endian bytes of rows [lo, lo+len); integers as deltas (first row against 0). */
+    private static void encode(ColumnTable.Column c, int lo, int len, byte[] raw) {
+        switch (c.type()) {
+            case INT32 -> {
+                int[] a = (int[]) c.data();
+                int prev = 0;
+                for (int i = 0; i < len; i++) { int v = a[lo + i]; putInt(raw, i * 4, v - prev); prev = v; }
+            }
+            case INT64 -> {
+                long[] a = (long[]) c.data();
+                long prev = 0;
+                for (int i = 0; i < len; i++) { long v = a[lo + i]; putLong(raw, i * 8, v - prev); prev = v; }
+            }
+            case FLOAT32 -> {
+                float[] a = (float[]) c.data();
+                for (int i = 0; i < len; i++) putInt(raw, i * 4, Float.floatToRawIntBits(a[lo + i]));
+            }
+            case FLOAT64 -> {
+                double[] a = (double[]) c.data();
+                for (int i = 0; i < len; i++) putLong(raw, i * 8, Double.doubleToRawLongBits(a[lo + i]));
+            }
+        }
+    }
+
+    private static void shuffle(byte[] src, byte[] dst, int len, int width) {
+        for (int b = 0; b < width; b++) {
+            int base = b * len;
+            for (int i = 0; i < len; i++) dst[base + i] = src[i * width + b];
+        }
+    }
+
+    private static void unshuffle(byte[] src, byte[] dst, int len, int width) {
+        for (int b = 0; b < width; b++) {
+            int base = b * len;
+            for (int i = 0; i < len; i++) dst[i * width + b] = src[base + i];
+        }
+    }
+
+    private static void putInt(byte[] b, int o, int v) {
+        b[o] = (byte) v; b[o + 1] = (byte) (v >>> 8); b[o + 2] = (byte) (v >>> 16); b[o + 3] = (byte) (v >>> 24);
+    }
+
+    private static void putLong(byte[] b, int o, long v) {
+        putInt(b, o, (int) v);
+        putInt(b, o + 4, (int) (v >>> 32));
+    }
+
+    private static int getInt(byte[] b, int o) {
+        return (b[o] & 0xFF) | (b[o + 1] & 0xFF) << 8 | (b[o + 2] & 0xFF) << 16 | (b[o + 3] & 0xFF) << 24;
+    }
+
+    private static long getLong(byte[] b, int o) {
+        return (getInt(b, o) & 0xFFFFFFFFL) | (long) getInt(b, o + 4) << 32;
+    }
+
+    /** All segments of a file (for large files prefer {@link Reader}). */
+    public static List<ColumnTable> readAll(Path path) throws IOException {
+        List<ColumnTable> tables = new ArrayList<>();
+        try (Reader r = new Reader(path)) {
+            for (ColumnTable t; (t = r.next()) != null; ) tables.add(t);
+        }
+        return tables;
+    }
+
+    /** Segment-at-a-time reader. */
+    public static final class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final Inflater inflater = new Inflater();
+
+        public Reader(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        }
+
+        /** Next segment, or null at end of file. */
+        public ColumnTable next() throws IOException {
+            int magic;
+            try {
+                magic = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (magic != MAGIC) throw new IOException("not a columnar segment");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("unsupported columnar version " + version);
+
+            ColumnTable t = new ColumnTable();
+            int np = in.readInt();
+            for (int i = 0; i < np; i++) {
+                String name = in.readUTF();
+                if (in.readBoolean()) t.param(name, in.readLong());
+                else t.param(name, in.readDouble());
+            }
+            int nc = in.readInt();
+            String[] names = new String[nc];
+            ColumnTable.Type[] types = new ColumnTable.Type[nc];
+            for (int i = 0; i < nc; i++) {
+                names[i] = in.readUTF();
+                types[i] = ColumnTable.Type.values()[in.readUnsignedByte()];
+            }
+            long rowsL = in.readLong();
+            if (rowsL > Integer.MAX_VALUE) throw new IOException("segment too large: " + rowsL);
+            int rows = (int) rowsL;
+            int blockRows = in.readInt();
+
+            Object[] data = new Object[nc];
+            for (int i = 0; i < nc; i++) {
+                data[i] = switch (types[i]) {
+                    case INT32 -> new int[rows];
+                    case INT64 -> new long[rows];
+                    case FLOAT32 -> new float[rows];
+                    case FLOAT64 -> new double[rows];
+                };
+            }
+            byte[] packed = new byte[1024];
+            byte[] shuffled = new byte[blockRows * Long.BYTES];
+            byte[] raw = new byte[shuffled.length];
+            for (int lo = 0; lo < rows; ) {
+                int len = in.readInt();
+                if (len <= 0 || len > blockRows || lo + len > rows) throw new IOException("corrupt block header");
+                for (int i = 0; i < nc; i++) {
+                    int width = types[i].bytes;
+                    int packedLen = in.readInt();
+                    if (packed.length < packedLen) packed = new byte[packedLen];
+                    in.readFully(packed, 0, packedLen);
+                    inflater.reset();
+                    inflater.setInput(packed, 0, packedLen);
+                    try {
+                        int got = 0, want = len * width;
+                        while (got < want && !inflater.finished()) {
+                            int k = inflater.inflate(shuffled, got, want - got);
+                            if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                            got += k;
+                        }
+                        if (got != want) throw new IOException("corrupt block in column " + names[i]);
+                    } catch (DataFormatException e) {
+                        throw new IOException("corrupt block in column " + names[i], e);
+                    }
+                    unshuffle(shuffled, raw, len, width);
+                    decode(types[i], data[i], lo, len, raw);
+                }
+                lo += len;
+            }
+            for (int i = 0; i < nc; i++) t.add(new ColumnTable.Column(names[i], types[i], data[i]));
+            return t;
+        }
+
+        private static void decode(ColumnTable.Type type, Object data, int lo, int len, byte[] raw) {
+            switch (type) {
+                case INT32 -> {
+                    int[] a = (int[]) data;
+                    int prev = 0;
+                    for (int i = 0; i < len; i++) { prev += getInt(raw, i * 4); a[lo + i] = prev; }
+                }
+                case INT64 -> {
+                    long[] a = (long[]) data;
+                    long prev = 0;
+                    for (int i = 0; i < len; i++) { prev += getLong(raw, i * 8); a[lo + i] = prev; }
+                }
+                case FLOAT32 -> {
+                    float[] a = (float[]) data;
+                    for (int i = 0; i < len; i++) a[lo + i] = Float.intBitsToFloat(getInt(raw, i * 4));
+                }
+                case FLOAT64 -> {
+                    double[] a = (double[]) data;
+                    for (int i = 0; i < len; i++) a[lo + i] = Double.longBitsToDouble(getLong(raw, i * 8));
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+    }
+
+    /**
+     * Converts a columnar file to CSV: parameters first (repeated on every row), then the columns.
+     * Integers are printed as such, floating values like {@code %.9f}, NaN as an empty field.
+     * All segments must share one layout.
+     */
+    public static void toCsv(Path in, Path out) throws IOException {
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        try (Reader r = new Reader(in);
+             OutputStream os = new BufferedOutputStream(Files.newOutputStream(out), 1 << 16)) {
+            byte[] buf = new byte[1 << 16];
+            String layout = null;
+            for (ColumnTable t; (t = r.next()) != null; ) {
+                String header = header(t);
+                if (layout == null) {
+                    layout = header;
+                    os.write((header + "\n").getBytes(StandardCharsets.UTF_8));
+                } else if (!layout.equals(header)) {
+                    throw new IOException("segments with different layouts: " + layout + " vs " + header);
+                }
+                int pos = 0;
+                int maxRow = (t.params().size() + t.columns().size()) * (FastNumberFormat.MAX_LENGTH + 1);
+                for (int row = 0; row < t.rows(); row++) {
+                    if (buf.length - pos < maxRow) {
+                        os.write(buf, 0, pos);
+                        pos = 0;
+                        if (buf.length < maxRow) buf = new byte[maxRow];
+                    }
+                    boolean first = true;
+                    for (ColumnTable.Param p : t.params()) {
+                        if (!first) buf[pos++] = ',';
+                        first = false;
+                        pos = p.integral() ? FastNumberFormat.appendLong(buf, pos, p.longValue())
+                                           : appendDouble(buf, pos, p.doubleValue());
+                    }
+                    for (ColumnTable.Column c : t.columns()) {
+                        if (!first) buf[pos++] = ',';
+                        first = false;
+                        pos = c.isInteger() ? FastNumberFormat.appendLong(buf, pos, c.getLong(row))
+                                            : appendDouble(buf, pos, c.getDouble(row));
+                    }
+                    buf[pos++] = '\n';
+                }
+                os.write(buf, 0, pos);
+            }
+        }
+    }
+
+    private static int appendDouble(byte[] buf, int pos, double v) {
+        return Double.isNaN(v) ? pos : FastNumberFormat.appendFixed9(buf, pos, v);
+    }
+
+    private static String header(ColumnTable t) {
+        StringBuilder sb = new StringBuilder();
+        for (ColumnTable.Param p : t.params()) sb.append(sb.isEmpty() ? "" : ",").append(p.name());
+        for (ColumnTable.Column c : t.columns()) sb.append(sb.isEmpty() ? "" : ",").append(c.name());
+        return sb.toString();
+    }
+}
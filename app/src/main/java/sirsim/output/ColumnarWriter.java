@@ -0,0 +1,142 @@
+package sirsim.output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous appender of {@link ColumnarFile} segments to one file. The calling thread encodes and
+ * compresses its segment without holding a lock; a bounded queue (blocking when full) hands the bytes to
+ * one writer thread, which keeps the file open for the whole run. Segments of one thread keep their order.
+ * {@link #close()} must be called to drain the queue and close the file.
+ */
+public final class ColumnarWriter implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final FileChannel ch;
+    private final int capacity;
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private boolean closing;
+    private IOException failure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread writer;
+
+    public ColumnarWriter(Path path) throws IOException {
+        this(path, DEFAULT_CAPACITY);
+    }
+
+    /** @param capacity segments that may wait for the writer thread */
+    public ColumnarWriter(Path path, int capacity) throws IOException {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        this.ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.capacity = capacity;
+        this.writer = new Thread(this::drain, "columnar-writer-" + path.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Encodes {@code table} on the calling thread and queues it, blocking while the queue is full. */
+    public void append(ColumnTable table) {
+        byte[] segment;
+        try {
+            segment = ColumnarFile.encode(table);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lock.lock();
+        try {
+            while (queue.size() == capacity && failure == null && !closing) notFull.awaitUninterruptibly();
+            if (failure != null) throw new UncheckedIOException("columnar writer failed", failure);
+            if (closing) throw new IllegalStateException("columnar writer is closed");
+            queue.addLast(segment);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                byte[] segment;
+                lock.lock();
+                try {
+                    while (queue.isEmpty() && !closing) notEmpty.awaitUninterruptibly();
+                    if (queue.isEmpty()) break;
+                    segment = queue.pollFirst();
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+                ByteBuffer bb = ByteBuffer.wrap(segment);
+                while (bb.hasRemaining()) ch.write(bb);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            try {
+                ch.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            if (failure == null) failure = e;
+            else failure.addSuppressed(e);
+            queue.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drains the queue, closes the file and rethrows a write failure if one happened. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closing = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while closing columnar writer", e);
+        }
+        if (failure != null) throw failure;
+    }
+
+    /** Closes every non-null writer, then rethrows the first failure (later ones suppressed). */
+    public static void closeAll(ColumnarWriter... writers) throws IOException {
+        IOException first = null;
+        for (ColumnarWriter w : writers) {
+            if (w == null) continue;
+            try {
+                w.close();
+            } catch (IOException e) {
+                if (first == null) first = e;
+                else first.addSuppressed(e);
+            }
+        }
+        if (first != null) throw first;
+    }
+}
@@ -0,0 +1,11 @@
+package sirsim.output;
+
+import java.io.IOException;
+
+/**
+ * Durable record of finished work units. A {@link ResultSink} calls {@link #commit} after the rows of
+ * the given cells have been written and synced, with the output length that contains exactly them.
+ */
+public interface CommitLog {
+    void commit(String output, long length, long[] keys, int count) throws IOException;
+}
@@ -0,0 +1,76 @@
+package sirsim.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends records as CSV lines (LONG columns as integers, DOUBLE columns as {@code %.9f}).
+ * The file is opened once; the header is written only when the file is empty.
+ */
+public final class CsvTarget implements RecordTarget {
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final RecordSchema schema;
+    private final FileChannel ch;
+    private final byte[] buf = new byte[BUFFER_BYTES];
+    private final int maxRowBytes;
+    private int pos;
+
+    public CsvTarget(Path path, RecordSchema schema) throws IOException {
+        this.schema = schema;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        this.ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.maxRowBytes = schema.width() * (FastNumberFormat.MAX_LENGTH + 1);
+        if (ch.size() == 0L) {
+            byte[] header = (schema.header() + "\n").getBytes(StandardCharsets.UTF_8);
+            ch.write(ByteBuffer.wrap(header));
+        }
+    }
+
+    @Override
+    public void write(long[] slots, int offset, int rows) throws IOException {
+        final int w = schema.width();
+        for (int r = 0, base = offset * w; r < rows; r++, base += w) {
+            if (BUFFER_BYTES - pos < maxRowBytes) flush();
+            for (int c = 0; c < w; c++) {
+                if (c > 0) buf[pos++] = ',';
+                pos = schema.isDouble(c)
+                        ? FastNumberFormat.appendFixed9(buf, pos, Double.longBitsToDouble(slots[base + c]))
+                        : FastNumberFormat.appendLong(buf, pos, slots[base + c]);
+            }
+            buf[pos++] = '\n';
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buf, 0, pos);
+        while (bb.hasRemaining()) ch.write(bb);
+        pos = 0;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        flush();
+        ch.force(false);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return ch.size() + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            ch.close();
+        }
+    }
+}
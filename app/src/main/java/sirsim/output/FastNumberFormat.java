@@ -0,0 +1,74 @@
+package sirsim.output;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Allocation-free ASCII formatting into a byte buffer. {@link #appendFixed9} prints the same text as
+ * {@code String.format(Locale.ROOT, "%.9f", v)}: values whose scaled fraction is provably away from a
+ * rounding tie are rounded directly, the rare near-ties (and huge values) go through {@code String.format}.
+ */
+public final class FastNumberFormat {
+    private FastNumberFormat() {}
+
+    /** Upper bound of the bytes one call may append. */
+    public static final int MAX_LENGTH = 352;
+
+    private static final double SCALE = 1e9;
+    private static final long SCALE_L = 1_000_000_000L;
+    private static final byte[] NAN = ascii("NaN");
+    private static final byte[] INF = ascii("Infinity");
+    private static final byte[] MIN_LONG = ascii(Long.toString(Long.MIN_VALUE));
+
+    /** Appends v in decimal; returns the new position. */
+    public static int appendLong(byte[] buf, int pos, long v) {
+        if (v == Long.MIN_VALUE) return put(buf, pos, MIN_LONG);
+        if (v < 0) { buf[pos++] = '-'; v = -v; }
+        int len = digits(v);
+        int end = pos + len;
+        for (int i = end - 1; i >= pos; i--) { buf[i] = (byte) ('0' + v % 10); v /= 10; }
+        return end;
+    }
+
+    /** Appends v like {@code %.9f}; returns the new position. */
+    public static int appendFixed9(byte[] buf, int pos, double v) {
+        if (Double.isNaN(v)) return put(buf, pos, NAN);
+        boolean neg = Double.doubleToRawLongBits(v) < 0;
+        double a = Math.abs(v);
+        if (Double.isInfinite(a)) {
+            if (neg) buf[pos++] = '-';
+            return put(buf, pos, INF);
+        }
+        double x = a * SCALE;
+        if (x < 9.0e15) {
+            double fl = Math.floor(x);
+            double frac = x - fl;  // exact
+            // a*1e9 is off by at most half an ulp, so outside this band the rounding direction is certain
+            if (Math.abs(frac - 0.5) > 2 * Math.ulp(x)) {
+                long r = (long) fl + (frac > 0.5 ? 1 : 0);
+                if (neg) buf[pos++] = '-';
+                pos = appendLong(buf, pos, r / SCALE_L);
+                buf[pos++] = '.';
+                long f = r % SCALE_L;
+                for (int i = pos + 8; i >= pos; i--) { buf[i] = (byte) ('0' + f % 10); f /= 10; }
+                return pos + 9;
+            }
+        }
+        return put(buf, pos, ascii(String.format(Locale.ROOT, "%.9f", v)));
+    }
+
+    private static int digits(long v) {
+        int d = 1;
+        while (v >= 10) { v /= 10; d++; }
+        return d;
+    }
+
+    private static int put(byte[] buf, int pos, byte[] s) {
+        System.arraycopy(s, 0, buf, pos, s.length);
+        return pos + s.length;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,11 @@
+package sirsim.output;
+
+/** File format of per-run output in the drivers. */
+public enum OutputFormat {
+    /** One CSV row per record through a {@link ResultSink}; journaled, so checkpoints and shards work. */
+    CSV,
+    /** One {@link ColumnarFile} segment per run (about 10x smaller time series); not journaled. */
+    COLUMNAR,
+    /** Raw 64-bit slots per record through {@link ResultSink#binary} (.srec, no number formatting); not journaled. */
+    BINARY
+}
@@ -0,0 +1,79 @@
+package sirsim.output;
+
+import java.util.Arrays;
+
+/**
+ * Flat record layout: a fixed list of named 64-bit columns. LONG columns hold integers, DOUBLE columns
+ * hold raw {@code double} bits, so a record fits in {@code width()} consecutive {@code long} slots.
+ */
+public final class RecordSchema {
+    public enum Type { LONG, DOUBLE }
+
+    public record Column(String name, Type type) {
+        public static Column l(String name) { return new Column(name, Type.LONG); }
+        public static Column d(String name) { return new Column(name, Type.DOUBLE); }
+    }
+
+    /** Time-series or final-state rows of a FastSIR run (itr,alpha,beta,lambda,time,I,R). */
+    public static final RecordSchema SIR_STATE = new RecordSchema(
+            Column.l("itr"), Column.d("alpha"), Column.d("beta"), Column.d("lambda"), Column.d("time"), Column.l("I"), Column.l("R"));
+    /** Time-series or final-state rows of a FastSAR run (itr,alpha,beta,lambda,time,A,R). */
+    public static final RecordSchema SAR_STATE = new RecordSchema(
+            Column.l("itr"), Column.d("alpha"), Column.d("beta"), Column.d("lambda"), Column.d("time"), Column.l("A"), Column.l("R"));
+    /** Percolation final sizes (itr,alpha,beta,lambda,R). */
+    public static final RecordSchema FINAL_SIZE = new RecordSchema(
+            Column.l("itr"), Column.d("alpha"), Column.d("beta"), Column.d("lambda"), Column.l("R"));
+    /** Per-run simulator counters (see RunMetrics). */
+    public static final RecordSchema RUN_METRICS = new RecordSchema(
+            Column.l("itr"), Column.d("alpha"), Column.d("beta"), Column.d("lambda"), Column.l("seed"),
+            Column.l("events"), Column.l("stale"), Column.l("peak_queue"), Column.l("attempted"), Column.l("accepted"),
+            Column.l("final_size"), Column.d("wall_ms"));
+    /** Per-point estimates of adaptive or sequential sweeps (alpha,beta,lambda,trials,mean,std,se of the final size / N). */
+    public static final RecordSchema POINT_ESTIMATE = new RecordSchema(
+            Column.d("alpha"), Column.d("beta"), Column.d("lambda"), Column.l("trials"), Column.d("mean"), Column.d("std"), Column.d("se"));
+    /** Variance-reduced estimates (alpha,beta,lambda,runs,mean,se,variance_reduction of the final size / N). */
+    public static final RecordSchema REDUCED_ESTIMATE = new RecordSchema(
+            Column.d("alpha"), Column.d("beta"), Column.d("lambda"), Column.l("runs"), Column.d("mean"), Column.d("se"),
+            Column.d("variance_reduction"));
+    /** Multilevel-splitting estimate of P(score >= target) (target,probability,se,ci_low,ci_high,replicates,runs,variance_reduction). */
+    public static final RecordSchema RARE_EVENT = new RecordSchema(
+            Column.d("target"), Column.d("probability"), Column.d("se"), Column.d("ci_low"), Column.d("ci_high"),
+            Column.l("replicates"), Column.l("runs"), Column.d("variance_reduction"));
+    /** Discrete-time VacSIR series (itr,t,S,I,V,R). */
+    public static final RecordSchema VACSIR_TIME_SERIES = new RecordSchema(
+            Column.l("itr"), Column.l("t"), Column.l("S"), Column.l("I"), Column.l("V"), Column.l("R"));
+
+    private final Column[] columns;
+
+    public RecordSchema(Column... columns) {
+        if (columns.length == 0) throw new IllegalArgumentException("schema needs at least one column");
+        this.columns = columns.clone();
+    }
+
+    public int width() { return columns.length; }
+
+    public Column column(int i) { return columns[i]; }
+
+    public boolean isDouble(int i) { return columns[i].type() == Type.DOUBLE; }
+
+    /** CSV header line (without line terminator). */
+    public String header() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(columns[i].name());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RecordSchema s && Arrays.equals(columns, s.columns);
+    }
+
+    @Override
+    public int hashCode() { return Arrays.hashCode(columns); }
+
+    @Override
+    public String toString() { return header(); }
+}
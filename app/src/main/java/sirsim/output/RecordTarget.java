@@ -0,0 +1,19 @@
+package sirsim.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Destination of a {@link ResultSink}; only ever called from the sink's writer thread. */
+public interface RecordTarget extends Closeable {
+    /** Writes {@code rows} records stored back to back in {@code slots} from record {@code offset} (width() slots each). */
+    void write(long[] slots, int offset, int rows) throws IOException;
+
+    /** Pushes buffered bytes to the file. */
+    void flush() throws IOException;
+
+    /** Flushes and forces the file to stable storage. */
+    void sync() throws IOException;
+
+    /** File length once everything written so far is flushed. */
+    long position() throws IOException;
+}
@@ -0,0 +1,318 @@
+package sirsim.output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous, batched record writer. Compute threads append primitive records to a bounded ring
+ * (blocking when it is full, which throttles producers to the disk); one writer thread drains it in
+ * batches and hands them to a {@link RecordTarget}, which keeps the file open for the whole run.
+ *
+ * <pre>{@code
+ * try (ResultSink sink = ResultSink.csv(path, RecordSchema.FINAL_SIZE)) {
+ *     sink.row().l(itr).d(alpha).d(beta).d(lambda).l(size).commit();
+ * }
+ * }</pre>
+ * Records of one thread keep their order; records of different threads interleave.
+ * {@link #close()} must be called to drain the ring and close the file.
+ *
+ * <p>For checkpointing, rows written between {@link #beginCell()} and {@link #endCell(long)} are staged
+ * per thread and enqueued as one contiguous group followed by a marker. With a {@link CommitLog}, the
+ * writer periodically syncs the file and commits the keys of the groups written so far together with
+ * the file length at the last marker, so a committed length never contains rows of an uncommitted cell.
+ */
+public final class ResultSink implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final long IDLE_FLUSH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long COMMIT_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final int COMMIT_KEYS = 4096;
+
+    private final RecordSchema schema;
+    private final RecordTarget target;
+    private final String name;
+    private final CommitLog log;
+    private final int width;
+    private final int capacity;
+    private final long[] ring;
+    private final boolean[] markers;
+    private int head, count;
+    private boolean closing;
+    private IOException failure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // keeps a cell's rows contiguous in the ring
+    private final ReentrantLock groupLock = new ReentrantLock();
+    private final Thread writer;
+    private final ThreadLocal<Row> rows;
+
+    public static ResultSink csv(Path path, RecordSchema schema) throws IOException {
+        return csv(path, schema, null);
+    }
+
+    /** CSV sink whose finished cells are committed to {@code log} under the file name. */
+    public static ResultSink csv(Path path, RecordSchema schema, CommitLog log) throws IOException {
+        return new ResultSink(new CsvTarget(path, schema), schema, DEFAULT_CAPACITY, path.getFileName().toString(), log);
+    }
+
+    public static ResultSink binary(Path path, RecordSchema schema) throws IOException {
+        return new ResultSink(new BinaryTarget(path, schema), schema, DEFAULT_CAPACITY, path.getFileName().toString(), null);
+    }
+
+    public ResultSink(RecordTarget target, RecordSchema schema, int capacity, String name) {
+        this(target, schema, capacity, name, null);
+    }
+
+    public ResultSink(RecordTarget target, RecordSchema schema, int capacity, String name, CommitLog log) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.schema = schema;
+        this.target = target;
+        this.name = name;
+        this.log = log;
+        this.width = schema.width();
+        this.capacity = capacity;
+        this.ring = new long[capacity * width];
+        this.markers = new boolean[capacity];
+        this.rows = ThreadLocal.withInitial(Row::new);
+        this.writer = new Thread(this::drain, "result-sink-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public RecordSchema schema() { return schema; }
+
+    /** The calling thread's record builder (reused; fill every column in order, then {@link Row#commit()}). */
+    public Row row() {
+        return rows.get().start();
+    }
+
+    /** Appends one record of width() slots (DOUBLE columns as raw bits), blocking while the ring is full. */
+    public void put(long[] record) {
+        if (record.length < width) throw new IllegalArgumentException("record shorter than schema");
+        groupLock.lock();
+        try {
+            enqueue(record, 0, false);
+        } finally {
+            groupLock.unlock();
+        }
+    }
+
+    /** Starts staging the calling thread's rows for one cell. */
+    public void beginCell() {
+        Row r = rows.get();
+        if (r.staging) throw new IllegalStateException("cell already open on this thread");
+        r.staging = true;
+        r.staged = 0;
+    }
+
+    /** Enqueues the staged rows of the calling thread as one group, followed by the cell's marker. */
+    public void endCell(long key) {
+        Row r = rows.get();
+        if (!r.staging) throw new IllegalStateException("no open cell on this thread");
+        r.staging = false;
+        groupLock.lock();
+        try {
+            for (int i = 0; i < r.staged; i++) enqueue(r.stage, i * width, false);
+            r.keySlot[0] = key;
+            enqueue(r.keySlot, 0, true);
+        } finally {
+            groupLock.unlock();
+            r.staged = 0;
+        }
+    }
+
+    /** Drops the staged rows of the calling thread (e.g. when the cell failed). */
+    public void abortCell() {
+        Row r = rows.get();
+        r.staging = false;
+        r.staged = 0;
+    }
+
+    private void enqueue(long[] src, int from, boolean marker) {
+        lock.lock();
+        try {
+            while (count == capacity && failure == null && !closing) notFull.awaitUninterruptibly();
+            if (failure != null) throw new UncheckedIOException("result sink failed", failure);
+            if (closing) throw new IllegalStateException("result sink is closed");
+            int tail = (head + count) % capacity;
+            System.arraycopy(src, from, ring, tail * width, marker ? 1 : width);
+            markers[tail] = marker;
+            if (count++ == 0) notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        long[] batch = new long[capacity * width];
+        boolean[] batchMarkers = new boolean[capacity];
+        long[] pending = new long[64];
+        int pendingCount = 0;
+        long committable = 0;  // file length right after the last marker
+        long lastCommit = System.nanoTime();
+        boolean dirty = false;
+        try {
+            while (true) {
+                int n;
+                lock.lock();
+                try {
+                    long wait = IDLE_FLUSH_NANOS;
+                    while (count == 0 && !closing && (!dirty || wait > 0)) {
+                        if (dirty) wait = notEmpty.awaitNanos(wait);
+                        else notEmpty.awaitUninterruptibly();
+                    }
+                    if (count == 0 && closing) break;
+                    n = count;
+                    int first = Math.min(n, capacity - head);
+                    System.arraycopy(ring, head * width, batch, 0, first * width);
+                    System.arraycopy(ring, 0, batch, first * width, (n - first) * width);
+                    System.arraycopy(markers, head, batchMarkers, 0, first);
+                    System.arraycopy(markers, 0, batchMarkers, first, n - first);
+                    head = (head + n) % capacity;
+                    count = 0;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (n == 0) {  // idle: push what is buffered so the file is readable during long runs
+                    if (pendingCount > 0 && log != null) {
+                        target.sync();
+                        log.commit(name, committable, pending, pendingCount);
+                        pendingCount = 0;
+                        lastCommit = System.nanoTime();
+                    } else {
+                        target.flush();
+                    }
+                    dirty = false;
+                    continue;
+                }
+                int run = 0;
+                for (int i = 0; i < n; i++) {
+                    if (!batchMarkers[i]) continue;
+                    if (i > run) target.write(batch, run, i - run);
+                    run = i + 1;
+                    if (log == null) continue;
+                    committable = target.position();
+                    if (pendingCount == pending.length) pending = Arrays.copyOf(pending, pending.length * 2);
+                    pending[pendingCount++] = batch[i * width];
+                }
+                if (n > run) target.write(batch, run, n - run);
+                dirty = true;
+                if (log != null && pendingCount > 0
+                        && (pendingCount >= COMMIT_KEYS || System.nanoTime() - lastCommit >= COMMIT_NANOS)) {
+                    target.sync();
+                    log.commit(name, committable, pending, pendingCount);
+                    pendingCount = 0;
+                    lastCommit = System.nanoTime();
+                }
+            }
+            if (log != null && pendingCount > 0) {
+                target.sync();
+                log.commit(name, committable, pending, pendingCount);
+            }
+            target.close();
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new IOException("result sink writer interrupted", e));
+        } catch (RuntimeException | Error e) {
+            // a dead writer would leave producers waiting on a full ring forever
+            fail(new IOException("result sink writer failed", e));
+        }
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            target.close();
+        } catch (IOException | RuntimeException suppressed) {
+            e.addSuppressed(suppressed);
+        }
+    }
+
+    /** Drains the ring, closes the target and rethrows a write failure if one happened. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closing = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while closing result sink", e);
+        }
+        if (failure != null) throw failure;
+    }
+
+    /** Closes every non-null sink, then rethrows the first failure (later ones suppressed). */
+    public static void closeAll(ResultSink... sinks) throws IOException {
+        IOException first = null;
+        for (ResultSink sink : sinks) {
+            if (sink == null) continue;
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (first == null) first = e;
+                else first.addSuppressed(e);
+            }
+        }
+        if (first != null) throw first;
+    }
+
+    /** Per-thread record builder. */
+    public final class Row {
+        private final long[] slots = new long[width];
+        private final long[] keySlot = new long[1];
+        private int col;
+        private boolean staging;
+        private long[] stage = new long[0];
+        private int staged;
+
+        private Row start() {
+            col = 0;
+            return this;
+        }
+
+        public Row l(long v) {
+            if (schema.isDouble(col)) throw new IllegalStateException("column " + schema.column(col).name() + " is DOUBLE");
+            slots[col++] = v;
+            return this;
+        }
+
+        public Row d(double v) {
+            if (!schema.isDouble(col)) throw new IllegalStateException("column " + schema.column(col).name() + " is LONG");
+            slots[col++] = Double.doubleToRawLongBits(v);
+            return this;
+        }
+
+        public void commit() {
+            if (col != width) throw new IllegalStateException("record has " + col + " of " + width + " columns");
+            col = 0;
+            if (!staging) {
+                put(slots);
+                return;
+            }
+            if ((staged + 1) * width > stage.length) stage = Arrays.copyOf(stage, Math.max(width, stage.length * 2));
+            System.arraycopy(slots, 0, stage, staged * width, width);
+            staged++;
+        }
+    }
+}
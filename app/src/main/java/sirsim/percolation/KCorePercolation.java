@@ -2,14 +2,28 @@ package sirsim.percolation;
 
 import sirsim.network.Graph;
 import sirsim.network.topology.ER;
+import sirsim.stats.AntitheticMean;
+import sirsim.stats.ControlVariates;
+import sirsim.stats.ReducedEstimate;
+import sirsim.sweep.Shard;
+import sirsim.sweep.SequentialStopping;
+import sirsim.sweep.ShardManifest;
+import sirsim.sweep.ShardMerge;
+import sirsim.sweep.SweepJournal;
 import sirsim.utils.Logger;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
 
 /**
  * K-core percolation simulation: random node removal (site percolation)
@@ -18,6 +32,39 @@ import java.util.SplittableRandom;
 public final class KCorePercolation {
     private static final Logger log = new Logger(KCorePercolation.class);
 
+    private static final String HEADER = "p,frac_kcore,frac_std,size_mean,size_std\n";
+    /** {@link #HEADER} plus the trials each point used and the standard error of frac_kcore. */
+    private static final String SEQUENTIAL_HEADER = "p,frac_kcore,frac_std,size_mean,size_std,trials,frac_se\n";
+    /** Raw per-trial output of a shard (step,trial,p,size). */
+    public static final String SHARD_TRIALS = "trials.csv";
+
+    /** Header of {@link #sweepReducedER_Z}: estimate, its standard error, runs and the variance-reduction factor. */
+    private static final String REDUCED_HEADER = "p,frac_kcore,frac_se,runs,variance_reduction\n";
+
+    /** Variance reduction of {@link #runManyER_Z(int, double, int, double, int, long, Reduction)}. */
+    public enum Reduction {
+        /** Pairs of runs on one graph with site uniforms u and 1 - u; the k-core size is monotone in the occupied set. */
+        ANTITHETIC,
+        /**
+         * Regression on occupied nodes, occupied edges and edge count, whose expectations are known exactly:
+         * {@code p n}, {@code p^2 m} given the graph, and {@code p_edge n (n - 1) / 2} for ER.
+         * This adapts the usual "analytic ER prediction as control": that prediction is a constant for given
+         * {@code (n, z, p)} and does not vary across trials, so these counts stand in for it.
+         */
+        CONTROL,
+        /** Antithetic pairs with the controls averaged over each pair. */
+        BOTH;
+
+        public static Reduction parse(String s) {
+            return switch (s.toLowerCase(Locale.ROOT)) {
+                case "antithetic" -> ANTITHETIC;
+                case "control" -> CONTROL;
+                case "both" -> BOTH;
+                default -> throw new IllegalArgumentException("unknown reduction: " + s + " (antithetic, control, both)");
+            };
+        }
+    }
+
     public record ResultRow(double p, double meanFrac, double stdFrac, double meanSize, double stdSize) {}
 
     /**
@@ -25,38 +72,327 @@ public final class KCorePercolation {
      * generating an ER(N, z) graph for each trial unless a graph is supplied.
      */
     public static void sweepER_Z(int n, double z, int k, double pMin, double pMax, int steps, int trials, long seed, Path outCsv) throws IOException {
-        double dp = steps <= 1 ? 0.0 : (pMax - pMin) / (steps - 1);
+        double dp = stepWidth(pMin, pMax, steps);
         if (outCsv != null) Files.createDirectories(outCsv.getParent());
         try (BufferedWriter bw = outCsv == null ? null : Files.newBufferedWriter(outCsv)) {
-            if (bw != null) bw.write("p,frac_kcore,frac_std,size_mean,size_std\n");
+            if (bw != null) bw.write(HEADER);
             for (int i = 0; i < steps; i++) {
                 double p = pMin + dp * i;
                 double[] vals = runManyER_Z(n, z, k, p, trials, seed + i * 1337L);
                 // vals: [meanFrac, stdFrac, meanSize, stdSize]
-                if (bw != null) bw.write(String.format(Locale.US, "%.8f,%.8f,%.8f,%.3f,%.3f\n", p, vals[0], vals[1], vals[2], vals[3]));
+                if (bw != null) bw.write(formatRow(p, vals));
                 log.info("p=%.4f -> k-core frac=%.4f ± %.4f", p, vals[0], vals[1]);
             }
         }
     }
 
+    /**
+     * {@link #sweepER_Z} with a per-point trial count: each p runs until {@code rule} is met for frac_kcore.
+     * All points advance together, with the trials of one round in parallel on {@code pool}. Trial t of a point
+     * draws the same graph and sites as trial t of {@link #sweepER_Z} with the same seed.
+     */
+    public static void sweepSequentialER_Z(int n, double z, int k, double pMin, double pMax, int steps, SequentialStopping.Rule rule,
+                                           long seed, ForkJoinPool pool, Path outCsv) throws IOException {
+        double dp = stepWidth(pMin, pMax, steps);
+        double[] ps = new double[steps];
+        long[] seeds = new long[steps];
+        for (int i = 0; i < steps; i++) {
+            ps[i] = pMin + dp * i;
+            seeds[i] = seed + i * 1337L;
+        }
+        SequentialStopping.Point[] points = runSequential(n, z, k, ps, rule, seeds, pool);
+        if (outCsv != null && outCsv.getParent() != null) Files.createDirectories(outCsv.getParent());
+        try (BufferedWriter bw = outCsv == null ? null : Files.newBufferedWriter(outCsv)) {
+            if (bw != null) bw.write(SEQUENTIAL_HEADER);
+            for (int i = 0; i < steps; i++) {
+                double[] vals = sequentialRow(n, points[i]);
+                if (bw != null) bw.write(formatSequentialRow(ps[i], vals));
+                log.info("p=%.4f -> k-core frac=%.4f ± %.4f (%d trials)", ps[i], vals[0], vals[1], points[i].trials());
+            }
+        }
+    }
+
+    /**
+     * {@link #sweepER_Z} with a variance-reduced estimator at each p. Rows report the standard error and the
+     * factor by which plain sampling would need more runs for the same error.
+     */
+    public static void sweepReducedER_Z(int n, double z, int k, double pMin, double pMax, int steps, int trials, long seed,
+                                        Reduction reduction, Path outCsv) throws IOException {
+        double dp = stepWidth(pMin, pMax, steps);
+        if (outCsv != null && outCsv.getParent() != null) Files.createDirectories(outCsv.getParent());
+        try (BufferedWriter bw = outCsv == null ? null : Files.newBufferedWriter(outCsv)) {
+            if (bw != null) bw.write(REDUCED_HEADER);
+            for (int i = 0; i < steps; i++) {
+                double p = pMin + dp * i;
+                ReducedEstimate e = runManyER_Z(n, z, k, p, trials, seed + i * 1337L, reduction);
+                if (bw != null) {
+                    bw.write(String.format(Locale.US, "%.8f,%.8f,%.8f,%d,%.4f\n", p, e.mean(), e.stdErr(), e.samples(), e.varianceReduction()));
+                }
+                log.info("p=%.4f -> k-core frac=%.4f ± %.4f (variance reduction x%.2f)", p, e.mean(), e.stdErr(), e.varianceReduction());
+            }
+        }
+    }
+
+    /**
+     * Shard {@code shard} of {@link #sweepER_Z}: runs only the (step, trial) cells it owns (cell = step * trials + trial)
+     * with the same random draws as the full sweep, and writes raw k-core sizes to {@code dir}/{@value #SHARD_TRIALS}
+     * plus a {@link ShardManifest}. {@link #mergeShards} turns the shards back into the {@link #sweepER_Z} CSV.
+     */
+    public static void sweepShardER_Z(int n, double z, int k, double pMin, double pMax, int steps, int trials, long seed,
+                                      Shard shard, Path dir) throws IOException {
+        double dp = stepWidth(pMin, pMax, steps);
+        ShardManifest manifest = new ShardManifest("kcore", shard, configKey(n, z, k, pMin, pMax, steps, trials, seed),
+                shard.size((long) steps * trials))
+                .set("n", Integer.toString(n)).set("z", Double.toString(z)).set("k", Integer.toString(k))
+                .set("pmin", Double.toString(pMin)).set("pmax", Double.toString(pMax))
+                .set("steps", Integer.toString(steps)).set("trials", Integer.toString(trials)).set("seed", Long.toString(seed))
+                .outputs(SHARD_TRIALS);
+        manifest.claim(dir);
+        try (BufferedWriter bw = Files.newBufferedWriter(dir.resolve(SHARD_TRIALS))) {
+            bw.write("step,trial,p,size\n");
+            for (int i = 0; i < steps; i++) {
+                double p = pMin + dp * i;
+                long first = (long) i * trials;
+                int[] sizes = runTrialsER_Z(n, z, k, p, trials, seed + i * 1337L, t -> shard.owns(first + t));
+                for (int t = 0; t < trials; t++) {
+                    if (sizes[t] >= 0) bw.write(String.format(Locale.US, "%d,%d,%.8f,%d\n", i, t, p, sizes[t]));
+                }
+            }
+        }
+        manifest.complete(true).write(dir);
+    }
+
+    /**
+     * Merges the shard directories under {@code dir} (checked by {@link ShardMerge#shardDirs}) into the
+     * {@link #sweepER_Z} CSV {@code outCsv}.
+     */
+    public static void mergeShards(Path dir, Path outCsv) throws IOException {
+        Path[] dirs = ShardMerge.shardDirs(dir);
+        mergeShards(ShardManifest.read(dirs[0]), dirs, outCsv);
+    }
+
+    /**
+     * Merges the shard directories of one {@link #sweepShardER_Z} run into the {@link #sweepER_Z} CSV. Fails if a
+     * (step, trial) cell is missing, duplicated or reported by a shard that does not own it.
+     */
+    public static void mergeShards(ShardManifest ref, Path[] shardDirs, Path outCsv) throws IOException {
+        int n = ref.getInt("n"), steps = ref.getInt("steps"), trials = ref.getInt("trials");
+        double pMin = ref.getDouble("pmin");
+        double dp = stepWidth(pMin, ref.getDouble("pmax"), steps);
+        int[][] sizes = new int[steps][trials];
+        for (int[] row : sizes) Arrays.fill(row, -1);
+        for (Path dir : shardDirs) {
+            Shard shard = ShardManifest.read(dir).shard();
+            try (BufferedReader in = Files.newBufferedReader(dir.resolve(SHARD_TRIALS))) {
+                in.readLine();
+                for (String line; (line = in.readLine()) != null; ) {
+                    if (line.isEmpty()) continue;
+                    String[] f = line.split(",");
+                    int i = Integer.parseInt(f[0]), t = Integer.parseInt(f[1]);
+                    if (i < 0 || i >= steps || t < 0 || t >= trials || !shard.owns((long) i * trials + t)) {
+                        throw new IllegalStateException(dir + ": cell (" + i + ", " + t + ") does not belong to shard " + shard);
+                    }
+                    if (sizes[i][t] >= 0) throw new IllegalStateException(dir + ": duplicate cell (" + i + ", " + t + ")");
+                    sizes[i][t] = Integer.parseInt(f[3]);
+                }
+            }
+        }
+        for (int i = 0; i < steps; i++) {
+            for (int t = 0; t < trials; t++) {
+                if (sizes[i][t] < 0) {
+                    throw new IllegalStateException("cell (" + i + ", " + t + ") missing (shard "
+                            + Shard.ownerOf((long) i * trials + t, shardDirs.length) + ")");
+                }
+            }
+        }
+        if (outCsv.getParent() != null) Files.createDirectories(outCsv.getParent());
+        try (BufferedWriter bw = Files.newBufferedWriter(outCsv)) {
+            bw.write(HEADER);
+            for (int i = 0; i < steps; i++) bw.write(formatRow(pMin + dp * i, summarize(n, sizes[i])));
+        }
+    }
+
+    public static long configKey(int n, double z, int k, double pMin, double pMax, int steps, int trials, long seed) {
+        return SweepJournal.key("kcore", n, z, k, pMin, pMax, steps, trials, seed);
+    }
+
     /**
      * Run many trials on ER(N, z) for a fixed node-occupancy probability p.
      * Returns [meanFrac, stdFrac, meanSize, stdSize].
      */
     public static double[] runManyER_Z(int n, double z, int k, double pOcc, int trials, long seed) {
-        double[] frac = new double[trials];
-        double[] size = new double[trials];
+        return summarize(n, runTrialsER_Z(n, z, k, pOcc, trials, seed, t -> true));
+    }
+
+    /**
+     * Like {@link #runManyER_Z(int, double, int, double, int, long)}, but runs trials (in parallel on {@code pool})
+     * until {@code rule} is met for the k-core fraction.
+     * Returns [meanFrac, stdFrac, meanSize, stdSize, trials, seFrac].
+     */
+    public static double[] runManyER_Z(int n, double z, int k, double pOcc, SequentialStopping.Rule rule, long seed, ForkJoinPool pool) {
+        return sequentialRow(n, runSequential(n, z, k, new double[]{ pOcc }, rule, new long[]{ seed }, pool)[0]);
+    }
+
+    /**
+     * k-core fraction at {@code pOcc} from {@code trials} runs with a variance-reduced estimator. Graphs and site
+     * draws follow {@link #runManyER_Z(int, double, int, double, int, long)}; antithetic modes use
+     * {@code ceil(trials / 2)} graphs, each for a pair of runs.
+     */
+    public static ReducedEstimate runManyER_Z(int n, double z, int k, double pOcc, int trials, long seed, Reduction reduction) {
+        boolean antithetic = reduction != Reduction.CONTROL;
+        boolean control = reduction != Reduction.ANTITHETIC;
+        double pEdge = Math.max(0.0, Math.min(1.0, z / Math.max(1, n - 1)));
+        double expectedEdges = pEdge * n * (n - 1) / 2.0;
+        int graphs = antithetic ? (trials + 1) / 2 : trials;
+        AntitheticMean pairs = new AntitheticMean();
+        ControlVariates cv = new ControlVariates(3);
+        SplittableRandom master = new SplittableRandom(seed);
+        boolean[] a = new boolean[n];
+        boolean[] b = antithetic ? new boolean[n] : null;
+        for (int t = 0; t < graphs; t++) {
+            SplittableRandom graphRng = master.split();
+            SplittableRandom siteRng = master.split();
+            Graph g = ER.generateERFromP(n, pEdge, graphRng.nextLong());
+            occupy(siteRng, pOcc, a, b);
+            double ya = KCore.size(g, a, k) / (double) n;
+            if (!antithetic) {
+                cv.add(ya, controls(g, a, pOcc, expectedEdges));
+                continue;
+            }
+            double yb = KCore.size(g, b, k) / (double) n;
+            pairs.add(ya, yb);
+            if (control) {
+                double[] xa = controls(g, a, pOcc, expectedEdges), xb = controls(g, b, pOcc, expectedEdges);
+                for (int j = 0; j < xa.length; j++) xa[j] = 0.5 * (xa[j] + xb[j]);
+                cv.add(0.5 * (ya + yb), xa);
+            }
+        }
+        if (!control) return pairs.estimate();
+        ReducedEstimate e = cv.estimate();
+        if (!antithetic) return e;
+        // 制御変量の基準は対の平均なので、独立な実行との比は両者の積
+        return new ReducedEstimate(e.mean(), e.stdErr(), 2L * graphs, pairs.estimate().varianceReduction() * e.varianceReduction());
+    }
+
+    /**
+     * Antithetic pair of realizations on one graph: sites are occupied when {@code u < pOcc} in the first and
+     * when {@code 1 - u < pOcc} in the second, with the same uniforms u. Returns both k-core sizes.
+     */
+    public static int[] runOnceAntithetic(Graph g, int k, double pOcc, SplittableRandom rng) {
+        boolean[] a = new boolean[g.n], b = new boolean[g.n];
+        occupy(rng, pOcc, a, b);
+        return new int[]{ KCore.size(g, a, k), KCore.size(g, b, k) };
+    }
+
+    /** Occupies sites with one uniform each, as in {@link #runOnce}; {@code mirror} (if not null) gets the 1 - u sites. */
+    private static void occupy(SplittableRandom rng, double pOcc, boolean[] alive, boolean[] mirror) {
+        for (int u = 0; u < alive.length; u++) {
+            double x = rng.nextDouble();
+            alive[u] = x < pOcc;
+            if (mirror != null) mirror[u] = 1.0 - x < pOcc;
+        }
+    }
+
+    /** Centred controls per node: occupied nodes - p n, occupied edges - p^2 m, edges - E[edges]. */
+    private static double[] controls(Graph g, boolean[] alive, double pOcc, double expectedEdges) {
+        long nodes = 0, edges = 0;
+        for (int u = 0; u < g.n; u++) {
+            if (!alive[u]) continue;
+            nodes++;
+            for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                if (alive[g.colIdx[e]]) edges++;
+            }
+        }
+        double m = g.m2 / 2.0;
+        return new double[]{
+                (nodes - pOcc * g.n) / g.n,
+                (edges / 2.0 - pOcc * pOcc * m) / g.n,
+                (m - expectedEdges) / g.n
+        };
+    }
+
+    private static SequentialStopping.Point[] runSequential(int n, double z, int k, double[] ps, SequentialStopping.Rule rule,
+                                                           long[] seeds, ForkJoinPool pool) {
+        double pEdge = Math.max(0.0, Math.min(1.0, z / Math.max(1, n - 1)));
+        TrialStreams[] streams = new TrialStreams[ps.length];
+        for (int i = 0; i < ps.length; i++) streams[i] = new TrialStreams(seeds[i]);
+        return SequentialStopping.run(pool, rule, ps.length, () -> null, (unused, i, t) -> {
+            SplittableRandom[] rng = streams[i].take(t);
+            Graph g = ER.generateERFromP(n, pEdge, rng[0].nextLong());
+            return runOnce(g, k, ps[i], rng[1]) / (double) n;
+        });
+    }
+
+    /**
+     * Generators of the trials of one point, split from the master in trial order exactly as in
+     * {@link #runTrialsER_Z}, so parallel trials reproduce the sequential draws.
+     */
+    private static final class TrialStreams {
+        private final SplittableRandom master;
+        private final List<SplittableRandom[]> pairs = new ArrayList<>();
+
+        TrialStreams(long seed) {
+            this.master = new SplittableRandom(seed);
+        }
+
+        /** (graph, site) generators of trial t; each trial is taken once. */
+        synchronized SplittableRandom[] take(int t) {
+            while (pairs.size() <= t) pairs.add(new SplittableRandom[]{ master.split(), master.split() });
+            SplittableRandom[] r = pairs.get(t);
+            pairs.set(t, null);
+            return r;
+        }
+    }
+
+    /**
+     * k-core sizes of the trials selected by {@code include} (-1 for the others). Every trial draws from the
+     * same split of the master generator whether or not the others run, so any subset reproduces the full run.
+     */
+    private static int[] runTrialsER_Z(int n, double z, int k, double pOcc, int trials, long seed, IntPredicate include) {
+        int[] sizes = new int[trials];
         SplittableRandom master = new SplittableRandom(seed);
         for (int t = 0; t < trials; t++) {
-            long s = master.split().nextLong();
+            SplittableRandom graphRng = master.split();
+            SplittableRandom siteRng = master.split();
+            if (!include.test(t)) {
+                sizes[t] = -1;
+                continue;
+            }
+            long s = graphRng.nextLong();
             Graph g = ER.generateERFromP(n, Math.max(0.0, Math.min(1.0, z / Math.max(1, n - 1))), s);
-            int kc = runOnce(g, k, pOcc, master.split());
-            frac[t] = kc / (double) n;
-            size[t] = kc;
+            sizes[t] = runOnce(g, k, pOcc, siteRng);
+        }
+        return sizes;
+    }
+
+    /** [meanFrac, stdFrac, meanSize, stdSize] of k-core sizes. */
+    private static double[] summarize(int n, int[] sizes) {
+        double[] frac = new double[sizes.length];
+        double[] size = new double[sizes.length];
+        for (int t = 0; t < sizes.length; t++) {
+            frac[t] = sizes[t] / (double) n;
+            size[t] = sizes[t];
         }
         return new double[]{ mean(frac), std(frac), mean(size), std(size) };
     }
 
+    /** [meanFrac, stdFrac, meanSize, stdSize, trials, seFrac] of a sequential point. */
+    private static double[] sequentialRow(int n, SequentialStopping.Point pt) {
+        return new double[]{ pt.mean(), pt.stdDev(), pt.mean() * n, pt.stdDev() * n, pt.trials(), pt.stdErr() };
+    }
+
+    private static double stepWidth(double pMin, double pMax, int steps) {
+        return steps <= 1 ? 0.0 : (pMax - pMin) / (steps - 1);
+    }
+
+    private static String formatRow(double p, double[] vals) {
+        return String.format(Locale.US, "%.8f,%.8f,%.8f,%.3f,%.3f\n", p, vals[0], vals[1], vals[2], vals[3]);
+    }
+
+    private static String formatSequentialRow(double p, double[] vals) {
+        return String.format(Locale.US, "%.8f,%.8f,%.8f,%.3f,%.3f,%d,%.8f\n", p, vals[0], vals[1], vals[2], vals[3], (long) vals[4], vals[5]);
+    }
+
     /**
      * One realization: apply site percolation with occupancy probability pOcc,
      * then compute the size of the resulting k-core.
@@ -6,6 +6,9 @@ import java.util.*;
 
 public final class FastSARSimulator {
     public enum Status { S, A, R }
+
+    // state codes in NodeStates (code = Status.ordinal())
+    private static final int ST_S = 0, ST_A = 1, ST_R = 2;
     public enum EventType { TRANSMIT, RECOVER }
 
     private static final class Event {
@@ -23,29 +26,39 @@ public final class FastSARSimulator {
     }
 
     private final Graph g;
-    private final double lambda;
+    private double lambda;
     private final double gamma;
     private final double tMax;
     private final int[] thresholdList;
-    private final double alpha;
-    private final double beta;
-    private final SplittableRandom rng;
-
-    private final Status[] status;
-    private final double[] predInfTime;
-    private final double[] recTime;
-    private final double[] tInfect;
-    private final double[] tRecover;
-
-    private final ArrayList<Double> times = new ArrayList<>();
+    private double alpha;
+    private double beta;
+    private SplittableRandom rng;
+    private long seed;
+
+    private final NodeStates status;
+    private final NodeTimes predInfTime;
+    private final NodeTimes recTime;
+    private final NodeTimes tInfect;
+    private final NodeTimes tRecover;
+
+    private ArrayList<Double> times = new ArrayList<>();
     private final int[] infectedCount;
-    private final ArrayList<Integer> S = new ArrayList<>();
-    private final ArrayList<Integer> A = new ArrayList<>();
-    private final ArrayList<Integer> R = new ArrayList<>();
+    private ArrayList<Integer> S = new ArrayList<>();
+    private ArrayList<Integer> A = new ArrayList<>();
+    private ArrayList<Integer> R = new ArrayList<>();
 
     private int Scount, Acount, Rcount;
 
+    // 実行ごとのカウンタ（RunMetrics）
+    private long processed, stale, attempted, accepted;
+    private int peakQueue;
+    private RunMetrics metrics;
+
     public FastSARSimulator(Graph g, double lambda, double gamma, double tMax, int[] thresholdList, double alpha, double beta, long seed) {
+        this(g, lambda, gamma, tMax, thresholdList, alpha, beta, seed, NodeStorage.STANDARD);
+    }
+
+    public FastSARSimulator(Graph g, double lambda, double gamma, double tMax, int[] thresholdList, double alpha, double beta, long seed, NodeStorage storage) {
         if (g == null) throw new IllegalArgumentException("Graph is null");
         if (lambda < 0 || gamma < 0) throw new IllegalArgumentException("lambda and gamma must be non-negative");
         if (tMax <= 0) throw new IllegalArgumentException("tMax must be positive");
@@ -58,26 +71,59 @@ public final class FastSARSimulator {
         this.alpha = alpha;
         this.beta = beta;
         this.rng = new SplittableRandom(seed);
+        this.seed = seed;
 
         int n = g.n;
-        this.status = new Status[n];
-        this.predInfTime = new double[n];
-        this.recTime = new double[n];
-        this.tInfect = new double[n];
-        this.tRecover = new double[n];
-
-        Arrays.fill(tInfect, Double.NaN);
-        Arrays.fill(tRecover, Double.NaN);
+        this.status = NodeStates.of(storage, n);
+        this.predInfTime = NodeTimes.of(storage, n);
+        this.recTime = NodeTimes.of(storage, n);
+        this.tInfect = NodeTimes.of(storage, n);
+        this.tRecover = NodeTimes.of(storage, n);
+
+        tInfect.fill(Double.NaN);
+        tRecover.fill(Double.NaN);
         this.infectedCount = new int[n];
     }
 
+    /**
+     * Re-arms this simulator for another run on the same graph, so a worker thread can keep one
+     * instance (and its per-node arrays) across parameter points. The previous result's node times
+     * are overwritten by the next {@link #run}.
+     */
+    public FastSARSimulator reset(double lambda, double alpha, double beta, long seed) {
+        if (lambda < 0) throw new IllegalArgumentException("lambda must be non-negative");
+        this.lambda = lambda;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.rng = new SplittableRandom(seed);
+        this.seed = seed;
+        this.times = new ArrayList<>();
+        this.S = new ArrayList<>();
+        this.A = new ArrayList<>();
+        this.R = new ArrayList<>();
+        tInfect.fill(Double.NaN);
+        tRecover.fill(Double.NaN);
+        Arrays.fill(infectedCount, 0);
+        return this;
+    }
+
+    /** Counters of the latest {@link #run} (null before the first run). */
+    public RunMetrics metrics() {
+        return metrics;
+    }
+
     public SarResult run(int[] initialInfecteds) {
+        final long start = System.nanoTime();
+        final SimulationRunEvent event = new SimulationRunEvent();
+        event.begin();
+        processed = stale = attempted = accepted = 0;
+        peakQueue = 0;
+
         final int n = g.n;
-        for (int u = 0; u < n; u++){
-            status[u] = Status.S;
-            predInfTime[u] = Double.POSITIVE_INFINITY;
-            recTime[u] = Double.POSITIVE_INFINITY;
-        }
+        status.fill(ST_S);
+        predInfTime.fill(Double.POSITIVE_INFINITY);
+        recTime.fill(Double.POSITIVE_INFINITY);
+        Scount = n; Acount = 0; Rcount = 0;
 
         record(0.0);
 
@@ -103,11 +149,12 @@ public final class FastSARSimulator {
             if (u < 0 || u >= n) throw new IllegalArgumentException("invalid initial infected: " + u);
             if (seen[u]) continue;
             seen[u] = true;
-            predInfTime[u] = 0.0;
+            predInfTime.set(u, 0.0);
             Q.add(new Event(0.0, u, EventType.TRANSMIT, seqGen.next()));
         }
 
         while (!Q.isEmpty()) {
+            if (Q.size() > peakQueue) peakQueue = Q.size();
             Event ev = Q.poll();
             final int u = ev.node;
             final double t = ev.time;
@@ -115,16 +162,27 @@ public final class FastSARSimulator {
             if (t >= tMax) break;
 
             if (ev.type == EventType.TRANSMIT) {
-                if (status[u] == Status.S && t == predInfTime[u]) {
+                if (status.get(u) == ST_S && predInfTime.matches(u, t)) {
+                    processed++;
                     processTransmit(u, t, Q, () -> seqGen.next());
+                } else {
+                    stale++;
                 }
             } else { // EventType.RECOVER
-                if (status[u] == Status.A && t == recTime[u]) {
+                if (status.get(u) == ST_A && recTime.matches(u, t)) {
+                    processed++;
                     processRecover(u, t);
+                } else {
+                    stale++;
                 }
             }
         }
 
+        event.end();
+        metrics = new RunMetrics("FastSAR", lambda, alpha, beta, seed, processed, stale, peakQueue,
+                attempted, accepted, n - Scount, System.nanoTime() - start);
+        metrics.commit(event);
+
         return new SarResult(n, times, S, A, R, tInfect, tRecover);
     }
 
@@ -134,11 +192,11 @@ public final class FastSARSimulator {
             Scount--; Acount++;
             record(t);
 
-            status[u] = Status.A;
-            tInfect[u] = t;
+            status.set(u, ST_A);
+            tInfect.set(u, t);
 
             double tRec = t + exp(rng, gamma);
-            recTime[u] = tRec;
+            recTime.set(u, tRec);
             if (tRec < tMax) {
                 Q.add(new Event(tRec, u, EventType.RECOVER, seqGen.next()));
             }
@@ -152,7 +210,7 @@ public final class FastSARSimulator {
     }
 
     private void findTransmit(PriorityQueue<Event> Q, double t, int source, int target, SeqGen seqGen, double alpha, double beta) {
-        if (status[target] != Status.S) return;
+        if (status.get(target) != ST_S) return;
 
         int k = g.degree(source);
         int kp = g.degree(target);
@@ -161,10 +219,12 @@ public final class FastSARSimulator {
 
         if (lambdaF == 0.0) return;
 
+        attempted++;
         double tInf = t + exp(rng, lambdaF);
-        double bound = Math.min(recTime[source], Math.min(predInfTime[target], tMax));
+        double bound = Math.min(recTime.get(source), Math.min(predInfTime.get(target), tMax));
         if (tInf < bound) {
-            predInfTime[target] = tInf;
+            accepted++;
+            predInfTime.set(target, tInf);
             Q.add(new Event(tInf, target, EventType.TRANSMIT, seqGen.next()));
         }
     }
@@ -173,8 +233,8 @@ public final class FastSARSimulator {
         Acount--; Rcount++;
         record(t);
 
-        status[u] = Status.R;
-        tRecover[u] = t;
+        status.set(u, ST_R);
+        tRecover.set(u, t);
     }
 
     private interface SeqGen { long next(); }
@@ -196,4 +256,8 @@ public final class FastSARSimulator {
     public static SarResult simulate(Graph g, double lambda, double gamma, double tMax, int[] thresholdList, double alpha, double beta, int[] initialInfecteds, long seed) {
         return new FastSARSimulator(g, lambda, gamma, tMax, thresholdList, alpha, beta, seed).run(initialInfecteds);
     }
+
+    public static SarResult simulate(Graph g, double lambda, double gamma, double tMax, int[] thresholdList, double alpha, double beta, int[] initialInfecteds, long seed, NodeStorage storage) {
+        return new FastSARSimulator(g, lambda, gamma, tMax, thresholdList, alpha, beta, seed, storage).run(initialInfecteds);
+    }
 }
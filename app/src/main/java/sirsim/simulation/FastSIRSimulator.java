@@ -1,11 +1,16 @@
 package sirsim.simulation;
 
 import sirsim.network.Graph;
+import sirsim.utils.MinHeap;
 
 import java.util.*;
+import java.util.function.ObjIntConsumer;
 
 public final class FastSIRSimulator {
     public enum Status { S, I, R }
+
+    // state codes in NodeStates (code = Status.ordinal())
+    private static final int ST_S = 0, ST_I = 1, ST_R = 2;
     public enum EventType { TRANSMIT, RECOVER }
 
     private static final class Event {
@@ -23,27 +28,37 @@ public final class FastSIRSimulator {
     }
 
     private final Graph g;
-    private final double lambda;
+    private double lambda;
     private final double gamma;
     private final double tMax;
-    private final double alpha;
-    private final double beta;
-    private final SplittableRandom rng;
-
-    private final Status[] status;
-    private final double[] predInfTime;
-    private final double[] recTime;
-    private final double[] tInfect;
-    private final double[] tRecover;
-
-    private final ArrayList<Double> times = new ArrayList<>();
-    private final ArrayList<Integer> S = new ArrayList<>();
-    private final ArrayList<Integer> I = new ArrayList<>();
-    private final ArrayList<Integer> R = new ArrayList<>();
+    private double alpha;
+    private double beta;
+    private SplittableRandom rng;
+    private long seed;
+
+    private final NodeStates status;
+    private final NodeTimes predInfTime;
+    private final NodeTimes recTime;
+    private final NodeTimes tInfect;
+    private final NodeTimes tRecover;
+
+    private ArrayList<Double> times = new ArrayList<>();
+    private ArrayList<Integer> S = new ArrayList<>();
+    private ArrayList<Integer> I = new ArrayList<>();
+    private ArrayList<Integer> R = new ArrayList<>();
 
     private int Scount, Icount, Rcount;
 
+    // 実行ごとのカウンタ（RunMetrics）
+    private long processed, stale, attempted, accepted;
+    private int peakQueue;
+    private RunMetrics metrics;
+
     public FastSIRSimulator(Graph g, double lambda, double gamma, double tMax, double alpha, double beta, long seed) {
+        this(g, lambda, gamma, tMax, alpha, beta, seed, NodeStorage.STANDARD);
+    }
+
+    public FastSIRSimulator(Graph g, double lambda, double gamma, double tMax, double alpha, double beta, long seed, NodeStorage storage) {
         if (g == null) throw new IllegalArgumentException("Graph is null");
         if (lambda < 0 || gamma < 0) throw new IllegalArgumentException("lambda and gamma must be non-negative");
         if (tMax <= 0) throw new IllegalArgumentException("tMax must be positive");
@@ -54,25 +69,57 @@ public final class FastSIRSimulator {
         this.alpha = alpha;
         this.beta = beta;
         this.rng = new SplittableRandom(seed);
+        this.seed = seed;
 
         int n = g.n;
-        this.status = new Status[n];
-        this.predInfTime = new double[n];
-        this.recTime = new double[n];
-        this.tInfect = new double[n];
-        this.tRecover = new double[n];
-
-        Arrays.fill(tInfect, Double.NaN);
-        Arrays.fill(tRecover, Double.NaN);
+        this.status = NodeStates.of(storage, n);
+        this.predInfTime = NodeTimes.of(storage, n);
+        this.recTime = NodeTimes.of(storage, n);
+        this.tInfect = NodeTimes.of(storage, n);
+        this.tRecover = NodeTimes.of(storage, n);
+
+        tInfect.fill(Double.NaN);
+        tRecover.fill(Double.NaN);
+    }
+
+    /**
+     * Re-arms this simulator for another run on the same graph, so a worker thread can keep one
+     * instance (and its per-node arrays) across parameter points. The previous result's node times
+     * are overwritten by the next {@link #run}.
+     */
+    public FastSIRSimulator reset(double lambda, double alpha, double beta, long seed) {
+        if (lambda < 0) throw new IllegalArgumentException("lambda must be non-negative");
+        this.lambda = lambda;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.rng = new SplittableRandom(seed);
+        this.seed = seed;
+        this.times = new ArrayList<>();
+        this.S = new ArrayList<>();
+        this.I = new ArrayList<>();
+        this.R = new ArrayList<>();
+        tInfect.fill(Double.NaN);
+        tRecover.fill(Double.NaN);
+        return this;
+    }
+
+    /** Counters of the latest {@link #run} (null before the first run). */
+    public RunMetrics metrics() {
+        return metrics;
     }
 
     public SirResult run(int[] initialInfecteds) {
+        final long start = System.nanoTime();
+        final SimulationRunEvent event = new SimulationRunEvent();
+        event.begin();
+        processed = stale = attempted = accepted = 0;
+        peakQueue = 0;
+
         final int n = g.n;
-        for (int u = 0; u < n; u++){
-            status[u] = Status.S;
-            predInfTime[u] = Double.POSITIVE_INFINITY;
-            recTime[u] = Double.POSITIVE_INFINITY;
-        }
+        status.fill(ST_S);
+        predInfTime.fill(Double.POSITIVE_INFINITY);
+        recTime.fill(Double.POSITIVE_INFINITY);
+        Scount = n; Icount = 0; Rcount = 0;
 
         record(0.0);
 
@@ -98,11 +145,12 @@ public final class FastSIRSimulator {
             if (u < 0 || u >= n) throw new IllegalArgumentException("invalid initial infected: " + u);
             if (seen[u]) continue;
             seen[u] = true;
-            predInfTime[u] = 0.0;
+            predInfTime.set(u, 0.0);
             Q.add(new Event(0.0, u, EventType.TRANSMIT, seqGen.next()));
         }
 
         while (!Q.isEmpty()) {
+            if (Q.size() > peakQueue) peakQueue = Q.size();
             Event ev = Q.poll();
             final int u = ev.node;
             final double t = ev.time;
@@ -110,16 +158,27 @@ public final class FastSIRSimulator {
             if (t >= tMax) break;
 
             if (ev.type == EventType.TRANSMIT) {
-                if (status[u] == Status.S && t == predInfTime[u]) {
+                if (status.get(u) == ST_S && predInfTime.matches(u, t)) {
+                    processed++;
                     processTransmit(u, t, Q, () -> seqGen.next());
+                } else {
+                    stale++;
                 }
             } else { // EventType.RECOVER
-                if (status[u] == Status.I && t == recTime[u]) {
+                if (status.get(u) == ST_I && recTime.matches(u, t)) {
+                    processed++;
                     processRecover(u, t);
+                } else {
+                    stale++;
                 }
             }
         }
 
+        event.end();
+        metrics = new RunMetrics("FastSIR", lambda, alpha, beta, seed, processed, stale, peakQueue,
+                attempted, accepted, n - Scount, System.nanoTime() - start);
+        metrics.commit(event);
+
         return new SirResult(n, times, S, I, R, tInfect, tRecover);
     }
 
@@ -127,11 +186,11 @@ public final class FastSIRSimulator {
         Scount--; Icount++;
         record(t);
 
-        status[u] = Status.I;
-        tInfect[u] = t;
+        status.set(u, ST_I);
+        tInfect.set(u, t);
 
         double tRec = t + exp(rng, gamma);
-        recTime[u] = tRec;
+        recTime.set(u, tRec);
         if (tRec < tMax) {
             Q.add(new Event(tRec, u, EventType.RECOVER, seqGen.next()));
         }
@@ -143,7 +202,7 @@ public final class FastSIRSimulator {
     }
 
     private void findTransmit(PriorityQueue<Event> Q, double t, int source, int target, SeqGen seqGen, double alpha, double beta) {
-        if (status[target] != Status.S) return;
+        if (status.get(target) != ST_S) return;
 
         int k = g.degree(source);
         int kp = g.degree(target);
@@ -152,10 +211,12 @@ public final class FastSIRSimulator {
 
         if (lambdaF == 0.0) return;
 
+        attempted++;
         double tInf = t + exp(rng, lambdaF);
-        double bound = Math.min(recTime[source], Math.min(predInfTime[target], tMax));
+        double bound = Math.min(recTime.get(source), Math.min(predInfTime.get(target), tMax));
         if (tInf < bound) {
-            predInfTime[target] = tInf;
+            accepted++;
+            predInfTime.set(target, tInf);
             Q.add(new Event(tInf, target, EventType.TRANSMIT, seqGen.next()));
         }
     }
@@ -164,8 +225,8 @@ public final class FastSIRSimulator {
         Icount--; Rcount++;
         record(t);
 
-        status[u] = Status.R;
-        tRecover[u] = t;
+        status.set(u, ST_R);
+        tRecover.set(u, t);
     }
 
     private interface SeqGen { long next(); }
@@ -187,4 +248,117 @@ public final class FastSIRSimulator {
     public static SirResult simulate(Graph g, double lambda, double gamma, double tMax, double alpha, double beta, int[] initialInfecteds, long seed) {
         return new FastSIRSimulator(g, lambda, gamma, tMax, alpha, beta, seed).run(initialInfecteds);
     }
+
+    public static SirResult simulate(Graph g, double lambda, double gamma, double tMax, double alpha, double beta, int[] initialInfecteds, long seed, NodeStorage storage) {
+        return new FastSIRSimulator(g, lambda, gamma, tMax, alpha, beta, seed, storage).run(initialInfecteds);
+    }
+
+    /**
+     * Coupled (common random numbers) sweep over {@code lambdaList}.
+     * Unit-rate exponential clocks are drawn once per arc and per node, and the event dynamics are
+     * replayed for every lambda by rescaling them: the delay on arc e is {@code X_e / (lambda * w_e)} and
+     * the infectious period of u is {@code E_u / gamma}. Infection times are then first-passage times from
+     * the initial infecteds (arcs whose delay exceeds the source's infectious period never fire), so the
+     * curves of one realization are monotone in lambda.
+     *
+     * @param sink receives the result for each lambda together with its index in {@code lambdaList}
+     */
+    public static void simulateCoupled(Graph g, double[] lambdaList, double gamma, double tMax, double alpha, double beta,
+                                       int[] initialInfecteds, long seed, ObjIntConsumer<SirResult> sink) {
+        if (tMax <= 0) throw new IllegalArgumentException("tMax must be positive");
+        for (double lambda : lambdaList) {
+            if (lambda < 0) throw new IllegalArgumentException("lambda and gamma must be non-negative");
+        }
+        final int n = g.n;
+        for (int u : initialInfecteds) {
+            if (u < 0 || u >= n) throw new IllegalArgumentException("invalid initial infected: " + u);
+        }
+        SirClocks clocks = new SirClocks(g, gamma, alpha, beta, seed);
+        double[] period = new double[n];
+        for (int u = 0; u < n; u++) period[u] = clocks.infectiousPeriod(u);
+        double[] arcWeight = new double[g.m2];
+        for (int e = 0; e < g.m2; e++) arcWeight[e] = clocks.weight(e);
+
+        double[] arrival = new double[n];
+        int[] order = new int[n];
+        MinHeap heap = new MinHeap(1024);
+        for (int li = 0; li < lambdaList.length; li++) {
+            sink.accept(replay(g, clocks, period, arcWeight, lambdaList[li], tMax, initialInfecteds, arrival, order, heap), li);
+        }
+    }
+
+    /** One lambda of {@link #simulateCoupled}: Dijkstra over arc delays, then the S/I/R series from the sorted event times. */
+    private static SirResult replay(Graph g, SirClocks clocks, double[] period, double[] arcWeight, double lambda, double tMax,
+                                    int[] initialInfecteds, double[] arrival, int[] order, MinHeap heap) {
+        final int n = g.n;
+        Arrays.fill(arrival, Double.POSITIVE_INFINITY);
+        heap.clear();
+        for (int u : initialInfecteds) {
+            if (arrival[u] == 0.0) continue;
+            arrival[u] = 0.0;
+            heap.add(0.0, u);
+        }
+
+        // 感染確定順に order へ積む
+        int infected = 0;
+        while (!heap.isEmpty()) {
+            double t = heap.peekKey();
+            int u = heap.peekValue();
+            heap.poll();
+            if (t > arrival[u]) continue; // stale
+            order[infected++] = u;
+
+            double bound = Math.min(t + period[u], tMax);
+            for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                double rate = lambda * arcWeight[e];
+                if (rate == 0.0) continue;
+                double tInf = t + clocks.arcClock[e] / rate;
+                int v = g.colIdx[e];
+                if (tInf < bound && tInf < arrival[v]) {
+                    arrival[v] = tInf;
+                    heap.add(tInf, v);
+                }
+            }
+        }
+
+        NodeTimes tInfect = NodeTimes.doubles(n);
+        NodeTimes tRecover = NodeTimes.doubles(n);
+        tInfect.fill(Double.NaN);
+        tRecover.fill(Double.NaN);
+        double[] infTimes = new double[infected];
+        double[] recTimes = new double[infected];
+        int recovered = 0;
+        for (int i = 0; i < infected; i++) {
+            int u = order[i];
+            double t = arrival[u];
+            tInfect.set(u, t);
+            infTimes[i] = t;
+            double tRec = t + period[u];
+            if (tRec < tMax) {
+                tRecover.set(u, tRec);
+                recTimes[recovered++] = tRec;
+            }
+        }
+        Arrays.sort(recTimes, 0, recovered); // infTimes is already ascending (Dijkstra order)
+
+        ArrayList<Double> times = new ArrayList<>(1 + infected + recovered);
+        ArrayList<Integer> S = new ArrayList<>(1 + infected + recovered);
+        ArrayList<Integer> I = new ArrayList<>(1 + infected + recovered);
+        ArrayList<Integer> R = new ArrayList<>(1 + infected + recovered);
+        int s = n, inf = 0, r = 0;
+        times.add(0.0); S.add(s); I.add(inf); R.add(r);
+        // 同時刻では TRANSMIT を RECOVER より先に処理（run() のイベント順序と同じ）
+        for (int a = 0, b = 0; a < infected || b < recovered; ) {
+            double t;
+            if (b == recovered || (a < infected && infTimes[a] <= recTimes[b])) {
+                t = infTimes[a++];
+                s--; inf++;
+            } else {
+                t = recTimes[b++];
+                inf--; r++;
+            }
+            times.add(t); S.add(s); I.add(inf); R.add(r);
+        }
+        return new SirResult(n, times, S, I, R, tInfect, tRecover);
+    }
 }
@@ -0,0 +1,70 @@
+package sirsim.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Per-node state codes (0..3, i.e. the simulator's {@code Status.ordinal()}) shared by the simulators.
+ * {@link #packed(int)} stores 2 bits per node, {@link #bytes(int)} one byte per node
+ * (required by the full-array {@link StateKernels}).
+ */
+public abstract class NodeStates {
+    public abstract int size();
+    public abstract int get(int u);
+    public abstract void set(int u, int code);
+    public abstract void fill(int code);
+    /** Approximate heap footprint of the backing array. */
+    public abstract long bytesUsed();
+
+    public static NodeStates packed(int n) { return new Packed(n); }
+    public static Bytes bytes(int n) { return new Bytes(n); }
+
+    static NodeStates of(NodeStorage storage, int n) {
+        return storage == NodeStorage.COMPACT ? packed(n) : bytes(n);
+    }
+
+    /** 32 nodes per long word. */
+    static final class Packed extends NodeStates {
+        private final int n;
+        private final long[] words;
+
+        Packed(int n) {
+            this.n = n;
+            this.words = new long[(n + 31) >>> 5];
+        }
+
+        @Override public int size() { return n; }
+
+        @Override public int get(int u) {
+            return (int) (words[u >>> 5] >>> ((u & 31) << 1)) & 3;
+        }
+
+        @Override public void set(int u, int code) {
+            int shift = (u & 31) << 1;
+            int w = u >>> 5;
+            words[w] = (words[w] & ~(3L << shift)) | ((long) (code & 3) << shift);
+        }
+
+        @Override public void fill(int code) {
+            long c = code & 3;
+            c |= c << 2; c |= c << 4; c |= c << 8; c |= c << 16; c |= c << 32;
+            Arrays.fill(words, c);
+        }
+
+        @Override public long bytesUsed() { return 8L * words.length; }
+    }
+
+    public static final class Bytes extends NodeStates {
+        private final byte[] codes;
+
+        Bytes(int n) { this.codes = new byte[n]; }
+
+        /** Backing array, for {@link StateKernels}. */
+        public byte[] array() { return codes; }
+
+        @Override public int size() { return codes.length; }
+        @Override public int get(int u) { return codes[u]; }
+        @Override public void set(int u, int code) { codes[u] = (byte) code; }
+        @Override public void fill(int code) { Arrays.fill(codes, (byte) code); }
+        @Override public long bytesUsed() { return codes.length; }
+    }
+}
@@ -0,0 +1,9 @@
+package sirsim.simulation;
+
+/** Layout of per-node simulator state. */
+public enum NodeStorage {
+    /** One byte per node state, double-precision times. */
+    STANDARD,
+    /** Two bits per node state, float-precision times (about 2^-24 relative time resolution). */
+    COMPACT
+}
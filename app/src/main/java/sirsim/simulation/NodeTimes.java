@@ -0,0 +1,53 @@
+package sirsim.simulation;
+
+import sirsim.output.ColumnTable;
+
+import java.util.Arrays;
+
+/**
+ * Per-node event times in double or float precision.
+ * Float storage halves the footprint; compare stored times with {@link #matches(int, double)},
+ * which rounds the probe the same way the stored value was rounded.
+ */
+public abstract class NodeTimes {
+    public abstract int size();
+    public abstract double get(int u);
+    public abstract void set(int u, double t);
+    public abstract void fill(double t);
+    /** True iff t is the value stored for u (after rounding to the storage precision). */
+    public abstract boolean matches(int u, double t);
+    public abstract long bytesUsed();
+    /** Adds a copy of the times as a column in the storage precision (FLOAT64 or FLOAT32). */
+    public abstract void addTo(ColumnTable table, String name);
+
+    public static NodeTimes doubles(int n) { return new Doubles(n); }
+    public static NodeTimes floats(int n) { return new Floats(n); }
+
+    static NodeTimes of(NodeStorage storage, int n) {
+        return storage == NodeStorage.COMPACT ? floats(n) : doubles(n);
+    }
+
+    static final class Doubles extends NodeTimes {
+        private final double[] t;
+        Doubles(int n) { this.t = new double[n]; }
+        @Override public int size() { return t.length; }
+        @Override public double get(int u) { return t[u]; }
+        @Override public void set(int u, double v) { t[u] = v; }
+        @Override public void fill(double v) { Arrays.fill(t, v); }
+        @Override public boolean matches(int u, double v) { return t[u] == v; }
+        @Override public long bytesUsed() { return 8L * t.length; }
+        @Override public void addTo(ColumnTable table, String name) { table.doubles(name, t.clone()); }
+    }
+
+    static final class Floats extends NodeTimes {
+        private final float[] t;
+        Floats(int n) { this.t = new float[n]; }
+        @Override public int size() { return t.length; }
+        @Override public double get(int u) { return t[u]; }
+        @Override public void set(int u, double v) { t[u] = (float) v; }
+        @Override public void fill(double v) { Arrays.fill(t, (float) v); }
+        @Override public boolean matches(int u, double v) { return t[u] == (float) v; }
+        @Override public long bytesUsed() { return 4L * t.length; }
+        @Override public void addTo(ColumnTable table, String name) { table.floats(name, t.clone()); }
+    }
+}
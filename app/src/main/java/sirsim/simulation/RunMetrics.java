@@ -0,0 +1,50 @@
+package sirsim.simulation;
+
+import sirsim.output.RecordSchema;
+import sirsim.output.ResultSink;
+
+/**
+ * Counters of one event-driven run ({@link FastSIRSimulator#metrics()}, {@link FastSARSimulator#metrics()}).
+ * Stale events are queue entries popped after they were superseded (an earlier infection of the target,
+ * or the node already left the state they apply to); a transmission attempt is one drawn arc clock, and
+ * it is accepted when it beats the source's recovery, the target's pending infection and tMax.
+ */
+public record RunMetrics(String model, double lambda, double alpha, double beta, long seed,
+                         long eventsProcessed, long staleEvents, int peakQueue,
+                         long transmissionsAttempted, long transmissionsAccepted,
+                         int finalSize, long wallNanos) {
+
+    /** Fraction of drawn arc clocks that were queued. */
+    public double acceptance() {
+        return transmissionsAttempted == 0 ? 0.0 : transmissionsAccepted / (double) transmissionsAttempted;
+    }
+
+    /** Fraction of popped events that were stale. */
+    public double staleFraction() {
+        long popped = eventsProcessed + staleEvents;
+        return popped == 0 ? 0.0 : staleEvents / (double) popped;
+    }
+
+    /** One row (schema {@link RecordSchema#RUN_METRICS}). */
+    public void write(ResultSink sink, int itr) {
+        sink.row().l(itr).d(alpha).d(beta).d(lambda).l(seed).l(eventsProcessed).l(staleEvents).l(peakQueue)
+                .l(transmissionsAttempted).l(transmissionsAccepted).l(finalSize).d(wallNanos / 1e6).commit();
+    }
+
+    /** Commits a {@link SimulationRunEvent} for this run if JFR records it (enabled and over its threshold). */
+    void commit(SimulationRunEvent event) {
+        if (!event.shouldCommit()) return;
+        event.model = model;
+        event.lambda = lambda;
+        event.alpha = alpha;
+        event.beta = beta;
+        event.seed = seed;
+        event.eventsProcessed = eventsProcessed;
+        event.staleEvents = staleEvents;
+        event.peakQueue = peakQueue;
+        event.transmissionsAttempted = transmissionsAttempted;
+        event.transmissionsAccepted = transmissionsAccepted;
+        event.finalSize = finalSize;
+        event.commit();
+    }
+}
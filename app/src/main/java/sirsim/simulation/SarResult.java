@@ -1,5 +1,10 @@
 package sirsim.simulation;
 
+import sirsim.output.ColumnTable;
+import sirsim.output.ColumnarFile;
+import sirsim.output.ColumnarWriter;
+import sirsim.output.ResultSink;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -7,6 +12,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
+import java.util.stream.IntStream;
 
 /** SIRシミュレーション結果（可視化/再利用しやすいCSV出力つき） */
 public final class SarResult {
@@ -15,12 +21,12 @@ public final class SarResult {
     public final List<Integer> S;
     public final List<Integer> A;
     public final List<Integer> R;
-    public final double[] tInfect;   // 各ノードの感染成立時刻（未感染はNaN）
-    public final double[] tRecover;  // 各ノードの回復成立時刻（未回復はNaN）
+    public final NodeTimes tInfect;   // 各ノードの感染成立時刻（未感染はNaN）
+    public final NodeTimes tRecover;  // 各ノードの回復成立時刻（未回復はNaN）
 
     SarResult(int n,
               List<Double> times, List<Integer> S, List<Integer> A, List<Integer> R,
-              double[] tInfect, double[] tRecover) {
+              NodeTimes tInfect, NodeTimes tRecover) {
         this.n = n; this.times = times; this.S = S; this.A = A; this.R = R;
         this.tInfect = tInfect; this.tRecover = tRecover;
     }
@@ -71,8 +77,9 @@ public final class SarResult {
              PrintWriter out = new PrintWriter(bw)) {
             out.println("node,infected_at,recovered_at");
             for (int u = 0; u < n; u++) {
-                String ti = Double.isNaN(tInfect[u]) ? "" : String.format(Locale.ROOT, "%.9f", tInfect[u]);
-                String tr = Double.isNaN(tRecover[u]) ? "" : String.format(Locale.ROOT, "%.9f", tRecover[u]);
+                double tiu = tInfect.get(u), tru = tRecover.get(u);
+                String ti = Double.isNaN(tiu) ? "" : String.format(Locale.ROOT, "%.9f", tiu);
+                String tr = Double.isNaN(tru) ? "" : String.format(Locale.ROOT, "%.9f", tru);
                 out.println(u + "," + ti + "," + tr);
             }
         }
@@ -96,8 +103,9 @@ public final class SarResult {
                 out.println("node,itr,infected_at,recovered_at");
             }
             for (int u = 0; u < n; u++) {
-                String ti = Double.isNaN(tInfect[u]) ? "" : String.format(Locale.ROOT, "%.9f", tInfect[u]);
-                String tr = Double.isNaN(tRecover[u]) ? "" : String.format(Locale.ROOT, "%.9f", tRecover[u]);
+                double tiu = tInfect.get(u), tru = tRecover.get(u);
+                String ti = Double.isNaN(tiu) ? "" : String.format(Locale.ROOT, "%.9f", tiu);
+                String tr = Double.isNaN(tru) ? "" : String.format(Locale.ROOT, "%.9f", tru);
                 out.println(u + "," + itr + "," + ti + "," + tr);
             }
         }
@@ -154,4 +162,63 @@ public final class SarResult {
                         itr, alpha, beta, lambda, times.get(times.size() - 1), A.get(A.size() - 1), R.get(R.size() - 1));
         }
     }
+
+    /** 集計時系列（itr,alpha,beta,lambda,time,A,R）を非同期シンクへ出力（スキーマ RecordSchema.SAR_STATE） */
+    public void writeTimeSeries(ResultSink sink, int itr, double alpha, double beta, double lambda) {
+        for (int i = 0; i < times.size(); i++) {
+            sink.row().l(itr).d(alpha).d(beta).d(lambda).d(times.get(i)).l(A.get(i)).l(R.get(i)).commit();
+        }
+    }
+
+    /** 最終状態（itr,alpha,beta,lambda,time,A,R）を非同期シンクへ1行出力（スキーマ RecordSchema.SAR_STATE） */
+    public void writeFinalState(ResultSink sink, int itr, double alpha, double beta, double lambda) {
+        int last = times.size() - 1;
+        sink.row().l(itr).d(alpha).d(beta).d(lambda).d(times.get(last)).l(A.get(last)).l(R.get(last)).commit();
+    }
+
+    /**
+     * 集計時系列（time,S,A,R）を列指向バイナリ（{@link ColumnarFile}）へ1セグメント追記。
+     * ヘッダにパラメータ（itr,alpha,beta,lambda）を保持。CSVへは ColumnarFile.toCsv で変換。
+     */
+    public void writeTimeSeriesColumnar(Path path, int itr, double alpha, double beta, double lambda) throws IOException {
+        ColumnarFile.append(path, timeSeriesTable(itr, alpha, beta, lambda));
+    }
+
+    /** 集計時系列を列指向バイナリの非同期ライタへ1セグメント（書式は上と同じ、符号化は呼び出し側のスレッド） */
+    public void writeTimeSeriesColumnar(ColumnarWriter out, int itr, double alpha, double beta, double lambda) {
+        out.append(timeSeriesTable(itr, alpha, beta, lambda));
+    }
+
+    /** ノード別時刻（node,infected_at,recovered_at）を列指向バイナリへ1セグメント追記（保存精度のまま、NaNはCSVで空欄） */
+    public void writeNodeTimesColumnar(Path path, int itr, double alpha, double beta, double lambda) throws IOException {
+        ColumnarFile.append(path, nodeTimesTable(itr, alpha, beta, lambda));
+    }
+
+    /** ノード別時刻を列指向バイナリの非同期ライタへ1セグメント */
+    public void writeNodeTimesColumnar(ColumnarWriter out, int itr, double alpha, double beta, double lambda) {
+        out.append(nodeTimesTable(itr, alpha, beta, lambda));
+    }
+
+    private ColumnTable timeSeriesTable(int itr, double alpha, double beta, double lambda) {
+        return withParams(itr, alpha, beta, lambda)
+                .doubles("time", times.stream().mapToDouble(Double::doubleValue).toArray())
+                .ints("S", toIntArray(S))
+                .ints("A", toIntArray(A))
+                .ints("R", toIntArray(R));
+    }
+
+    private ColumnTable nodeTimesTable(int itr, double alpha, double beta, double lambda) {
+        ColumnTable table = withParams(itr, alpha, beta, lambda).ints("node", IntStream.range(0, n).toArray());
+        tInfect.addTo(table, "infected_at");
+        tRecover.addTo(table, "recovered_at");
+        return table;
+    }
+
+    private static ColumnTable withParams(int itr, double alpha, double beta, double lambda) {
+        return new ColumnTable().param("itr", itr).param("alpha", alpha).param("beta", beta).param("lambda", lambda);
+    }
+
+    private static int[] toIntArray(List<Integer> xs) {
+        return xs.stream().mapToInt(Integer::intValue).toArray();
+    }
 }
@@ -0,0 +1,55 @@
+package sirsim.simulation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for one FastSIR/FastSAR run with its {@link RunMetrics} counters. Only runs longer than the
+ * threshold are recorded (default 10 ms; override with e.g.
+ * {@code -XX:StartFlightRecording:sirsim.SimulationRun#threshold=0ms}).
+ */
+@Name("sirsim.SimulationRun")
+@Label("Simulation Run")
+@Category({ "sirsim", "Simulation" })
+@Description("One event-driven epidemic realization")
+@StackTrace(false)
+@Threshold("10 ms")
+final class SimulationRunEvent extends Event {
+    @Label("Model")
+    String model;
+
+    @Label("Lambda")
+    double lambda;
+
+    @Label("Alpha")
+    double alpha;
+
+    @Label("Beta")
+    double beta;
+
+    @Label("Seed")
+    long seed;
+
+    @Label("Events Processed")
+    long eventsProcessed;
+
+    @Label("Stale Events")
+    long staleEvents;
+
+    @Label("Peak Queue Size")
+    int peakQueue;
+
+    @Label("Transmissions Attempted")
+    long transmissionsAttempted;
+
+    @Label("Transmissions Accepted")
+    long transmissionsAccepted;
+
+    @Label("Final Size")
+    int finalSize;
+}
@@ -0,0 +1,64 @@
+package sirsim.simulation;
+
+import sirsim.network.Graph;
+
+import java.util.SplittableRandom;
+
+/**
+ * Unit-rate exponential clocks drawn once per arc (transmission) and per node (recovery).
+ * For a given lambda the transmission delay on arc e = (u -> v) is
+ * {@code arcClock[e] / (lambda * weight(e))} and the infectious period of u is {@code recClock[u] / gamma},
+ * which reproduces the event-driven dynamics of {@link FastSIRSimulator} for every lambda at once.
+ */
+final class SirClocks {
+    final Graph g;
+    final double gamma;
+    final double[] srcPow;   // k_u^alpha（次数0は1として扱う）
+    final double[] dstPow;   // k_v^beta
+    final double[] arcClock; // Exp(1) per arc
+    final double[] recClock; // Exp(1) per node
+
+    SirClocks(Graph g, double gamma, double alpha, double beta, long seed) {
+        if (g == null) throw new IllegalArgumentException("Graph is null");
+        if (gamma < 0) throw new IllegalArgumentException("gamma must be non-negative");
+        this.g = g;
+        this.gamma = gamma;
+
+        final int n = g.n;
+        this.srcPow = new double[n];
+        this.dstPow = new double[n];
+        for (int u = 0; u < n; u++) {
+            int k = g.degree(u);
+            double kk = k == 0 ? 1.0 : k;
+            srcPow[u] = Math.pow(kk, alpha);
+            dstPow[u] = Math.pow(kk, beta);
+        }
+
+        SplittableRandom rng = new SplittableRandom(seed);
+        this.recClock = new double[n];
+        for (int u = 0; u < n; u++) recClock[u] = unitExp(rng);
+        this.arcClock = new double[g.m2];
+        for (int e = 0; e < g.m2; e++) arcClock[e] = unitExp(rng);
+    }
+
+    /** Degree weight of arc e, i.e. lambda_e / lambda. */
+    double weight(int e) {
+        return srcPow[g.src[e]] * dstPow[g.colIdx[e]];
+    }
+
+    /** Infectious period of u (infinite when gamma == 0). */
+    double infectiousPeriod(int u) {
+        return gamma <= 0.0 ? Double.POSITIVE_INFINITY : recClock[u] / gamma;
+    }
+
+    /** Smallest lambda above which arc e fires before its source recovers. */
+    double threshold(int e) {
+        double w = weight(e);
+        if (w == 0.0) return Double.POSITIVE_INFINITY;
+        return arcClock[e] / (w * infectiousPeriod(g.src[e]));
+    }
+
+    private static double unitExp(SplittableRandom rng) {
+        return -Math.log(1.0 - rng.nextDouble());
+    }
+}
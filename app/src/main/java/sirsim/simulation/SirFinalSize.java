@@ -0,0 +1,96 @@
+package sirsim.simulation;
+
+import sirsim.network.Graph;
+import sirsim.utils.MinHeap;
+
+import java.util.Arrays;
+
+/**
+ * SIR final outbreak sizes for a whole lambda grid from a single draw of clocks.
+ *
+ * <p>With the clocks of {@link SirClocks} fixed, arc e = (u -> v) transmits iff lambda exceeds
+ * {@link SirClocks#threshold(int)}, so the final outbreak at lambda is the set reachable from the
+ * initial infecteds through such arcs (bond percolation with per-arc transmissibility). Each node's
+ * critical lambda is the minimax threshold over paths from the seeds, computed once with a
+ * bottleneck Dijkstra; the size at any lambda is the number of nodes whose critical lambda is below it.
+ * The result is the tMax -> infinity limit of {@link FastSIRSimulator}.
+ */
+public final class SirFinalSize {
+    private final Graph g;
+    private final SirClocks clocks;
+    private final double[] crit;
+    private final MinHeap heap;
+
+    public SirFinalSize(Graph g, double gamma, double alpha, double beta, long seed) {
+        this.clocks = new SirClocks(g, gamma, alpha, beta, seed);
+        this.g = g;
+        this.crit = new double[g.n];
+        this.heap = new MinHeap(1024);
+    }
+
+    /**
+     * Critical lambda of every node: the node ends up infected iff lambda is strictly greater.
+     * Initial infecteds get -Infinity, unreachable nodes +Infinity.
+     * The returned array is reused by subsequent calls.
+     */
+    public double[] criticalLambdas(int[] initialInfecteds) {
+        final int n = g.n;
+        Arrays.fill(crit, Double.POSITIVE_INFINITY);
+        heap.clear();
+        for (int u : initialInfecteds) {
+            if (u < 0 || u >= n) throw new IllegalArgumentException("invalid initial infected: " + u);
+            if (crit[u] == Double.NEGATIVE_INFINITY) continue;
+            crit[u] = Double.NEGATIVE_INFINITY;
+            heap.add(Double.NEGATIVE_INFINITY, u);
+        }
+
+        while (!heap.isEmpty()) {
+            double c = heap.peekKey();
+            int u = heap.peekValue();
+            heap.poll();
+            if (c > crit[u]) continue; // stale
+
+            for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                int v = g.colIdx[e];
+                double cv = Math.max(c, clocks.threshold(e));
+                if (cv < crit[v]) {
+                    crit[v] = cv;
+                    heap.add(cv, v);
+                }
+            }
+        }
+        return crit;
+    }
+
+    /** Final outbreak size (number of ever-infected nodes) for each lambda in {@code lambdaList}. */
+    public int[] finalSizes(double[] lambdaList, int[] initialInfecteds) {
+        double[] c = criticalLambdas(initialInfecteds);
+        int reached = 0;
+        for (double v : c) if (v != Double.POSITIVE_INFINITY) reached++;
+        double[] sorted = new double[reached];
+        for (int u = 0, i = 0; u < c.length; u++) {
+            if (c[u] != Double.POSITIVE_INFINITY) sorted[i++] = c[u];
+        }
+        Arrays.sort(sorted);
+
+        int[] sizes = new int[lambdaList.length];
+        for (int i = 0; i < lambdaList.length; i++) {
+            sizes[i] = countBelow(sorted, lambdaList[i]);
+        }
+        return sizes;
+    }
+
+    /** Number of entries strictly less than x in a sorted array. */
+    private static int countBelow(double[] sorted, double x) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < x) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public static int[] simulate(Graph g, double[] lambdaList, double gamma, double alpha, double beta, int[] initialInfecteds, long seed) {
+        return new SirFinalSize(g, gamma, alpha, beta, seed).finalSizes(lambdaList, initialInfecteds);
+    }
+}
@@ -0,0 +1,46 @@
+package sirsim.simulation;
+
+/**
+ * Full-array passes over byte-encoded node states (state code = {@code Status.ordinal()}).
+ * Uses {@code jdk.incubator.vector} when the module is present at runtime
+ * ({@code --add-modules jdk.incubator.vector}); otherwise falls back to scalar loops.
+ */
+public final class StateKernels {
+    private StateKernels() {}
+
+    static final boolean VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /** Histogram of state codes 0..counts.length-1 over st. */
+    public static void count(byte[] st, int[] counts) {
+        if (VECTOR) VectorStateKernels.count(st, counts);
+        else countScalar(st, 0, counts);
+    }
+
+    /** st[i] = to where st[i] == from and mask[i] == maskValue. */
+    public static void transition(byte[] st, byte[] mask, byte maskValue, byte from, byte to) {
+        if (VECTOR) VectorStateKernels.transition(st, mask, maskValue, from, to);
+        else transitionScalar(st, 0, mask, maskValue, from, to);
+    }
+
+    /** timers[i]++ where st[i] == code. */
+    public static void incrementWhere(byte[] st, byte code, int[] timers) {
+        if (VECTOR) VectorStateKernels.incrementWhere(st, code, timers);
+        else incrementWhereScalar(st, 0, code, timers);
+    }
+
+    static void countScalar(byte[] st, int from, int[] counts) {
+        for (int i = from; i < st.length; i++) counts[st[i]]++;
+    }
+
+    static void transitionScalar(byte[] st, int from, byte[] mask, byte maskValue, byte fromState, byte toState) {
+        for (int i = from; i < st.length; i++) {
+            if (mask[i] == maskValue && st[i] == fromState) st[i] = toState;
+        }
+    }
+
+    static void incrementWhereScalar(byte[] st, int from, byte code, int[] timers) {
+        for (int i = from; i < st.length; i++) {
+            if (st[i] == code) timers[i]++;
+        }
+    }
+}
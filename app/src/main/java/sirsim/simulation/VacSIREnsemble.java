@@ -0,0 +1,320 @@
+package sirsim.simulation;
+
+import sirsim.network.Graph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Up to 64 independent realizations of the {@link VacSIRSimulator} model run in lockstep.
+ * Bit k of every per-node {@code long} word belongs to realization k, so one traversal of the CSR
+ * evaluates a step for all realizations with word-wide bitwise logic. The infection timer is kept as
+ * bit-planes {@code age[a]} (infected for exactly a steps, capped at gamma).
+ * Each lane follows the same rules as the sequential simulator (ascending source order,
+ * vaccination attempt before infection, per-lane cap), with its own random draws.
+ */
+public final class VacSIREnsemble {
+    public static final int MAX_LANES = 64;
+
+    private static final int PRECISION = 24;     // bits of a Bernoulli probability in bit-sliced draws
+    private static final int SCALAR_LANES = 8;   // below this many active lanes draw lane by lane
+
+    private final Graph g;
+    private final double omega;
+    private final double beta;
+    private final int gamma;
+    private final int tMax;
+    private final double vacMax;
+    private final int r;
+    private final SplittableRandom rng;
+    private final long omegaBits, betaBits;
+
+    // bit-planes (bit k = realization k)
+    private final long[] I, V, R;
+    private final long[][] age;     // age[a][u]: infected for a steps (a = gamma means recovery due)
+    private final long[] toVac, toInf;
+
+    // active sets
+    private int[] active;           // nodes infected in at least one lane, ascending
+    private int[] nextActive;
+    private final int[] touched;    // nodes with a vaccination/infection this step
+    private final int[] bfsQueue;
+    private final int[] visited;
+    private int epoch;
+
+    // per-lane counters
+    private long lanes;
+    private long capOpen;           // lanes whose vaccination count is still <= cap
+    private final int[] sCount = new int[MAX_LANES];
+    private final int[] iCount = new int[MAX_LANES];
+    private final int[] vCount = new int[MAX_LANES];
+    private final int[] rCount = new int[MAX_LANES];
+    private final int[] vaccinated = new int[MAX_LANES];
+    private int maxVaccinations;
+
+    public VacSIREnsemble(Graph g, double omega, double beta, double gamma, double tMax, double vacMax, int r, long seed) {
+        if (r < 1) throw new IllegalArgumentException("r must be positive");
+        if (g == null) throw new IllegalArgumentException("Graph is null");
+        if (omega < 0 || omega > 1 || beta < 0 || beta > 1) throw new IllegalArgumentException("omega and beta must be probabilities in [0,1]");
+        if (gamma < 0) throw new IllegalArgumentException("gamma must be non-negative");
+        if (tMax <= 0) throw new IllegalArgumentException("tMax must be positive");
+        if (vacMax < 0 || vacMax > 1) throw new IllegalArgumentException("vacMax must be in [0,1]");
+        this.g = g;
+        this.omega = omega;
+        this.beta = beta;
+        this.gamma = (int)Math.round(gamma);
+        this.tMax = (int)Math.round(tMax);
+        this.vacMax = vacMax;
+        this.r = r;
+        this.rng = new SplittableRandom(seed);
+        this.omegaBits = fixedPoint(omega);
+        this.betaBits = fixedPoint(beta);
+
+        int n = g.n;
+        this.I = new long[n];
+        this.V = new long[n];
+        this.R = new long[n];
+        this.age = new long[this.gamma + 1][n];
+        this.toVac = new long[n];
+        this.toInf = new long[n];
+        this.active = new int[n];
+        this.nextActive = new int[n];
+        this.touched = new int[n];
+        this.bfsQueue = r >= 2 ? new int[n] : null;
+        this.visited = r >= 2 ? new int[n] : null;
+    }
+
+    /**
+     * Runs one realization per entry of {@code initialInfecteds} (at most 64).
+     * @return per-realization results, in the order of {@code initialInfecteds}
+     */
+    public VacSirResult[] run(int[][] initialInfecteds) {
+        final int n = g.n;
+        final int laneCount = initialInfecteds.length;
+        if (laneCount == 0 || laneCount > MAX_LANES) throw new IllegalArgumentException("number of realizations must be in [1,64]");
+        lanes = laneCount == MAX_LANES ? -1L : (1L << laneCount) - 1;
+
+        Arrays.fill(I, 0L);
+        Arrays.fill(V, 0L);
+        Arrays.fill(R, 0L);
+        for (long[] plane : age) Arrays.fill(plane, 0L);
+
+        int activeNum = 0;
+        for (int k = 0; k < laneCount; k++) {
+            long bit = 1L << k;
+            int infectedNum = 0;
+            for (int u : initialInfecteds[k]) {
+                if (u < 0 || u >= n) throw new IllegalArgumentException("invalid initial infected: " + u);
+                if ((I[u] & bit) != 0) continue;
+                if (I[u] == 0) active[activeNum++] = u;
+                I[u] |= bit;
+                age[0][u] |= bit;
+                infectedNum++;
+            }
+            sCount[k] = n - infectedNum; iCount[k] = infectedNum; vCount[k] = 0; rCount[k] = 0;
+            vaccinated[k] = 0;
+        }
+        Arrays.sort(active, 0, activeNum);
+
+        maxVaccinations = Math.min(n, (int)Math.floor(vacMax * n));
+        capOpen = lanes;
+
+        int[][] Sseries = new int[laneCount][tMax + 1];
+        int[][] Iseries = new int[laneCount][tMax + 1];
+        int[][] Vseries = new int[laneCount][tMax + 1];
+        int[][] Rseries = new int[laneCount][tMax + 1];
+        record(Sseries, Iseries, Vseries, Rseries, laneCount, 0);
+
+        for (int t = 0; t < tMax; t++) {
+            int touchedNum = 0;
+
+            // exposure based on the state at time t
+            for (int idx = 0; idx < activeNum; idx++) {
+                int u = active[idx];
+                long iu = I[u];
+
+                for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                    int v = g.colIdx[e];
+                    long open = iu & susceptible(v) & ~(toVac[v] | toInf[v]);
+                    if (open == 0) continue;
+                    long vac = bernoulli(open, omega, omegaBits) & capOpen;
+                    if (vac != 0) countVaccinations(vac);
+                    long inf = bernoulli(open & ~vac, beta, betaBits);
+                    if ((vac | inf) == 0) continue;
+                    if ((toVac[v] | toInf[v]) == 0) touched[touchedNum++] = v;
+                    toVac[v] |= vac;
+                    toInf[v] |= inf;
+                }
+
+                if (r >= 2) touchedNum = ringVaccination(u, iu, touchedNum);
+            }
+
+            // recoveries, then timers of the remaining infected
+            int nextNum = 0;
+            long[] due = age[gamma];
+            for (int idx = 0; idx < activeNum; idx++) {
+                int u = active[idx];
+                long rec = due[u];
+                if (rec != 0) {
+                    due[u] = 0;
+                    I[u] &= ~rec;
+                    R[u] |= rec;
+                    for (long b = rec; b != 0; b &= b - 1) {
+                        int k = Long.numberOfTrailingZeros(b);
+                        iCount[k]--; rCount[k]++;
+                    }
+                }
+                for (int a = gamma - 1; a >= 0; a--) {
+                    age[a + 1][u] = age[a][u];
+                    age[a][u] = 0;
+                }
+            }
+
+            // apply infections and vaccinations
+            Arrays.sort(touched, 0, touchedNum);
+            int newAge = Math.min(1, gamma);
+            for (int k = 0; k < touchedNum; k++) {
+                int v = touched[k];
+                long inf = toInf[v], vac = toVac[v];
+                toInf[v] = 0; toVac[v] = 0;
+                if (inf != 0) {
+                    I[v] |= inf;
+                    age[newAge][v] |= inf;
+                    for (long b = inf; b != 0; b &= b - 1) {
+                        int lane = Long.numberOfTrailingZeros(b);
+                        sCount[lane]--; iCount[lane]++;
+                    }
+                }
+                if (vac != 0) {
+                    V[v] |= vac;
+                    for (long b = vac; b != 0; b &= b - 1) {
+                        int lane = Long.numberOfTrailingZeros(b);
+                        sCount[lane]--; vCount[lane]++;
+                    }
+                }
+            }
+
+            // next active list: still-infected nodes merged with newly infected ones
+            int a = 0, b = 0;
+            while (a < activeNum || b < touchedNum) {
+                int u;
+                if (b == touchedNum || (a < activeNum && active[a] <= touched[b])) {
+                    u = active[a++];
+                    if (b < touchedNum && touched[b] == u) b++;
+                } else {
+                    u = touched[b++];
+                }
+                if (I[u] != 0) nextActive[nextNum++] = u;
+            }
+            int[] tmp = active; active = nextActive; nextActive = tmp;
+            activeNum = nextNum;
+
+            record(Sseries, Iseries, Vseries, Rseries, laneCount, t + 1);
+
+            if (activeNum == 0) {
+                for (int k = 0; k < laneCount; k++) {
+                    for (int tt = t + 1; tt < tMax; tt++) {
+                        Sseries[k][tt + 1] = Sseries[k][tt];
+                        Iseries[k][tt + 1] = Iseries[k][tt];
+                        Vseries[k][tt + 1] = Vseries[k][tt];
+                        Rseries[k][tt + 1] = Rseries[k][tt];
+                    }
+                }
+                break;
+            }
+        }
+
+        VacSirResult[] results = new VacSirResult[laneCount];
+        for (int k = 0; k < laneCount; k++) {
+            results[k] = new VacSirResult(Sseries[k], Iseries[k], Vseries[k], Rseries[k]);
+        }
+        return results;
+    }
+
+    /** Vaccination attempts on nodes at distance 2..r from u, in lanes where u is infected. */
+    private int ringVaccination(int u, long iu, int touchedNum) {
+        int stamp = nextEpoch();
+        visited[u] = stamp;
+        int head = 0, tail = 0;
+        for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+            int v = g.colIdx[e];
+            if (visited[v] == stamp) continue;
+            visited[v] = stamp;
+            bfsQueue[tail++] = v;
+        }
+        for (int depth = 2; depth <= r && head < tail; depth++) {
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int v = bfsQueue[head++];
+                for (int f = g.firstArc(v); f < g.endArc(v); f++) {
+                    int w = g.colIdx[f];
+                    if (visited[w] == stamp) continue;
+                    visited[w] = stamp;
+                    if (depth < r) bfsQueue[tail++] = w;
+                    long open = iu & susceptible(w) & ~(toVac[w] | toInf[w]) & capOpen;
+                    if (open == 0) continue;
+                    long vac = bernoulli(open, omega, omegaBits) & capOpen;
+                    if (vac == 0) continue;
+                    countVaccinations(vac);
+                    if ((toVac[w] | toInf[w]) == 0) touched[touchedNum++] = w;
+                    toVac[w] |= vac;
+                }
+            }
+        }
+        return touchedNum;
+    }
+
+    private long susceptible(int v) {
+        return lanes & ~(I[v] | V[v] | R[v]);
+    }
+
+    /** Counts vaccinations against the per-lane cap (attempts are allowed while count <= cap). */
+    private void countVaccinations(long vac) {
+        for (long b = vac; b != 0; b &= b - 1) {
+            int k = Long.numberOfTrailingZeros(b);
+            if (++vaccinated[k] > maxVaccinations) capOpen &= ~(1L << k);
+        }
+    }
+
+    /** Independent Bernoulli(p) bit for every lane set in {@code mask}. */
+    private long bernoulli(long mask, double p, long pBits) {
+        if (mask == 0 || p <= 0.0) return 0L;
+        if (p >= 1.0) return mask;
+        if (Long.bitCount(mask) <= SCALAR_LANES) {
+            long out = 0L;
+            for (long b = mask; b != 0; b &= b - 1) {
+                if (rng.nextDouble() < p) out |= b & -b;
+            }
+            return out;
+        }
+        // bit-serial comparison U < p over the binary digits of p, least significant first
+        long m = 0L;
+        for (int j = Long.numberOfTrailingZeros(pBits); j < PRECISION; j++) {
+            long w = rng.nextLong();
+            m = ((pBits >>> j) & 1L) != 0 ? (m | w) : (m & w);
+        }
+        return m & mask;
+    }
+
+    private static long fixedPoint(double p) {
+        return Math.max(0L, Math.min((1L << PRECISION) - 1, Math.round(p * (1L << PRECISION))));
+    }
+
+    private void record(int[][] S, int[][] I, int[][] V, int[][] R, int laneCount, int idx) {
+        for (int k = 0; k < laneCount; k++) {
+            S[k][idx] = sCount[k]; I[k][idx] = iCount[k]; V[k][idx] = vCount[k]; R[k][idx] = rCount[k];
+        }
+    }
+
+    private int nextEpoch() {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+        return epoch;
+    }
+
+    public static VacSirResult[] simulate(Graph g, double omega, double beta, double gamma, int tMax, double vacMax, int[][] initialInfecteds, int r, long seed) {
+        return new VacSIREnsemble(g, omega, beta, gamma, tMax, vacMax, r, seed).run(initialInfecteds);
+    }
+}
@@ -1,26 +1,93 @@
 package sirsim.simulation;
 
 import sirsim.network.Graph;
+import sirsim.utils.CounterRng;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 public final class VacSIRSimulator {
     public enum Status { S, I, V, R }
 
+    // byte-encoded states (code = Status.ordinal())
+    private static final byte ST_S = (byte) Status.S.ordinal();
+    private static final byte ST_I = (byte) Status.I.ordinal();
+    private static final byte ST_V = (byte) Status.V.ordinal();
+    private static final byte ST_R = (byte) Status.R.ordinal();
+
     private final Graph g;
     private final double omega;   // vaccination probability on S exposed by I
     private final double beta;    // infection probability on S exposed by I
     private final int gamma;      // recovery delay in steps
     private final int tMax;       // total steps
     private final double vacMax;  // max fraction vaccinated
-    private final int r; // number of neighbors to vaccinate
-    private final SplittableRandom rng;
+    private final int r; // vaccination radius in hops (r >= 2 adds ring vaccination up to distance r)
+    private final long seed;
+    private SplittableRandom rng;    // replaced by restore(): forked trajectories draw independently
 
-    private final Status[] status;
+    private final byte[] state;      // NodeStates.Bytes codes, indexed directly on the hot paths
     private final int[] infStep;  // steps since infected (only valid for I)
+    // nodes that are not susceptible, in the order they left S: reset and restore clear only these,
+    // and snapshot reads them instead of scanning all n
+    private final int[] nonSusceptible;
+    private int nonSusceptibleNum;
+
+    // active-set buffers (reused across steps; only touched entries are cleared)
+    private static final byte MARK_NONE = 0, MARK_VAC = 1, MARK_INF = 2, MARK_REC = 3;
+    private final byte[] mark;       // toVaccinate / toInfect (/ toRecover in dense steps) flags of the current step
+    // a step touching at least n / DENSE_DIVISOR nodes is applied with full-array state kernels
+    private static final int DENSE_DIVISOR = 16;
+    private final int[] stateCounts = new int[4];
+    private int[] infected;          // current infected nodes, ascending
+    private int[] nextInfected;
+    private final int[] newInfected; // nodes to infect this step
+    private final int[] toVaccinate; // nodes to vaccinate this step (distinct)
+    private final int[] toRecover;   // nodes to recover this step
+
+    // depth-bounded BFS for ring vaccination (r >= 2)
+    private final int[] bfsQueue;
+    private final int[] visited;     // epoch stamp of the last BFS that reached the node
+    private int epoch;
+
+    // state of the current step
+    private int curInfectedNum, newInfNum, vacNum, recNum;
+    private int curVaccinatedNum, maxVaccinations;
+    private int sCount, vCount, rCount;
+    private int time;                // steps taken by the stepping API (start / step / restore)
+
+    // parallel mode: lock-free claims resolved by the smallest infected source id;
+    // a claim is source * r + (hops - 1), so ordering by claim orders by source, then by distance
+    private static final int NO_CLAIM = Integer.MAX_VALUE;
+    private static final int CHUNK = 256; // infected sources per task
+    private static final int STREAM_OMEGA = 0, STREAM_BETA = 1;
+    private static final VarHandle CLAIM = MethodHandles.arrayElementVarHandle(int[].class);
+    private int[] claim;
+    private int[] infectionClaim;    // smallest neighbour source whose infection draw succeeded, for refused vaccinations
+    private int[] touched;
+    private long[] claimOrder;       // (claim << 32) | node of the touched nodes, sorted to resolve
+    private final AtomicInteger touchedNum = new AtomicInteger();
+    private ThreadLocal<RingScratch> ringScratch;
+
+    private static final class RingScratch {
+        final int[] queue;
+        final int[] visited;
+        int epoch;
+        RingScratch(int n) { queue = new int[n]; visited = new int[n]; }
+        int nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
 
     public VacSIRSimulator(Graph g, double omega, double beta, double gamma, double tMax, double vacMax, int r, long seed) {
-        if (r > 2) throw new IllegalArgumentException("r must be less than or equal to 2");
+        if (r < 1) throw new IllegalArgumentException("r must be positive");
         if (g == null) throw new IllegalArgumentException("Graph is null");
         if (omega < 0 || omega > 1 || beta < 0 || beta > 1) throw new IllegalArgumentException("omega and beta must be probabilities in [0,1]");
         if (gamma < 0) throw new IllegalArgumentException("gamma must be non-negative");
@@ -33,169 +100,520 @@ public final class VacSIRSimulator {
         this.tMax = (int)Math.round(tMax);
         this.vacMax = vacMax;
         this.r = r;
+        this.seed = seed;
         this.rng = new SplittableRandom(seed);
 
         int n = g.n;
-        this.status = new Status[n];
+        this.state = NodeStates.bytes(n).array();   // all susceptible (code 0)
         this.infStep = new int[n];
+        this.nonSusceptible = new int[n];
+        this.mark = new byte[n];
+        this.infected = new int[n];
+        this.nextInfected = new int[n];
+        this.newInfected = new int[n];
+        this.toVaccinate = new int[n];
+        this.toRecover = new int[n];
+        this.bfsQueue = r >= 2 ? new int[n] : null;
+        this.visited = r >= 2 ? new int[n] : null;
     }
 
     public VacSirResult run(int[] initialInfecteds) {
+        return run(initialInfecteds, null);
+    }
+
+    /**
+     * Runs the model with the exposure phase of each step split across {@code pool}.
+     * Exposure draws come from a counter-based RNG keyed by (seed, step, source, target), and a node
+     * exposed by several infected sources takes the outcome of the smallest source id whose attempt
+     * succeeded (claimed with an atomic min), so the trajectory is identical for any thread count.
+     * The vaccination cap is checked against the count at the start of the step; if the step's
+     * vaccinations would exceed it, they are granted in the order the sequential model attempts them
+     * (by source, then by distance, neighbours first). A refused node is infected by the smallest
+     * neighbouring source whose infection draw succeeded, as in the sequential model, where later
+     * sources still expose a node whose vaccination was refused.
+     * Trajectories differ from {@link #run(int[])}, which uses one sequential RNG.
+     * A {@code null} pool selects the sequential mode.
+     */
+    public VacSirResult run(int[] initialInfecteds, ForkJoinPool pool) {
         final int n = g.n;
-        // initialize all susceptible
-        for (int u = 0; u < n; u++){
-            status[u] = Status.S;
-            infStep[u] = 0;
-        }
+        reset(initialInfecteds);
 
-        // set initial infected unique
-        boolean[] seen = new boolean[n];
-        int curInfectedNum = 0;
-        for (int u : initialInfecteds) {
-            if (u < 0 || u >= n) throw new IllegalArgumentException("invalid initial infected: " + u);
-            if (seen[u]) continue;
-            seen[u] = true;
-            status[u] = Status.I;
-            infStep[u] = 0;
-            curInfectedNum++;
+        if (pool != null && claim == null) {
+            if ((long) n * r >= NO_CLAIM) throw new IllegalArgumentException("parallel mode needs n * r < " + NO_CLAIM);
+            claim = new int[n];
+            Arrays.fill(claim, NO_CLAIM);
+            infectionClaim = new int[n];
+            Arrays.fill(infectionClaim, NO_CLAIM);
+            touched = new int[n];
+            claimOrder = new long[n];
+            if (r >= 2) ringScratch = ThreadLocal.withInitial(() -> new RingScratch(n));
         }
 
-        // vaccination cap
-        int maxVaccinations = Math.min(n, (int)Math.floor(vacMax * n));
-        int curVaccinatedNum = 0;
-
         // time series arrays (0..tMax)
         int[] Sseries = new int[tMax + 1];
         int[] Iseries = new int[tMax + 1];
         int[] Vseries = new int[tMax + 1];
         int[] Rseries = new int[tMax + 1];
-
-        // record counts at t=0
-        countStates(Sseries, Iseries, Vseries, Rseries, 0);
-
-        // working buffers
-        boolean[] toVaccinate = new boolean[n];
-        boolean[] toInfect = new boolean[n];
-        boolean[] toRecover = new boolean[n];
+        Sseries[0] = sCount; Iseries[0] = curInfectedNum; Vseries[0] = vCount; Rseries[0] = rCount;
 
         for (int t = 0; t < tMax; t++) {
-            Arrays.fill(toVaccinate, false);
-            Arrays.fill(toInfect, false);
-            Arrays.fill(toRecover, false);
-
-            // exposure and recovery scheduling based on state at time t
-            for (int u = 0; u < n; u++) {
-                if (status[u] == Status.I) {
-                    // if recovery is due now, recover and skip exposure this step
-                    if (infStep[u] >= gamma) {
-                        toRecover[u] = true;
-                    }
-
-                    // otherwise expose neighbors
-                    int[] neighbors = g.neighbors(u);
-                    for (int v : neighbors) {
-                        if (status[v] != Status.S) continue;
-                        // vaccination attempt first (cap enforced at apply stage)
-                        if (!toVaccinate[v] && !toInfect[v]) {
-                            if (rng.nextDouble() < omega && curVaccinatedNum <= maxVaccinations) {
-                                toVaccinate[v] = true;
-                                curVaccinatedNum++;
-                            } else if (rng.nextDouble() < beta) {
-                                toInfect[v] = true;
-                            }
-                        }
-                    }
+            advance(t, pool);
+            Sseries[t + 1] = sCount; Iseries[t + 1] = curInfectedNum; Vseries[t + 1] = vCount; Rseries[t + 1] = rCount;
 
-                    if (r == 2) {
-                        ArrayList<Integer> neighbors2 = new ArrayList<>();
-                        for (int v : neighbors) {
-                            for (int w : g.neighbors(v)) {
-                                if (status[w] == Status.S && !toVaccinate[w] && !toInfect[w]) {
-                                    neighbors2.add(w);
-                                }
-                            }
-                        }
-                        for (int w : neighbors2) {
-                            if (rng.nextDouble() < omega && curVaccinatedNum <= maxVaccinations) {
-                                toVaccinate[w] = true;
-                                curVaccinatedNum++;
-                            }
-                        }
-                    }
+            if (curInfectedNum == 0) {
+                // no more infections, but keep filling remaining with steady counts
+                for (int tt = t + 1; tt < tMax; tt++) {
+                    Sseries[tt + 1] = Sseries[tt];
+                    Iseries[tt + 1] = Iseries[tt];
+                    Vseries[tt + 1] = Vseries[tt];
+                    Rseries[tt + 1] = Rseries[tt];
                 }
+                break;
             }
+        }
+
+        return new VacSirResult(Sseries, Iseries, Vseries, Rseries);
+    }
+
+    /** All susceptible but {@code initialInfecteds}, at step 0. */
+    private void reset(int[] initialInfecteds) {
+        final int n = g.n;
+        for (int u : initialInfecteds) {
+            if (u < 0 || u >= n) throw new IllegalArgumentException("invalid initial infected: " + u);
+        }
+        // back to all susceptible (only the nodes the previous trajectory reached)
+        clearTrajectory();
+
+        // set initial infected unique
+        curInfectedNum = 0;
+        for (int u : initialInfecteds) {
+            if (state[u] == ST_I) continue;
+            state[u] = ST_I;
+            nonSusceptible[nonSusceptibleNum++] = u;
+            infected[curInfectedNum++] = u;
+        }
+        // keep the infected list ascending so exposures run in node order
+        Arrays.sort(infected, 0, curInfectedNum);
+
+        // vaccination cap
+        maxVaccinations = Math.min(n, (int)Math.floor(vacMax * n));
+        curVaccinatedNum = 0;
+
+        // counts maintained incrementally
+        sCount = n - curInfectedNum; vCount = 0; rCount = 0;
+        time = 0;
+    }
 
+    /** One step t -> t + 1: exposures and recoveries from the state at t, then the counts at t + 1. */
+    private void advance(int t, ForkJoinPool pool) {
+        final int n = g.n;
+        newInfNum = 0; vacNum = 0; recNum = 0;
+
+        // exposure and recovery scheduling based on state at time t
+        if (pool == null) exposeSequential();
+        else exposeParallel(t, pool);
+
+        boolean dense = (long) (newInfNum + vacNum + recNum) * DENSE_DIVISOR >= n;
+        if (dense) {
+            // apply with streaming passes over the whole state array
+            for (int k = 0; k < recNum; k++) mark[toRecover[k]] = MARK_REC;
+            StateKernels.transition(state, mark, MARK_INF, ST_S, ST_I);
+            StateKernels.transition(state, mark, MARK_REC, ST_I, ST_R);
+            StateKernels.transition(state, mark, MARK_VAC, ST_S, ST_V);
+            StateKernels.incrementWhere(state, ST_I, infStep);
+            Arrays.fill(mark, MARK_NONE);
+        } else {
             // apply infections
-            for (int u = 0; u < n; u++) {
-                if (toInfect[u]) {
-                    if (status[u] != Status.S) {
-                        throw new IllegalArgumentException("invalid status: " + status[u]);
-                    }
-                    status[u] = Status.I;
-                    curInfectedNum++;
-                }
+            for (int k = 0; k < newInfNum; k++) {
+                int u = newInfected[k];
+                state[u] = ST_I;
+                mark[u] = MARK_NONE;
             }
 
             // apply recoveries
-            for (int u = 0; u < n; u++) {
-                if (toRecover[u]) {
-                    if (status[u] != Status.I) {
-                        throw new IllegalArgumentException("invalid status: " + status[u]);
+            for (int k = 0; k < recNum; k++) {
+                state[toRecover[k]] = ST_R;
+            }
+
+            // apply vaccinations
+            for (int k = 0; k < vacNum; k++) {
+                int u = toVaccinate[k];
+                state[u] = ST_V;
+                mark[u] = MARK_NONE;
+            }
+        }
+
+        // both lists hold distinct nodes that were susceptible at t
+        System.arraycopy(newInfected, 0, nonSusceptible, nonSusceptibleNum, newInfNum);
+        nonSusceptibleNum += newInfNum;
+        System.arraycopy(toVaccinate, 0, nonSusceptible, nonSusceptibleNum, vacNum);
+        nonSusceptibleNum += vacNum;
+
+        // next infected list = survivors (already ascending) merged with sorted new infections;
+        // advance infection timers for those still infected (already done by the dense pass)
+        Arrays.sort(newInfected, 0, newInfNum);
+        int a = 0, b = 0, next = 0;
+        while (a < curInfectedNum || b < newInfNum) {
+            int u;
+            if (b == newInfNum || (a < curInfectedNum && infected[a] < newInfected[b])) {
+                u = infected[a++];
+                if (state[u] != ST_I) continue; // recovered this step
+            } else {
+                u = newInfected[b++];
+            }
+            if (!dense) infStep[u]++;
+            nextInfected[next++] = u;
+        }
+        int[] tmp = infected; infected = nextInfected; nextInfected = tmp;
+        curInfectedNum = next;
+
+        // record counts at t+1
+        if (dense) {
+            Arrays.fill(stateCounts, 0);
+            StateKernels.count(state, stateCounts);
+            sCount = stateCounts[ST_S]; vCount = stateCounts[ST_V]; rCount = stateCounts[ST_R];
+        } else {
+            sCount -= newInfNum + vacNum;
+            vCount += vacNum;
+            rCount += recNum;
+        }
+    }
+
+    // ---- stepping API (sequential mode) for splitting and other trajectory-level methods ----
+
+    /**
+     * Immutable state of a trajectory between two steps: the step index and every node that is not
+     * susceptible, with the infection timers of the infected ones. Its size grows with the outbreak,
+     * not with the graph, so many entrance states of a splitting level fit in memory.
+     */
+    public static final class Snapshot {
+        private final int time;
+        private final int[] nodes;      // ascending
+        private final byte[] states;
+        private final int[] infSteps;   // 0 unless the node is infected
+
+        private Snapshot(int time, int[] nodes, byte[] states, int[] infSteps) {
+            this.time = time;
+            this.nodes = nodes;
+            this.states = states;
+            this.infSteps = infSteps;
+        }
+
+        public int time() { return time; }
+
+        /** Number of nodes that are not susceptible. */
+        public int size() { return nodes.length; }
+    }
+
+    /** Starts a trajectory from {@code initialInfecteds} at step 0 (the sequential model of {@link #run(int[])}). */
+    public void start(int[] initialInfecteds) {
+        reset(initialInfecteds);
+    }
+
+    /** Advances one step; returns false (without changing anything) once the trajectory {@link #isFinished()}. */
+    public boolean step() {
+        if (isFinished()) return false;
+        advance(time, null);
+        time++;
+        return true;
+    }
+
+    /** No infected left or {@code tMax} steps taken. */
+    public boolean isFinished() {
+        return curInfectedNum == 0 || time >= tMax;
+    }
+
+    public int time() { return time; }
+
+    public int infectedCount() { return curInfectedNum; }
+
+    public int vaccinatedCount() { return vCount; }
+
+    /** Nodes ever infected (I + R). */
+    public int cumulativeInfections() { return g.n - sCount - vCount; }
+
+    /** Vaccinations allowed by {@code vacMax} (the cap is reached once {@link #vaccinatedCount()} exceeds it). */
+    public int vaccinationCap() { return Math.min(g.n, (int)Math.floor(vacMax * g.n)); }
+
+    /** Score of {@link #process}. */
+    public enum Score { CUMULATIVE_INFECTIONS, VACCINATIONS }
+
+    /**
+     * This simulator as a {@link MultilevelSplitting.Process}: {@code start(seed)} infects {@code k0} distinct
+     * uniformly chosen nodes and runs the sequential model, both drawn from {@code seed}.
+     */
+    public MultilevelSplitting.Process<Snapshot> process(int k0, Score score) {
+        if (k0 < 1 || k0 > g.n) throw new IllegalArgumentException("need 1 <= k0 <= n");
+        return new MultilevelSplitting.Process<>() {
+            @Override
+            public void start(long seed) {
+                SplittableRandom r = new SplittableRandom(seed);
+                int[] init = r.ints(0, g.n).distinct().limit(k0).toArray();
+                VacSIRSimulator.this.start(init);
+                rng = r.split();
+            }
+
+            @Override
+            public void restore(Snapshot snapshot, long seed) {
+                VacSIRSimulator.this.restore(snapshot, seed);
+            }
+
+            @Override
+            public Snapshot snapshot() {
+                return VacSIRSimulator.this.snapshot();
+            }
+
+            @Override
+            public boolean step() {
+                return VacSIRSimulator.this.step();
+            }
+
+            @Override
+            public double score() {
+                return score == Score.VACCINATIONS ? vaccinatedCount() : cumulativeInfections();
+            }
+        };
+    }
+
+    /** Current state; costs O(m log m) for m non-susceptible nodes, independent of n. */
+    public Snapshot snapshot() {
+        int count = nonSusceptibleNum;
+        int[] nodes = Arrays.copyOf(nonSusceptible, count);
+        Arrays.sort(nodes);
+        byte[] st = new byte[count];
+        int[] steps = new int[count];
+        for (int c = 0; c < count; c++) {
+            int u = nodes[c];
+            st[c] = state[u];
+            steps[c] = state[u] == ST_I ? infStep[u] : 0;
+        }
+        return new Snapshot(time, nodes, st, steps);
+    }
+
+    /**
+     * Continues from {@code snap} with a fresh random stream seeded by {@code seed}, so trajectories forked
+     * from one snapshot evolve independently (and reproducibly).
+     */
+    public void restore(Snapshot snap, long seed) {
+        clearTrajectory();
+        curInfectedNum = 0;
+        vCount = 0; rCount = 0;
+        for (int i = 0; i < snap.nodes.length; i++) {
+            int u = snap.nodes[i];
+            byte st = snap.states[i];
+            state[u] = st;
+            nonSusceptible[nonSusceptibleNum++] = u;
+            if (st == ST_I) {
+                infStep[u] = snap.infSteps[i];
+                infected[curInfectedNum++] = u;   // nodes are ascending
+            } else if (st == ST_V) {
+                vCount++;
+            } else {
+                rCount++;
+            }
+        }
+        sCount = g.n - snap.nodes.length;
+        maxVaccinations = vaccinationCap();
+        curVaccinatedNum = vCount;
+        time = snap.time;
+        rng = new SplittableRandom(seed);
+    }
+
+    /**
+     * Makes every node susceptible with a zero infection timer (new infections count up from 0), touching
+     * only the nodes that left S: a trajectory that stays small costs O(its size), not O(n), to reset.
+     */
+    private void clearTrajectory() {
+        for (int k = 0; k < nonSusceptibleNum; k++) {
+            int u = nonSusceptible[k];
+            state[u] = ST_S;
+            infStep[u] = 0;
+        }
+        nonSusceptibleNum = 0;
+    }
+
+    private void exposeSequential() {
+        for (int idx = 0; idx < curInfectedNum; idx++) {
+            int u = infected[idx];
+            // if recovery is due now, recover and skip exposure this step
+            if (infStep[u] >= gamma) {
+                toRecover[recNum++] = u;
+            }
+
+            // otherwise expose neighbors
+            for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                int v = g.colIdx[e];
+                if (state[v] != ST_S) continue;
+                // vaccination attempt first (cap enforced at apply stage)
+                if (mark[v] == MARK_NONE) {
+                    if (rng.nextDouble() < omega && curVaccinatedNum <= maxVaccinations) {
+                        mark[v] = MARK_VAC;
+                        toVaccinate[vacNum++] = v;
+                        curVaccinatedNum++;
+                    } else if (rng.nextDouble() < beta) {
+                        mark[v] = MARK_INF;
+                        newInfected[newInfNum++] = v;
                     }
-                    status[u] = Status.R;
-                    curInfectedNum--;
                 }
             }
 
-            // apply vaccinations up to cap (randomize starting point to reduce bias)
-            for (int u = 0; u < n; u++) {
-                if (toVaccinate[u]) {
-                    if (status[u] != Status.S) {
-                        throw new IllegalArgumentException("invalid status: " + status[u]);
+            if (r >= 2) {
+                // ring vaccination: every node at distance 2..r from u gets one attempt
+                int stamp = nextEpoch();
+                visited[u] = stamp;
+                int head = 0, tail = 0;
+                for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                    int v = g.colIdx[e];
+                    if (visited[v] == stamp) continue;
+                    visited[v] = stamp;
+                    bfsQueue[tail++] = v;
+                }
+                for (int depth = 2; depth <= r && head < tail; depth++) {
+                    int levelEnd = tail;
+                    while (head < levelEnd) {
+                        int v = bfsQueue[head++];
+                        for (int f = g.firstArc(v); f < g.endArc(v); f++) {
+                            int w = g.colIdx[f];
+                            if (visited[w] == stamp) continue;
+                            visited[w] = stamp;
+                            if (depth < r) bfsQueue[tail++] = w;
+                            if (state[w] == ST_S && mark[w] == MARK_NONE
+                                    && rng.nextDouble() < omega && curVaccinatedNum <= maxVaccinations) {
+                                mark[w] = MARK_VAC;
+                                toVaccinate[vacNum++] = w;
+                                curVaccinatedNum++;
+                            }
+                        }
                     }
-                    status[u] = Status.V;
                 }
             }
+        }
+    }
 
+    private void exposeParallel(int t, ForkJoinPool pool) {
+        final boolean vacOpen = curVaccinatedNum <= maxVaccinations;
+        touchedNum.set(0);
 
+        // claim phase: read-only on the state at time t
+        final int chunks = (curInfectedNum + CHUNK - 1) / CHUNK;
+        if (chunks <= 1) {
+            claimChunk(t, 0, vacOpen);
+        } else {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> claimChunk(t, c, vacOpen))).join();
+        }
 
-            // advance infection timers for those still infected
-            for (int u = 0; u < n; u++) {
-                if (status[u] == Status.I) infStep[u]++;
+        // resolve claims in the sequential model's order: by source, then by distance (BFS order), then by node
+        int touchedCount = touchedNum.get();
+        for (int k = 0; k < touchedCount; k++) {
+            int v = touched[k];
+            claimOrder[k] = (long) claim[v] << 32 | v;
+            claim[v] = NO_CLAIM;
+        }
+        Arrays.sort(claimOrder, 0, touchedCount);
+        int remaining = vacOpen ? maxVaccinations - curVaccinatedNum + 1 : 0;
+        for (int k = 0; k < touchedCount; k++) {
+            int v = (int) claimOrder[k];
+            int c = (int) (claimOrder[k] >>> 32);
+            int u = c / r;
+            int infector = infectionClaim[v];
+            infectionClaim[v] = NO_CLAIM;
+            if (vacOpen && CounterRng.uniform(seed, t, u, v, STREAM_OMEGA) < omega) {
+                if (remaining > 0) {
+                    remaining--;
+                    mark[v] = MARK_VAC;
+                    toVaccinate[vacNum++] = v;
+                    curVaccinatedNum++;
+                    continue;
+                }
+                // cap reached: the sequential model goes on to the infection draws of this and later
+                // neighbouring sources, so the smallest successful one infects (ring sources have none)
+                if (infector == NO_CLAIM) continue;
             }
+            mark[v] = MARK_INF;
+            newInfected[newInfNum++] = v;
+        }
 
-            // record counts at t+1
-            countStates(Sseries, Iseries, Vseries, Rseries, t + 1);
+        for (int idx = 0; idx < curInfectedNum; idx++) {
+            int u = infected[idx];
+            if (infStep[u] >= gamma) toRecover[recNum++] = u;
+        }
+    }
 
-            if (curInfectedNum == 0) {
-                // no more infections, but keep filling remaining with steady counts
-                for (int tt = t + 1; tt < tMax; tt++) {
-                    Sseries[tt + 1] = Sseries[tt];
-                    Iseries[tt + 1] = Iseries[tt];
-                    Vseries[tt + 1] = Vseries[tt];
-                    Rseries[tt + 1] = Rseries[tt];
+    private void claimChunk(int t, int c, boolean vacOpen) {
+        int from = c * CHUNK;
+        int to = Math.min(curInfectedNum, from + CHUNK);
+        RingScratch scratch = r >= 2 ? ringScratch.get() : null;
+        for (int idx = from; idx < to; idx++) {
+            int u = infected[idx];
+            for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                int v = g.colIdx[e];
+                if (state[v] != ST_S) continue;
+                boolean infects = CounterRng.uniform(seed, t, u, v, STREAM_BETA) < beta;
+                if (infects || (vacOpen && CounterRng.uniform(seed, t, u, v, STREAM_OMEGA) < omega)) {
+                    claim(v, u * r);
+                }
+                if (infects) claimMin(infectionClaim, v, u);
+            }
+
+            if (scratch != null && vacOpen) {
+                int stamp = scratch.nextEpoch();
+                int[] queue = scratch.queue, seen = scratch.visited;
+                seen[u] = stamp;
+                int head = 0, tail = 0;
+                for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                    int v = g.colIdx[e];
+                    if (seen[v] == stamp) continue;
+                    seen[v] = stamp;
+                    queue[tail++] = v;
+                }
+                for (int depth = 2; depth <= r && head < tail; depth++) {
+                    int levelEnd = tail;
+                    while (head < levelEnd) {
+                        int v = queue[head++];
+                        for (int f = g.firstArc(v); f < g.endArc(v); f++) {
+                            int w = g.colIdx[f];
+                            if (seen[w] == stamp) continue;
+                            seen[w] = stamp;
+                            if (depth < r) queue[tail++] = w;
+                            if (state[w] == ST_S && CounterRng.uniform(seed, t, u, w, STREAM_OMEGA) < omega) {
+                                claim(w, u * r + depth - 1);
+                            }
+                        }
+                    }
                 }
-                break;
             }
         }
+    }
 
-        return new VacSirResult(Sseries, Iseries, Vseries, Rseries);
+    /** Atomic min of the claims on {@code v}; the first claimer of a node records it as touched. */
+    private void claim(int v, int c) {
+        if (claimMin(claim, v, c) == NO_CLAIM) touched[touchedNum.getAndIncrement()] = v;
     }
 
-    private void countStates(int[] S, int[] I, int[] V, int[] R, int idx) {
-        int s = 0, i = 0, v = 0, r = 0;
-        for (Status st : status) {
-            switch (st) {
-                case S -> s++;
-                case I -> i++;
-                case V -> v++;
-                case R -> r++;
-            }
+    /** Atomic {@code a[v] = min(a[v], c)}; returns the value it replaced, or {@code c} if it did not. */
+    private static int claimMin(int[] a, int v, int c) {
+        int cur = (int) CLAIM.getAcquire(a, v);
+        while (c < cur) {
+            int witness = (int) CLAIM.compareAndExchange(a, v, cur, c);
+            if (witness == cur) return cur;
+            cur = witness;
         }
-        S[idx] = s; I[idx] = i; V[idx] = v; R[idx] = r;
+        return c;
+    }
+
+    private int nextEpoch() {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+        return epoch;
     }
 
     public static VacSirResult simulate(Graph g, double omega, double beta, double gamma, int tMax, double vacMax, int[] initialInfecteds, int r, long seed) {
         return new VacSIRSimulator(g, omega, beta, gamma, tMax, vacMax, r, seed).run(initialInfecteds);
     }
+
+    public static VacSirResult simulateParallel(Graph g, double omega, double beta, double gamma, int tMax, double vacMax, int[] initialInfecteds, int r, long seed, ForkJoinPool pool) {
+        return new VacSIRSimulator(g, omega, beta, gamma, tMax, vacMax, r, seed).run(initialInfecteds, pool);
+    }
 }
@@ -1,5 +1,10 @@
 package sirsim.simulation;
 
+import sirsim.output.ColumnTable;
+import sirsim.output.ColumnarFile;
+import sirsim.output.ColumnarWriter;
+import sirsim.output.ResultSink;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -42,4 +47,28 @@ public final class VacSirResult {
             }
         }
     }
+
+    /** 集計時系列（itr,t,S,I,V,R）を非同期シンクへ出力（スキーマ RecordSchema.VACSIR_TIME_SERIES） */
+    public void writeTimeSeries(ResultSink sink, int itr) {
+        for (int t = 0; t < I.length; t++) {
+            sink.row().l(itr).l(t).l(S[t]).l(I[t]).l(V[t]).l(R[t]).commit();
+        }
+    }
+
+    /** 集計時系列（t,S,I,V,R）を列指向バイナリ（{@link ColumnarFile}）へ1セグメント追記（ヘッダに itr） */
+    public void writeTimeSeriesColumnar(Path path, int itr) throws IOException {
+        ColumnarFile.append(path, timeSeriesTable(itr));
+    }
+
+    /** 集計時系列を列指向バイナリの非同期ライタへ1セグメント（符号化は呼び出し側のスレッド） */
+    public void writeTimeSeriesColumnar(ColumnarWriter out, int itr) {
+        out.append(timeSeriesTable(itr));
+    }
+
+    private ColumnTable timeSeriesTable(int itr) {
+        int[] t = new int[I.length];
+        for (int i = 0; i < t.length; i++) t[i] = i;
+        return new ColumnTable().param("itr", itr)
+                .ints("t", t).ints("S", S).ints("I", I).ints("V", V).ints("R", R);
+    }
 }
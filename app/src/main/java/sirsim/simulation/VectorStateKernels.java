@@ -0,0 +1,61 @@
+package sirsim.simulation;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/** Vector API bodies of {@link StateKernels}; only loaded when the incubator module is present. */
+final class VectorStateKernels {
+    private VectorStateKernels() {}
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // byte species with as many lanes as INTS (null when that shape does not exist, e.g. 4 x 8 bits)
+    private static final VectorSpecies<Byte> BYTES_PER_INT = byteSpeciesWithLanes(INTS.length());
+
+    static void count(byte[] st, int[] counts) {
+        int upper = BYTES.loopBound(st.length);
+        for (int code = 0; code < counts.length; code++) {
+            byte c = (byte) code;
+            int sum = 0;
+            for (int i = 0; i < upper; i += BYTES.length()) {
+                sum += ByteVector.fromArray(BYTES, st, i).eq(c).trueCount();
+            }
+            counts[code] += sum;
+        }
+        StateKernels.countScalar(st, upper, counts);
+    }
+
+    static void transition(byte[] st, byte[] mask, byte maskValue, byte from, byte to) {
+        int upper = BYTES.loopBound(st.length);
+        for (int i = 0; i < upper; i += BYTES.length()) {
+            ByteVector s = ByteVector.fromArray(BYTES, st, i);
+            VectorMask<Byte> sel = s.eq(from).and(ByteVector.fromArray(BYTES, mask, i).eq(maskValue));
+            if (sel.anyTrue()) s.blend(to, sel).intoArray(st, i);
+        }
+        StateKernels.transitionScalar(st, upper, mask, maskValue, from, to);
+    }
+
+    static void incrementWhere(byte[] st, byte code, int[] timers) {
+        if (BYTES_PER_INT == null) {
+            StateKernels.incrementWhereScalar(st, 0, code, timers);
+            return;
+        }
+        int upper = INTS.loopBound(st.length);
+        for (int i = 0; i < upper; i += INTS.length()) {
+            VectorMask<Integer> m = ByteVector.fromArray(BYTES_PER_INT, st, i).eq(code).cast(INTS);
+            if (m.anyTrue()) IntVector.fromArray(INTS, timers, i).add(1, m).intoArray(timers, i);
+        }
+        StateKernels.incrementWhereScalar(st, upper, code, timers);
+    }
+
+    private static VectorSpecies<Byte> byteSpeciesWithLanes(int lanes) {
+        try {
+            return VectorSpecies.of(byte.class, VectorShape.forBitSize(lanes * Byte.SIZE));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
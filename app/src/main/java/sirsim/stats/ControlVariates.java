@@ -0,0 +1,130 @@
+package sirsim.stats;
+
+import java.util.Arrays;
+
+/**
+ * Control-variate estimator: each sample pairs the output y with controls x whose expectations are known
+ * exactly (passed already centred, x - E[x]). The estimate is {@code mean(y) - c . mean(x)} with c the least
+ * squares coefficients of y on x, so the residual variance is {@code (1 - R^2) Var(y)}. Estimating c from the
+ * same samples adds an O(1/n) bias, negligible at the trial counts of a sweep. Controls that do not vary
+ * in the sample get coefficient 0.
+ */
+public final class ControlVariates {
+    private final int q;
+    private double[] y = new double[16];
+    private double[] x;
+    private int n;
+
+    /** @param controls number of control variables per sample */
+    public ControlVariates(int controls) {
+        if (controls < 1) throw new IllegalArgumentException("need at least one control");
+        this.q = controls;
+        this.x = new double[16 * controls];
+    }
+
+    /** Adds one sample; {@code centredControls[i]} is control i minus its known expectation. */
+    public void add(double output, double... centredControls) {
+        if (centredControls.length != q) throw new IllegalArgumentException("expected " + q + " controls");
+        if (n == y.length) {
+            y = Arrays.copyOf(y, 2 * n);
+            x = Arrays.copyOf(x, 2 * n * q);
+        }
+        y[n] = output;
+        System.arraycopy(centredControls, 0, x, n * q, q);
+        n++;
+    }
+
+    public int count() { return n; }
+
+    /** Controlled mean (NaN standard error with fewer than {@code controls + 2} samples). */
+    public ReducedEstimate estimate() {
+        double yMean = 0.0;
+        double[] xMean = new double[q];
+        for (int i = 0; i < n; i++) {
+            yMean += y[i];
+            for (int j = 0; j < q; j++) xMean[j] += x[i * q + j];
+        }
+        yMean /= n;
+        for (int j = 0; j < q; j++) xMean[j] /= n;
+
+        double syy = 0.0;
+        double[] sxy = new double[q];
+        double[] sxx = new double[q * q];
+        for (int i = 0; i < n; i++) {
+            double dy = y[i] - yMean;
+            syy += dy * dy;
+            for (int j = 0; j < q; j++) {
+                double dj = x[i * q + j] - xMean[j];
+                sxy[j] += dj * dy;
+                for (int l = 0; l <= j; l++) sxx[j * q + l] += dj * (x[i * q + l] - xMean[l]);
+            }
+        }
+        for (int j = 0; j < q; j++) {
+            for (int l = 0; l < j; l++) sxx[l * q + j] = sxx[j * q + l];
+        }
+        double[] c = solve(sxx, sxy, q);
+
+        double mean = yMean, sse = 0.0;
+        for (int j = 0; j < q; j++) mean -= c[j] * xMean[j];
+        for (int i = 0; i < n; i++) {
+            double r = y[i] - yMean;
+            for (int j = 0; j < q; j++) r -= c[j] * (x[i * q + j] - xMean[j]);
+            sse += r * r;
+        }
+        int used = 0;
+        for (double cj : c) if (cj != 0.0) used++;
+        double residualVar = n - 1 - used > 0 ? sse / (n - 1 - used) : Double.NaN;
+        double plainVar = n > 1 ? syy / (n - 1) : Double.NaN;
+        return new ReducedEstimate(mean, Math.sqrt(residualVar / n), n, AntitheticMean.reduction(plainVar, residualVar));
+    }
+
+    /**
+     * Solves the symmetric system a c = b by Gaussian elimination with partial pivoting. Pivots that vanish
+     * relative to the diagonal (constant or collinear controls) leave their coefficient at 0.
+     */
+    private static double[] solve(double[] a, double[] b, int q) {
+        a = a.clone();
+        b = b.clone();
+        double scale = 0.0;
+        for (int j = 0; j < q; j++) scale = Math.max(scale, Math.abs(a[j * q + j]));
+        double eps = 1e-12 * scale;
+        int[] pivotRow = new int[q];
+        boolean[] skipped = new boolean[q];
+        int row = 0;
+        for (int col = 0; col < q; col++) {
+            int best = -1;
+            for (int r = row; r < q; r++) {
+                if (best < 0 || Math.abs(a[r * q + col]) > Math.abs(a[best * q + col])) best = r;
+            }
+            if (best < 0 || !(Math.abs(a[best * q + col]) > eps)) {
+                skipped[col] = true;
+                continue;
+            }
+            swapRows(a, b, q, row, best);
+            for (int r = row + 1; r < q; r++) {
+                double f = a[r * q + col] / a[row * q + col];
+                if (f == 0.0) continue;
+                for (int j = col; j < q; j++) a[r * q + j] -= f * a[row * q + j];
+                b[r] -= f * b[row];
+            }
+            pivotRow[col] = row++;
+        }
+        double[] c = new double[q];
+        for (int col = q - 1; col >= 0; col--) {
+            if (skipped[col]) continue;
+            int r = pivotRow[col];
+            double s = b[r];
+            for (int j = col + 1; j < q; j++) s -= a[r * q + j] * c[j];
+            c[col] = s / a[r * q + col];
+        }
+        return c;
+    }
+
+    private static void swapRows(double[] a, double[] b, int q, int r1, int r2) {
+        if (r1 == r2) return;
+        for (int j = 0; j < q; j++) {
+            double t = a[r1 * q + j]; a[r1 * q + j] = a[r2 * q + j]; a[r2 * q + j] = t;
+        }
+        double t = b[r1]; b[r1] = b[r2]; b[r2] = t;
+    }
+}
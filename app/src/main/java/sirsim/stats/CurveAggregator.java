@@ -0,0 +1,168 @@
+package sirsim.stats;
+
+import sirsim.simulation.SarResult;
+import sirsim.simulation.SirResult;
+import sirsim.simulation.VacSirResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cross-realization summary of epidemic curves: each finished run is sampled on a fixed time grid
+ * (t_k = k*dt; event-driven series are step functions, held at their last value after the run ends)
+ * and folded into per-bin {@link RunningStats} and, optionally, {@link QuantileSketch}es.
+ * Not thread-safe; give each thread its own aggregator and {@link #merge} them, or guard add().
+ */
+public final class CurveAggregator {
+    /** Quantiles reported by the summary CSV. */
+    public static final double[] SUMMARY_QUANTILES = { 0.05, 0.25, 0.5, 0.75, 0.95 };
+    public static final String SUMMARY_HEADER = "t,series,runs,mean,sd,min,max,q05,q25,q50,q75,q95";
+
+    private final String[] series;
+    private final double dt;
+    private final int bins;
+    private final double accuracy;
+    private final RunningStats[][] stats;       // [series][bin]
+    private final QuantileSketch[][] sketches;  // null when accuracy == 0
+    private long runs;
+
+    /**
+     * @param series   names of the aggregated series
+     * @param dt       bin width
+     * @param bins     number of time bins (t = 0, dt, ..., (bins-1)*dt)
+     * @param accuracy relative accuracy of the quantile sketches, or 0 for mean/variance only
+     */
+    public CurveAggregator(String[] series, double dt, int bins, double accuracy) {
+        if (!(dt > 0) || bins <= 0) throw new IllegalArgumentException("dt and bins must be positive");
+        if (accuracy < 0 || accuracy >= 1) throw new IllegalArgumentException("accuracy must be in [0,1)");
+        this.series = series.clone();
+        this.dt = dt;
+        this.bins = bins;
+        this.accuracy = accuracy;
+        this.stats = new RunningStats[series.length][bins];
+        this.sketches = accuracy > 0 ? new QuantileSketch[series.length][bins] : null;
+        for (int s = 0; s < series.length; s++) {
+            for (int b = 0; b < bins; b++) {
+                stats[s][b] = new RunningStats();
+                if (sketches != null) sketches[s][b] = new QuantileSketch(accuracy);
+            }
+        }
+    }
+
+    /** S,I,R of FastSIR runs on [0, tMax] in steps of dt. */
+    public static CurveAggregator forSir(double tMax, double dt, double accuracy) {
+        return new CurveAggregator(new String[]{ "S", "I", "R" }, dt, (int) Math.floor(tMax / dt) + 1, accuracy);
+    }
+
+    /** S,A,R of FastSAR runs on [0, tMax] in steps of dt. */
+    public static CurveAggregator forSar(double tMax, double dt, double accuracy) {
+        return new CurveAggregator(new String[]{ "S", "A", "R" }, dt, (int) Math.floor(tMax / dt) + 1, accuracy);
+    }
+
+    /** S,I,V,R of VacSIR runs, one bin per step 0..tMax. */
+    public static CurveAggregator forVacSir(int tMax, double accuracy) {
+        return new CurveAggregator(new String[]{ "S", "I", "V", "R" }, 1.0, tMax + 1, accuracy);
+    }
+
+    /** Empty aggregator with the same layout (e.g. one per thread). */
+    public CurveAggregator emptyCopy() {
+        return new CurveAggregator(series, dt, bins, accuracy);
+    }
+
+    public void add(SirResult r) {
+        requireSeries("S", "I", "R");
+        addSteps(r.times, List.of(r.S, r.I, r.R));
+    }
+
+    public void add(SarResult r) {
+        requireSeries("S", "A", "R");
+        addSteps(r.times, List.of(r.S, r.A, r.R));
+    }
+
+    public void add(VacSirResult r) {
+        requireSeries("S", "I", "V", "R");
+        int[][] cols = { r.S, r.I, r.V, r.R };
+        for (int s = 0; s < cols.length; s++) {
+            int[] x = cols[s];
+            for (int b = 0; b < bins; b++) {
+                int t = (int) Math.floor(b * dt);
+                addValue(s, b, x[Math.min(t, x.length - 1)]);
+            }
+        }
+        runs++;
+    }
+
+    private void addSteps(List<Double> times, List<List<Integer>> cols) {
+        int i = 0;
+        final int last = times.size() - 1;
+        for (int b = 0; b < bins; b++) {
+            double t = b * dt;
+            while (i < last && times.get(i + 1) <= t) i++;
+            for (int s = 0; s < cols.size(); s++) addValue(s, b, cols.get(s).get(i));
+        }
+        runs++;
+    }
+
+    private void addValue(int s, int b, double v) {
+        stats[s][b].add(v);
+        if (sketches != null) sketches[s][b].add(v);
+    }
+
+    private void requireSeries(String... names) {
+        if (!Arrays.equals(series, names)) {
+            throw new IllegalArgumentException("aggregator series " + Arrays.toString(series) + " do not match " + Arrays.toString(names));
+        }
+    }
+
+    public void merge(CurveAggregator o) {
+        if (!Arrays.equals(series, o.series) || dt != o.dt || bins != o.bins || accuracy != o.accuracy) {
+            throw new IllegalArgumentException("incompatible aggregators");
+        }
+        for (int s = 0; s < series.length; s++) {
+            for (int b = 0; b < bins; b++) {
+                stats[s][b].merge(o.stats[s][b]);
+                if (sketches != null) sketches[s][b].merge(o.sketches[s][b]);
+            }
+        }
+        runs += o.runs;
+    }
+
+    public long runs() { return runs; }
+    public int bins() { return bins; }
+    public double binTime(int b) { return b * dt; }
+    public List<String> series() { return List.of(series); }
+    public RunningStats stats(int s, int b) { return stats[s][b]; }
+    /** Sketch of series s in bin b, or null when quantiles are disabled. */
+    public QuantileSketch sketch(int s, int b) { return sketches == null ? null : sketches[s][b]; }
+
+    /** Summary CSV ({@link #SUMMARY_HEADER}) of all bins and series. */
+    public void writeSummaryCsv(Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (BufferedWriter bw = Files.newBufferedWriter(path);
+             PrintWriter out = new PrintWriter(bw)) {
+            out.println(SUMMARY_HEADER);
+            writeSummaryRows(out, "");
+        }
+    }
+
+    /** Summary rows, each prefixed with {@code prefix} (e.g. "0.5,0.0," for leading parameter columns). */
+    public void writeSummaryRows(PrintWriter out, String prefix) {
+        for (int b = 0; b < bins; b++) {
+            for (int s = 0; s < series.length; s++) {
+                RunningStats st = stats[s][b];
+                out.printf(Locale.ROOT, "%s%.9f,%s,%d,%.9f,%.9f,%.9f,%.9f", prefix, binTime(b), series[s],
+                        st.count(), st.mean(), st.stdDev(), st.min(), st.max());
+                for (double q : SUMMARY_QUANTILES) {
+                    out.printf(Locale.ROOT, ",%.9f", sketches == null ? Double.NaN : sketches[s][b].quantile(q));
+                }
+                out.println();
+            }
+        }
+    }
+}
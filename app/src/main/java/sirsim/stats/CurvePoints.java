@@ -0,0 +1,53 @@
+package sirsim.stats;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * One {@link CurveAggregator} per (alpha, beta, lambda) point of a sweep. Aggregators are not
+ * thread-safe: callers synchronize on the instance returned by {@link #at}, or keep one
+ * CurvePoints per thread and {@link #merge} them.
+ */
+public final class CurvePoints {
+    private final double[] alphas, betas, lambdas;
+    private final CurveAggregator[] points;
+
+    public CurvePoints(double[] alphas, double[] betas, double[] lambdas, Supplier<CurveAggregator> factory) {
+        this.alphas = alphas.clone();
+        this.betas = betas.clone();
+        this.lambdas = lambdas.clone();
+        this.points = new CurveAggregator[alphas.length * betas.length * lambdas.length];
+        for (int i = 0; i < points.length; i++) points[i] = factory.get();
+    }
+
+    public CurveAggregator at(int alphaIndex, int betaIndex, int lambdaIndex) {
+        return points[(alphaIndex * betas.length + betaIndex) * lambdas.length + lambdaIndex];
+    }
+
+    public void merge(CurvePoints o) {
+        if (o.points.length != points.length) throw new IllegalArgumentException("incompatible point grids");
+        for (int i = 0; i < points.length; i++) points[i].merge(o.points[i]);
+    }
+
+    /** Summary CSV: alpha,beta,lambda followed by {@link CurveAggregator#SUMMARY_HEADER}. */
+    public void writeSummaryCsv(Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (BufferedWriter bw = Files.newBufferedWriter(path);
+             PrintWriter out = new PrintWriter(bw)) {
+            out.println("alpha,beta,lambda," + CurveAggregator.SUMMARY_HEADER);
+            for (int ai = 0; ai < alphas.length; ai++) {
+                for (int bi = 0; bi < betas.length; bi++) {
+                    for (int li = 0; li < lambdas.length; li++) {
+                        String prefix = String.format(Locale.ROOT, "%.9f,%.9f,%.9f,", alphas[ai], betas[bi], lambdas[li]);
+                        at(ai, bi, li).writeSummaryRows(out, prefix);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package sirsim.stats;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of final outbreak sizes at one parameter point. Sizes are histogrammed exactly
+ * (one bin per size) or in logarithmic bins (size 0, then {@code binsPerDecade} bins per decade),
+ * and split at {@code majorThreshold} into minor and major outbreaks, whose probability and
+ * conditional moments are tracked exactly. Quantiles come from a {@link QuantileSketch}.
+ * Histograms with the same layout merge; not thread-safe.
+ */
+public final class FinalSizeHistogram {
+    public enum Mode { EXACT, LOG }
+
+    private final int n;
+    private final Mode mode;
+    private final int binsPerDecade;
+    private final double logRatio;
+    private final long majorThreshold;
+    private long[] counts = new long[16];
+    private final RunningStats all = new RunningStats();
+    private final RunningStats minor = new RunningStats();
+    private final RunningStats major = new RunningStats();
+    private final QuantileSketch sketch;
+
+    /**
+     * @param n              population size (upper bound of sizes)
+     * @param mode           EXACT or LOG binning
+     * @param binsPerDecade  resolution of LOG mode (ignored for EXACT)
+     * @param majorThreshold sizes >= this count as major outbreaks
+     * @param accuracy       relative accuracy of the quantile sketch
+     */
+    public FinalSizeHistogram(int n, Mode mode, int binsPerDecade, long majorThreshold, double accuracy) {
+        if (n <= 0) throw new IllegalArgumentException("n must be positive");
+        if (mode == Mode.LOG && binsPerDecade <= 0) throw new IllegalArgumentException("binsPerDecade must be positive");
+        this.n = n;
+        this.mode = mode;
+        this.binsPerDecade = binsPerDecade;
+        this.logRatio = Math.log(10) / binsPerDecade;
+        this.majorThreshold = majorThreshold;
+        this.sketch = new QuantileSketch(accuracy);
+    }
+
+    /** One bin per size; major outbreaks are sizes >= majorFraction * n. */
+    public static FinalSizeHistogram exact(int n, double majorFraction) {
+        return new FinalSizeHistogram(n, Mode.EXACT, 0, threshold(n, majorFraction), 0.01);
+    }
+
+    /** Logarithmic bins; major outbreaks are sizes >= majorFraction * n. */
+    public static FinalSizeHistogram logBinned(int n, int binsPerDecade, double majorFraction) {
+        return new FinalSizeHistogram(n, Mode.LOG, binsPerDecade, threshold(n, majorFraction), 0.01);
+    }
+
+    private static long threshold(int n, double majorFraction) {
+        if (!(majorFraction > 0 && majorFraction <= 1)) throw new IllegalArgumentException("majorFraction must be in (0,1]");
+        return Math.max(1L, (long) Math.ceil(majorFraction * n));
+    }
+
+    /** Empty histogram with the same layout. */
+    public FinalSizeHistogram emptyCopy() {
+        return new FinalSizeHistogram(n, mode, binsPerDecade, majorThreshold, sketch.accuracy());
+    }
+
+    public void add(long size) {
+        if (size < 0 || size > n) throw new IllegalArgumentException("size out of range: " + size);
+        int b = bin(size);
+        if (b >= counts.length) counts = Arrays.copyOf(counts, Math.max(b + 1, counts.length * 2));
+        counts[b]++;
+        all.add(size);
+        (size >= majorThreshold ? major : minor).add(size);
+        sketch.add(size);
+    }
+
+    public void merge(FinalSizeHistogram o) {
+        if (o.n != n || o.mode != mode || o.binsPerDecade != binsPerDecade || o.majorThreshold != majorThreshold) {
+            throw new IllegalArgumentException("incompatible histograms");
+        }
+        if (o.counts.length > counts.length) counts = Arrays.copyOf(counts, o.counts.length);
+        for (int b = 0; b < o.counts.length; b++) counts[b] += o.counts[b];
+        all.merge(o.all);
+        minor.merge(o.minor);
+        major.merge(o.major);
+        sketch.merge(o.sketch);
+    }
+
+    private int bin(long size) {
+        if (mode == Mode.EXACT || size == 0) return (int) size;
+        // bin k >= 1 covers [10^((k-1)/d), 10^(k/d)); nudge so exact powers land in their own bin
+        return 1 + (int) Math.floor(Math.log(size) / logRatio + 1e-9);
+    }
+
+    public int n() { return n; }
+    public Mode mode() { return mode; }
+    public long majorThreshold() { return majorThreshold; }
+    public long runs() { return all.count(); }
+
+    /** Number of bins in use (the last non-empty bin + 1). */
+    public int bins() {
+        int last = counts.length - 1;
+        while (last >= 0 && counts[last] == 0) last--;
+        return last + 1;
+    }
+
+    public long binCount(int b) { return b < counts.length ? counts[b] : 0L; }
+
+    /** Inclusive lower size bound of bin b. */
+    public double binLow(int b) {
+        if (mode == Mode.EXACT || b == 0) return b;
+        return Math.pow(10, (double) (b - 1) / binsPerDecade);
+    }
+
+    /** Exclusive upper size bound of bin b. */
+    public double binHigh(int b) {
+        if (mode == Mode.EXACT || b == 0) return b + 1;
+        return Math.pow(10, (double) b / binsPerDecade);
+    }
+
+    /** Fraction of runs with size >= majorThreshold. */
+    public double pMajor() { return runs() > 0 ? (double) major.count() / runs() : Double.NaN; }
+
+    /** Binomial standard error of {@link #pMajor()}. */
+    public double pMajorStdErr() {
+        double p = pMajor();
+        return Math.sqrt(p * (1 - p) / runs());
+    }
+
+    public RunningStats all() { return all; }
+    /** Sizes of minor outbreaks (below the threshold). */
+    public RunningStats minor() { return minor; }
+    /** Sizes of major outbreaks; mean() is the conditional mean size. */
+    public RunningStats major() { return major; }
+    public double quantile(double q) { return sketch.quantile(q); }
+}
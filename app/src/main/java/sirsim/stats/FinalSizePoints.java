@@ -0,0 +1,125 @@
+package sirsim.stats;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * One {@link FinalSizeHistogram} per (alpha, beta, lambda) point of a sweep. Callers synchronize on
+ * the histogram returned by {@link #at}, or keep one instance per thread/batch and {@link #merge}.
+ */
+public final class FinalSizePoints {
+    public static final String SUMMARY_HEADER =
+            "alpha,beta,lambda,runs,p_major,p_major_se,mean,mean_minor,mean_major,sd_major,q05,q50,q95";
+
+    private final double[] alphas, betas, lambdas;
+    private final FinalSizeHistogram[] points;
+
+    public FinalSizePoints(double[] alphas, double[] betas, double[] lambdas, Supplier<FinalSizeHistogram> factory) {
+        this.alphas = alphas.clone();
+        this.betas = betas.clone();
+        this.lambdas = lambdas.clone();
+        this.points = new FinalSizeHistogram[alphas.length * betas.length * lambdas.length];
+        for (int i = 0; i < points.length; i++) points[i] = factory.get();
+    }
+
+    public FinalSizeHistogram at(int alphaIndex, int betaIndex, int lambdaIndex) {
+        return points[(alphaIndex * betas.length + betaIndex) * lambdas.length + lambdaIndex];
+    }
+
+    public void merge(FinalSizePoints o) {
+        if (o.points.length != points.length) throw new IllegalArgumentException("incompatible point grids");
+        for (int i = 0; i < points.length; i++) points[i].merge(o.points[i]);
+    }
+
+    /**
+     * Re-adds final sizes from a CSV with alpha,beta,lambda columns (e.g. the committed outputs of a
+     * resumed sweep); the size of a row is the sum of {@code sizeColumns}. Rows whose parameters are
+     * not on this grid are skipped. Returns the number of rows added.
+     */
+    public long replayCsv(Path csv, String... sizeColumns) throws IOException {
+        if (!Files.exists(csv)) return 0;
+        long added = 0;
+        try (BufferedReader in = Files.newBufferedReader(csv)) {
+            String header = in.readLine();
+            if (header == null) return 0;
+            List<String> cols = Arrays.asList(header.split(","));
+            int ca = cols.indexOf("alpha"), cb = cols.indexOf("beta"), cl = cols.indexOf("lambda");
+            int[] cs = new int[sizeColumns.length];
+            for (int i = 0; i < cs.length; i++) cs[i] = cols.indexOf(sizeColumns[i]);
+            if (ca < 0 || cb < 0 || cl < 0 || Arrays.stream(cs).anyMatch(c -> c < 0)) {
+                throw new IOException("missing columns in " + csv + ": " + header);
+            }
+            for (String line; (line = in.readLine()) != null; ) {
+                if (line.isEmpty()) continue;
+                String[] f = line.split(",");
+                int ai = indexOf(alphas, Double.parseDouble(f[ca]));
+                int bi = indexOf(betas, Double.parseDouble(f[cb]));
+                int li = indexOf(lambdas, Double.parseDouble(f[cl]));
+                if (ai < 0 || bi < 0 || li < 0) continue;
+                long size = 0;
+                for (int c : cs) size += Long.parseLong(f[c]);
+                at(ai, bi, li).add(size);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static int indexOf(double[] xs, double x) {
+        for (int i = 0; i < xs.length; i++) {
+            if (Math.abs(xs[i] - x) <= 1e-8 * Math.max(1.0, Math.abs(x))) return i;
+        }
+        return -1;
+    }
+
+    /** One row per point: P(major) with its standard error, overall/minor/major means and quantiles. */
+    public void writeSummaryCsv(Path path) throws IOException {
+        try (PrintWriter out = open(path)) {
+            out.println(SUMMARY_HEADER);
+            forEachPoint((prefix, h) -> out.printf(Locale.ROOT, "%s%d,%.9f,%.9f,%.9f,%.9f,%.9f,%.9f,%.9f,%.9f,%.9f%n",
+                    prefix, h.runs(), h.pMajor(), h.pMajorStdErr(), h.all().mean(), h.minor().mean(),
+                    h.major().mean(), h.major().stdDev(), h.quantile(0.05), h.quantile(0.5), h.quantile(0.95)));
+        }
+    }
+
+    /** Non-empty bins of every point: alpha,beta,lambda,size_lo,size_hi,count (size_hi exclusive). */
+    public void writeHistogramCsv(Path path) throws IOException {
+        try (PrintWriter out = open(path)) {
+            out.println("alpha,beta,lambda,size_lo,size_hi,count");
+            forEachPoint((prefix, h) -> {
+                for (int b = 0; b < h.bins(); b++) {
+                    if (h.binCount(b) == 0) continue;
+                    out.printf(Locale.ROOT, "%s%.9f,%.9f,%d%n", prefix, h.binLow(b), h.binHigh(b), h.binCount(b));
+                }
+            });
+        }
+    }
+
+    private interface PointVisitor {
+        void visit(String prefix, FinalSizeHistogram h);
+    }
+
+    private void forEachPoint(PointVisitor v) {
+        for (int ai = 0; ai < alphas.length; ai++) {
+            for (int bi = 0; bi < betas.length; bi++) {
+                for (int li = 0; li < lambdas.length; li++) {
+                    v.visit(String.format(Locale.ROOT, "%.9f,%.9f,%.9f,", alphas[ai], betas[bi], lambdas[li]), at(ai, bi, li));
+                }
+            }
+        }
+    }
+
+    private static PrintWriter open(Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        BufferedWriter bw = Files.newBufferedWriter(path);
+        return new PrintWriter(bw);
+    }
+}
@@ -0,0 +1,152 @@
+package sirsim.stats;
+
+/**
+ * Mergeable quantile sketch with relative-error guarantee (DDSketch): values fall into logarithmic
+ * buckets (γ^(i-1), γ^i] with γ = (1+a)/(1-a), so every reported quantile is within a relative error a
+ * of a true sample value. Sketches with the same accuracy merge exactly by adding bucket counts.
+ * When a sign's buckets span more than {@link #MAX_BUCKETS}, the smallest-magnitude ones are collapsed.
+ */
+public final class QuantileSketch {
+    public static final int MAX_BUCKETS = 2048;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final Store pos = new Store();
+    private final Store neg = new Store();
+    private long zeros;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** @param accuracy relative accuracy a in (0,1), e.g. 0.01 */
+    public QuantileSketch(double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1)) throw new IllegalArgumentException("accuracy must be in (0,1)");
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public double accuracy() { return accuracy; }
+    public long count() { return count; }
+    public double min() { return count > 0 ? min : Double.NaN; }
+    public double max() { return count > 0 ? max : Double.NaN; }
+
+    public void add(double x) {
+        add(x, 1);
+    }
+
+    public void add(double x, long times) {
+        if (Double.isNaN(x)) throw new IllegalArgumentException("NaN");
+        if (times <= 0) return;
+        if (x > 0) pos.add(index(x), times);
+        else if (x < 0) neg.add(index(-x), times);
+        else zeros += times;
+        count += times;
+        if (x < min) min = x;
+        if (x > max) max = x;
+    }
+
+    public void merge(QuantileSketch o) {
+        if (o.accuracy != accuracy) throw new IllegalArgumentException("sketches with different accuracy");
+        if (o.count == 0) return;
+        pos.merge(o.pos);
+        neg.merge(o.neg);
+        zeros += o.zeros;
+        count += o.count;
+        min = Math.min(min, o.min);
+        max = Math.max(max, o.max);
+    }
+
+    /** Estimate of the q-quantile (q in [0,1]); NaN when empty. */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("q must be in [0,1]");
+        if (count == 0) return Double.NaN;
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank == 0) return min;
+        if (rank == count - 1) return max;
+        double v;
+        if (rank < neg.total) {
+            v = -value(neg.indexOfRankDescending(rank));
+        } else if (rank < neg.total + zeros) {
+            v = 0.0;
+        } else {
+            v = value(pos.indexOfRank(rank - neg.total - zeros));
+        }
+        return Math.max(min, Math.min(max, v));
+    }
+
+    private int index(double x) {
+        return (int) Math.ceil(Math.log(x) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /** Dense counts over a sliding index window. */
+    private static final class Store {
+        private long[] counts = new long[0];
+        private int offset;      // index of counts[0]
+        private long total;
+
+        void add(int index, long n) {
+            int i = slot(index);
+            counts[i] += n;
+            total += n;
+        }
+
+        void merge(Store o) {
+            for (int i = 0; i < o.counts.length; i++) {
+                if (o.counts[i] != 0) add(o.offset + i, o.counts[i]);
+            }
+        }
+
+        private int slot(int index) {
+            if (counts.length == 0) {
+                counts = new long[64];
+                offset = index - 32;
+            }
+            int top = offset + counts.length - 1;
+            if (index < offset || index > top) {
+                int lo = Math.min(index, offset), hi = Math.max(index, top);
+                if (hi - lo + 1 > MAX_BUCKETS) lo = hi - MAX_BUCKETS + 1;  // keep the largest magnitudes
+                resize(lo, hi, index < offset);
+                if (index < offset) index = offset;                          // collapsed into the lowest bucket
+            }
+            return index - offset;
+        }
+
+        /** Reallocates to cover [lo, hi] with head room on the growing side; buckets below lo are folded into lo. */
+        private void resize(int lo, int hi, boolean downward) {
+            int cap = Math.min(MAX_BUCKETS, Math.max(hi - lo + 1, 2 * counts.length));
+            int newOffset = downward ? hi - cap + 1 : lo;
+            long[] next = new long[cap];
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                int j = offset + i - newOffset;
+                next[Math.max(j, 0)] += counts[i];
+            }
+            counts = next;
+            offset = newOffset;
+        }
+
+        int indexOfRank(long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) return offset + i;
+            }
+            return offset + counts.length - 1;
+        }
+
+        int indexOfRankDescending(long rank) {
+            long seen = 0;
+            for (int i = counts.length - 1; i >= 0; i--) {
+                seen += counts[i];
+                if (seen > rank) return offset + i;
+            }
+            return offset;
+        }
+    }
+}
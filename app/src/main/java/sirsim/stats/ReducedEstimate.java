@@ -0,0 +1,10 @@
+package sirsim.stats;
+
+/**
+ * Mean estimate from a variance-reduced sampler.
+ *
+ * @param samples            number of simulation runs behind the estimate
+ * @param varianceReduction  variance of the plain sample mean over the same number of runs divided by
+ *                           {@code stdErr^2}: plain sampling needs this many times more runs for the same error
+ */
+public record ReducedEstimate(double mean, double stdErr, long samples, double varianceReduction) {}
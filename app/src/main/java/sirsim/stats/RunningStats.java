@@ -0,0 +1,47 @@
+package sirsim.stats;
+
+/**
+ * Streaming count / mean / variance / min / max (Welford), mergeable across threads
+ * with the pairwise update of Chan et al.
+ */
+public final class RunningStats {
+    private long n;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double x) {
+        n++;
+        double d = x - mean;
+        mean += d / n;
+        m2 += d * (x - mean);
+        if (x < min) min = x;
+        if (x > max) max = x;
+    }
+
+    public void merge(RunningStats o) {
+        if (o.n == 0) return;
+        if (n == 0) {
+            n = o.n; mean = o.mean; m2 = o.m2; min = o.min; max = o.max;
+            return;
+        }
+        long total = n + o.n;
+        double d = o.mean - mean;
+        mean += d * o.n / total;
+        m2 += o.m2 + d * d * ((double) n * o.n / total);
+        n = total;
+        min = Math.min(min, o.min);
+        max = Math.max(max, o.max);
+    }
+
+    public long count() { return n; }
+    public double mean() { return n > 0 ? mean : Double.NaN; }
+    /** Unbiased sample variance (NaN for fewer than two values). */
+    public double variance() { return n > 1 ? m2 / (n - 1) : Double.NaN; }
+    public double stdDev() { return Math.sqrt(variance()); }
+    /** Standard error of the mean. */
+    public double stdErr() { return Math.sqrt(variance() / n); }
+    public double min() { return n > 0 ? min : Double.NaN; }
+    public double max() { return n > 0 ? max : Double.NaN; }
+}
@@ -0,0 +1,56 @@
+package sirsim.stats;
+
+/**
+ * Stratified estimator of a population mean: stratum h has population weight w_h and its own sample mean,
+ * and the estimate is {@code sum_h w_h mean_h} with variance {@code sum_h w_h^2 s_h^2 / n_h}. Under
+ * proportional allocation this removes the between-strata part of the variance; the reduction factor
+ * compares with simple random sampling of the same total size, whose variance is rebuilt from the strata.
+ */
+public final class StratifiedMean {
+    private final double[] weights;
+    private final RunningStats[] strata;
+
+    /** @param weights population share of each stratum (normalised to sum 1) */
+    public StratifiedMean(double[] weights) {
+        double sum = 0.0;
+        for (double w : weights) {
+            if (!(w >= 0)) throw new IllegalArgumentException("weights must be non-negative");
+            sum += w;
+        }
+        if (!(sum > 0)) throw new IllegalArgumentException("weights must not all be zero");
+        this.weights = new double[weights.length];
+        this.strata = new RunningStats[weights.length];
+        for (int h = 0; h < weights.length; h++) {
+            this.weights[h] = weights[h] / sum;
+            this.strata[h] = new RunningStats();
+        }
+    }
+
+    public void add(int stratum, double value) {
+        strata[stratum].add(value);
+    }
+
+    /** Stratified mean; NaN if a stratum with positive weight has fewer than two samples. */
+    public ReducedEstimate estimate() {
+        double mean = 0.0, var = 0.0;
+        long total = 0;
+        for (int h = 0; h < strata.length; h++) {
+            if (weights[h] == 0.0) continue;
+            RunningStats st = strata[h];
+            mean += weights[h] * st.mean();
+            var += weights[h] * weights[h] * st.variance() / st.count();
+            total += st.count();
+        }
+        // 単純無作為抽出の分散：層内分散の加重平均 + 層平均のばらつき
+        double within = 0.0, between = 0.0;
+        for (int h = 0; h < strata.length; h++) {
+            if (weights[h] == 0.0) continue;
+            RunningStats st = strata[h];
+            double d = st.mean() - mean;
+            within += weights[h] * st.variance();
+            between += weights[h] * d * d;
+        }
+        double plainVar = (within + between) / total;
+        return new ReducedEstimate(mean, Math.sqrt(var), total, AntitheticMean.reduction(plainVar, var));
+    }
+}
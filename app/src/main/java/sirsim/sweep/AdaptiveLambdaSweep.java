@@ -0,0 +1,215 @@
+package sirsim.sweep;
+
+import sirsim.output.ResultSink;
+import sirsim.stats.RunningStats;
+import sirsim.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Lambda sweep that spends its trials where the curve moves. It starts from a coarse grid and, round by
+ * round, (1) bisects every interval across which the mean (significantly, beyond twice its standard error)
+ * or the standard deviation of the observable changes by more than {@code tolerance} of its range, down to
+ * {@code resolution}, and (2) tops up each
+ * point to the number of trials its variance needs for {@code targetStdErr} (between {@code minTrials} and
+ * {@code maxTrials}, at most doubling per round). It stops when neither adds work or the budget is spent.
+ * Near the threshold the final size is bimodal, so those points get both the finest spacing and the most trials.
+ * Trials of one round run in parallel. Trial {@code j} should derive its seeds from {@link #trialSeed} and
+ * use them at every lambda (common random numbers): neighbouring points are then coupled, the differences
+ * that drive refinement are less noisy, and results do not depend on scheduling.
+ */
+public final class AdaptiveLambdaSweep {
+    private static final Logger logger = new Logger(AdaptiveLambdaSweep.class);
+
+    /**
+     * @param coarsePoints initial evenly spaced points in [lambdaMin, lambdaMax] (inclusive)
+     * @param resolution   smallest spacing produced by refinement
+     * @param tolerance    refine an interval when |change| of the mean or std exceeds this fraction of its range
+     * @param targetStdErr standard error of the mean to reach at every point (in the observable's units)
+     * @param budget       maximum total number of trials
+     */
+    public record Settings(double lambdaMin, double lambdaMax, int coarsePoints, double resolution, double tolerance,
+                           int minTrials, int maxTrials, double targetStdErr, long budget) {
+        public Settings {
+            if (!(lambdaMax > lambdaMin) || lambdaMin < 0) throw new IllegalArgumentException("need 0 <= lambdaMin < lambdaMax");
+            if (coarsePoints < 2) throw new IllegalArgumentException("coarsePoints must be at least 2");
+            if (resolution <= 0 || tolerance <= 0) throw new IllegalArgumentException("resolution and tolerance must be positive");
+            if (minTrials < 2 || maxTrials < minTrials) throw new IllegalArgumentException("need 2 <= minTrials <= maxTrials");
+            if (targetStdErr <= 0 || budget <= 0) throw new IllegalArgumentException("targetStdErr and budget must be positive");
+        }
+    }
+
+    /** Final estimate at one lambda. */
+    public record Point(double lambda, long trials, double mean, double stdDev, double stdErr) {}
+
+    /** One trial at {@code lambda} (the observable, e.g. final size / N). */
+    @FunctionalInterface
+    public interface Trial<S> {
+        double run(S workerState, double lambda, int trial) throws Exception;
+    }
+
+    private AdaptiveLambdaSweep() {}
+
+    /** Seed of trial {@code trial} under {@code base} (the same at every lambda). */
+    public static long trialSeed(long base, int trial) {
+        return SweepJournal.key(base, trial);
+    }
+
+    /**
+     * Runs the sweep. {@code extraPoints} (e.g. a spectral threshold estimate) join the coarse grid.
+     * Returns the points in ascending lambda.
+     */
+    public static <S> List<Point> run(ForkJoinPool pool, Settings s, double[] extraPoints,
+                                      Supplier<S> workerState, Trial<S> trial) {
+        TreeMap<Double, RunningStats> points = new TreeMap<>();
+        double step = (s.lambdaMax() - s.lambdaMin()) / (s.coarsePoints() - 1);
+        for (int i = 0; i < s.coarsePoints(); i++) {
+            points.put(i == s.coarsePoints() - 1 ? s.lambdaMax() : s.lambdaMin() + i * step, new RunningStats());
+        }
+        for (double x : extraPoints) {
+            if (x >= s.lambdaMin() && x <= s.lambdaMax()) points.putIfAbsent(x, new RunningStats());
+        }
+
+        ThreadLocal<S> local = ThreadLocal.withInitial(workerState);
+        long used = 0;
+        for (int round = 1; ; round++) {
+            int added = round == 1 ? 0 : refine(points, s);
+            List<Batch> work = allocate(points, s, s.budget() - used);
+            if (work.isEmpty()) break; // 新しい点は必ず minTrials を要するので、空なら収束か予算切れ
+            long trials = 0;
+            for (Batch b : work) trials += b.values.length;
+            logger.info("Adaptive round %d: %d points (+%d), %d trials", round, points.size(), added, trials);
+            runBatches(pool, work, local, trial);
+            for (Batch b : work) {
+                RunningStats st = points.get(b.lambda);
+                for (double v : b.values) st.add(v);
+            }
+            used += trials;
+            if (used >= s.budget()) {
+                logger.warn("Adaptive sweep stopped at the trial budget (%d)", s.budget());
+                break;
+            }
+        }
+
+        List<Point> out = new ArrayList<>(points.size());
+        for (Map.Entry<Double, RunningStats> e : points.entrySet()) {
+            RunningStats st = e.getValue();
+            if (st.count() == 0) continue; // 予算切れで未実行の点
+            out.add(new Point(e.getKey(), st.count(), st.mean(), st.stdDev(), st.stdErr()));
+        }
+        logger.info("Adaptive sweep: %d points, %d trials", out.size(), used);
+        return out;
+    }
+
+    /** Inserts midpoints of the intervals whose mean or std changes too much; returns how many. */
+    private static int refine(TreeMap<Double, RunningStats> points, Settings s) {
+        double meanLo = Double.POSITIVE_INFINITY, meanHi = Double.NEGATIVE_INFINITY;
+        double sdLo = Double.POSITIVE_INFINITY, sdHi = Double.NEGATIVE_INFINITY;
+        for (RunningStats st : points.values()) {
+            meanLo = Math.min(meanLo, st.mean());
+            meanHi = Math.max(meanHi, st.mean());
+            sdLo = Math.min(sdLo, st.stdDev());
+            sdHi = Math.max(sdHi, st.stdDev());
+        }
+        double meanRange = meanHi - meanLo, sdRange = sdHi - sdLo;
+        List<Double> mids = new ArrayList<>();
+        Map.Entry<Double, RunningStats> prev = null;
+        for (Map.Entry<Double, RunningStats> e : points.entrySet()) {
+            if (prev != null && e.getKey() - prev.getKey() >= 2 * s.resolution()) {
+                RunningStats a = prev.getValue(), b = e.getValue();
+                // 平均の差は標準誤差の2倍を超えるときだけ数える（ノイズで細分し続けない）
+                double meanChange = Math.abs(b.mean() - a.mean()) > 2.0 * Math.hypot(a.stdErr(), b.stdErr())
+                        ? change(a.mean(), b.mean(), meanRange) : 0.0;
+                double score = Math.max(meanChange, change(a.stdDev(), b.stdDev(), sdRange));
+                if (score > s.tolerance()) mids.add(0.5 * (prev.getKey() + e.getKey()));
+            }
+            prev = e;
+        }
+        for (double m : mids) points.put(m, new RunningStats());
+        return mids.size();
+    }
+
+    private static double change(double a, double b, double range) {
+        return range > 0 ? Math.abs(b - a) / range : 0.0;
+    }
+
+    /**
+     * Trials to add at each point this round, in ascending lambda. If they exceed the remaining budget, new
+     * points still get {@code minTrials} first and the top-ups of the others shrink proportionally; if the new
+     * points alone exceed it, the budget is dealt out to them one trial at a time in turn. Either way it is
+     * not spent on the low end of the range.
+     */
+    private static List<Batch> allocate(TreeMap<Double, RunningStats> points, Settings s, long remaining) {
+        double target2 = s.targetStdErr() * s.targetStdErr();
+        List<Double> lambdas = new ArrayList<>(points.keySet());
+        long[] have = new long[lambdas.size()];
+        long[] add = new long[lambdas.size()];
+        long fresh = 0, topUp = 0;
+        for (int i = 0; i < add.length; i++) {
+            RunningStats st = points.get(lambdas.get(i));
+            have[i] = st.count();
+            long want = s.minTrials();
+            if (have[i] >= 2) want = Math.max(want, (long) Math.ceil(st.variance() / target2));
+            want = Math.min(want, s.maxTrials());
+            // 分散の推定がぶれるので1ラウンドで倍までに抑える
+            add[i] = Math.max(0, Math.min(want - have[i], Math.max(have[i], s.minTrials())));
+            if (have[i] == 0) fresh += add[i];
+            else topUp += add[i];
+        }
+        if (fresh > remaining) {
+            // 新しい点だけで予算を超える：λ の小さい順に埋めず、1 試行ずつ順番に配る
+            long[] dealt = new long[add.length];
+            for (long left = remaining; left > 0; ) {
+                for (int i = 0; i < add.length && left > 0; i++) {
+                    if (have[i] == 0 && dealt[i] < add[i]) { dealt[i]++; left--; }
+                }
+            }
+            add = dealt;
+        } else if (fresh + topUp > remaining) {
+            double scale = Math.max(0.0, (double) (remaining - fresh) / Math.max(1, topUp));
+            for (int i = 0; i < add.length; i++) {
+                if (have[i] > 0) add[i] = (long) Math.floor(add[i] * scale);
+            }
+        }
+        List<Batch> work = new ArrayList<>();
+        for (int i = 0; i < add.length && remaining > 0; i++) {
+            long n = Math.min(add[i], remaining);
+            if (n <= 0) continue;
+            work.add(new Batch(lambdas.get(i), (int) have[i], new double[(int) n]));
+            remaining -= n;
+        }
+        return work;
+    }
+
+    private static <S> void runBatches(ForkJoinPool pool, List<Batch> work, ThreadLocal<S> local, Trial<S> trial) {
+        List<int[]> tasks = new ArrayList<>();
+        for (int b = 0; b < work.size(); b++) {
+            for (int j = 0; j < work.get(b).values.length; j++) tasks.add(new int[]{ b, j });
+        }
+        pool.submit(() -> tasks.parallelStream().forEach(t -> {
+            Batch b = work.get(t[0]);
+            try {
+                b.values[t[1]] = trial.run(local.get(), b.lambda, b.firstTrial + t[1]);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("trial " + (b.firstTrial + t[1]) + " at lambda=" + b.lambda + " failed", e);
+            }
+        })).join();
+    }
+
+    /** Trials {@code firstTrial ..} at one lambda; values are filled by the workers. */
+    private record Batch(double lambda, int firstTrial, double[] values) {}
+
+    /** Writes alpha,beta,lambda,trials,mean,std,se rows (see {@code RecordSchema.POINT_ESTIMATE}). */
+    public static void write(ResultSink sink, double alpha, double beta, List<Point> points) {
+        for (Point p : points) {
+            sink.row().d(alpha).d(beta).d(p.lambda()).l(p.trials()).d(p.mean()).d(p.stdDev()).d(p.stdErr()).commit();
+        }
+    }
+}
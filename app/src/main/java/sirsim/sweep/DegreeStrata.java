@@ -0,0 +1,65 @@
+package sirsim.sweep;
+
+import sirsim.network.Graph;
+
+import java.util.SplittableRandom;
+
+/**
+ * Nodes of a graph split into strata of (nearly) equal size by degree rank, for stratified sampling of
+ * initial infecteds. The first seed of a sample is drawn uniformly within one stratum and any further seeds
+ * uniformly from the remaining nodes, so mixing the strata by {@link #weight} reproduces uniform sampling.
+ */
+public final class DegreeStrata {
+    private final int n;
+    private final int[] order;   // ノードを次数の昇順（同次数は番号順）に並べたもの
+    private final int[] bounds;  // 層 h は order[bounds[h] .. bounds[h + 1])
+
+    private DegreeStrata(int n, int[] order, int[] bounds) {
+        this.n = n;
+        this.order = order;
+        this.bounds = bounds;
+    }
+
+    /** Splits the nodes of {@code g} into {@code strata} groups of consecutive degree rank. */
+    public static DegreeStrata of(Graph g, int strata) {
+        if (strata < 1 || strata > g.n) throw new IllegalArgumentException("need 1 <= strata <= n");
+        int maxDeg = 0;
+        for (int u = 0; u < g.n; u++) maxDeg = Math.max(maxDeg, g.degree(u));
+        // 次数の計数ソート（安定なので同次数は番号順）
+        int[] start = new int[maxDeg + 2];
+        for (int u = 0; u < g.n; u++) start[g.degree(u) + 1]++;
+        for (int d = 0; d <= maxDeg; d++) start[d + 1] += start[d];
+        int[] order = new int[g.n];
+        for (int u = 0; u < g.n; u++) order[start[g.degree(u)]++] = u;
+        int[] bounds = new int[strata + 1];
+        for (int h = 0; h <= strata; h++) bounds[h] = (int) ((long) h * g.n / strata);
+        return new DegreeStrata(g.n, order, bounds);
+    }
+
+    public int count() { return bounds.length - 1; }
+
+    public int size(int stratum) { return bounds[stratum + 1] - bounds[stratum]; }
+
+    /** Population share of a stratum. */
+    public double weight(int stratum) { return size(stratum) / (double) n; }
+
+    public double[] weights() {
+        double[] w = new double[count()];
+        for (int h = 0; h < w.length; h++) w[h] = weight(h);
+        return w;
+    }
+
+    /** {@code k} distinct nodes: the first uniform in {@code stratum}, the others uniform among the rest. */
+    public int[] sample(int stratum, int k, SplittableRandom rng) {
+        if (k < 1 || k > n) throw new IllegalArgumentException("need 1 <= k <= n");
+        int[] r = new int[k];
+        r[0] = order[bounds[stratum] + rng.nextInt(size(stratum))];
+        for (int c = 1; c < k; ) {
+            int u = rng.nextInt(n);
+            boolean dup = false;
+            for (int i = 0; i < c && !dup; i++) dup = r[i] == u;
+            if (!dup) r[c++] = u;
+        }
+        return r;
+    }
+}
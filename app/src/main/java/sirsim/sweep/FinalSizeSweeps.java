@@ -0,0 +1,180 @@
+package sirsim.sweep;
+
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.output.RecordSchema;
+import sirsim.output.ResultSink;
+import sirsim.stats.ReducedEstimate;
+import sirsim.stats.StratifiedMean;
+import sirsim.utils.Logger;
+import sirsim.utils.PathsEx;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Final-size sweeps of the FastSIR/FastSAR drivers that do not run the fixed grid: adaptive lambda grid,
+ * sequential stopping and degree-stratified initial infecteds. The model enters only through a
+ * {@link TrialFraction}. Trial {@code j} runs on ER graph {@code j mod batchSize} (the grid's graph seeds;
+ * stratified trials cycle through the strata first, see {@link #runStratified}) and derives its initial
+ * infecteds and simulation seed from {@link AdaptiveLambdaSweep#trialSeed}, shared by every lambda, so
+ * results do not depend on the thread count.
+ *
+ * @param <S> per-worker state handed to the trial function (e.g. a reusable simulator)
+ */
+public final class FinalSizeSweeps<S> {
+    private static final Logger logger = new Logger(FinalSizeSweeps.class);
+
+    /** Final size / N of one trial at each of {@code lambdas}, from the given initial infecteds and seed. */
+    @FunctionalInterface
+    public interface TrialFraction<S> {
+        double[] run(S workerState, Graph g, int[] init, long seed, double[] lambdas, double alpha, double beta);
+    }
+
+    /** Extra initial points of the adaptive grid at (alpha, beta), e.g. a threshold estimate on {@code g}. */
+    @FunctionalInterface
+    public interface InitialPoints {
+        double[] at(ForkJoinPool pool, Graph g, double alpha, double beta);
+    }
+
+    private final Path basePath;
+    private final int n;
+    private final int kAve;
+    private final int batchSize;
+    private final int k0;
+    private final Supplier<S> workerState;
+    private final TrialFraction<S> fraction;
+
+    /**
+     * @param basePath    output directory (files get an unused index, as without checkpointing)
+     * @param batchSize   number of ER graphs the trials cycle through
+     * @param k0          initial infecteds per trial
+     */
+    public FinalSizeSweeps(Path basePath, int n, int kAve, int batchSize, int k0, Supplier<S> workerState, TrialFraction<S> fraction) {
+        if (k0 < 1 || k0 > n) throw new IllegalArgumentException("need 1 <= k0 <= n");
+        this.basePath = basePath;
+        this.n = n;
+        this.kAve = kAve;
+        this.batchSize = batchSize;
+        this.k0 = k0;
+        this.workerState = workerState;
+        this.fraction = fraction;
+    }
+
+    /** Adaptive lambda grid per (alpha, beta), written to adaptive_final_sizes.csv. */
+    public void runAdaptive(AdaptiveLambdaSweep.Settings settings, InitialPoints initialPoints,
+                            double[] alphaList, double[] betaList) throws Exception {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        logger.info("Parallelism: %d (available processors)", parallelism);
+        Path outPath = PathsEx.resolveIndexed(basePath.resolve("adaptive_final_sizes.csv"));
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism);
+             ResultSink sink = ResultSink.csv(outPath, RecordSchema.POINT_ESTIMATE)) {
+            Graph[] graphs = trialGraphs(pool);
+            for (double alpha : alphaList) {
+                for (double beta : betaList) {
+                    double[] extra = initialPoints.at(pool, graphs[0], alpha, beta);
+                    logger.info("Adaptive sweep alpha=%.2f beta=%.2f (%d extra initial points)", alpha, beta, extra.length);
+                    List<AdaptiveLambdaSweep.Point> points = AdaptiveLambdaSweep.run(pool, settings, extra, workerState,
+                            (state, lambda, trial) -> trialFraction(state, graphs, trial, lambda, alpha, beta));
+                    AdaptiveLambdaSweep.write(sink, alpha, beta, points);
+                }
+            }
+        }
+        logger.info("Saved: %s", outPath);
+    }
+
+    /** Sequential stopping at every (alpha, beta, lambda), with the trial count used, to sequential_final_sizes.csv. */
+    public void runSequential(SequentialStopping.Rule rule, double[] lambdaList, double[] alphaList, double[] betaList) throws Exception {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        logger.info("Parallelism: %d (available processors)", parallelism);
+        Path outPath = PathsEx.resolveIndexed(basePath.resolve("sequential_final_sizes.csv"));
+        int nl = lambdaList.length, nb = betaList.length;
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism);
+             ResultSink sink = ResultSink.csv(outPath, RecordSchema.POINT_ESTIMATE)) {
+            Graph[] graphs = trialGraphs(pool);
+            // 点の番号 = (αの番号 * βの数 + βの番号) * λの数 + λの番号
+            SequentialStopping.Point[] points = SequentialStopping.run(pool, rule, alphaList.length * nb * nl, workerState,
+                    (state, i, trial) -> trialFraction(state, graphs, trial,
+                            lambdaList[i % nl], alphaList[i / (nb * nl)], betaList[i / nl % nb]));
+            for (int i = 0; i < points.length; i++) {
+                SequentialStopping.Point pt = points[i];
+                sink.row().d(alphaList[i / (nb * nl)]).d(betaList[i / nl % nb]).d(lambdaList[i % nl])
+                        .l(pt.trials()).d(pt.mean()).d(pt.stdDev()).d(pt.stdErr()).commit();
+            }
+        }
+        logger.info("Saved: %s", outPath);
+    }
+
+    /**
+     * Stratified sampling: trial j draws its first initial infected from degree stratum {@code j mod strataCount}
+     * on graph {@code (j / strataCount) mod batchSize}, so the equal-size strata get equal trial counts
+     * (proportional allocation; a remainder of {@code trials mod strataCount} goes to the lowest strata) spread
+     * over the graphs. Writes the stratified mean, its standard error and the reduction over simple random
+     * sampling per (alpha, beta, lambda) to stratified_final_sizes.csv.
+     */
+    public void runStratified(int strataCount, int trials, double[] lambdaList, double[] alphaList, double[] betaList) throws Exception {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        logger.info("Parallelism: %d (available processors)", parallelism);
+        Path outPath = PathsEx.resolveIndexed(basePath.resolve("stratified_final_sizes.csv"));
+        int nl = lambdaList.length;
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism);
+             ResultSink sink = ResultSink.csv(outPath, RecordSchema.REDUCED_ESTIMATE)) {
+            Graph[] graphs = trialGraphs(pool);
+            DegreeStrata[] strata = new DegreeStrata[batchSize];
+            for (int b = 0; b < batchSize; b++) strata[b] = DegreeStrata.of(graphs[b], strataCount);
+            ThreadLocal<S> states = ThreadLocal.withInitial(workerState);
+            for (double alpha : alphaList) {
+                for (double beta : betaList) {
+                    double[][] values = new double[trials][];
+                    pool.submit(() -> IntStream.range(0, trials).parallel().forEach(j -> {
+                        // 層を先に回す（試行数が batchSize の倍数でも各層に同数、各層の試行はグラフに分散）
+                        int h = j % strataCount, b = (j / strataCount) % batchSize;
+                        int[] init = strata[b].sample(h, k0, new SplittableRandom(AdaptiveLambdaSweep.trialSeed(7L, j)));
+                        values[j] = fraction.run(states.get(), graphs[b], init, AdaptiveLambdaSweep.trialSeed(12345L, j),
+                                lambdaList, alpha, beta);
+                    })).join();
+                    // 層の重みは全グラフで共通（等サイズの層）
+                    for (int li = 0; li < nl; li++) {
+                        StratifiedMean est = new StratifiedMean(strata[0].weights());
+                        for (int j = 0; j < trials; j++) est.add(j % strataCount, values[j][li]);
+                        ReducedEstimate e = est.estimate();
+                        sink.row().d(alpha).d(beta).d(lambdaList[li]).l(e.samples()).d(e.mean()).d(e.stdErr()).d(e.varianceReduction()).commit();
+                    }
+                    logger.info("Stratified alpha=%.2f beta=%.2f: %d runs per lambda", alpha, beta, trials);
+                }
+            }
+        }
+        logger.info("Saved: %s", outPath);
+    }
+
+    /** 試行用のグラフ（掃引格子と同じグラフシード） */
+    private Graph[] trialGraphs(ForkJoinPool pool) {
+        SweepGrid seeds = SweepGrid.perCurve(batchSize, new double[]{ 0.0 }, new double[]{ 0.0 }, 1);
+        Graph[] graphs = new Graph[batchSize];
+        pool.submit(() -> IntStream.range(0, batchSize).parallel()
+                .forEach(b -> graphs[b] = ER.generateERFromKAve(n, kAve, seeds.graphSeed(b)))).join();
+        return graphs;
+    }
+
+    /** 試行 j の最終規模 / N（グラフ j mod graphs.length、初期感染者は一様に k0 人） */
+    private double trialFraction(S state, Graph[] graphs, int trial, double lambda, double alpha, double beta) {
+        Graph g = graphs[trial % graphs.length];
+        int[] init = sampleUnique(new SplittableRandom(AdaptiveLambdaSweep.trialSeed(7L, trial)), g.n, k0);
+        return fraction.run(state, g, init, AdaptiveLambdaSweep.trialSeed(12345L, trial), new double[]{ lambda }, alpha, beta)[0];
+    }
+
+    /** 重複なしの一様抽出（ドライバの格子と同じ棄却法なので同じシードから同じ初期感染者） */
+    private static int[] sampleUnique(SplittableRandom rng, int n, int k) {
+        boolean[] used = new boolean[n];
+        int[] r = new int[k];
+        for (int c = 0; c < k; ) {
+            int u = rng.nextInt(n);
+            if (!used[u]) { used[u] = true; r[c++] = u; }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,130 @@
+package sirsim.sweep;
+
+import sirsim.stats.RunningStats;
+import sirsim.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Sequential stopping for a set of parameter points: each point runs trials until the confidence-interval
+ * half-width {@code z * SE} of its mean drops to the target, with {@code minTrials} and {@code maxTrials} as
+ * bounds. Points are advanced in rounds; the trials of all unfinished points in one round run in parallel,
+ * and the next round's count is projected from the observed variance (at most doubling a point per round).
+ * Values are added in trial order, so with seeds derived from the trial number the trial counts and estimates
+ * do not depend on the thread count.
+ * A point whose first {@code minTrials} values are all equal (e.g. no outbreak yet) stops there, so
+ * {@code minTrials} must be large enough to see rare outcomes.
+ */
+public final class SequentialStopping {
+    private static final Logger logger = new Logger(SequentialStopping.class);
+
+    /**
+     * @param halfWidth target half-width {@code z * SE} of the confidence interval (in the statistic's units)
+     * @param z         normal quantile of the interval (1 = plain standard error, 1.96 = 95%)
+     */
+    public record Rule(int minTrials, int maxTrials, double halfWidth, double z) {
+        public Rule {
+            if (minTrials < 2 || maxTrials < minTrials) throw new IllegalArgumentException("need 2 <= minTrials <= maxTrials");
+            if (!(halfWidth > 0) || !(z > 0)) throw new IllegalArgumentException("halfWidth and z must be positive");
+        }
+
+        /** Stops once the standard error of the mean is at most {@code stdErr}. */
+        public static Rule stdErr(int minTrials, int maxTrials, double stdErr) {
+            return new Rule(minTrials, maxTrials, stdErr, 1.0);
+        }
+
+        /** Stops once the 95% confidence interval is at most {@code width} wide. */
+        public static Rule ci95(int minTrials, int maxTrials, double width) {
+            return new Rule(minTrials, maxTrials, 0.5 * width, 1.96);
+        }
+
+        /** True once {@code st} meets the target (after at least {@code minTrials} values). */
+        public boolean met(RunningStats st) {
+            return st.count() >= minTrials && z * st.stdErr() <= halfWidth;
+        }
+
+        /** Trials to add to a point with statistics {@code st} (0 when it is done). */
+        int next(RunningStats st) {
+            long n = st.count();
+            if (n < minTrials) return (int) (minTrials - n);
+            if (n >= maxTrials || met(st)) return 0;
+            double ratio = z * st.stdDev() / halfWidth;
+            long want = (long) Math.ceil(ratio * ratio);
+            // 分散の推定がぶれるので1ラウンドで倍まで、小刻みにならないよう minTrials/2 以上
+            long add = Math.max((minTrials + 1) / 2, Math.min(want - n, n));
+            return (int) Math.min(add, maxTrials - n);
+        }
+    }
+
+    /** Estimate of one point: {@code converged} is false if it stopped at {@code maxTrials} short of the target. */
+    public record Point(long trials, double mean, double stdDev, double stdErr, boolean converged) {}
+
+    /** One trial of point {@code point}; the trial numbers of a point are 0, 1, 2, ... */
+    @FunctionalInterface
+    public interface Trial<S> {
+        double run(S workerState, int point, int trial) throws Exception;
+    }
+
+    private SequentialStopping() {}
+
+    /** Runs points {@code 0 .. points-1} under {@code rule}; results follow the point index. */
+    public static <S> Point[] run(ForkJoinPool pool, Rule rule, int points, Supplier<S> workerState, Trial<S> trial) {
+        RunningStats[] stats = new RunningStats[points];
+        for (int i = 0; i < points; i++) stats[i] = new RunningStats();
+        ThreadLocal<S> local = ThreadLocal.withInitial(workerState);
+        long used = 0;
+        for (int round = 1; ; round++) {
+            List<Batch> work = new ArrayList<>();
+            long trials = 0;
+            for (int i = 0; i < points; i++) {
+                int add = rule.next(stats[i]);
+                if (add == 0) continue;
+                work.add(new Batch(i, (int) stats[i].count(), new double[add]));
+                trials += add;
+            }
+            if (work.isEmpty()) break;
+            logger.info("Sequential round %d: %d of %d points, %d trials", round, work.size(), points, trials);
+            pool.submit(() -> tasks(work).parallelStream().forEach(t -> {
+                Batch b = work.get(t[0]);
+                int j = b.firstTrial + t[1];
+                try {
+                    b.values[t[1]] = trial.run(local.get(), b.point, j);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException("trial " + j + " of point " + b.point + " failed", e);
+                }
+            })).join();
+            for (Batch b : work) {
+                for (double v : b.values) stats[b.point].add(v);
+            }
+            used += trials;
+        }
+
+        Point[] out = new Point[points];
+        int unmet = 0;
+        for (int i = 0; i < points; i++) {
+            RunningStats st = stats[i];
+            boolean converged = rule.met(st);
+            if (!converged) unmet++;
+            out[i] = new Point(st.count(), st.mean(), st.stdDev(), st.stdErr(), converged);
+        }
+        logger.info("Sequential stopping: %d points, %d trials (fixed maxTrials would be %d)", points, used, (long) points * rule.maxTrials());
+        if (unmet > 0) logger.warn("%d of %d points stopped at maxTrials=%d before reaching the target", unmet, points, rule.maxTrials());
+        return out;
+    }
+
+    private static List<int[]> tasks(List<Batch> work) {
+        List<int[]> tasks = new ArrayList<>();
+        for (int b = 0; b < work.size(); b++) {
+            for (int j = 0; j < work.get(b).values.length; j++) tasks.add(new int[]{ b, j });
+        }
+        return tasks;
+    }
+
+    /** Trials {@code firstTrial ..} of one point; values are filled by the workers. */
+    private record Batch(int point, int firstTrial, double[] values) {}
+}
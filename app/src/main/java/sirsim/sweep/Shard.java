@@ -0,0 +1,55 @@
+package sirsim.sweep;
+
+/**
+ * Shard {@code index} of {@code count}: owns the cells whose index is congruent to {@code index}
+ * modulo {@code count}. Round-robin keeps every shard's mix of cheap and expensive parameters
+ * (e.g. small and large lambda) similar, and the partition depends only on the grid.
+ */
+public record Shard(int index, int count) {
+    /** The whole grid in one process. */
+    public static final Shard ALL = new Shard(0, 1);
+
+    public Shard {
+        if (count <= 0 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("invalid shard " + index + "/" + count);
+        }
+    }
+
+    /** Parses {@code "i/n"} (0-based i). */
+    public static Shard parse(String spec) {
+        int slash = spec.indexOf('/');
+        if (slash < 0) throw new IllegalArgumentException("shard must be i/n: " + spec);
+        try {
+            return new Shard(Integer.parseInt(spec.substring(0, slash).trim()),
+                             Integer.parseInt(spec.substring(slash + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("shard must be i/n: " + spec, e);
+        }
+    }
+
+    public boolean isAll() { return count == 1; }
+
+    public boolean owns(long cell) {
+        return cell % count == index;
+    }
+
+    /** Shard that owns {@code cell}. */
+    public static int ownerOf(long cell, int count) {
+        return (int) (cell % count);
+    }
+
+    /** Number of cells this shard owns out of {@code total}. */
+    public long size(long total) {
+        return total / count + (index < total % count ? 1 : 0);
+    }
+
+    /** Output subdirectory of this shard, e.g. {@code shard-03-of-08}. */
+    public String dirName() {
+        return String.format("shard-%02d-of-%02d", index, count);
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,143 @@
+package sirsim.sweep;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * {@value #FILE_NAME} in a shard's output directory: which model, configuration and grid the shard
+ * belongs to, its output files, and whether it finished. {@link ShardMerge} uses it to check that
+ * all shards agree and that together they cover the grid.
+ */
+public final class ShardManifest {
+    public static final String FILE_NAME = "shard.properties";
+
+    private final Properties props;
+
+    public ShardManifest(String model, Shard shard, long configKey, long cells) {
+        this.props = new Properties();
+        props.setProperty("model", model);
+        props.setProperty("shard", shard.toString());
+        props.setProperty("configKey", Long.toHexString(configKey));
+        props.setProperty("cells", Long.toString(cells));
+        props.setProperty("complete", "false");
+    }
+
+    private ShardManifest(Properties props) {
+        this.props = props;
+    }
+
+    public String model() { return require("model"); }
+    public Shard shard() { return Shard.parse(require("shard")); }
+    public long configKey() { return Long.parseUnsignedLong(require("configKey"), 16); }
+    /** Number of grid cells this shard owns. */
+    public long cells() { return Long.parseLong(require("cells")); }
+    public boolean complete() { return Boolean.parseBoolean(props.getProperty("complete", "false")); }
+
+    public ShardManifest complete(boolean complete) {
+        props.setProperty("complete", Boolean.toString(complete));
+        return this;
+    }
+
+    public ShardManifest grid(SweepGrid grid) {
+        props.setProperty("grid.graphs", Integer.toString(grid.graphs()));
+        props.setProperty("grid.iterations", Integer.toString(grid.iterations()));
+        setDoubles("grid.alphas", grid.alphas());
+        setDoubles("grid.betas", grid.betas());
+        setDoubles("grid.lambdas", grid.lambdas());
+        return this;
+    }
+
+    public SweepGrid grid() {
+        return new SweepGrid(getInt("grid.graphs"), getDoubles("grid.alphas"), getDoubles("grid.betas"),
+                getDoubles("grid.lambdas"), getInt("grid.iterations"));
+    }
+
+    /** Output file names (relative to the shard directory) that the merge concatenates. */
+    public ShardManifest outputs(String... names) {
+        props.setProperty("outputs", String.join(",", names));
+        return this;
+    }
+
+    public String[] outputs() {
+        String v = props.getProperty("outputs", "");
+        return v.isEmpty() ? new String[0] : v.split(",");
+    }
+
+    /**
+     * Records how the merge rebuilds final-size histograms from the outputs: size = sum of {@code columns},
+     * over the given lambdas; {@code binsPerDecade == 0} means exact bins.
+     */
+    public ShardManifest finalSizes(String columns, double[] lambdas, int n, double majorFraction, int binsPerDecade) {
+        set("finalSize.columns", columns);
+        setDoubles("finalSize.lambdas", lambdas);
+        set("finalSize.n", Integer.toString(n));
+        set("finalSize.majorFraction", Double.toString(majorFraction));
+        return set("finalSize.binsPerDecade", Integer.toString(binsPerDecade));
+    }
+
+    public ShardManifest set(String key, String value) {
+        props.setProperty(key, value);
+        return this;
+    }
+
+    public String get(String key) { return props.getProperty(key); }
+    public int getInt(String key) { return Integer.parseInt(require(key)); }
+    public long getLong(String key) { return Long.parseLong(require(key)); }
+    public double getDouble(String key) { return Double.parseDouble(require(key)); }
+
+    public ShardManifest setDoubles(String key, double... values) {
+        props.setProperty(key, Arrays.stream(values).mapToObj(Double::toString).collect(Collectors.joining(",")));
+        return this;
+    }
+
+    public double[] getDoubles(String key) {
+        return Arrays.stream(require(key).split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    private String require(String key) {
+        String v = props.getProperty(key);
+        if (v == null) throw new IllegalStateException(FILE_NAME + ": missing " + key);
+        return v;
+    }
+
+    /**
+     * Writes this (incomplete) manifest to {@code dir}, refusing a directory that already belongs to
+     * another model, shard or configuration, since resuming there would mix outputs.
+     */
+    public void claim(Path dir) throws IOException {
+        Path file = dir.resolve(FILE_NAME);
+        if (Files.exists(file)) {
+            ShardManifest old = read(dir);
+            if (!old.model().equals(model()) || !old.shard().equals(shard()) || old.configKey() != configKey()) {
+                throw new IllegalStateException(dir + " holds shard " + old.shard() + " of " + old.model()
+                        + " config " + Long.toHexString(old.configKey()) + "; use another output directory");
+            }
+        }
+        complete(false).write(dir);
+    }
+
+    /** Writes to {@code dir}/{@value #FILE_NAME} via a temporary file, so readers never see half a manifest. */
+    public void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(FILE_NAME + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp)) {
+            props.store(w, "sweep shard");
+        }
+        Files.move(tmp, dir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ShardManifest read(Path dir) throws IOException {
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(dir.resolve(FILE_NAME))) {
+            p.load(r);
+        }
+        return new ShardManifest(p);
+    }
+}
@@ -0,0 +1,183 @@
+package sirsim.sweep;
+
+import sirsim.stats.FinalSizeHistogram;
+import sirsim.stats.FinalSizePoints;
+import sirsim.utils.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Combines the {@code shard-ii-of-nn} directories of a sharded sweep. Before writing anything it checks
+ * that the shards share one model, configuration and shard count, that each shard finished, and that
+ * every grid cell was done by the shard that owns it (via each shard's {@link SweepJournal}).
+ */
+public final class ShardMerge {
+    private static final Logger logger = new Logger(ShardMerge.class);
+    private static final Pattern SHARD_DIR = Pattern.compile("shard-\\d+-of-\\d+");
+    private static final int MAX_REPORTED = 5;
+
+    private ShardMerge() {}
+
+    /**
+     * Merges the shards of a FastSIR/FastSAR grid sweep under {@code dir} into the directory {@code out}
+     * (default {@code dir/merged}). Throws IllegalStateException on incomplete coverage. Models with their
+     * own shard layout (e.g. k-core sweeps) merge from {@link #shardDirs} themselves.
+     */
+    public static void merge(Path dir, Path out) throws IOException {
+        Path[] dirs = shardDirs(dir);
+        ShardManifest ref = ShardManifest.read(dirs[0]);
+        if (ref.get("grid.graphs") == null) {
+            throw new IllegalStateException(dir + " holds " + ref.model() + " shards, not a grid sweep");
+        }
+        mergeSweep(ref, dirs, out != null ? out : dir.resolve("merged"));
+    }
+
+    /** The shard directories under {@code dir}, ordered by shard index, after checking they form one complete run. */
+    public static Path[] shardDirs(Path dir) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (Stream<Path> s = Files.list(dir)) {
+            s.filter(p -> SHARD_DIR.matcher(p.getFileName().toString()).matches())
+             .filter(p -> Files.exists(p.resolve(ShardManifest.FILE_NAME)))
+             .forEach(found::add);
+        }
+        if (found.isEmpty()) throw new IllegalStateException("no shard directories under " + dir);
+
+        ShardManifest ref = ShardManifest.read(found.get(0));
+        int count = ref.shard().count();
+        Path[] dirs = new Path[count];
+        List<String> problems = new ArrayList<>();
+        for (Path p : found) {
+            ShardManifest m = ShardManifest.read(p);
+            Shard shard = m.shard();
+            if (!m.model().equals(ref.model()) || m.configKey() != ref.configKey() || shard.count() != count) {
+                problems.add(p.getFileName() + ": different run (" + m.model() + ", shard " + shard
+                        + ", config " + Long.toHexString(m.configKey()) + ")");
+            } else if (dirs[shard.index()] != null) {
+                problems.add(p.getFileName() + ": shard " + shard + " also in " + dirs[shard.index()].getFileName());
+            } else {
+                dirs[shard.index()] = p;
+                if (!m.complete()) problems.add(p.getFileName() + ": not complete");
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (dirs[i] == null) problems.add("missing shard " + new Shard(i, count));
+        }
+        if (!problems.isEmpty()) throw new IllegalStateException("cannot merge " + dir + ": " + String.join("; ", problems));
+        return dirs;
+    }
+
+    private static void mergeSweep(ShardManifest ref, Path[] dirs, Path outDir) throws IOException {
+        SweepGrid grid = ref.grid();
+        long configKey = ref.configKey();
+        SweepJournal[] journals = new SweepJournal[dirs.length];
+        try {
+            for (int i = 0; i < dirs.length; i++) journals[i] = SweepJournal.open(dirs[i].resolve(SweepJournal.FILE_NAME), configKey);
+            verifyCoverage(grid, configKey, journals);
+
+            Files.createDirectories(outDir);
+            String[] outputs = ref.outputs();
+            long rows = 0;
+            for (String name : outputs) rows += concat(name, dirs, journals, outDir.resolve(name));
+            logger.info("Merged %d shards: %d cells, %d rows -> %s", dirs.length, grid.cellCount(), rows, outDir);
+
+            String columns = ref.get("finalSize.columns");
+            if (columns != null) writeFinalSizes(ref, columns.split(","), outputs, outDir);
+        } finally {
+            for (SweepJournal j : journals) {
+                if (j != null) j.close();
+            }
+        }
+    }
+
+    private static void verifyCoverage(SweepGrid grid, long configKey, SweepJournal[] journals) {
+        long missing = 0;
+        List<String> examples = new ArrayList<>();
+        for (long idx = 0; idx < grid.cellCount(); idx++) {
+            SweepCell cell = grid.cell(idx);
+            int owner = Shard.ownerOf(idx, journals.length);
+            if (!journals[owner].isDone(grid.cellKey(cell, configKey))) {
+                if (missing++ < MAX_REPORTED) examples.add(cell + " (shard " + owner + ")");
+            }
+        }
+        if (missing > 0) {
+            throw new IllegalStateException(missing + " of " + grid.cellCount() + " cells not done, e.g. " + String.join(", ", examples));
+        }
+        long journaled = 0;
+        for (SweepJournal j : journals) journaled += j.doneCount();
+        if (journaled != grid.cellCount()) {
+            logger.warn("Journals hold %d cells for a grid of %d (stale entries ignored)", journaled, grid.cellCount());
+        }
+    }
+
+    /** Concatenates the committed part of {@code name} from every shard (header once). Returns the number of rows. */
+    private static long concat(String name, Path[] dirs, SweepJournal[] journals, Path target) throws IOException {
+        String header = null;
+        long rows = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            for (int i = 0; i < dirs.length; i++) {
+                Path src = dirs[i].resolve(name);
+                long limit = journals[i].committedLength(name);
+                if (!Files.exists(src) || limit == 0) continue;
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(src))) {
+                    String h = readLine(in);
+                    if (header == null) {
+                        header = h;
+                        out.write((h + "\n").getBytes(StandardCharsets.UTF_8));
+                    } else if (!header.equals(h)) {
+                        throw new IllegalStateException(src + ": header " + h + " differs from " + header);
+                    }
+                    long remaining = limit - h.length() - 1;
+                    byte[] buf = new byte[1 << 16];
+                    while (remaining > 0) {
+                        int r = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                        if (r < 0) throw new IOException(src + ": shorter than its committed length " + limit);
+                        out.write(buf, 0, r);
+                        for (int k = 0; k < r; k++) {
+                            if (buf[k] == '\n') rows++;
+                        }
+                        remaining -= r;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        for (int c; (c = in.read()) != '\n'; ) {
+            if (c < 0) throw new IOException("missing header line");
+            b.write(c);
+        }
+        return b.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Rebuilds the final-size summary and histogram of the whole sweep from the merged outputs. */
+    private static void writeFinalSizes(ShardManifest ref, String[] columns, String[] outputs, Path outDir) throws IOException {
+        SweepGrid grid = ref.grid();
+        int n = ref.getInt("finalSize.n");
+        double majorFraction = ref.getDouble("finalSize.majorFraction");
+        int binsPerDecade = ref.getInt("finalSize.binsPerDecade");
+        FinalSizePoints points = new FinalSizePoints(grid.alphas(), grid.betas(), ref.getDoubles("finalSize.lambdas"),
+                () -> binsPerDecade == 0
+                        ? FinalSizeHistogram.exact(n, majorFraction)
+                        : FinalSizeHistogram.logBinned(n, binsPerDecade, majorFraction));
+        for (String name : outputs) points.replayCsv(outDir.resolve(name), columns);
+        Path summaryPath = outDir.resolve("final_size_summary.csv");
+        Path histPath = outDir.resolve("final_size_hist.csv");
+        points.writeSummaryCsv(summaryPath);
+        points.writeHistogramCsv(histPath);
+        logger.info("Saved: %s, %s", summaryPath, histPath);
+    }
+}
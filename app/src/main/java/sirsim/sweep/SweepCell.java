@@ -0,0 +1,7 @@
+package sirsim.sweep;
+
+/** One (graph, iteration, alpha, beta, lambda) point of a {@link SweepGrid}. */
+public record SweepCell(long index, int graph, int itr,
+                        int alphaIndex, int betaIndex, int lambdaIndex,
+                        double alpha, double beta, double lambda,
+                        long initSeed, long simSeed) {}
@@ -0,0 +1,39 @@
+package sirsim.sweep;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for one {@link SweepRunner} cell, covering every driver path (simulators, coupled sweeps,
+ * percolation). Only cells longer than the threshold are recorded (default 10 ms).
+ */
+@Name("sirsim.SweepCell")
+@Label("Sweep Cell")
+@Category({ "sirsim", "Sweep" })
+@Description("One (graph, iteration, alpha, beta, lambda) cell of a parameter sweep")
+@StackTrace(false)
+@Threshold("10 ms")
+final class SweepCellEvent extends Event {
+    @Label("Cell Index")
+    long index;
+
+    @Label("Graph")
+    int graph;
+
+    @Label("Iteration")
+    int itr;
+
+    @Label("Alpha")
+    double alpha;
+
+    @Label("Beta")
+    double beta;
+
+    @Label("Lambda")
+    double lambda;
+}
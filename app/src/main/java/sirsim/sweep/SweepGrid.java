@@ -0,0 +1,69 @@
+package sirsim.sweep;
+
+/**
+ * Declarative parameter grid: graphs x iterations x alpha x beta x lambda.
+ * Cells are numbered with lambda varying fastest and the graph slowest, i.e. in the order of the
+ * nested loops of the original drivers. Seeds are pure functions of the cell coordinates.
+ *
+ * @param graphs     number of graph realizations (batches)
+ * @param alphas     source-degree exponents
+ * @param betas      target-degree exponents
+ * @param lambdas    transmission rates; {@link #perCurve} uses a single NaN entry
+ * @param iterations realizations per (graph, alpha, beta, lambda)
+ */
+public record SweepGrid(int graphs, double[] alphas, double[] betas, double[] lambdas, int iterations) {
+    public SweepGrid {
+        if (graphs <= 0 || iterations <= 0) throw new IllegalArgumentException("graphs and iterations must be positive");
+        if (alphas.length == 0 || betas.length == 0 || lambdas.length == 0) throw new IllegalArgumentException("empty parameter list");
+    }
+
+    /** Grid whose cells each cover a whole lambda curve (the cell's lambda is NaN, lambdaIndex is 0). */
+    public static SweepGrid perCurve(int graphs, double[] alphas, double[] betas, int iterations) {
+        return new SweepGrid(graphs, alphas, betas, new double[]{ Double.NaN }, iterations);
+    }
+
+    public long cellCount() {
+        return (long) graphs * iterations * alphas.length * betas.length * lambdas.length;
+    }
+
+    /** Number of cells per graph. */
+    public long cellsPerGraph() {
+        return cellCount() / graphs;
+    }
+
+    public SweepCell cell(long index) {
+        if (index < 0 || index >= cellCount()) throw new IndexOutOfBoundsException("cell index " + index);
+        long rest = index;
+        int li = (int) (rest % lambdas.length); rest /= lambdas.length;
+        int bi = (int) (rest % betas.length); rest /= betas.length;
+        int ai = (int) (rest % alphas.length); rest /= alphas.length;
+        int itr = (int) (rest % iterations); rest /= iterations;
+        int graph = (int) rest;
+        return new SweepCell(index, graph, itr, ai, bi, li, alphas[ai], betas[bi], lambdas[li],
+                initSeed(graph, itr), simSeed(graph, itr));
+    }
+
+    /** Seed of the initial-infected sampler (shared by all parameters of one (graph, itr), as before). */
+    public long initSeed(int graph, int itr) {
+        return 7L + (long) graph * 10_000 + itr;
+    }
+
+    /** Seed of the simulator (shared by all parameters of one (graph, itr), as before). */
+    public long simSeed(int graph, int itr) {
+        return 12345L + (long) graph * iterations + itr;
+    }
+
+    /**
+     * Content address of a cell under a configuration key (see {@link SweepJournal#key}): depends only on
+     * the cell's parameters and seeds, not on its index, so it is stable across grid shapes.
+     */
+    public long cellKey(SweepCell cell, long configKey) {
+        return SweepJournal.key(configKey, cell.alpha(), cell.beta(), cell.lambda(),
+                graphSeed(cell.graph()), cell.initSeed(), cell.simSeed());
+    }
+
+    /** Seed of graph realization {@code graph}. */
+    public long graphSeed(int graph) {
+        return 42L + graph;
+    }
+}
@@ -0,0 +1,214 @@
+package sirsim.sweep;
+
+import sirsim.output.CommitLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe manifest of finished sweep cells.
+ *
+ * <p>Each frame is {@code [int length][int crc32][payload]}; the payload names an output file, the
+ * length up to which that file is committed, and the keys of the cells whose rows lie within it.
+ * Sinks call {@link #commit} only after syncing their data, and every frame is forced before commit
+ * returns, so after a crash the journal never claims more than the outputs hold. Opening an existing
+ * journal replays all intact frames and cuts off a torn tail.
+ *
+ * <p>Cell keys are content addresses (see {@link #key}): a cell with the same parameters and seeds
+ * has the same key in every invocation, regardless of grid shape or cell numbering. The file starts with
+ * the key of the sweep configuration, and a journal is only reopened under the same configuration, so
+ * rows of an earlier configuration are never appended to or replayed into a new one.
+ */
+public final class SweepJournal implements CommitLog, AutoCloseable {
+    /** Conventional file name of a sweep's journal in its output directory. */
+    public static final String FILE_NAME = "sweep.journal";
+    private static final int MAGIC = 0x534A4E4C;  // "SJNL"
+    private static final int FILE_HEADER = 12;     // [int magic][long config key]
+    private static final int FRAME_HEADER = 8;
+
+    private final FileChannel ch;
+    private final Set<Long> done = new HashSet<>();
+    private final Map<String, Long> committed = new HashMap<>();
+    private final boolean resumed;
+
+    private SweepJournal(FileChannel ch, boolean resumed) {
+        this.ch = ch;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Opens (or creates) the journal of configuration {@code configKey} at {@code path}, replaying existing
+     * frames. Refuses a journal written under another configuration.
+     */
+    public static SweepJournal open(Path path, long configKey) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean resumed = ch.size() >= FILE_HEADER;
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            if (resumed) {
+                readFully(ch, header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC) throw new IOException(path + " is not a sweep journal");
+                long key = header.getLong();
+                if (key != configKey) {
+                    throw new IllegalStateException(path + " belongs to config " + Long.toHexString(key) + ", not "
+                            + Long.toHexString(configKey) + "; use another output directory");
+                }
+            } else {
+                // new, or torn while writing the header: no frames yet
+                ch.truncate(0);
+                header.putInt(MAGIC).putLong(configKey).flip();
+                while (header.hasRemaining()) ch.write(header, header.position());
+                ch.force(true);
+            }
+            SweepJournal j = new SweepJournal(ch, resumed);
+            long end = j.replay();
+            if (end < ch.size()) ch.truncate(end);  // torn or corrupt tail from a crash
+            ch.position(end);
+            return j;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private long replay() throws IOException {
+        long size = ch.size();
+        long pos = FILE_HEADER;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        CRC32 crc = new CRC32();
+        while (pos + FRAME_HEADER <= size) {
+            header.clear();
+            readFully(ch, header, pos);
+            header.flip();
+            int len = header.getInt();
+            int sum = header.getInt();
+            if (len < 0 || pos + FRAME_HEADER + len > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(len);
+            readFully(ch, payload, pos + FRAME_HEADER);
+            crc.reset();
+            crc.update(payload.array(), 0, len);
+            if ((int) crc.getValue() != sum) break;
+            payload.flip();
+            apply(payload);
+            pos += FRAME_HEADER + len;
+        }
+        return pos;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long at) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, at + buf.position()) < 0) throw new IOException("unexpected end of journal");
+        }
+    }
+
+    private void apply(ByteBuffer payload) {
+        byte[] name = new byte[payload.getShort() & 0xFFFF];
+        payload.get(name);
+        long length = payload.getLong();
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) done.add(payload.getLong());
+        String output = new String(name, StandardCharsets.UTF_8);
+        if (!output.isEmpty()) committed.merge(output, length, Math::max);
+    }
+
+    /** True if the journal already existed (under the same configuration) when it was opened. */
+    public boolean resumed() { return resumed; }
+
+    public synchronized boolean isDone(long key) { return done.contains(key); }
+
+    public synchronized int doneCount() { return done.size(); }
+
+    /** Committed length of an output file, or 0 if nothing of it was committed. */
+    public synchronized long committedLength(String output) {
+        return committed.getOrDefault(output, 0L);
+    }
+
+    /**
+     * Prepares an output file of this journal for appending. On resume it is cut back to its committed
+     * length, dropping rows of cells that never committed. A fresh journal did not create any existing
+     * content, so a non-empty file is refused instead of being truncated or appended to.
+     */
+    public void adopt(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        if (!resumed) {
+            if (Files.size(file) > 0) {
+                throw new IllegalStateException(file + " exists but is not recorded in this journal; use another output directory");
+            }
+            return;
+        }
+        long keep = committedLength(file.getFileName().toString());
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (fc.size() > keep) {
+                fc.truncate(keep);
+                fc.force(true);
+            }
+        }
+    }
+
+    /** Records cells that produced no output rows (or whose output is tracked elsewhere). */
+    public void commit(long[] keys, int count) throws IOException {
+        commit("", -1L, keys, count);
+    }
+
+    @Override
+    public synchronized void commit(String output, long length, long[] keys, int count) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(16 + output.length() + 8 * count);
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            byte[] name = output.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeLong(length);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) out.writeLong(keys[i]);
+        }
+        byte[] payload = bos.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (frame.hasRemaining()) ch.write(frame);
+        ch.force(false);
+        for (int i = 0; i < count; i++) done.add(keys[i]);
+        if (!output.isEmpty()) committed.merge(output, length, Math::max);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        ch.close();
+    }
+
+    /** Content address of a configuration or cell: a 64-bit mix of a name and numeric parts. */
+    public static long key(String name, double... parts) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < name.length(); i++) h = mix(h ^ name.charAt(i));
+        return key(h, parts);
+    }
+
+    /** Content address derived from a parent key (e.g. the configuration) and numeric parts. */
+    public static long key(long parent, double... parts) {
+        long h = mix(parent ^ 0xBF58476D1CE4E5B9L);
+        for (double p : parts) h = mix(h ^ Double.doubleToLongBits(p));
+        return h;
+    }
+
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
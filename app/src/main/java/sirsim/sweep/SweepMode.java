@@ -0,0 +1,61 @@
+package sirsim.sweep;
+
+import sirsim.output.OutputFormat;
+
+/**
+ * What one run of the FastSIR/FastSAR drivers computes. Exactly one mode is selected, so options that only
+ * make sense for some modes (checkpointing, run metrics, columnar or binary output) are checked against it.
+ */
+public enum SweepMode {
+    /** Final size of every grid cell, plus per-point final-size histograms; journaled and shardable. */
+    FINAL_SIZES,
+    /** Time series of every grid cell; journaled and shardable. */
+    TIME_SERIES,
+    /** Per-point mean, variance and quantiles of the time series only; no per-run output, so not shardable. */
+    CURVE_SUMMARY,
+    /** Final-size curves on an adaptively refined lambda grid ({@link AdaptiveLambdaSweep}). */
+    ADAPTIVE,
+    /** Final size with a per-point trial count ({@link SequentialStopping}). */
+    SEQUENTIAL,
+    /** Final size with initial infecteds stratified by degree ({@link DegreeStrata}). */
+    STRATIFIED;
+
+    /** True for the modes that run the fixed grid through {@link SweepRunner}. */
+    public boolean isGrid() {
+        return this == FINAL_SIZES || this == TIME_SERIES || this == CURVE_SUMMARY;
+    }
+
+    /** True if the mode writes one row set per cell, which the journal and shard merge need. */
+    public boolean hasCellOutput() {
+        return this == FINAL_SIZES || this == TIME_SERIES;
+    }
+
+    /**
+     * Rejects driver options that this mode cannot honour instead of ignoring them.
+     *
+     * @throws IllegalArgumentException if sharding, checkpointing, run metrics or the output format do not apply
+     */
+    public void checkOptions(Shard shard, boolean checkpoint, boolean writeMetrics, OutputFormat format) {
+        if (!shard.isAll() && !hasCellOutput()) {
+            throw new IllegalArgumentException(this + " cannot be sharded (use FINAL_SIZES or TIME_SERIES)");
+        }
+        if (checkpoint && !hasCellOutput()) {
+            throw new IllegalArgumentException(this + " has no per-cell output to resume from; set checkpoint = false");
+        }
+        if (writeMetrics && !isGrid()) {
+            throw new IllegalArgumentException("run metrics are written for the fixed grid only");
+        }
+        if (format == OutputFormat.COLUMNAR && this != TIME_SERIES) {
+            throw new IllegalArgumentException("columnar output is for TIME_SERIES");
+        }
+        if (format == OutputFormat.COLUMNAR && (checkpoint || !shard.isAll())) {
+            throw new IllegalArgumentException("columnar output is not journaled; set checkpoint = false and run unsharded");
+        }
+        if (format == OutputFormat.BINARY && !hasCellOutput()) {
+            throw new IllegalArgumentException("binary output is for FINAL_SIZES or TIME_SERIES");
+        }
+        if (format == OutputFormat.BINARY && (checkpoint || !shard.isAll())) {
+            throw new IllegalArgumentException("binary output is not journaled; set checkpoint = false and run unsharded");
+        }
+    }
+}
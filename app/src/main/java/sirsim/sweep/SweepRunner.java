@@ -0,0 +1,114 @@
+package sirsim.sweep;
+
+import sirsim.network.Graph;
+import sirsim.utils.Logger;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Runs every cell of a {@link SweepGrid} as its own fork/join task, so idle workers steal
+ * cells from busy ones instead of waiting for the slowest batch. Graphs are built once and
+ * shared read-only; each worker thread owns one state object (e.g. reusable simulators).
+ * Since seeds come from the cell coordinates, results do not depend on scheduling.
+ */
+public final class SweepRunner {
+    private static final Logger logger = new Logger(SweepRunner.class);
+
+    private SweepRunner() {}
+
+    @FunctionalInterface
+    public interface CellTask<S> {
+        void run(S workerState, Graph g, SweepCell cell) throws Exception;
+    }
+
+    /** Builds {@code grid.graphs()} graphs in parallel with {@code graphFactory}, then runs all cells. */
+    public static <S> void run(ForkJoinPool pool, SweepGrid grid, IntFunction<Graph> graphFactory,
+                               Supplier<S> workerState, CellTask<S> task) {
+        run(pool, grid, Shard.ALL, graphFactory, workerState, task);
+    }
+
+    /** Like {@link #run(ForkJoinPool, SweepGrid, IntFunction, Supplier, CellTask)}, but only the cells of {@code shard}. */
+    public static <S> void run(ForkJoinPool pool, SweepGrid grid, Shard shard, IntFunction<Graph> graphFactory,
+                               Supplier<S> workerState, CellTask<S> task) {
+        Graph[] graphs = new Graph[grid.graphs()];
+        pool.submit(() -> IntStream.range(0, graphs.length).parallel()
+                .forEach(i -> graphs[i] = graphFactory.apply(i))).join();
+        run(pool, grid, shard, graphs, workerState, task);
+    }
+
+    public static <S> void run(ForkJoinPool pool, SweepGrid grid, Graph[] graphs,
+                               Supplier<S> workerState, CellTask<S> task) {
+        run(pool, grid, Shard.ALL, graphs, workerState, task);
+    }
+
+    public static <S> void run(ForkJoinPool pool, SweepGrid grid, Shard shard, Graph[] graphs,
+                               Supplier<S> workerState, CellTask<S> task) {
+        if (graphs.length != grid.graphs()) throw new IllegalArgumentException("graphs.length != grid.graphs()");
+        long total = shard.size(grid.cellCount());
+        if (shard.isAll()) logger.info("Sweep: %d cells on %d workers", total, pool.getParallelism());
+        else logger.info("Sweep: %d of %d cells (shard %s) on %d workers", total, grid.cellCount(), shard, pool.getParallelism());
+        ThreadLocal<S> local = ThreadLocal.withInitial(workerState);
+        if (total == 0) return;
+        AtomicLong done = new AtomicLong();
+        pool.invoke(new CellRange<>(grid, shard, total, graphs, local, task, done, 0, total));
+    }
+
+    /** Range [lo, hi) of the shard's own cells, numbered 0..total-1 (cell index = shard.index + k * shard.count). */
+    @SuppressWarnings("serial") // fork/join tasks are never serialized
+    private static final class CellRange<S> extends RecursiveAction {
+        private final SweepGrid grid;
+        private final Shard shard;
+        private final long total;
+        private final Graph[] graphs;
+        private final ThreadLocal<S> local;
+        private final CellTask<S> task;
+        private final AtomicLong done;
+        private final long lo, hi;
+
+        CellRange(SweepGrid grid, Shard shard, long total, Graph[] graphs, ThreadLocal<S> local, CellTask<S> task,
+                  AtomicLong done, long lo, long hi) {
+            this.grid = grid; this.shard = shard; this.total = total; this.graphs = graphs; this.local = local;
+            this.task = task; this.done = done;
+            this.lo = lo; this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                long mid = (lo + hi) >>> 1;
+                invokeAll(new CellRange<>(grid, shard, total, graphs, local, task, done, lo, mid),
+                          new CellRange<>(grid, shard, total, graphs, local, task, done, mid, hi));
+                return;
+            }
+            SweepCell cell = grid.cell(shard.index() + lo * shard.count());
+            SweepCellEvent event = new SweepCellEvent();
+            event.begin();
+            try {
+                task.run(local.get(), graphs[cell.graph()], cell);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.index = cell.index();
+                    event.graph = cell.graph();
+                    event.itr = cell.itr();
+                    event.alpha = cell.alpha();
+                    event.beta = cell.beta();
+                    event.lambda = cell.lambda();
+                    event.commit();
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("cell " + cell + " failed", e);
+            }
+            long d = done.incrementAndGet();
+            if (d % 10_000 == 0 || d == total) {
+                logger.info("Progress: %d/%d (%.1f%%)", d, total, 100.0 * d / total);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package sirsim.theory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/** Node-chunked parallel loops shared by the solvers in this package. */
+final class Chunks {
+    /** Nodes per parallel task. */
+    static final int SIZE = 4096;
+
+    private Chunks() {}
+
+    static int count(int n) {
+        return (n + SIZE - 1) / SIZE;
+    }
+
+    static int from(int chunk) {
+        return chunk * SIZE;
+    }
+
+    static int to(int chunk, int n) {
+        return Math.min(n, chunk * SIZE + SIZE);
+    }
+
+    @FunctionalInterface
+    interface Task {
+        double apply(int chunk);
+    }
+
+    /** Largest value returned by {@code task} over all chunks. */
+    static double max(ForkJoinPool pool, int chunks, Task task) {
+        if (chunks <= 1) return chunks == 0 ? 0.0 : task.apply(0);
+        return pool.submit(() -> IntStream.range(0, chunks).parallel().mapToDouble(task::apply).max().orElse(0.0)).join();
+    }
+
+    /** Sum of the values returned by {@code task}, added in chunk order so the result does not depend on the thread count. */
+    static double sum(ForkJoinPool pool, int chunks, Task task) {
+        if (chunks <= 1) return chunks == 0 ? 0.0 : task.apply(0);
+        double[] parts = pool.submit(() -> IntStream.range(0, chunks).parallel().mapToDouble(task::apply).toArray()).join();
+        double sum = 0.0;
+        for (double p : parts) sum += p;
+        return sum;
+    }
+}
@@ -0,0 +1,339 @@
+package sirsim.theory;
+
+import sirsim.network.Graph;
+import sirsim.utils.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Leading eigenvalues of a {@link Graph} and the epidemic thresholds they imply, for the degree-weighted
+ * rates of {@code FastSIRSimulator} (arc u -> v transmits at {@code lambda k_u^alpha k_v^beta}).
+ * <ul>
+ *   <li>Adjacency: the rate matrix {@code D^beta A D^alpha} is similar to the symmetric
+ *       {@code D^c A D^c} with {@code c = (alpha + beta) / 2}; its leading eigenvalue is found by power
+ *       iteration or Lanczos and gives the mean-field threshold {@code gamma / Lambda}.</li>
+ *   <li>Non-backtracking (Hashimoto) matrix {@code B[(u->v),(v->w)] = W(v->w)} for {@code w != u}, applied
+ *       through {@code rev} without building B. With {@code W = T(lambda)} the condition {@code rho(B_T) = 1}
+ *       is the threshold of {@link MessagePassing}; it is located by a bracketed root search on lambda.</li>
+ * </ul>
+ * All vectors are primitive double arrays and every product runs in node chunks on the given pool.
+ */
+public final class SpectralThreshold {
+    private static final Logger logger = new Logger(SpectralThreshold.class);
+
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    public static final int DEFAULT_MAX_ITERATIONS = 10_000;
+    private static final int MAX_LANCZOS_STEPS = 300;
+
+    /**
+     * Eigenvalues and thresholds of one graph: {@code meanField = gamma / adjacency},
+     * {@code nonBacktrackingLinear = gamma / nonBacktracking} (small-T limit) and {@code percolation},
+     * the lambda at which {@code rho(B_T) = 1} (+Inf if the graph cannot sustain an outbreak).
+     */
+    public record Estimate(double adjacency, double nonBacktracking,
+                           double meanField, double nonBacktrackingLinear, double percolation) {}
+
+    private SpectralThreshold() {}
+
+    /** All three thresholds, adjacency via Lanczos. */
+    public static Estimate estimate(Graph g, double gamma, double alpha, double beta, ForkJoinPool pool) {
+        if (gamma < 0) throw new IllegalArgumentException("gamma must be non-negative");
+        double adj = adjacencyLanczos(g, alpha, beta, DEFAULT_TOLERANCE, pool);
+        double nb = nonBacktracking(g, alpha, beta, pool);
+        double perc = percolationThreshold(g, gamma, alpha, beta, pool);
+        return new Estimate(adj, nb, adj > 0 ? gamma / adj : Double.POSITIVE_INFINITY,
+                nb > 0 ? gamma / nb : Double.POSITIVE_INFINITY, perc);
+    }
+
+    /** Leading adjacency eigenvalue by power iteration (ratio of successive norms). */
+    public static double adjacencyPower(Graph g, double alpha, double beta, double tolerance, int maxIterations, ForkJoinPool pool) {
+        Adjacency op = new Adjacency(g, alpha, beta, pool);
+        double[] x = new double[g.n];
+        double[] y = new double[g.n];
+        Arrays.fill(x, 1.0 / Math.sqrt(g.n));
+        double lambda = 0.0;
+        for (int iter = 1; iter <= maxIterations; iter++) {
+            op.apply(x, y);
+            double norm = Math.sqrt(op.dot(y, y));
+            if (norm == 0.0) return 0.0;
+            op.scale(y, 1.0 / norm);
+            double[] s = x; x = y; y = s;
+            if (Math.abs(norm - lambda) <= tolerance * norm) return norm;
+            lambda = norm;
+        }
+        logger.warn("Adjacency power iteration did not converge in %d iterations (estimate %.6f)", maxIterations, lambda);
+        return lambda;
+    }
+
+    /**
+     * Leading adjacency eigenvalue by Lanczos (no reorthogonalization: lost orthogonality only repeats
+     * converged Ritz values, and the largest one is what we need). Stops when it moves by less than
+     * {@code tolerance} relative, or the Krylov space becomes invariant.
+     */
+    public static double adjacencyLanczos(Graph g, double alpha, double beta, double tolerance, ForkJoinPool pool) {
+        Adjacency op = new Adjacency(g, alpha, beta, pool);
+        int n = g.n;
+        if (n == 0) return 0.0;
+        double[] prev = new double[n];
+        double[] q = new double[n];
+        double[] w = new double[n];
+        Arrays.fill(q, 1.0 / Math.sqrt(n));
+        double[] diag = new double[MAX_LANCZOS_STEPS];
+        double[] off = new double[MAX_LANCZOS_STEPS];
+        double theta = 0.0;
+        for (int j = 0; j < MAX_LANCZOS_STEPS; j++) {
+            op.apply(q, w);
+            double a = op.dot(w, q);
+            double b = j == 0 ? 0.0 : off[j - 1];
+            op.axpy(w, -a, q, -b, prev); // w -= a q + b prev
+            diag[j] = a;
+            double next = largestTridiagonal(diag, off, j + 1);
+            double beta1 = Math.sqrt(op.dot(w, w));
+            if (j > 0 && Math.abs(next - theta) <= tolerance * Math.abs(next)) return next;
+            theta = next;
+            if (beta1 <= tolerance * Math.max(1.0, Math.abs(theta))) return theta;
+            off[j] = beta1;
+            double[] s = prev; prev = q; q = w; w = s;
+            op.scale(q, 1.0 / beta1);
+        }
+        logger.warn("Lanczos did not converge in %d steps (estimate %.6f)", MAX_LANCZOS_STEPS, theta);
+        return theta;
+    }
+
+    /** Leading eigenvalue of the non-backtracking matrix weighted by {@code k_u^alpha k_v^beta}. */
+    public static double nonBacktracking(Graph g, double alpha, double beta, ForkJoinPool pool) {
+        NonBacktracking op = new NonBacktracking(g, pool);
+        double[] w = degreeWeights(g, alpha, beta);
+        System.arraycopy(w, 0, op.weight, 0, g.m2);
+        return op.leading(DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Smallest lambda with {@code rho(B_T) >= 1}, where {@code T_e = lambda w_e / (lambda w_e + gamma)}, to
+     * relative precision {@code 1e-6}. {@code rho(B_T)} grows with lambda and is at most
+     * {@code lambda rho(B_w) / gamma}, which brackets the root from below; the bracket is then narrowed by
+     * false position, each eigen-solve starting from the previous eigenvector.
+     */
+    public static double percolationThreshold(Graph g, double gamma, double alpha, double beta, ForkJoinPool pool) {
+        if (gamma < 0) throw new IllegalArgumentException("gamma must be non-negative");
+        NonBacktracking op = new NonBacktracking(g, pool);
+        double[] w = degreeWeights(g, alpha, beta);
+        // λ → ∞ で T = 1（重みの付いた辺のみ）。それでも ρ < 1 なら大規模流行は起きない
+        for (int e = 0; e < g.m2; e++) op.weight[e] = w[e] > 0 ? 1.0 : 0.0;
+        if (op.leading(DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS) <= 1.0) return Double.POSITIVE_INFINITY;
+        if (gamma == 0.0) return 0.0;
+
+        System.arraycopy(w, 0, op.weight, 0, g.m2);
+        double lo = gamma / op.leading(DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+        double fLo = rhoAt(op, w, lo, gamma) - 1.0;
+        if (fLo >= 0.0) return lo;
+        double hi = 2.0 * lo;
+        double fHi = rhoAt(op, w, hi, gamma) - 1.0;
+        while (fHi < 0.0) {
+            lo = hi;
+            fLo = fHi;
+            hi *= 2.0;
+            fHi = rhoAt(op, w, hi, gamma) - 1.0;
+        }
+        // Illinois 法（挟み込みを保つ割線法）：ρ(λ) は滑らかなので二分法より評価回数が少ない
+        int side = 0;
+        while (hi - lo > 1e-6 * hi) {
+            double mid = (lo * fHi - hi * fLo) / (fHi - fLo);
+            if (!(mid > lo && mid < hi)) mid = 0.5 * (lo + hi);
+            double fMid = rhoAt(op, w, mid, gamma) - 1.0;
+            if (fMid == 0.0) return mid;
+            if (fMid < 0.0) {
+                lo = mid;
+                fLo = fMid;
+                if (side == -1) fHi *= 0.5;
+                side = -1;
+            } else {
+                hi = mid;
+                fHi = fMid;
+                if (side == 1) fLo *= 0.5;
+                side = 1;
+            }
+        }
+        return 0.5 * (lo + hi);
+    }
+
+    private static double rhoAt(NonBacktracking op, double[] w, double lambda, double gamma) {
+        for (int e = 0; e < w.length; e++) {
+            double r = lambda * w[e];
+            op.weight[e] = r / (r + gamma);
+        }
+        return op.leading(DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    private static double[] degreeWeights(Graph g, double alpha, double beta) {
+        double[] srcPow = new double[g.n];
+        double[] dstPow = new double[g.n];
+        for (int u = 0; u < g.n; u++) {
+            int k = g.degree(u);
+            double kk = k == 0 ? 1.0 : k;
+            srcPow[u] = Math.pow(kk, alpha);
+            dstPow[u] = Math.pow(kk, beta);
+        }
+        double[] w = new double[g.m2];
+        for (int e = 0; e < g.m2; e++) w[e] = srcPow[g.src[e]] * dstPow[g.colIdx[e]];
+        return w;
+    }
+
+    /**
+     * Largest eigenvalue of the symmetric tridiagonal matrix (diag[0..m), off[0..m-1)) by Sturm-sequence
+     * bisection between the Gershgorin bounds.
+     */
+    static double largestTridiagonal(double[] diag, double[] off, int m) {
+        double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < m; i++) {
+            double r = (i > 0 ? Math.abs(off[i - 1]) : 0.0) + (i < m - 1 ? Math.abs(off[i]) : 0.0);
+            lo = Math.min(lo, diag[i] - r);
+            hi = Math.max(hi, diag[i] + r);
+        }
+        for (int it = 0; it < 200 && hi - lo > 1e-15 * Math.max(1.0, Math.abs(hi)); it++) {
+            double mid = 0.5 * (lo + hi);
+            if (countBelow(diag, off, m, mid) == m) hi = mid;
+            else lo = mid;
+        }
+        return hi;
+    }
+
+    /** Number of eigenvalues below {@code x} (negative pivots of the LDL^T factorization of T - xI). */
+    private static int countBelow(double[] diag, double[] off, int m, double x) {
+        int count = 0;
+        double d = 1.0;
+        for (int i = 0; i < m; i++) {
+            double b2 = i > 0 ? off[i - 1] * off[i - 1] : 0.0;
+            d = diag[i] - x - (i > 0 ? b2 / d : 0.0);
+            if (d == 0.0) d = -1e-300;
+            if (d < 0) count++;
+        }
+        return count;
+    }
+
+    /** y = D^c A D^c x on node vectors. */
+    private static final class Adjacency {
+        private final Graph g;
+        private final ForkJoinPool pool;
+        private final int chunks;
+        private final double[] scale; // k_u^c
+
+        Adjacency(Graph g, double alpha, double beta, ForkJoinPool pool) {
+            this.g = g;
+            this.pool = pool;
+            this.chunks = Chunks.count(g.n);
+            double c = 0.5 * (alpha + beta);
+            this.scale = new double[g.n];
+            for (int u = 0; u < g.n; u++) {
+                int k = g.degree(u);
+                scale[u] = Math.pow(k == 0 ? 1.0 : k, c);
+            }
+        }
+
+        void apply(double[] x, double[] y) {
+            Chunks.sum(pool, chunks, c -> {
+                for (int u = Chunks.from(c), to = Chunks.to(c, g.n); u < to; u++) {
+                    double s = 0.0;
+                    for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                        int v = g.colIdx[e];
+                        s += scale[v] * x[v];
+                    }
+                    y[u] = scale[u] * s;
+                }
+                return 0.0;
+            });
+        }
+
+        double dot(double[] a, double[] b) {
+            return Chunks.sum(pool, chunks, c -> {
+                double s = 0.0;
+                for (int u = Chunks.from(c), to = Chunks.to(c, g.n); u < to; u++) s += a[u] * b[u];
+                return s;
+            });
+        }
+
+        void scale(double[] a, double f) {
+            Chunks.sum(pool, chunks, c -> {
+                for (int u = Chunks.from(c), to = Chunks.to(c, g.n); u < to; u++) a[u] *= f;
+                return 0.0;
+            });
+        }
+
+        /** w += a * x + b * y */
+        void axpy(double[] w, double a, double[] x, double b, double[] y) {
+            Chunks.sum(pool, chunks, c -> {
+                for (int u = Chunks.from(c), to = Chunks.to(c, g.n); u < to; u++) w[u] += a * x[u] + b * y[u];
+                return 0.0;
+            });
+        }
+    }
+
+    /**
+     * Weighted non-backtracking operator on arc vectors:
+     * {@code (Bx)[u->v] = sum_{f in out(v)} W_f x_f - W_{v->u} x_{v->u}}, i.e. a node sum minus the reverse arc.
+     */
+    private static final class NonBacktracking {
+        private final Graph g;
+        private final ForkJoinPool pool;
+        private final int chunks;
+        final double[] weight;    // W_e, set by the caller
+        private final double[] nodeSum;
+        private double[] x, y;    // 反復間で保持（二分探索では直前の固有ベクトルから再開）
+
+        NonBacktracking(Graph g, ForkJoinPool pool) {
+            this.g = g;
+            this.pool = pool;
+            this.chunks = Chunks.count(g.n);
+            this.weight = new double[g.m2];
+            this.nodeSum = new double[g.n];
+            this.x = new double[g.m2];
+            this.y = new double[g.m2];
+            Arrays.fill(x, g.m2 == 0 ? 0.0 : 1.0 / g.m2);
+        }
+
+        /** Power iteration with L1 normalization (the Perron vector is non-negative); returns the ratio estimate. */
+        double leading(double tolerance, int maxIterations) {
+            if (g.m2 == 0) return 0.0;
+            double rho = 0.0, prev = Double.NaN;
+            for (int iter = 1; iter <= maxIterations; iter++) {
+                // 二分グラフなどの周期性（±ρ の振動）を避けるため B + I を反復し、最後に 1 を引く
+                double norm = step();
+                if (norm == 0.0) return 0.0;
+                double inv = 1.0 / norm;
+                Chunks.sum(pool, chunks, c -> {
+                    for (int e = g.firstArc(Chunks.from(c)), end = g.firstArc(Chunks.to(c, g.n)); e < end; e++) y[e] *= inv;
+                    return 0.0;
+                });
+                double[] s = x; x = y; y = s;
+                rho = norm - 1.0;
+                if (Math.abs(rho - prev) <= tolerance * Math.max(1.0, Math.abs(rho))) return rho;
+                prev = rho;
+            }
+            logger.warn("Non-backtracking power iteration did not converge in %d iterations (estimate %.6f)", maxIterations, rho);
+            return rho;
+        }
+
+        /** y = (B + I) x; returns |y|_1 (x has |x|_1 = 1 and is non-negative). */
+        private double step() {
+            Chunks.sum(pool, chunks, c -> {
+                for (int v = Chunks.from(c), to = Chunks.to(c, g.n); v < to; v++) {
+                    double s = 0.0;
+                    for (int f = g.firstArc(v); f < g.endArc(v); f++) s += weight[f] * x[f];
+                    nodeSum[v] = s;
+                }
+                return 0.0;
+            });
+            return Chunks.sum(pool, chunks, c -> {
+                double norm = 0.0;
+                for (int e = g.firstArc(Chunks.from(c)), end = g.firstArc(Chunks.to(c, g.n)); e < end; e++) {
+                    int r = g.rev[e];
+                    double ye = nodeSum[g.colIdx[e]] - weight[r] * x[r] + x[e];
+                    y[e] = ye;
+                    norm += ye;
+                }
+                return norm;
+            });
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package sirsim.utils;
+
+/**
+ * Counter-based (stateless) random numbers: the value is a pure function of its key,
+ * so draws do not depend on evaluation order or on which thread asks for them.
+ * Keys are mixed with the SplitMix64 finalizer.
+ */
+public final class CounterRng {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private CounterRng() {}
+
+    /** Uniform double in [0,1) keyed by (seed, a, b, c, stream). */
+    public static double uniform(long seed, long a, long b, long c, int stream) {
+        long h = mix(seed + GOLDEN);
+        h = mix(h + a * GOLDEN);
+        h = mix(h ^ (b + GOLDEN));
+        h = mix(h + c * GOLDEN);
+        h = mix(h ^ ((long) stream + GOLDEN));
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,11 +1,23 @@
 package sirsim.utils;
 
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
- * シンプルなログ機能を提供するクラス
- * 環境変数LOG_LEVELでログレベルを制御可能
+ * シンプルな非同期ログ機能を提供するクラス
+ * 呼び出しスレッドはメッセージをリングバッファへ積むだけで、標準出力への書き込みは
+ * バックグラウンドスレッドがまとめて行う（多数のワーカーが System.out のロックを奪い合わない）
+ * 環境変数LOG_LEVELでログレベル、LOG_FORMAT=json で JSON Lines 出力に切り替え可能
  */
 public class Logger {
     
@@ -26,19 +38,32 @@ public class Logger {
     
     // 現在のログレベル（環境変数またはデフォルト値から設定）
     private static final LogLevel CURRENT_LOG_LEVEL = getLogLevelFromEnv();
+    // レベル判定は定数（JIT で畳み込まれ、無効なレベルの呼び出しは引数の生成ごと消せる）
+    private static final boolean DEBUG_ENABLED = isLogLevelEnabled(LogLevel.DEBUG);
+    private static final boolean INFO_ENABLED = isLogLevelEnabled(LogLevel.INFO);
     
-    // 日時フォーマッター
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    // 出力形式（LOG_FORMAT=json で1行1オブジェクトの JSON）
+    private static final boolean JSON = "json".equalsIgnoreCase(System.getenv("LOG_FORMAT"));
+
+    // 全ロガー共通のリングバッファと出力スレッド
+    private static final Ring RING = new Ring(1 << 13, JSON, () -> System.out);
     
     // クラス名（ログ出力時に使用）
     private final String className;
+    private final Ring ring;
     
     /**
      * コンストラクタ
      * @param clazz ログを出力するクラス
      */
     public Logger(Class<?> clazz) {
+        this(clazz, RING);
+    }
+
+    /** 指定したリングバッファへ積むロガー（テスト用） */
+    Logger(Class<?> clazz, Ring ring) {
         this.className = clazz.getSimpleName();
+        this.ring = ring;
     }
     
     /**
@@ -58,16 +83,38 @@ public class Logger {
     }
     
     /**
-     * ログ出力の基本メソッド
+     * ログ出力の基本メソッド（時刻とスレッド名を添えてリングバッファへ積む）
      * @param level ログレベル
      * @param message メッセージ
      */
     private void log(LogLevel level, String message) {
         if (level.getLevel() >= CURRENT_LOG_LEVEL.getLevel()) {
-            String timestamp = LocalDateTime.now().format(DATE_TIME_FORMATTER);
-            System.out.printf("[%s] [%s] [%s] %s%n", timestamp, level.name(), className, message);
+            ring.publish(System.currentTimeMillis(), level, className, Thread.currentThread().getName(), message);
         }
     }
+
+    /**
+     * DEBUGレベルが有効か（引数の生成が重い呼び出しの前で判定する）
+     * @return 有効な場合true
+     */
+    public boolean isDebugEnabled() {
+        return DEBUG_ENABLED;
+    }
+
+    /**
+     * INFOレベルが有効か
+     * @return 有効な場合true
+     */
+    public boolean isInfoEnabled() {
+        return INFO_ENABLED;
+    }
+
+    /**
+     * 積まれたログがすべて出力されるまで待つ（終了時はシャットダウンフックからも呼ばれる）
+     */
+    public static void flush() {
+        RING.flush();
+    }
     
     /**
      * DEBUGレベルでログ出力
@@ -101,6 +148,19 @@ public class Logger {
         log(LogLevel.ERROR, message);
     }
     
+    /**
+     * 例外のスタックトレースを添えてERRORレベルでログ出力
+     * @param message メッセージ
+     * @param t 例外
+     */
+    public void error(String message, Throwable t) {
+        if (isLogLevelEnabled(LogLevel.ERROR)) {
+            StringWriter sw = new StringWriter();
+            t.printStackTrace(new PrintWriter(sw));
+            error(message + System.lineSeparator() + sw.toString().stripTrailing());
+        }
+    }
+    
     /**
      * 現在のログレベルを取得
      * @return 現在のログレベル
@@ -124,7 +184,7 @@ public class Logger {
      * @param args フォーマット引数
      */
     public void debug(String format, Object... args) {
-        if (isLogLevelEnabled(LogLevel.DEBUG)) {
+        if (DEBUG_ENABLED) {
             debug(String.format(format, args));
         }
     }
@@ -135,7 +195,7 @@ public class Logger {
      * @param args フォーマット引数
      */
     public void info(String format, Object... args) {
-        if (isLogLevelEnabled(LogLevel.INFO)) {
+        if (INFO_ENABLED) {
             info(String.format(format, args));
         }
     }
@@ -161,4 +221,170 @@ public class Logger {
             error(String.format(format, args));
         }
     }
+
+    /**
+     * 複数スレッドから書き込み、出力スレッド1本が読み出す固定長リングバッファ
+     * （各スロットの sequence で空き・書き込み済みを判定するロックフリーのキュー）
+     * 満杯のときは書き込み側が空きを待つ（ログは捨てない）
+     */
+    static final class Ring {
+        private static final int BATCH_CHARS = 1 << 16;
+        private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+        private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+        private final int mask;
+        private final AtomicLongArray sequence;
+        private final long[] times;
+        private final LogLevel[] levels;
+        private final String[] classNames;
+        private final String[] threadNames;
+        private final String[] messages;
+
+        private final AtomicLong tail = new AtomicLong();   // 次に確保する位置（書き込み側）
+        private long head;                                  // 次に読む位置（出力スレッドのみ）
+        private volatile long written;                      // 出力済みの件数
+        private volatile boolean idle;
+        private final Thread drainer;
+        final Thread flushHook;
+
+        private final boolean json;
+        private final Supplier<PrintStream> out;   // バッチごとに取得（System.setOut に追従）
+
+        // 時刻の文字列は秒単位でキャッシュ（出力スレッドのみが使用）
+        private final ZoneId zone = ZoneId.systemDefault();
+        private final DateTimeFormatter secondFormat;
+        private long cachedSecond = Long.MIN_VALUE;
+        private String cachedPrefix;
+
+        /** @param capacity 2 のべき乗 */
+        Ring(int capacity, boolean json, Supplier<PrintStream> out) {
+            if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two");
+            this.json = json;
+            this.out = out;
+            this.secondFormat = DateTimeFormatter.ofPattern(json ? "yyyy-MM-dd'T'HH:mm:ss" : "yyyy-MM-dd HH:mm:ss");
+            this.mask = capacity - 1;
+            this.sequence = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) sequence.set(i, i);
+            this.times = new long[capacity];
+            this.levels = new LogLevel[capacity];
+            this.classNames = new String[capacity];
+            this.threadNames = new String[capacity];
+            this.messages = new String[capacity];
+            this.drainer = new Thread(this::drain, "sirsim-logger");
+            drainer.setDaemon(true);
+            drainer.start();
+            this.flushHook = new Thread(this::flush, "sirsim-logger-flush");
+            Runtime.getRuntime().addShutdownHook(flushHook);
+        }
+
+        void publish(long time, LogLevel level, String className, String threadName, String message) {
+            long pos;
+            while (true) {
+                pos = tail.get();
+                long dif = sequence.get((int) (pos & mask)) - pos;
+                if (dif == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) break;
+                } else if (dif < 0) {
+                    // 満杯：出力スレッドを起こして空きを待つ
+                    LockSupport.unpark(drainer);
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+            int i = (int) (pos & mask);
+            times[i] = time;
+            levels[i] = level;
+            classNames[i] = className;
+            threadNames[i] = threadName;
+            messages[i] = message;
+            sequence.set(i, pos + 1);
+            if (idle) LockSupport.unpark(drainer);
+        }
+
+        void flush() {
+            long target = tail.get();
+            long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+            while (written < target && drainer.isAlive() && System.nanoTime() < deadline) {
+                LockSupport.unpark(drainer);
+                LockSupport.parkNanos(100_000);
+            }
+        }
+
+        private boolean available() {
+            return sequence.get((int) (head & mask)) == head + 1;
+        }
+
+        private void drain() {
+            StringBuilder sb = new StringBuilder(BATCH_CHARS);
+            while (true) {
+                if (!available()) {
+                    idle = true;
+                    if (!available()) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    idle = false;
+                    continue;
+                }
+                while (available() && sb.length() < BATCH_CHARS) {
+                    int i = (int) (head & mask);
+                    format(sb, times[i], levels[i], classNames[i], threadNames[i], messages[i]);
+                    classNames[i] = threadNames[i] = messages[i] = null;
+                    sequence.set(i, head + mask + 1);
+                    head++;
+                }
+                PrintStream ps = out.get();
+                ps.append(sb);
+                ps.flush();
+                sb.setLength(0);
+                written = head;
+            }
+        }
+
+        private void format(StringBuilder sb, long time, LogLevel level, String className, String threadName, String message) {
+            if (json) {
+                sb.append("{\"ts\":\"");
+                appendTimestamp(sb, time);
+                sb.append("\",\"level\":\"").append(level.name());
+                sb.append("\",\"logger\":\"");
+                appendJson(sb, className);
+                sb.append("\",\"thread\":\"");
+                appendJson(sb, threadName);
+                sb.append("\",\"msg\":\"");
+                appendJson(sb, message);
+                sb.append("\"}").append(System.lineSeparator());
+            } else {
+                sb.append('[');
+                appendTimestamp(sb, time);
+                sb.append("] [").append(level.name()).append("] [").append(className).append("] ")
+                  .append(message).append(System.lineSeparator());
+            }
+        }
+
+        private void appendTimestamp(StringBuilder sb, long time) {
+            long second = Math.floorDiv(time, 1000L);
+            if (second != cachedSecond) {
+                cachedSecond = second;
+                cachedPrefix = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone).format(secondFormat) + ".";
+            }
+            int millis = (int) Math.floorMod(time, 1000L);
+            sb.append(cachedPrefix);
+            if (millis < 100) sb.append('0');
+            if (millis < 10) sb.append('0');
+            sb.append(millis);
+        }
+
+        private static void appendJson(StringBuilder sb, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package sirsim.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (double key, int value) pairs backed by primitive arrays.
+ * Decrease-key is not supported; callers push a new entry and skip stale ones on poll.
+ */
+public final class MinHeap {
+    private double[] keys;
+    private int[] vals;
+    private int size;
+
+    public MinHeap(int initialCapacity) {
+        int cap = Math.max(4, initialCapacity);
+        this.keys = new double[cap];
+        this.vals = new int[cap];
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public void clear() { size = 0; }
+
+    /** Key of the minimum entry (undefined when empty). */
+    public double peekKey() { return keys[0]; }
+    /** Value of the minimum entry (undefined when empty). */
+    public int peekValue() { return vals[0]; }
+
+    public void add(double key, int val) {
+        if (size == keys.length) {
+            int cap = keys.length << 1;
+            keys = Arrays.copyOf(keys, cap);
+            vals = Arrays.copyOf(vals, cap);
+        }
+        int i = size++;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (keys[p] <= key) break;
+            keys[i] = keys[p];
+            vals[i] = vals[p];
+            i = p;
+        }
+        keys[i] = key;
+        vals[i] = val;
+    }
+
+    /** Removes the minimum entry; read it with {@link #peekKey()}/{@link #peekValue()} first. */
+    public void poll() {
+        int last = --size;
+        if (last == 0) return;
+        double key = keys[last];
+        int val = vals[last];
+        int i = 0;
+        int half = last >>> 1;
+        while (i < half) {
+            int c = (i << 1) + 1;
+            int rc = c + 1;
+            if (rc < last && keys[rc] < keys[c]) c = rc;
+            if (key <= keys[c]) break;
+            keys[i] = keys[c];
+            vals[i] = vals[c];
+            i = c;
+        }
+        keys[i] = key;
+        vals[i] = val;
+    }
+}
@@ -0,0 +1,81 @@
+package sirsim.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryRecordReaderTest {
+    @TempDir Path dir;
+
+    @Test void sinkRowsReadBackBitForBit() throws Exception {
+        Path path = dir.resolve("rows.srec");
+        try (ResultSink sink = ResultSink.binary(path, RecordSchema.FINAL_SIZE)) {
+            for (int i = 0; i < 1000; i++) sink.row().l(i).d(-1.0).d(Double.NaN).d(0.1 * i).l(Long.MAX_VALUE - i).commit();
+        }
+        List<long[]> rows = read(path, RecordSchema.FINAL_SIZE);
+        assertEquals(1000, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            long[] r = rows.get(i);
+            assertEquals(i, r[0]);
+            assertEquals(-1.0, Double.longBitsToDouble(r[1]));
+            assertTrue(Double.isNaN(Double.longBitsToDouble(r[2])));
+            assertEquals(0.1 * i, Double.longBitsToDouble(r[3]));
+            assertEquals(Long.MAX_VALUE - i, r[4]);
+        }
+    }
+
+    @Test void reopeningAppendsUnderTheSameSchema() throws Exception {
+        Path path = dir.resolve("runs.srec");
+        for (int run = 0; run < 3; run++) {
+            try (ResultSink sink = ResultSink.binary(path, RecordSchema.FINAL_SIZE)) {
+                for (int i = 0; i < 5; i++) sink.row().l(run).d(0.0).d(0.0).d(i).l(10L * run + i).commit();
+            }
+        }
+        // ヘッダは先頭に1回だけで、各回の行が順に続く
+        List<long[]> rows = read(path, RecordSchema.FINAL_SIZE);
+        assertEquals(15, rows.size());
+        for (int j = 0; j < rows.size(); j++) {
+            assertEquals(j / 5, rows.get(j)[0]);
+            assertEquals(10L * (j / 5) + j % 5, rows.get(j)[4]);
+        }
+        assertThrows(IOException.class, () -> new BinaryTarget(path, RecordSchema.SIR_STATE));
+        assertEquals(15, read(path, RecordSchema.FINAL_SIZE).size());
+    }
+
+    @Test void toCsvMatchesTheCsvSink() throws Exception {
+        Path bin = dir.resolve("rows.srec"), csv = dir.resolve("rows.csv"), converted = dir.resolve("converted.csv");
+        try (ResultSink a = ResultSink.binary(bin, RecordSchema.SIR_STATE);
+             ResultSink b = ResultSink.csv(csv, RecordSchema.SIR_STATE)) {
+            for (int i = 0; i < 200; i++) {
+                for (ResultSink s : new ResultSink[]{ a, b }) {
+                    s.row().l(i / 10).d(0.5).d(-2.0).d(0.01 * i).d(i / 7.0).l(i).l(200 - i).commit();
+                }
+            }
+        }
+        BinaryRecordReader.toCsv(bin, converted);
+        assertEquals(Files.readAllLines(csv), Files.readAllLines(converted));
+    }
+
+    @Test void rejectsOtherFiles() throws Exception {
+        Path path = dir.resolve("not.srec");
+        Files.writeString(path, "itr,alpha\n1,2\n");
+        assertThrows(IOException.class, () -> new BinaryRecordReader(path));
+    }
+
+    private static List<long[]> read(Path path, RecordSchema schema) throws IOException {
+        List<long[]> rows = new ArrayList<>();
+        try (BinaryRecordReader r = new BinaryRecordReader(path)) {
+            assertEquals(schema, r.schema());
+            long[] slots = new long[schema.width()];
+            while (r.next(slots)) rows.add(slots.clone());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,158 @@
+package sirsim.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.simulation.FastSARSimulator;
+import sirsim.simulation.FastSIRSimulator;
+import sirsim.simulation.NodeStorage;
+import sirsim.simulation.NodeTimes;
+import sirsim.simulation.SarResult;
+import sirsim.simulation.SirResult;
+import sirsim.simulation.VacSIRSimulator;
+import sirsim.simulation.VacSirResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarFileTest {
+    @TempDir Path dir;
+
+    @Test void segmentsRoundTripAcrossBlocks() throws Exception {
+        int rows = 2 * ColumnarFile.BLOCK_ROWS + 17;
+        SplittableRandom rng = new SplittableRandom(3L);
+        int[] ints = new int[rows];
+        long[] longs = new long[rows];
+        float[] floats = new float[rows];
+        double[] doubles = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            // 差分符号化が効く単調列と、効かない乱数列を混ぜる
+            ints[i] = i % 2 == 0 ? i : rng.nextInt();
+            longs[i] = rng.nextLong();
+            floats[i] = i % 5 == 0 ? Float.NaN : (float) rng.nextDouble();
+            doubles[i] = i % 7 == 0 ? Double.NaN : rng.nextGaussian() * 1e6;
+        }
+        Path path = dir.resolve("runs.scol");
+        for (int itr = 0; itr < 2; itr++) {
+            ColumnarFile.append(path, new ColumnTable().param("itr", itr).param("lambda", 0.25 * itr)
+                    .ints("a", ints).longs("b", longs).floats("c", floats).doubles("d", doubles));
+        }
+        List<ColumnTable> segments = ColumnarFile.readAll(path);
+        assertEquals(2, segments.size());
+        for (int itr = 0; itr < 2; itr++) {
+            ColumnTable t = segments.get(itr);
+            assertEquals(rows, t.rows());
+            assertEquals(itr, t.params().get(0).longValue());
+            assertEquals(0.25 * itr, t.params().get(1).doubleValue());
+            assertArrayEquals(ints, (int[]) t.column("a").data());
+            assertArrayEquals(longs, (long[]) t.column("b").data());
+            assertArrayEquals(floats, (float[]) t.column("c").data());
+            assertArrayEquals(doubles, (double[]) t.column("d").data());
+        }
+    }
+
+    @Test void csvConversionMatchesTheCsvWriter() throws Exception {
+        Graph g = ER.generateERFromKAve(3000, 8, 5L);
+        Path csv = dir.resolve("timeseries.csv");
+        Path scol = dir.resolve("timeseries.scol");
+        try (ResultSink sink = ResultSink.csv(csv, RecordSchema.VACSIR_TIME_SERIES)) {
+            for (int itr = 0; itr < 3; itr++) {
+                VacSirResult res = VacSIRSimulator.simulate(g, 0.3, 0.2, 3, 60, 0.1, new int[]{ itr }, 1, 100L + itr);
+                res.writeTimeSeries(sink, itr);
+                res.writeTimeSeriesColumnar(scol, itr);
+            }
+        }
+        Path converted = dir.resolve("converted.csv");
+        ColumnarFile.toCsv(scol, converted);
+        assertEquals(Files.readAllLines(csv), Files.readAllLines(converted));
+    }
+
+    @Test void nodeTimesRoundTripInStoragePrecision() throws Exception {
+        Graph g = ER.generateERFromKAve(2000, 6, 9L);
+        int[] init = { 0, 1, 2 };
+        for (NodeStorage storage : NodeStorage.values()) {
+            Path scol = dir.resolve("nodes_sir_" + storage + ".scol");
+            SirResult sir = FastSIRSimulator.simulate(g, 0.5, 1.0, 50.0, 0.0, 0.0, init, 21L, storage);
+            sir.writeNodeTimesColumnar(scol, 4, 0.5, -1.0, 0.5);
+            assertNodeTimes(scol, sir.tInfect, sir.tRecover, storage);
+            // CSV へ変換するとパラメータ列の後ろは既存の CSV 出力と同じ（NaN は空欄）
+            Path csv = dir.resolve("nodes_sir_" + storage + ".csv");
+            sir.writeNodeTimesCsv(csv);
+            Path converted = dir.resolve("converted_" + storage + ".csv");
+            ColumnarFile.toCsv(scol, converted);
+            assertEquals(Files.readAllLines(csv), Files.readAllLines(converted).stream()
+                    .map(l -> l.split(",", 5)[4]).toList());
+
+            Path sarPath = dir.resolve("nodes_sar_" + storage + ".scol");
+            int[] thresholds = new int[g.n];
+            Arrays.fill(thresholds, 1);
+            SarResult sar = new FastSARSimulator(g, 0.5, 1.0, 50.0, thresholds, 0.0, 0.0, 22L, storage).run(init);
+            sar.writeNodeTimesColumnar(sarPath, 4, 0.5, -1.0, 0.5);
+            assertNodeTimes(sarPath, sar.tInfect, sar.tRecover, storage);
+        }
+    }
+
+    @Test void writerKeepsEverySegmentFromConcurrentThreads() throws Exception {
+        Path path = dir.resolve("concurrent.scol");
+        int segments = 400;
+        // キューを小さくして書き込み待ちのブロックも通す
+        try (ForkJoinPool pool = new ForkJoinPool(8);
+             ColumnarWriter out = new ColumnarWriter(path, 2)) {
+            pool.submit(() -> IntStream.range(0, segments).parallel().forEach(itr -> {
+                int[] counts = new int[100 + itr];
+                Arrays.fill(counts, itr);
+                out.append(new ColumnTable().param("itr", itr).ints("I", counts));
+            })).join();
+        }
+        List<ColumnTable> tables = ColumnarFile.readAll(path);
+        assertEquals(segments, tables.size());
+        Set<Long> seen = new HashSet<>();
+        for (ColumnTable t : tables) {
+            long itr = t.params().get(0).longValue();
+            assertTrue(seen.add(itr), "duplicate segment " + itr);
+            int[] expected = new int[100 + (int) itr];
+            Arrays.fill(expected, (int) itr);
+            assertArrayEquals(expected, (int[]) t.column("I").data());
+        }
+    }
+
+    @Test void writerRejectsAppendsAfterClose() throws Exception {
+        ColumnarWriter out = new ColumnarWriter(dir.resolve("closed.scol"));
+        out.append(new ColumnTable().param("itr", 0).ints("I", new int[]{ 1 }));
+        out.close();
+        assertThrows(IllegalStateException.class, () -> out.append(new ColumnTable().ints("I", new int[]{ 2 })));
+        assertEquals(1, ColumnarFile.readAll(dir.resolve("closed.scol")).size());
+    }
+
+    private static void assertNodeTimes(Path path, NodeTimes tInfect, NodeTimes tRecover, NodeStorage storage) throws Exception {
+        List<ColumnTable> segments = ColumnarFile.readAll(path);
+        assertEquals(1, segments.size());
+        ColumnTable t = segments.get(0);
+        int n = tInfect.size();
+        assertEquals(n, t.rows());
+        assertEquals(4, t.params().get(0).longValue());
+        assertArrayEquals(IntStream.range(0, n).toArray(), (int[]) t.column("node").data());
+        ColumnTable.Type type = storage == NodeStorage.COMPACT ? ColumnTable.Type.FLOAT32 : ColumnTable.Type.FLOAT64;
+        int infected = 0;
+        for (String name : new String[]{ "infected_at", "recovered_at" }) {
+            ColumnTable.Column c = t.column(name);
+            assertEquals(type, c.type(), name);
+            NodeTimes expected = name.equals("infected_at") ? tInfect : tRecover;
+            for (int u = 0; u < n; u++) {
+                assertEquals(Double.doubleToLongBits(expected.get(u)), Double.doubleToLongBits(c.getDouble(u)), name + " of node " + u);
+                if (name.equals("infected_at") && !Double.isNaN(expected.get(u))) infected++;
+            }
+        }
+        assertTrue(infected > 3, "the outbreak should spread");
+    }
+}
@@ -0,0 +1,90 @@
+package sirsim.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultSinkTest {
+    @TempDir Path dir;
+
+    @Test void rowsDoNotDependOnThreadCount() throws Exception {
+        List<String> ref = null;
+        for (int threads : new int[]{ 1, 3, 8 }) {
+            Path path = dir.resolve("rows_" + threads + ".csv");
+            try (ForkJoinPool pool = new ForkJoinPool(threads);
+                 ResultSink sink = ResultSink.csv(path, RecordSchema.FINAL_SIZE)) {
+                pool.submit(() -> IntStream.range(0, 2000).parallel().forEach(i -> {
+                    sink.beginCell();
+                    for (int li = 0; li < 3; li++) sink.row().l(i).d(0.5).d(-1.0).d(0.1 * li).l(i * 7L + li).commit();
+                    sink.endCell(i);
+                })).join();
+            }
+            List<String> lines = Files.readAllLines(path);
+            assertEquals(RecordSchema.FINAL_SIZE.header(), lines.get(0));
+            assertEquals(1 + 3 * 2000, lines.size());
+            // 行の順序はスレッド間で入れ替わるが、集合は同じ
+            List<String> rows = new ArrayList<>(lines.subList(1, lines.size()));
+            Collections.sort(rows);
+            if (ref == null) ref = rows;
+            else assertEquals(ref, rows, threads + " threads");
+        }
+    }
+
+    @Test void committedLengthHoldsOnlyWholeCells() throws Exception {
+        Path path = dir.resolve("cells.csv");
+        List<Long> lengths = new ArrayList<>();
+        List<Long> keys = new ArrayList<>();
+        CommitLog log = (output, length, k, count) -> {
+            synchronized (lengths) {
+                lengths.add(length);
+                for (int i = 0; i < count; i++) keys.add(k[i]);
+            }
+        };
+        try (ResultSink sink = ResultSink.csv(path, RecordSchema.FINAL_SIZE, log)) {
+            for (int i = 0; i < 10; i++) {
+                sink.beginCell();
+                sink.row().l(i).d(0.0).d(0.0).d(0.0).l(i).commit();
+                sink.row().l(i).d(0.0).d(0.0).d(1.0).l(i).commit();
+                sink.endCell(100 + i);
+            }
+            sink.beginCell();
+            sink.row().l(99).d(0.0).d(0.0).d(0.0).l(0).commit();
+            sink.abortCell();
+        }
+        assertEquals(10, keys.size());
+        long last = lengths.get(lengths.size() - 1);
+        assertEquals(Files.size(path), last);
+        assertEquals(1 + 20, Files.readAllLines(path).size());
+    }
+
+    @Test void writerFailureReleasesBlockedProducers() {
+        RecordTarget broken = new RecordTarget() {
+            @Override public void write(long[] slots, int offset, int rows) { throw new IllegalStateException("bad value"); }
+            @Override public void flush() {}
+            @Override public void sync() {}
+            @Override public long position() { return 0; }
+            @Override public void close() {}
+        };
+        ResultSink sink = new ResultSink(broken, RecordSchema.FINAL_SIZE, 4, "broken");
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> {
+                for (int i = 0; i < 10_000; i++) sink.row().l(i).d(0.0).d(0.0).d(0.0).l(i).commit();
+            });
+            assertInstanceOf(IllegalStateException.class, e.getCause().getCause());
+            IOException closed = assertThrows(IOException.class, sink::close);
+            assertInstanceOf(IllegalStateException.class, closed.getCause());
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package sirsim.percolation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sirsim.sweep.Shard;
+import sirsim.sweep.ShardMerge;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KCorePercolationTest {
+    @TempDir Path dir;
+
+    @Test void shardsMergeToTheSingleRunCsv() throws Exception {
+        Path single = dir.resolve("single.csv");
+        KCorePercolation.sweepER_Z(1000, 6.0, 3, 0.4, 1.0, 5, 6, 1L, single);
+        Path sharded = dir.resolve("kcore");
+        for (int i = 0; i < 3; i++) {
+            Shard shard = Shard.parse(i + "/3");
+            KCorePercolation.sweepShardER_Z(1000, 6.0, 3, 0.4, 1.0, 5, 6, 1L, shard, sharded.resolve(shard.dirName()));
+        }
+        Path merged = dir.resolve("merged.csv");
+        KCorePercolation.mergeShards(sharded, merged);
+        assertEquals(Files.readAllLines(single), Files.readAllLines(merged));
+        // 格子の掃引用の結合は k-core のシャードを受け付けない
+        assertThrows(IllegalStateException.class, () -> ShardMerge.merge(sharded, null));
+    }
+}
@@ -0,0 +1,65 @@
+package sirsim.simulation;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastSIRSimulatorTest {
+    private static final Graph G = ER.generateERFromKAve(500, 5, 6L);
+    private static final int[] INIT = { 0 };
+
+    @Test void coupledSingleLambdaMatchesRunDistribution() {
+        // 結合掃引は時計の抽選順が異なるので軌道ごとには一致しないが、最終規模の分布は同じ
+        int runs = 1000;
+        double[] coupled = new double[runs], direct = new double[runs];
+        for (int k = 0; k < runs; k++) {
+            long seed = 1000 + k;
+            FastSIRSimulator.simulateCoupled(G, new double[]{ 0.5 }, 1.0, 20.0, 0.0, 0.0, INIT, seed,
+                    (res, li) -> coupled[(int) (seed - 1000)] = G.n - res.S.get(res.S.size() - 1));
+            SirResult res = FastSIRSimulator.simulate(G, 0.5, 1.0, 20.0, 0.0, 0.0, INIT, seed);
+            direct[k] = G.n - res.S.get(res.S.size() - 1);
+        }
+        double diff = mean(coupled) - mean(direct);
+        double se = Math.sqrt(variance(coupled) / runs + variance(direct) / runs);
+        assertTrue(Math.abs(diff) < 4 * se, () -> String.format("final size differs: %.1f ± %.1f", diff, se));
+        // 大規模流行の割合も一致
+        double pc = fraction(coupled, G.n / 10), pd = fraction(direct, G.n / 10);
+        assertTrue(pc > 0.1 && pd > 0.1, "test needs major outbreaks");
+        assertEquals(pd, pc, 4 * Math.sqrt(pd * (1 - pd) * 2 / runs));
+    }
+
+    @Test void coupledCountsSumToNAtEveryLambda() {
+        double[] lambdas = { 0.0, 0.1, 0.3, 0.6, 1.2 };
+        int[] seen = new int[lambdas.length];
+        FastSIRSimulator.simulateCoupled(G, lambdas, 1.0, 30.0, 0.5, 0.0, new int[]{ 1, 2, 2 }, 3L, (res, li) -> {
+            seen[li]++;
+            assertEquals(res.times.size(), res.S.size());
+            for (int i = 0; i < res.S.size(); i++) {
+                assertEquals(G.n, res.S.get(i) + res.I.get(i) + res.R.get(i), "lambda " + lambdas[li] + " at " + i);
+                if (i > 0) assertTrue(res.times.get(i) >= res.times.get(i - 1));
+            }
+            assertTrue(res.times.get(res.times.size() - 1) < 30.0);
+        });
+        assertArrayEquals(new int[]{ 1, 1, 1, 1, 1 }, seen);
+    }
+
+    private static double fraction(double[] x, double threshold) {
+        int c = 0;
+        for (double v : x) if (v >= threshold) c++;
+        return c / (double) x.length;
+    }
+
+    private static double mean(double[] x) {
+        double s = 0;
+        for (double v : x) s += v;
+        return s / x.length;
+    }
+
+    private static double variance(double[] x) {
+        double m = mean(x), s = 0;
+        for (double v : x) s += (v - m) * (v - m);
+        return s / (x.length - 1);
+    }
+}
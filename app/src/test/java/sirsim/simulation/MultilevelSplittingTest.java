@@ -0,0 +1,84 @@
+package sirsim.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultilevelSplittingTest {
+    private static final double Q = 0.5;
+
+    /** 各ステップで確率 Q で1増え、それ以外は終了する計数過程：P(score >= L) = Q^L */
+    private static final class Counter implements MultilevelSplitting.Process<Integer> {
+        private final AtomicLong runs;
+        private SplittableRandom rng;
+        private int count;
+        private boolean alive;
+
+        Counter(AtomicLong runs) { this.runs = runs; }
+
+        @Override public void start(long seed) { restore(0, seed); }
+
+        @Override public void restore(Integer snapshot, long seed) {
+            runs.incrementAndGet();
+            count = snapshot;
+            alive = true;
+            rng = new SplittableRandom(seed);
+        }
+
+        @Override public Integer snapshot() { return count; }
+
+        @Override public boolean step() {
+            if (!alive) return false;
+            if (rng.nextDouble() < Q) count++;
+            else alive = false;
+            return alive;
+        }
+
+        @Override public double score() { return count; }
+    }
+
+    private static MultilevelSplitting.Estimate estimate(int threads) {
+        // 水準 2, 4, ..., 20：各段の条件付き確率は Q^2 = 1/4、全体は 2^-20 ≈ 9.5e-7
+        double[] levels = new double[10];
+        for (int i = 0; i < levels.length; i++) levels[i] = 2 * (i + 1);
+        MultilevelSplitting.Settings s = new MultilevelSplitting.Settings(levels, 1000, 20, 42L);
+        try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+            return MultilevelSplitting.estimate(pool, s, () -> new Counter(new AtomicLong()));
+        }
+    }
+
+    @Test void matchesTheClosedFormProbability() {
+        MultilevelSplitting.Estimate e = estimate(4);
+        double exact = Math.pow(Q, 20);
+        assertEquals(exact, e.probability(), 4 * e.stdErr());
+        assertTrue(e.stdErr() < 0.2 * exact, "relative error " + e.stdErr() / exact);
+        for (double p : e.levelProbabilities()) assertEquals(Q * Q, p, 0.02);
+        assertEquals(20L * 1000 * 10, e.runs());
+        // 同じ試行数の単純モンテカルロでは事象がほぼ観測されない
+        assertTrue(e.varianceReduction() > 100);
+    }
+
+    @Test void doesNotDependOnThreadCount() {
+        MultilevelSplitting.Estimate a = estimate(1);
+        MultilevelSplitting.Estimate b = estimate(3);
+        assertEquals(a.probability(), b.probability());
+        assertArrayEquals(a.levelProbabilities(), b.levelProbabilities());
+    }
+
+    @Test void runsCountOnlyTheStagesActuallyRun() {
+        // 努力量 2 で段ごとの確率 1/2：多くの複製が途中の段で命中なしになり打ち切られる
+        AtomicLong runs = new AtomicLong();
+        MultilevelSplitting.Settings s = new MultilevelSplitting.Settings(new double[]{ 1, 2, 3, 4, 5, 6 }, 2, 40, 7L);
+        MultilevelSplitting.Estimate e;
+        try (ForkJoinPool pool = new ForkJoinPool(3)) {
+            e = MultilevelSplitting.estimate(pool, s, () -> new Counter(runs));
+        }
+        assertEquals(runs.get(), e.runs());
+        assertTrue(e.runs() < 40L * 2 * 6, "some replicates stop early: " + e.runs());
+        assertTrue(e.runs() >= 40L * 2);
+    }
+}
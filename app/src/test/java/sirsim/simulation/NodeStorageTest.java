@@ -0,0 +1,53 @@
+package sirsim.simulation;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeStorageTest {
+    private static final Graph G = ER.generateERFromKAve(3000, 8, 2L);
+    private static final int[] INIT = { 7, 11 };
+
+    @Test void packedStatesRoundTrip() {
+        NodeStates packed = NodeStates.packed(100);
+        NodeStates bytes = NodeStates.bytes(100);
+        packed.fill(2);
+        bytes.fill(2);
+        for (int u = 0; u < 100; u += 3) {
+            packed.set(u, u % 4);
+            bytes.set(u, u % 4);
+        }
+        for (int u = 0; u < 100; u++) assertEquals(bytes.get(u), packed.get(u), "node " + u);
+        assertTrue(packed.bytesUsed() < bytes.bytesUsed());
+    }
+
+    @Test void floatTimesMatchTheirRoundedProbe() {
+        NodeTimes t = NodeTimes.floats(1);
+        t.set(0, 0.1);
+        assertTrue(t.matches(0, 0.1));
+        assertFalse(t.matches(0, 0.1 + 1e-6));
+    }
+
+    @Test void compactStorageKeepsSirTrajectory() {
+        SirResult a = FastSIRSimulator.simulate(G, 0.3, 1.0, 100.0, 0.0, 0.0, INIT, 5L, NodeStorage.STANDARD);
+        SirResult b = FastSIRSimulator.simulate(G, 0.3, 1.0, 100.0, 0.0, 0.0, INIT, 5L, NodeStorage.COMPACT);
+        assertTrue(a.R.get(a.R.size() - 1) > G.n / 10, "test needs a major outbreak");
+        assertEquals(a.S, b.S);
+        assertEquals(a.I, b.I);
+        assertEquals(a.R, b.R);
+    }
+
+    @Test void compactStorageKeepsSarTrajectory() {
+        int[] thresholds = new int[G.n];
+        Arrays.fill(thresholds, 1);
+        SarResult a = FastSARSimulator.simulate(G, 0.3, 1.0, 100.0, thresholds, 0.0, 0.0, INIT, 5L, NodeStorage.STANDARD);
+        SarResult b = FastSARSimulator.simulate(G, 0.3, 1.0, 100.0, thresholds, 0.0, 0.0, INIT, 5L, NodeStorage.COMPACT);
+        assertEquals(a.S, b.S);
+        assertEquals(a.A, b.A);
+        assertEquals(a.R, b.R);
+    }
+}
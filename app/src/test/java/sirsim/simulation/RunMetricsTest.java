@@ -0,0 +1,65 @@
+package sirsim.simulation;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunMetricsTest {
+    private static final Graph G = ER.generateERFromKAve(3000, 8, 2L);
+    private static final int[] INIT = { 0, 1, 2 };
+
+    @Test void sirCountersAreConsistentWithTheResult() {
+        FastSIRSimulator sim = new FastSIRSimulator(G, 0.4, 1.0, 100.0, 0.0, 0.0, 5L);
+        for (double lambda : new double[]{ 0.05, 0.4, 1.0 }) {
+            SirResult res = sim.reset(lambda, 0.0, 0.0, 5L).run(INIT);
+            RunMetrics m = sim.metrics();
+            assertEquals(G.n - res.S.get(res.S.size() - 1), m.finalSize(), "lambda=" + lambda);
+            assertConsistent(m, INIT.length);
+        }
+    }
+
+    @Test void sarCountersAreConsistentWithTheResult() {
+        int[] thresholds = new int[G.n];
+        Arrays.fill(thresholds, 1);
+        FastSARSimulator sim = new FastSARSimulator(G, 0.4, 1.0, 100.0, thresholds, 0.0, 0.0, 5L);
+        for (double lambda : new double[]{ 0.05, 0.4, 1.0 }) {
+            SarResult res = sim.reset(lambda, 0.0, 0.0, 5L).run(INIT);
+            RunMetrics m = sim.metrics();
+            assertEquals(G.n - res.S.get(res.S.size() - 1), m.finalSize(), "lambda=" + lambda);
+            assertConsistent(m, INIT.length);
+        }
+    }
+
+    @Test void countersStartOverAfterReset() {
+        // 大規模流行の後に同じ設定をやり直すと、新しいシミュレータと同じカウンタになる（所要時間を除く）
+        FastSIRSimulator fresh = new FastSIRSimulator(G, 0.2, 1.0, 100.0, 0.0, 0.0, 9L);
+        fresh.run(INIT);
+        RunMetrics expected = fresh.metrics();
+
+        FastSIRSimulator reused = new FastSIRSimulator(G, 1.0, 1.0, 100.0, 0.0, 0.0, 3L);
+        reused.run(INIT);
+        assertTrue(reused.metrics().finalSize() > expected.finalSize(), "the first run should be larger");
+        reused.reset(0.2, 0.0, 0.0, 9L).run(INIT);
+        RunMetrics m = reused.metrics();
+        assertEquals(expected.eventsProcessed(), m.eventsProcessed());
+        assertEquals(expected.staleEvents(), m.staleEvents());
+        assertEquals(expected.peakQueue(), m.peakQueue());
+        assertEquals(expected.transmissionsAttempted(), m.transmissionsAttempted());
+        assertEquals(expected.transmissionsAccepted(), m.transmissionsAccepted());
+        assertEquals(expected.finalSize(), m.finalSize());
+    }
+
+    private static void assertConsistent(RunMetrics m, int seeds) {
+        assertTrue(m.transmissionsAccepted() <= m.transmissionsAttempted(), "accepted <= attempted");
+        // 初期感染者以外の感染はどれも受理された伝播による
+        assertTrue(m.transmissionsAccepted() >= m.finalSize() - seeds, "accepted >= infections");
+        assertTrue(m.eventsProcessed() >= m.finalSize(), "every infection is processed");
+        assertTrue(m.peakQueue() > 0);
+        assertTrue(m.acceptance() >= 0 && m.acceptance() <= 1);
+        assertTrue(m.staleFraction() >= 0 && m.staleFraction() < 1);
+    }
+}
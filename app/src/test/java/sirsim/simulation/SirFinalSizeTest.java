@@ -0,0 +1,46 @@
+package sirsim.simulation;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SirFinalSizeTest {
+    private static final Graph G = ER.generateERFromKAve(2000, 6, 4L);
+    private static final int[] INIT = { 3, 17 };
+    private static final double[] LAMBDAS = { 0.0, 0.05, 0.1, 0.15, 0.2, 0.25, 0.3, 0.4, 0.6, 1.0 };
+
+    @Test void matchesTheCoupledSweepWithoutTimeLimit() {
+        // 同じシードなら同じ時計：tMax = ∞ の結合掃引の最終 R とすべての λ で一致
+        for (double[] ab : new double[][]{ { 0.0, 0.0 }, { 0.5, -0.5 } }) {
+            for (long seed = 1; seed <= 5; seed++) {
+                int[] sizes = SirFinalSize.simulate(G, LAMBDAS, 1.0, ab[0], ab[1], INIT, seed);
+                int[] coupled = new int[LAMBDAS.length];
+                FastSIRSimulator.simulateCoupled(G, LAMBDAS, 1.0, Double.POSITIVE_INFINITY, ab[0], ab[1], INIT, seed,
+                        (res, li) -> coupled[li] = res.R.get(res.R.size() - 1));
+                assertArrayEquals(coupled, sizes, "seed " + seed);
+            }
+        }
+    }
+
+    @Test void sizesNeverDecreaseWithLambda() {
+        for (long seed = 1; seed <= 20; seed++) {
+            int[] sizes = SirFinalSize.simulate(G, LAMBDAS, 1.0, 0.0, 0.0, INIT, seed);
+            assertEquals(INIT.length, sizes[0], "only the seeds at lambda = 0");
+            for (int i = 1; i < sizes.length; i++) assertTrue(sizes[i] >= sizes[i - 1], "seed " + seed + " at " + LAMBDAS[i]);
+        }
+        // 大きな λ では大規模流行が起こる
+        assertTrue(SirFinalSize.simulate(G, new double[]{ 1.0 }, 1.0, 0.0, 0.0, INIT, 1L)[0] > G.n / 2);
+    }
+
+    @Test void criticalLambdasMarkSeedsAndUnreachableNodes() {
+        SirFinalSize fs = new SirFinalSize(G, 1.0, 0.0, 0.0, 9L);
+        double[] crit = fs.criticalLambdas(INIT);
+        assertEquals(Double.NEGATIVE_INFINITY, crit[INIT[0]]);
+        for (int u = 0; u < G.n; u++) {
+            if (G.degree(u) == 0 && u != INIT[0] && u != INIT[1]) assertEquals(Double.POSITIVE_INFINITY, crit[u]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> fs.criticalLambdas(new int[]{ G.n }));
+    }
+}
@@ -0,0 +1,69 @@
+package sirsim.simulation;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VacSIREnsembleTest {
+    @Test void matchesSequentialDistributionWithBindingCap() {
+        // 接種上限が流行中に尽きる設定で、ビットスライスの各レーンが逐次モデルと同じ分布になるか（r = 1 と リング接種 r = 3）
+        Graph g = ER.generateERFromKAve(2000, 6, 3L);
+        int groups = 6, runs = groups * VacSIREnsemble.MAX_LANES;
+        int cap = (int) Math.floor(0.02 * g.n);
+        for (int r : new int[]{ 1, 3 }) {
+            double[] seqSize = new double[runs], ensSize = new double[runs];
+            double[] seqVac = new double[runs], ensVac = new double[runs];
+            int capped = 0;
+            for (int b = 0; b < groups; b++) {
+                int[][] init = new int[VacSIREnsemble.MAX_LANES][];
+                for (int k = 0; k < init.length; k++) init[k] = new int[]{ (b * init.length + k) % g.n };
+                VacSirResult[] ens = VacSIREnsemble.simulate(g, 0.5, 0.25, 2, 100, 0.02, init, r, 700L + b);
+                for (int k = 0; k < init.length; k++) {
+                    int j = b * init.length + k;
+                    VacSirResult seq = VacSIRSimulator.simulate(g, 0.5, 0.25, 2, 100, 0.02, init[k], r, 100 + j);
+                    assertCountsSumToN(ens[k], g.n);
+                    seqSize[j] = seq.I[100] + seq.R[100];
+                    ensSize[j] = ens[k].I[100] + ens[k].R[100];
+                    seqVac[j] = seq.V[100];
+                    ensVac[j] = ens[k].V[100];
+                    if (ens[k].V[100] >= cap) capped++;
+                }
+            }
+            assertTrue(capped > runs / 10, "the cap should bind in many lanes, got " + capped);
+            assertSameMean("r=" + r + " final size", seqSize, ensSize);
+            assertSameMean("r=" + r + " vaccinations", seqVac, ensVac);
+        }
+    }
+
+    @Test void rejectsMoreThan64Realizations() {
+        Graph g = ER.generateERFromKAve(100, 4, 1L);
+        assertThrows(IllegalArgumentException.class,
+                () -> VacSIREnsemble.simulate(g, 0.5, 0.25, 2, 10, 0.1, new int[65][], 1, 1L));
+    }
+
+    private static void assertSameMean(String what, double[] a, double[] b) {
+        double diff = mean(b) - mean(a);
+        double se = Math.sqrt(variance(a) / a.length + variance(b) / b.length);
+        assertTrue(Math.abs(diff) < 4 * se, () -> String.format("%s differs: %.2f ± %.2f", what, diff, se));
+    }
+
+    private static double mean(double[] x) {
+        double s = 0;
+        for (double v : x) s += v;
+        return s / x.length;
+    }
+
+    private static double variance(double[] x) {
+        double m = mean(x), s = 0;
+        for (double v : x) s += (v - m) * (v - m);
+        return s / (x.length - 1);
+    }
+
+    private static void assertCountsSumToN(VacSirResult res, int n) {
+        for (int t = 0; t < res.S.length; t++) {
+            assertEquals(n, res.S[t] + res.I[t] + res.V[t] + res.R[t], "S+I+V+R at t=" + t);
+        }
+    }
+}
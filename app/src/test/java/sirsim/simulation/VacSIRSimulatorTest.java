@@ -0,0 +1,154 @@
+package sirsim.simulation;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VacSIRSimulatorTest {
+    // 大規模流行で1ステップの変化が n / 16 を超え、全配列カーネルの経路に入る大きさ
+    private static final Graph G = ER.generateERFromKAve(20_000, 10, 1L);
+    private static final int[] INIT = { 0, 1, 2, 3, 4 };
+
+    @Test void countsSumToNInParallelMode() {
+        try (ForkJoinPool pool = new ForkJoinPool(4)) {
+            for (int r = 1; r <= 2; r++) {
+                VacSirResult res = VacSIRSimulator.simulateParallel(G, 0.05, 0.3, 3, 60, 0.2, INIT, r, 11L, pool);
+                assertCountsSumToN(res, G.n);
+                assertTrue(res.R[60] > G.n / 16, "outbreak should reach the dense path");
+            }
+        }
+    }
+
+    @Test void countsSumToNInSequentialMode() {
+        for (int r = 1; r <= 2; r++) {
+            VacSirResult res = VacSIRSimulator.simulate(G, 0.05, 0.3, 3, 60, 0.2, INIT, r, 11L);
+            assertCountsSumToN(res, G.n);
+            assertTrue(res.R[60] > G.n / 16, "outbreak should reach the dense path");
+        }
+    }
+
+    @Test void parallelTrajectoryDoesNotDependOnThreadCount() {
+        VacSirResult ref = null;
+        for (int threads : new int[]{ 1, 3, 8 }) {
+            try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+                VacSirResult res = VacSIRSimulator.simulateParallel(G, 0.1, 0.3, 3, 60, 0.05, INIT, 2, 5L, pool);
+                if (ref == null) {
+                    ref = res;
+                    continue;
+                }
+                assertArrayEquals(ref.S, res.S, threads + " threads");
+                assertArrayEquals(ref.I, res.I, threads + " threads");
+                assertArrayEquals(ref.V, res.V, threads + " threads");
+                assertArrayEquals(ref.R, res.R, threads + " threads");
+            }
+        }
+    }
+
+    @Test void parallelModeMatchesSequentialDistributionWithRingAndCap() {
+        // 接種上限がリング接種ですぐ尽きる設定：上限到達後の扱いが逐次モデルと同じ分布になるか
+        Graph g = ER.generateERFromKAve(2000, 6, 3L);
+        int runs = 400;
+        double[] seq = new double[runs], par = new double[runs];
+        try (ForkJoinPool pool = new ForkJoinPool(4)) {
+            for (int k = 0; k < runs; k++) {
+                int[] init = { k % g.n };
+                VacSirResult a = VacSIRSimulator.simulate(g, 0.5, 0.25, 2, 100, 0.02, init, 3, 100 + k);
+                VacSirResult b = VacSIRSimulator.simulateParallel(g, 0.5, 0.25, 2, 100, 0.02, init, 3, 100 + k, pool);
+                seq[k] = a.I[100] + a.R[100];
+                par[k] = b.I[100] + b.R[100];
+            }
+        }
+        double diff = mean(par) - mean(seq);
+        double se = Math.sqrt(variance(seq) / runs + variance(par) / runs);
+        assertTrue(Math.abs(diff) < 4 * se, () -> String.format("final size differs: %.1f ± %.1f", diff, se));
+    }
+
+    @Test void capCrossingStepKeepsInfectionsFromLargerSources() {
+        // 1ステップで接種上限を越える設定：接種を断られたノードは、逐次モデルと同様に
+        // 後の（番号の大きい）感染源の感染抽選でも感染する
+        Graph g = ER.generateERFromKAve(2000, 6, 8L);
+        int[] init = new int[300];
+        for (int u = 0; u < init.length; u++) init[u] = u * 6;
+        int runs = 300;
+        double[] seq = new double[runs], par = new double[runs];
+        try (ForkJoinPool pool = new ForkJoinPool(4)) {
+            for (int r = 1; r <= 2; r++) {
+                for (int k = 0; k < runs; k++) {
+                    VacSirResult a = VacSIRSimulator.simulate(g, 0.5, 0.5, 5, 1, 0.05, init, r, 500 + k);
+                    VacSirResult b = VacSIRSimulator.simulateParallel(g, 0.5, 0.5, 5, 1, 0.05, init, r, 500 + k, pool);
+                    assertEquals(a.V[1], b.V[1], "the cap binds in both modes");
+                    seq[k] = a.I[1];
+                    par[k] = b.I[1];
+                }
+                double diff = mean(par) - mean(seq);
+                double se = Math.sqrt(variance(seq) / runs + variance(par) / runs);
+                int radius = r;
+                assertTrue(Math.abs(diff) < 4 * se, () -> String.format("r=%d: infections differ: %.1f ± %.1f", radius, diff, se));
+            }
+        }
+    }
+
+    @Test void steppingMatchesRun() {
+        VacSirResult res = new VacSIRSimulator(G, 0.05, 0.3, 3, 60, 0.2, 2, 11L).run(INIT);
+        VacSIRSimulator sim = new VacSIRSimulator(G, 0.05, 0.3, 3, 60, 0.2, 2, 11L);
+        sim.start(INIT);
+        do {
+            int t = sim.time();
+            assertEquals(res.I[t], sim.infectedCount(), "I at t=" + t);
+            assertEquals(res.V[t], sim.vaccinatedCount(), "V at t=" + t);
+            assertEquals(res.I[t] + res.R[t], sim.cumulativeInfections(), "I+R at t=" + t);
+        } while (sim.step());
+    }
+
+    @Test void restoreAfterALargerTrajectoryMatchesAFreshSimulator() {
+        // 大規模流行で多くのノードに触れた後でも、触れたノードだけの初期化で新しいシミュレータと同じ軌道になるか
+        VacSIRSimulator used = new VacSIRSimulator(G, 0.05, 0.3, 3, 60, 0.2, 2, 11L);
+        used.start(INIT);
+        for (int k = 0; k < 3; k++) used.step();
+        VacSIRSimulator.Snapshot snap = used.snapshot();
+        while (used.step()) { }
+        assertTrue(used.cumulativeInfections() > G.n / 16, "outbreak should be large");
+
+        used.restore(snap, 99L);
+        assertEquals(snap.time(), used.time());
+        assertEquals(snap.size(), used.snapshot().size());
+        List<Integer> reused = trajectory(used);
+        VacSIRSimulator fresh = new VacSIRSimulator(G, 0.05, 0.3, 3, 60, 0.2, 2, 11L);
+        fresh.restore(snap, 99L);
+        assertEquals(trajectory(fresh), reused);
+    }
+
+    private static List<Integer> trajectory(VacSIRSimulator sim) {
+        List<Integer> counts = new ArrayList<>();
+        do {
+            counts.add(sim.infectedCount());
+            counts.add(sim.vaccinatedCount());
+            counts.add(sim.cumulativeInfections());
+        } while (sim.step());
+        return counts;
+    }
+
+    private static double mean(double[] x) {
+        double s = 0;
+        for (double v : x) s += v;
+        return s / x.length;
+    }
+
+    private static double variance(double[] x) {
+        double m = mean(x), s = 0;
+        for (double v : x) s += (v - m) * (v - m);
+        return s / (x.length - 1);
+    }
+
+    private static void assertCountsSumToN(VacSirResult res, int n) {
+        for (int t = 0; t < res.S.length; t++) {
+            assertEquals(n, res.S[t] + res.I[t] + res.V[t] + res.R[t], "S+I+V+R at t=" + t);
+        }
+    }
+}
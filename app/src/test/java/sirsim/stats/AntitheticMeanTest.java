@@ -0,0 +1,35 @@
+package sirsim.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AntitheticMeanTest {
+    @Test void monotoneOutputOnUniforms() {
+        // f(u) = u^2: E = 1/3、Var = 4/45。対の平均 u^2 - u + 1/2 の分散は 1/180 なので
+        // 独立2回の平均（分散 2/45）に対する削減率は 8
+        SplittableRandom rng = new SplittableRandom(3L);
+        AntitheticMean am = new AntitheticMean();
+        for (int i = 0; i < 100_000; i++) {
+            double u = rng.nextDouble();
+            am.add(u * u, (1 - u) * (1 - u));
+        }
+        ReducedEstimate e = am.estimate();
+        assertEquals(100_000, am.pairs());
+        assertEquals(200_000, e.samples());
+        assertEquals(Math.sqrt(1.0 / 180 / 100_000), e.stdErr(), 1e-6);
+        assertEquals(1.0 / 3, e.mean(), 4 * e.stdErr());
+        assertEquals(8.0, e.varianceReduction(), 0.4);
+    }
+
+    @Test void constantOutputHasNoReduction() {
+        AntitheticMean am = new AntitheticMean();
+        for (int i = 0; i < 10; i++) am.add(2.0, 2.0);
+        ReducedEstimate e = am.estimate();
+        assertEquals(2.0, e.mean());
+        assertEquals(0.0, e.stdErr());
+        assertEquals(1.0, e.varianceReduction());
+    }
+}
@@ -0,0 +1,50 @@
+package sirsim.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControlVariatesTest {
+    @Test void removesTheExplainedVariance() {
+        // y = x + e、x ~ U(0,1)（E[x] = 1/2 が既知）、e ~ N(0, 0.1^2)：E[y] = 1/2、
+        // 残差分散 0.01 なので削減率は (1/12 + 0.01) / 0.01 ≈ 9.33。定数の制御変量は係数 0 で無視される
+        SplittableRandom rng = new SplittableRandom(4L);
+        ControlVariates cv = new ControlVariates(2);
+        int n = 50_000;
+        for (int i = 0; i < n; i++) {
+            double x = rng.nextDouble();
+            double e = 0.1 * gaussian(rng);
+            cv.add(x + e, x - 0.5, 0.0);
+        }
+        ReducedEstimate est = cv.estimate();
+        assertEquals(n, cv.count());
+        assertEquals(n, est.samples());
+        assertEquals(0.1 / Math.sqrt(n), est.stdErr(), 0.02 * 0.1 / Math.sqrt(n));
+        assertEquals(0.5, est.mean(), 4 * est.stdErr());
+        assertEquals((1.0 / 12 + 0.01) / 0.01, est.varianceReduction(), 0.3);
+    }
+
+    @Test void exactLinearOutputGivesTheExactMean() {
+        // y = 3 + 2 (x - E[x]) は制御変量で完全に説明される
+        SplittableRandom rng = new SplittableRandom(5L);
+        ControlVariates cv = new ControlVariates(1);
+        for (int i = 0; i < 100; i++) {
+            double x = rng.nextDouble(2.0);
+            cv.add(3 + 2 * (x - 1.0), x - 1.0);
+        }
+        assertEquals(3.0, cv.estimate().mean(), 1e-12);
+    }
+
+    @Test void rejectsWrongControlCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ControlVariates(0));
+        ControlVariates cv = new ControlVariates(2);
+        assertThrows(IllegalArgumentException.class, () -> cv.add(1.0, 0.0));
+    }
+
+    private static double gaussian(SplittableRandom rng) {
+        // Box-Muller
+        return Math.sqrt(-2 * Math.log(1 - rng.nextDouble())) * Math.cos(2 * Math.PI * rng.nextDouble());
+    }
+}
@@ -0,0 +1,61 @@
+package sirsim.stats;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.simulation.FastSIRSimulator;
+import sirsim.simulation.SirResult;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurveAggregatorTest {
+    private static final Graph G = ER.generateERFromKAve(2000, 6, 1L);
+
+    private static SirResult run(int itr) {
+        return FastSIRSimulator.simulate(G, 0.5, 1.0, 20.0, 0.0, 0.0, new int[]{ itr }, 100L + itr);
+    }
+
+    private static String summary(CurveAggregator agg) {
+        StringWriter sw = new StringWriter();
+        try (PrintWriter out = new PrintWriter(sw)) {
+            agg.writeSummaryRows(out, "");
+        }
+        return sw.toString();
+    }
+
+    @Test void mergedThreadCopiesEqualOneAggregator() {
+        CurveAggregator all = CurveAggregator.forSir(20.0, 0.5, 0.01);
+        CurveAggregator a = all.emptyCopy(), b = all.emptyCopy();
+        for (int itr = 0; itr < 40; itr++) {
+            SirResult res = run(itr);
+            all.add(res);
+            (itr % 3 == 0 ? a : b).add(res);
+        }
+        a.merge(b);
+        assertEquals(40, a.runs());
+        for (int s = 0; s < 3; s++) {
+            for (int bin = 0; bin < all.bins(); bin++) {
+                assertEquals(all.stats(s, bin).mean(), a.stats(s, bin).mean(), 1e-9);
+                assertEquals(all.stats(s, bin).variance(), a.stats(s, bin).variance(), 1e-6);
+                assertEquals(all.sketch(s, bin).quantile(0.5), a.sketch(s, bin).quantile(0.5));
+            }
+        }
+        // 各時刻で S + I + R = n
+        for (int bin = 0; bin < all.bins(); bin++) {
+            double total = all.stats(0, bin).mean() + all.stats(1, bin).mean() + all.stats(2, bin).mean();
+            assertEquals(G.n, total, 1e-6);
+        }
+    }
+
+    @Test void quantilesAreOptIn() {
+        CurveAggregator agg = CurveAggregator.forSir(20.0, 1.0, 0.0);
+        for (int itr = 0; itr < 5; itr++) agg.add(run(itr));
+        assertNull(agg.sketch(0, 0));
+        String first = summary(agg).lines().findFirst().orElseThrow();
+        assertTrue(first.endsWith(",NaN,NaN,NaN,NaN,NaN"), first);
+        assertEquals(21 * 3, summary(agg).lines().count());
+    }
+}
@@ -0,0 +1,57 @@
+package sirsim.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+    private static final double[] QS = { 0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99 };
+
+    /** The estimate of each quantile is within the relative accuracy of the exact sample quantile (same rank rule). */
+    private static void assertRelativeError(double[] xs, QuantileSketch sk, double a) {
+        double[] sorted = xs.clone();
+        Arrays.sort(sorted);
+        for (double q : QS) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            assertEquals(exact, sk.quantile(q), a * Math.abs(exact) + 1e-12, "q=" + q);
+        }
+    }
+
+    @Test void quantilesWithinRelativeAccuracy() {
+        SplittableRandom rng = new SplittableRandom(3L);
+        // 裾の重い対数正規分布（桁をまたぐ値）と、負・ゼロを含む分布
+        double[] logNormal = new double[50_000];
+        for (int i = 0; i < logNormal.length; i++) logNormal[i] = Math.exp(2 * rng.nextGaussian());
+        double[] mixed = new double[50_000];
+        for (int i = 0; i < mixed.length; i++) mixed[i] = i % 10 == 0 ? 0.0 : rng.nextGaussian() * 100;
+        for (double a : new double[]{ 0.01, 0.05 }) {
+            for (double[] xs : new double[][]{ logNormal, mixed }) {
+                QuantileSketch sk = new QuantileSketch(a);
+                for (double x : xs) sk.add(x);
+                assertEquals(xs.length, sk.count());
+                assertRelativeError(xs, sk, a);
+            }
+        }
+    }
+
+    @Test void mergeIsExact() {
+        SplittableRandom rng = new SplittableRandom(4L);
+        double[] xs = new double[20_000];
+        for (int i = 0; i < xs.length; i++) xs[i] = rng.nextInt(100_000);
+        QuantileSketch all = new QuantileSketch(0.01);
+        QuantileSketch[] parts = { new QuantileSketch(0.01), new QuantileSketch(0.01), new QuantileSketch(0.01) };
+        for (int i = 0; i < xs.length; i++) {
+            all.add(xs[i]);
+            parts[i % 3].add(xs[i]);
+        }
+        QuantileSketch merged = new QuantileSketch(0.01);
+        for (QuantileSketch p : parts) merged.merge(p);
+        for (double q : QS) assertEquals(all.quantile(q), merged.quantile(q), "q=" + q);
+        assertEquals(all.min(), merged.min());
+        assertEquals(all.max(), merged.max());
+        assertThrows(IllegalArgumentException.class, () -> merged.merge(new QuantileSketch(0.02)));
+    }
+}
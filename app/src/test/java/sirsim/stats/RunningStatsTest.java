@@ -0,0 +1,53 @@
+package sirsim.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunningStatsTest {
+    @Test void matchesTwoPassMoments() {
+        // 大きなオフセットで単純な sum/sumsq は桁落ちするが Welford は正確
+        double[] us = new SplittableRandom(1L).doubles(10_000).toArray();
+        RunningStats st = new RunningStats();
+        for (double u : us) st.add(1e9 + u);
+        double mean = 0.0;
+        for (double u : us) mean += u / us.length;
+        double ss = 0.0;
+        for (double u : us) ss += (u - mean) * (u - mean);
+        assertEquals(us.length, st.count());
+        assertEquals(1e9 + mean, st.mean(), 1e-5);
+        assertEquals(ss / (us.length - 1), st.variance(), 1e-6);
+        assertEquals(1.0 / 12, st.variance(), 0.005);
+    }
+
+    @Test void chanMergeEqualsSequentialAdd() {
+        SplittableRandom rng = new SplittableRandom(2L);
+        RunningStats all = new RunningStats();
+        RunningStats merged = new RunningStats();
+        // 大きさの違う部分集合（空を含む）を順に併合
+        for (int size : new int[]{ 0, 1, 7, 1000, 3, 0, 250 }) {
+            RunningStats part = new RunningStats();
+            for (int i = 0; i < size; i++) {
+                double x = rng.nextGaussian() * 3 + size;
+                part.add(x);
+                all.add(x);
+            }
+            merged.merge(part);
+        }
+        assertEquals(all.count(), merged.count());
+        assertEquals(all.mean(), merged.mean(), 1e-12);
+        assertEquals(all.variance(), merged.variance(), 1e-9);
+        assertEquals(all.min(), merged.min());
+        assertEquals(all.max(), merged.max());
+    }
+
+    @Test void emptyAndSingleton() {
+        RunningStats st = new RunningStats();
+        assertTrue(Double.isNaN(st.mean()));
+        st.add(4.0);
+        assertEquals(4.0, st.mean());
+        assertTrue(Double.isNaN(st.variance()));
+    }
+}
@@ -0,0 +1,44 @@
+package sirsim.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StratifiedMeanTest {
+    @Test void proportionalAllocationRemovesBetweenStrataVariance() {
+        // 重み 1:3 の2層、層0 ~ U(0,1)、層1 ~ 10 + U(0,1)：母平均 0.25 * 0.5 + 0.75 * 10.5 = 8。
+        // 比例配分（2500 / 7500）で層化分散は (1/12) / 10000、単純無作為抽出は (1/12 + 0.25 * 0.75 * 100) / 10000
+        SplittableRandom rng = new SplittableRandom(6L);
+        StratifiedMean sm = new StratifiedMean(new double[]{ 1, 3 });
+        for (int i = 0; i < 2500; i++) sm.add(0, rng.nextDouble());
+        for (int i = 0; i < 7500; i++) sm.add(1, 10 + rng.nextDouble());
+        ReducedEstimate e = sm.estimate();
+        assertEquals(10_000, e.samples());
+        assertEquals(Math.sqrt(1.0 / 12 / 10_000), e.stdErr(), 0.03 * Math.sqrt(1.0 / 12 / 10_000));
+        assertEquals(8.0, e.mean(), 4 * e.stdErr());
+        double expected = (1.0 / 12 + 18.75) / (1.0 / 12);
+        assertEquals(expected, e.varianceReduction(), 0.05 * expected);
+    }
+
+    @Test void zeroWeightStrataAreIgnored() {
+        StratifiedMean sm = new StratifiedMean(new double[]{ 0, 1 });
+        sm.add(1, 1.0);
+        sm.add(1, 3.0);
+        assertEquals(2.0, sm.estimate().mean());
+    }
+
+    @Test void undersampledStratumGivesNaN() {
+        StratifiedMean sm = new StratifiedMean(new double[]{ 1, 1 });
+        sm.add(0, 1.0);
+        sm.add(0, 2.0);
+        sm.add(1, 5.0);
+        assertTrue(Double.isNaN(sm.estimate().stdErr()));
+    }
+
+    @Test void rejectsInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new StratifiedMean(new double[]{ 1, -1 }));
+        assertThrows(IllegalArgumentException.class, () -> new StratifiedMean(new double[]{ 0, 0 }));
+    }
+}
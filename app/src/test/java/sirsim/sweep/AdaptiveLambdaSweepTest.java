@@ -0,0 +1,45 @@
+package sirsim.sweep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLambdaSweepTest {
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    @Test void budgetBelowTheCoarseGridIsDealtToEveryPoint() {
+        // 10 点 × minTrials 10 に対して予算 35：λ の小さい側だけが埋まらず、各点 3〜4 試行
+        AdaptiveLambdaSweep.Settings s = new AdaptiveLambdaSweep.Settings(0.0, 1.0, 10, 0.01, 0.1, 10, 100, 0.01, 35);
+        List<AdaptiveLambdaSweep.Point> points = AdaptiveLambdaSweep.run(POOL, s, new double[0], Object::new,
+                (state, lambda, trial) -> lambda);
+        assertEquals(10, points.size());
+        long total = 0;
+        for (AdaptiveLambdaSweep.Point p : points) {
+            assertTrue(p.trials() == 3 || p.trials() == 4, "lambda " + p.lambda() + ": " + p.trials());
+            assertEquals(p.lambda(), p.mean(), 1e-12);
+            total += p.trials();
+        }
+        assertEquals(35, total);
+    }
+
+    @Test void refinesAroundAStepWithinTheBudget() {
+        AdaptiveLambdaSweep.Settings s = new AdaptiveLambdaSweep.Settings(0.0, 1.0, 5, 0.01, 0.1, 8, 200, 0.02, 5000);
+        List<AdaptiveLambdaSweep.Point> points = AdaptiveLambdaSweep.run(POOL, s, new double[]{ 0.37 }, Object::new,
+                (state, lambda, trial) -> (lambda > 0.4 ? 1.0 : 0.0)
+                        + 0.05 * new SplittableRandom(AdaptiveLambdaSweep.trialSeed(1L, trial)).nextGaussian());
+        long total = points.stream().mapToLong(AdaptiveLambdaSweep.Point::trials).sum();
+        assertTrue(total <= 5000);
+        // 段差の両側に分解能程度の間隔で点がある
+        double below = points.stream().mapToDouble(AdaptiveLambdaSweep.Point::lambda).filter(l -> l <= 0.4).max().orElseThrow();
+        double above = points.stream().mapToDouble(AdaptiveLambdaSweep.Point::lambda).filter(l -> l > 0.4).min().orElseThrow();
+        assertTrue(above - below < 2 * s.resolution(), below + " .. " + above);
+        for (AdaptiveLambdaSweep.Point p : points) {
+            assertTrue(p.trials() >= s.minTrials(), "lambda " + p.lambda());
+            assertTrue(p.stdErr() <= s.targetStdErr(), "lambda " + p.lambda());
+        }
+    }
+}
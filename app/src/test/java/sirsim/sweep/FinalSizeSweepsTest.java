@@ -0,0 +1,97 @@
+package sirsim.sweep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sirsim.network.Graph;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FinalSizeSweepsTest {
+    @TempDir Path dir;
+
+    private List<double[]> rows(String name) throws Exception {
+        List<String> lines = Files.readAllLines(dir.resolve(name));
+        return lines.subList(1, lines.size()).stream()
+                .map(l -> Arrays.stream(l.split(",")).mapToDouble(Double::parseDouble).toArray()).toList();
+    }
+
+    @Test void sequentialTrialsShareSeedsAcrossLambdas() throws Exception {
+        // 試行番号ごとに初期感染者とシードを記録し、全 λ で同じであることを確認（共通乱数）
+        Map<Long, String> seen = new ConcurrentHashMap<>();
+        FinalSizeSweeps<Object> sweeps = new FinalSizeSweeps<>(dir, 200, 4, 2, 3, Object::new,
+                (state, g, init, seed, lambdas, alpha, beta) -> {
+                    String prev = seen.putIfAbsent(seed, g.n + Arrays.toString(init));
+                    if (prev != null) assertEquals(prev, g.n + Arrays.toString(init));
+                    assertEquals(3, Arrays.stream(init).distinct().count());
+                    return new double[]{ lambdas[0] };
+                });
+        double[] lambdas = { 0.1, 0.2, 0.3 };
+        sweeps.runSequential(SequentialStopping.Rule.ci95(5, 20, 0.02), lambdas, new double[]{ 0.0, 1.0 }, new double[]{ 0.0 });
+        List<double[]> rows = rows("sequential_final_sizes.csv");
+        assertEquals(6, rows.size());
+        // 一定の出力は minTrials で停止し、平均は λ
+        assertArrayEquals(new double[]{ 0.0, 0.0, 0.2, 5, 0.2, 0.0, 0.0 }, rows.get(1));
+        assertArrayEquals(new double[]{ 1.0, 0.0, 0.3, 5, 0.3, 0.0, 0.0 }, rows.get(5));
+        assertEquals(5, seen.size());
+    }
+
+    @Test void stratifiedPassesEveryLambdaAtOnce() throws Exception {
+        FinalSizeSweeps<Object> sweeps = new FinalSizeSweeps<>(dir, 100, 4, 3, 1, Object::new,
+                (state, g, init, seed, lambdas, alpha, beta) -> {
+                    assertEquals(2, lambdas.length);
+                    return new double[]{ 0.5, 0.25 };
+                });
+        sweeps.runStratified(4, 24, new double[]{ 1.0, 2.0 }, new double[]{ -1.0 }, new double[]{ 0.0 });
+        List<double[]> rows = rows("stratified_final_sizes.csv");
+        assertEquals(2, rows.size());
+        assertArrayEquals(new double[]{ -1.0, 0.0, 1.0, 24, 0.5, 0.0, 1.0 }, rows.get(0));
+        assertArrayEquals(new double[]{ -1.0, 0.0, 2.0, 24, 0.25, 0.0, 1.0 }, rows.get(1));
+    }
+
+    @Test void stratifiedSpreadsEveryStratumOverTheGraphs() throws Exception {
+        // ドライバの既定値：120 試行、12 グラフ、8 層 → 各層 15 試行で、12 グラフすべてにまたがる
+        int strataCount = 8;
+        Map<Graph, Integer> graphIds = new ConcurrentHashMap<>();
+        Map<Integer, List<Integer>> graphsByStratum = new ConcurrentHashMap<>();
+        FinalSizeSweeps<Object> sweeps = new FinalSizeSweeps<>(dir, 400, 4, 12, 1, Object::new,
+                (state, g, init, seed, lambdas, alpha, beta) -> {
+                    int id;
+                    synchronized (graphIds) {
+                        id = graphIds.computeIfAbsent(g, x -> graphIds.size());
+                    }
+                    graphsByStratum.computeIfAbsent(stratumOf(g, strataCount, init[0]), h -> new CopyOnWriteArrayList<>()).add(id);
+                    return new double[]{ 0.5 };
+                });
+        sweeps.runStratified(strataCount, 120, new double[]{ 1.0 }, new double[]{ 0.0 }, new double[]{ 0.0 });
+        assertEquals(12, graphIds.size());
+        assertEquals(strataCount, graphsByStratum.size());
+        for (List<Integer> ids : graphsByStratum.values()) {
+            assertEquals(15, ids.size());
+            assertEquals(12, ids.stream().distinct().count());
+        }
+        assertEquals(120.0, rows("stratified_final_sizes.csv").get(0)[3]);
+    }
+
+    /** 次数順位（同次数は番号順）で等分した層のうち u を含むもの（DegreeStrata と同じ分け方） */
+    private static int stratumOf(Graph g, int strata, int u) {
+        long rank = IntStream.range(0, g.n)
+                .filter(v -> g.degree(v) < g.degree(u) || g.degree(v) == g.degree(u) && v < u).count();
+        int h = 0;
+        while ((long) (h + 1) * g.n / strata <= rank) h++;
+        return h;
+    }
+
+    @Test void rejectsMoreInitialInfectedsThanNodes() {
+        assertThrows(IllegalArgumentException.class, () -> new FinalSizeSweeps<>(dir, 10, 4, 1, 11, Object::new,
+                (state, g, init, seed, lambdas, alpha, beta) -> lambdas));
+    }
+}
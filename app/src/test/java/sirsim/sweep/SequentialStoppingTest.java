@@ -0,0 +1,52 @@
+package sirsim.sweep;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequentialStoppingTest {
+    // 点 i の試行は平均 i、標準偏差 SIGMA[i] の正規乱数（試行番号から導いたシード）
+    private static final double[] SIGMA = { 0.0, 0.5, 1.0, 2.0, 4.0 };
+
+    private static final SequentialStopping.Trial<Object> NOISY = (state, i, trial) ->
+            i + SIGMA[i] * new SplittableRandom(AdaptiveLambdaSweep.trialSeed(i, trial)).nextGaussian();
+
+    @Test void noisyPointsStopNearTheTargetHalfWidth() {
+        SequentialStopping.Rule rule = SequentialStopping.Rule.stdErr(10, 2000, 0.05);
+        SequentialStopping.Point[] points = SequentialStopping.run(ForkJoinPool.commonPool(), rule, SIGMA.length, Object::new, NOISY);
+        // 一定値の点は minTrials で停止
+        assertEquals(10, points[0].trials());
+        assertTrue(points[0].converged());
+        for (int i = 1; i <= 3; i++) {
+            SequentialStopping.Point p = points[i];
+            double needed = Math.pow(SIGMA[i] / rule.halfWidth(), 2);
+            assertTrue(p.converged(), "point " + i);
+            assertTrue(rule.z() * p.stdErr() <= rule.halfWidth(), "point " + i);
+            // 1ラウンドで倍までなので、必要数の2倍（+推定の揺らぎ）を超えて走らない
+            assertTrue(p.trials() >= 0.7 * needed && p.trials() <= 2.5 * needed, "point " + i + ": " + p.trials() + " for " + needed);
+            assertEquals(i, p.mean(), 4 * p.stdErr(), "point " + i);
+        }
+        // sigma = 4 は 6400 試行を要するので maxTrials で打ち切り
+        SequentialStopping.Point capped = points[4];
+        assertEquals(rule.maxTrials(), capped.trials());
+        assertFalse(capped.converged());
+        assertTrue(rule.z() * capped.stdErr() > rule.halfWidth());
+    }
+
+    @Test void resultsDoNotDependOnTheThreadCount() {
+        SequentialStopping.Rule rule = SequentialStopping.Rule.ci95(8, 500, 0.2);
+        SequentialStopping.Point[] parallel = SequentialStopping.run(ForkJoinPool.commonPool(), rule, SIGMA.length, Object::new, NOISY);
+        try (ForkJoinPool one = new ForkJoinPool(1)) {
+            assertArrayEquals(parallel, SequentialStopping.run(one, rule, SIGMA.length, Object::new, NOISY));
+        }
+    }
+
+    @Test void rejectsInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> SequentialStopping.Rule.stdErr(1, 10, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> SequentialStopping.Rule.stdErr(10, 5, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> SequentialStopping.Rule.stdErr(2, 10, 0.0));
+    }
+}
@@ -0,0 +1,106 @@
+package sirsim.sweep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sirsim.network.topology.ER;
+import sirsim.output.RecordSchema;
+import sirsim.output.ResultSink;
+import sirsim.simulation.FastSIRSimulator;
+import sirsim.simulation.SirResult;
+import sirsim.stats.FinalSizeHistogram;
+import sirsim.stats.FinalSizePoints;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardMergeTest {
+    private static final int N = 2000;
+    private static final double[] LAMBDAS = { 0.15, 0.3, 0.6 };
+    private static final SweepGrid GRID = new SweepGrid(2, new double[]{ 0.0, 1.0 }, new double[]{ 0.0 }, LAMBDAS, 4);
+    private static final long CONFIG = SweepJournal.key("sharded-test", N);
+    private static final String[] OUTPUTS = { "final_sizes_00.csv", "final_sizes_01.csv" };
+
+    @TempDir Path dir;
+
+    @Test void sweepShardsMergeToTheSingleRun() throws Exception {
+        Path single = dir.resolve("single");
+        runSweep(single, Shard.ALL);
+        Path sharded = dir.resolve("sharded");
+        for (int i = 0; i < 3; i++) {
+            Shard shard = Shard.parse(i + "/3");
+            runSweep(sharded.resolve(shard.dirName()), shard);
+        }
+        ShardMerge.merge(sharded, null);
+        Path merged = sharded.resolve("merged");
+
+        // 行の順序はシャード順になるが、行の集合は全体実行と同じ
+        for (String name : OUTPUTS) {
+            assertEquals(sortedRows(single.resolve(name)), sortedRows(merged.resolve(name)), name);
+        }
+        // 最終規模の要約は全体から再計算される
+        FinalSizePoints points = finalSizePoints();
+        for (String name : OUTPUTS) points.replayCsv(single.resolve(name), "R");
+        Path summary = dir.resolve("single_summary.csv");
+        points.writeSummaryCsv(summary);
+        assertEquals(Files.readAllLines(summary), Files.readAllLines(merged.resolve("final_size_summary.csv")));
+    }
+
+    @Test void missingShardIsRefused() throws Exception {
+        Path sharded = dir.resolve("sharded");
+        for (int i = 0; i < 3; i += 2) {
+            Shard shard = Shard.parse(i + "/3");
+            runSweep(sharded.resolve(shard.dirName()), shard);
+        }
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> ShardMerge.merge(sharded, null));
+        assertTrue(e.getMessage().contains("missing shard"), e.getMessage());
+        assertFalse(Files.exists(sharded.resolve("merged")));
+    }
+
+    private static FinalSizePoints finalSizePoints() {
+        return new FinalSizePoints(GRID.alphas(), GRID.betas(), LAMBDAS, () -> FinalSizeHistogram.logBinned(N, 10, 0.01));
+    }
+
+    /** A FastSIR-style final-size sweep (one journaled output per graph), as the driver writes it. */
+    private static void runSweep(Path out, Shard shard) throws Exception {
+        ShardManifest manifest = shard.isAll() ? null
+                : new ShardManifest("fastsir", shard, CONFIG, shard.size(GRID.cellCount())).grid(GRID).outputs(OUTPUTS)
+                        .finalSizes("R", LAMBDAS, N, 0.01, 10);
+        if (manifest != null) manifest.claim(out);
+        ResultSink[] sinks = new ResultSink[OUTPUTS.length];
+        try (SweepJournal journal = SweepJournal.open(out.resolve(SweepJournal.FILE_NAME), CONFIG)) {
+            // シンクはジャーナルより先に閉じる（最後のコミットを記録するため）
+            try (ForkJoinPool pool = new ForkJoinPool(2)) {
+                for (int b = 0; b < sinks.length; b++) {
+                    journal.adopt(out.resolve(OUTPUTS[b]));
+                    sinks[b] = ResultSink.csv(out.resolve(OUTPUTS[b]), RecordSchema.FINAL_SIZE, journal);
+                }
+                SweepRunner.run(pool, GRID, shard, b -> ER.generateERFromKAve(N, 6, GRID.graphSeed(b)), () -> null, (state, g, cell) -> {
+                    int[] init = { new SplittableRandom(cell.initSeed()).nextInt(g.n) };
+                    SirResult res = FastSIRSimulator.simulate(g, cell.lambda(), 1.0, 50.0, cell.alpha(), cell.beta(), init, cell.simSeed());
+                    ResultSink sink = sinks[cell.graph()];
+                    sink.beginCell();
+                    sink.row().l(cell.itr()).d(cell.alpha()).d(cell.beta()).d(cell.lambda()).l(res.R.get(res.R.size() - 1)).commit();
+                    sink.endCell(GRID.cellKey(cell, CONFIG));
+                });
+            } finally {
+                ResultSink.closeAll(sinks);
+            }
+        }
+        if (manifest != null) manifest.complete(true).write(out);
+    }
+
+    private static List<String> sortedRows(Path csv) throws Exception {
+        List<String> lines = Files.readAllLines(csv);
+        List<String> rows = new ArrayList<>(lines.subList(1, lines.size()));
+        Collections.sort(rows);
+        rows.add(0, lines.get(0));
+        return rows;
+    }
+}
@@ -0,0 +1,106 @@
+package sirsim.sweep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sirsim.output.RecordSchema;
+import sirsim.output.ResultSink;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SweepJournalTest {
+    private static final long CONFIG = SweepJournal.key("test", 1, 2, 3);
+
+    @TempDir Path dir;
+
+    private Path journalPath() { return dir.resolve(SweepJournal.FILE_NAME); }
+
+    /** Writes one committed cell per key (three rows each) to {@code out}. */
+    private static void writeCells(Path out, SweepJournal journal, long... keys) throws Exception {
+        try (ResultSink sink = ResultSink.csv(out, RecordSchema.FINAL_SIZE, journal)) {
+            for (long key : keys) {
+                sink.beginCell();
+                for (int li = 0; li < 3; li++) sink.row().l(key).d(0.0).d(0.0).d(0.1 * li).l(li).commit();
+                sink.endCell(key);
+            }
+        }
+    }
+
+    @Test void resumeSkipsDoneCellsAndCutsUncommittedRows() throws Exception {
+        Path out = dir.resolve("final_sizes_00.csv");
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            assertFalse(journal.resumed());
+            journal.adopt(out);
+            writeCells(out, journal, 1L, 2L);
+        }
+        List<String> committed = Files.readAllLines(out);
+        assertEquals(1 + 6, committed.size());
+        // 中断したセルの書きかけの行
+        Files.writeString(out, "3,0.0,0.0,0.0,0\n3,0.0,0.0,0.1", StandardOpenOption.APPEND);
+
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            assertTrue(journal.resumed());
+            assertEquals(2, journal.doneCount());
+            assertTrue(journal.isDone(1L));
+            assertFalse(journal.isDone(3L));
+            journal.adopt(out);
+            assertEquals(committed, Files.readAllLines(out));
+            writeCells(out, journal, 3L);
+        }
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            assertEquals(3, journal.doneCount());
+            assertEquals(Files.size(out), journal.committedLength(out.getFileName().toString()));
+        }
+        assertEquals(1 + 9, Files.readAllLines(out).size());
+    }
+
+    @Test void freshJournalLeavesExistingOutputsAlone() throws Exception {
+        Path out = dir.resolve("final_sizes_00.csv");
+        Files.writeString(out, "itr,alpha,beta,lambda,R\n0,0.0,0.0,0.5,42\n");
+        byte[] before = Files.readAllBytes(out);
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            assertThrows(IllegalStateException.class, () -> journal.adopt(out));
+            // 存在しないファイルと空のファイルは使える
+            journal.adopt(dir.resolve("final_sizes_01.csv"));
+            Path empty = Files.createFile(dir.resolve("final_sizes_02.csv"));
+            journal.adopt(empty);
+        }
+        assertArrayEquals(before, Files.readAllBytes(out));
+    }
+
+    @Test void journalOfAnotherConfigurationIsRefused() throws Exception {
+        Path out = dir.resolve("final_sizes_00.csv");
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            writeCells(out, journal, 1L);
+        }
+        long before = Files.size(out);
+        long other = SweepJournal.key("test", 1, 2, 4);
+        assertThrows(IllegalStateException.class, () -> SweepJournal.open(journalPath(), other));
+        assertEquals(before, Files.size(out));
+        // 拒否してもジャーナルは壊れない
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            assertTrue(journal.isDone(1L));
+        }
+    }
+
+    @Test void tornTailIsDropped() throws Exception {
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            journal.commit(new long[]{ 5L, 6L }, 2);
+        }
+        long intact = Files.size(journalPath());
+        // 書きかけのフレーム（長さだけで中身がない）
+        Files.write(journalPath(), new byte[]{ 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            assertEquals(2, journal.doneCount());
+            assertEquals(intact, Files.size(journalPath()));
+            journal.commit(new long[]{ 7L }, 1);
+        }
+        try (SweepJournal journal = SweepJournal.open(journalPath(), CONFIG)) {
+            assertEquals(3, journal.doneCount());
+        }
+    }
+}
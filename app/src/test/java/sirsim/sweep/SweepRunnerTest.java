@@ -0,0 +1,54 @@
+package sirsim.sweep;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.topology.ER;
+import sirsim.simulation.FastSIRSimulator;
+import sirsim.simulation.SirResult;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SweepRunnerTest {
+    private static final SweepGrid GRID = new SweepGrid(2, new double[]{ 0.0, 1.0 }, new double[]{ 0.0 },
+            new double[]{ 0.15, 0.3, 0.6 }, 4);
+
+    @Test void resultsDoNotDependOnThreadCount() {
+        long[] ref = sweep(1, Shard.ALL);
+        assertTrue(Arrays.stream(ref).max().getAsLong() > 100, "test needs some outbreaks");
+        for (int threads : new int[]{ 3, 8 }) {
+            assertArrayEquals(ref, sweep(threads, Shard.ALL), threads + " threads");
+        }
+    }
+
+    @Test void shardsTogetherCoverTheFullSweep() {
+        long[] all = sweep(2, Shard.ALL);
+        long[] merged = new long[all.length];
+        Arrays.fill(merged, -1);
+        for (int i = 0; i < 3; i++) {
+            long[] part = sweep(2, Shard.parse(i + "/3"));
+            for (int c = 0; c < part.length; c++) {
+                if (part[c] < 0) continue;
+                assertEquals(-1, merged[c], "cell " + c + " run by two shards");
+                merged[c] = part[c];
+            }
+        }
+        assertArrayEquals(all, merged);
+    }
+
+    /** Final size of every cell (-1 for cells outside the shard). */
+    private static long[] sweep(int threads, Shard shard) {
+        long[] out = new long[(int) GRID.cellCount()];
+        Arrays.fill(out, -1);
+        try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+            SweepRunner.run(pool, GRID, shard, b -> ER.generateERFromKAve(2000, 6, GRID.graphSeed(b)), () -> null, (state, g, cell) -> {
+                int[] init = { new SplittableRandom(cell.initSeed()).nextInt(g.n) };
+                SirResult res = FastSIRSimulator.simulate(g, cell.lambda(), 1.0, 50.0, cell.alpha(), cell.beta(), init, cell.simSeed());
+                out[(int) cell.index()] = res.R.get(res.R.size() - 1);
+            });
+        }
+        return out;
+    }
+}
@@ -0,0 +1,57 @@
+package sirsim.theory;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.simulation.SirFinalSize;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessagePassingTest {
+    private static final Graph G = ER.generateERFromKAve(3000, 4, 11L);
+    private static final double[] LAMBDAS = { 0.5, 1.0 };
+
+    @Test void matchesSimulationFromOneUniformSeed() {
+        for (double[] ab : new double[][]{ { 0.0, 0.0 }, { 0.5, 0.0 } }) {
+            MessagePassing.Point[] points = MessagePassing.solve(G, LAMBDAS, 1.0, ab[0], ab[1], 0.0, ForkJoinPool.commonPool());
+            // 一様に選んだ 1 人から：大規模流行（> N/10）の割合と、その平均最終規模 / N
+            int runs = 3000;
+            int[] major = new int[LAMBDAS.length];
+            double[] size = new double[LAMBDAS.length];
+            SplittableRandom rng = new SplittableRandom(5L);
+            for (int i = 0; i < runs; i++) {
+                int[] s = SirFinalSize.simulate(G, LAMBDAS, 1.0, ab[0], ab[1], new int[]{ rng.nextInt(G.n) }, rng.nextLong());
+                for (int l = 0; l < LAMBDAS.length; l++) {
+                    if (s[l] > G.n / 10) { major[l]++; size[l] += s[l] / (double) G.n; }
+                }
+            }
+            for (int l = 0; l < LAMBDAS.length; l++) {
+                MessagePassing.Point p = points[l];
+                String at = "alpha " + ab[0] + ", lambda " + LAMBDAS[l];
+                assertTrue(p.converged(), at);
+                double po = major[l] / (double) runs;
+                assertEquals(po, p.outbreakProbability(), 4 * Math.sqrt(po * (1 - po) / runs) + 0.005, at);
+                assertEquals(size[l] / major[l], p.attackRate(), 0.01, at);
+                // 感染期間を共有するので、弧ごと独立の見積もり（= 攻撃率）より明らかに小さい
+                assertTrue(p.outbreakProbability() < p.attackRate() - 0.1, at);
+            }
+        }
+    }
+
+    @Test void withoutRecoveryEverySeedInTheGiantComponentTakesOff() {
+        // gamma = 0 では T = 1：流行確率と攻撃率はともに巨大連結成分の割合
+        MessagePassing.Point p = MessagePassing.solve(G, new double[]{ 1.0 }, 0.0, 0.0, 0.0, 0.0, ForkJoinPool.commonPool())[0];
+        assertEquals(p.attackRate(), p.outbreakProbability(), 1e-8);
+        assertTrue(p.attackRate() > 0.95);
+    }
+
+    @Test void belowThresholdThereIsNoMajorOutbreak() {
+        // <k> = 4 の ER で T < 1/4
+        MessagePassing.Point p = MessagePassing.solve(G, new double[]{ 0.2 }, 1.0, 0.0, 0.0, 0.0, ForkJoinPool.commonPool())[0];
+        assertEquals(0.0, p.attackRate(), 1e-6);
+        assertEquals(0.0, p.outbreakProbability(), 1e-6);
+    }
+}
@@ -0,0 +1,52 @@
+package sirsim.theory;
+
+import org.junit.jupiter.api.Test;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectralThresholdTest {
+    private static final Graph G = ER.generateERFromKAve(5000, 6, 21L);
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    @Test void erThresholdMatchesTheDegreeMoments() {
+        // 木近似の ER：T_c = <k> / (<k^2> - <k>)
+        double k1 = 0, k2 = 0;
+        for (int u = 0; u < G.n; u++) { k1 += G.degree(u); k2 += (double) G.degree(u) * G.degree(u); }
+        double tc = (k1 / G.n) / (k2 / G.n - k1 / G.n);
+        double gamma = 2.0;
+        SpectralThreshold.Estimate e = SpectralThreshold.estimate(G, gamma, 0.0, 0.0, POOL);
+        double lambda = e.percolation();
+        assertEquals(tc, lambda / (lambda + gamma), 0.01 * tc);
+        assertEquals(tc, e.nonBacktrackingLinear() / gamma, 0.01 * tc);
+    }
+
+    @Test void nonBacktrackingThresholdIsNeverBelowTheAdjacencyOne() {
+        for (double[] ab : new double[][]{ { 0.0, 0.0 }, { 0.5, -0.5 }, { 1.0, 0.0 }, { -0.5, -0.5 } }) {
+            SpectralThreshold.Estimate e = SpectralThreshold.estimate(G, 1.0, ab[0], ab[1], POOL);
+            String at = "alpha " + ab[0] + ", beta " + ab[1];
+            assertTrue(e.nonBacktracking() <= e.adjacency(), at);
+            assertTrue(e.nonBacktrackingLinear() >= e.meanField(), at);
+            // T = r / (r + gamma) <= r / gamma なので、パーコレーションの閾値は線形近似以上
+            assertTrue(e.percolation() >= e.nonBacktrackingLinear() * (1 - 1e-6), at);
+        }
+    }
+
+    @Test void powerIterationAgreesWithLanczos() {
+        for (double[] ab : new double[][]{ { 0.0, 0.0 }, { 1.0, 0.0 } }) {
+            double lanczos = SpectralThreshold.adjacencyLanczos(G, ab[0], ab[1], 1e-10, POOL);
+            double power = SpectralThreshold.adjacencyPower(G, ab[0], ab[1], 1e-10, 100_000, POOL);
+            assertEquals(lanczos, power, 1e-6 * lanczos);
+        }
+    }
+
+    @Test void emptyGraphHasNoThreshold() {
+        Graph g = ER.generateERFromKAve(100, 0, 1L);
+        SpectralThreshold.Estimate e = SpectralThreshold.estimate(g, 1.0, 0.0, 0.0, POOL);
+        assertEquals(Double.POSITIVE_INFINITY, e.meanField());
+        assertEquals(Double.POSITIVE_INFINITY, e.percolation());
+    }
+}
@@ -0,0 +1,153 @@
+package sirsim.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoggerRingTest {
+    @Test void fullRingBlocksProducersInsteadOfDropping() throws Exception {
+        // 出力先が止まっている間はリング（8件）が埋まり、書き込み側は待つ。再開後は全件が順に出る
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream gate = new OutputStream() {
+            @Override public void write(int b) throws IOException {
+                write(new byte[]{ (byte) b }, 0, 1);
+            }
+
+            @Override public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                synchronized (bytes) {
+                    bytes.write(b, off, len);
+                }
+            }
+        };
+        PrintStream out = new PrintStream(gate, true, StandardCharsets.UTF_8);
+        Logger.Ring ring = newRing(8, false, out);
+        Logger log = new Logger(LoggerRingTest.class, ring);
+        int count = 100;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) log.warn("message %d", i);
+        });
+        producer.start();
+        producer.join(500);
+        assertTrue(producer.isAlive(), "the producer should wait for free slots");
+
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(producer.isAlive());
+        ring.flush();
+        List<String> lines;
+        synchronized (bytes) {
+            lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+        }
+        assertEquals(count, lines.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(lines.get(i).endsWith("[WARN] [LoggerRingTest] message " + i), lines.get(i));
+        }
+    }
+
+    @Test void flushWaitsForEveryPublishedMessage() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Logger.Ring ring = newRing(16, false, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        Logger log = new Logger(LoggerRingTest.class, ring);
+        for (int i = 0; i < 1000; i++) log.error("line %d", i);
+        ring.flush();
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(1000, lines.size());
+        assertTrue(lines.get(999).endsWith("line 999"));
+    }
+
+    @Test void shutdownHookFlushesTheGlobalRing() throws Exception {
+        // 出力スレッドはデーモンなので、フックがなければ終了時に積まれたログが失われる
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ExitingMain.class.getName())
+                .redirectErrorStream(true).start();
+        String output = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(p.waitFor(60, TimeUnit.SECONDS));
+        List<String> lines = output.lines().filter(l -> l.contains("exiting line ")).toList();
+        assertEquals(ExitingMain.LINES, lines.size());
+        assertTrue(lines.get(lines.size() - 1).contains("exiting line " + (ExitingMain.LINES - 1)));
+    }
+
+    @Test void jsonEscapesStackTraces() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Logger.Ring ring = newRing(16, true, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        Logger log = new Logger(LoggerRingTest.class, ring);
+        Exception e = new IllegalStateException("bad \"quote\" \\ back\tslash \u0001",
+                new RuntimeException("cause\r\nline"));
+        log.error("run failed: path=C:\\out", e);
+        ring.flush();
+
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(1, lines.size(), "one JSON object per line");
+        String line = lines.get(0);
+        assertTrue(line.startsWith("{\"ts\":\"") && line.endsWith("\"}"), line);
+        assertTrue(line.contains("\"level\":\"ERROR\",\"logger\":\"LoggerRingTest\""), line);
+        assertTrue(line.contains("\\u0001"), line);
+        String prefix = "\"msg\":\"";
+        String msg = unescape(line.substring(line.indexOf(prefix) + prefix.length(), line.length() - 2));
+        StringWriter sw = new StringWriter();
+        e.printStackTrace(new PrintWriter(sw));
+        assertEquals("run failed: path=C:\\out" + System.lineSeparator() + sw.toString().stripTrailing(), msg);
+    }
+
+    private static Logger.Ring newRing(int capacity, boolean json, PrintStream out) {
+        Logger.Ring ring = new Logger.Ring(capacity, json, () -> out);
+        // フックは登録されている（テスト用のリングでは外しておく）
+        assertTrue(Runtime.getRuntime().removeShutdownHook(ring.flushHook));
+        return ring;
+    }
+
+    /** JSON 文字列の中身を戻す（Logger が出すエスケープのみ） */
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') fail("unescaped quote at " + i + ": " + s);
+            if (c < 0x20) fail("raw control character at " + i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = s.charAt(++i);
+            switch (e) {
+                case '"', '\\' -> sb.append(e);
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                    i += 4;
+                }
+                default -> fail("unknown escape \\" + e);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** 大量のログを積んだまま main を抜けるプロセス */
+    static final class ExitingMain {
+        static final int LINES = 20_000;
+
+        public static void main(String[] args) {
+            Logger log = new Logger(ExitingMain.class);
+            for (int i = 0; i < LINES; i++) log.warn("exiting line %d", i);
+        }
+    }
+}
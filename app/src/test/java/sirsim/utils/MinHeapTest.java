@@ -0,0 +1,45 @@
+package sirsim.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHeapTest {
+    @Test void pollsInKeyOrderAcrossGrowth() {
+        SplittableRandom rng = new SplittableRandom(1L);
+        MinHeap heap = new MinHeap(1);
+        double[] keys = new double[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = rng.nextDouble();
+            heap.add(keys[i], i);
+        }
+        assertEquals(keys.length, heap.size());
+        Arrays.sort(keys);
+        for (double k : keys) {
+            assertEquals(k, heap.peekKey());
+            heap.poll();
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test void valuesFollowTheirKeys() {
+        MinHeap heap = new MinHeap(4);
+        heap.add(3.0, 30);
+        heap.add(Double.NEGATIVE_INFINITY, 7);
+        heap.add(1.0, 10);
+        heap.add(1.0, 11);
+        assertEquals(7, heap.peekValue());
+        heap.poll();
+        int a = heap.peekValue();
+        heap.poll();
+        int b = heap.peekValue();
+        heap.poll();
+        assertEquals(21, a + b);
+        assertEquals(30, heap.peekValue());
+        heap.clear();
+        assertTrue(heap.isEmpty());
+    }
+}
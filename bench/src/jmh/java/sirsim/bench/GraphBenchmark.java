@@ -0,0 +1,68 @@
+package sirsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+
+import java.util.concurrent.TimeUnit;
+
+/** ER generation and CSR construction from an edge list. Each invocation draws a new graph (seed counter). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+    @Param({ "10000", "100000" })
+    int n;
+
+    @Param({ "5", "25" })
+    double kAve;
+
+    private int[] srcs, dsts;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // edge list (u < v) of a fixed graph for fromUndirectedEdgeList
+        Graph g = ER.generateERFromKAve(n, kAve, 42L);
+        int m = g.m2 / 2;
+        srcs = new int[m];
+        dsts = new int[m];
+        int i = 0;
+        for (int u = 0; u < g.n; u++) {
+            for (int e = g.firstArc(u); e < g.endArc(u); e++) {
+                int v = g.colIdx[e];
+                if (u < v) { srcs[i] = u; dsts[i] = v; i++; }
+            }
+        }
+        seed = 1L;
+    }
+
+    @Benchmark
+    public Graph erFromP() {
+        return ER.generateERFromP(n, kAve / (n - 1), seed++);
+    }
+
+    @Benchmark
+    public Graph erFromKAve() {
+        return ER.generateERFromKAve(n, kAve, seed++);
+    }
+
+    @Benchmark
+    public Graph fromUndirectedEdgeList() {
+        return Graph.fromUndirectedEdgeList(n, srcs, dsts);
+    }
+}
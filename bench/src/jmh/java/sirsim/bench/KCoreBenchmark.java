@@ -0,0 +1,64 @@
+package sirsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.percolation.KCore;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** k-core pruning after site percolation; cycles through a fixed set of pre-drawn occupancy masks. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KCoreBenchmark {
+    private static final int MASKS = 16;
+
+    @Param({ "10000", "100000" })
+    int n;
+
+    @Param({ "5", "25" })
+    double kAve;
+
+    @Param({ "2", "3" })
+    int k;
+
+    @Param({ "0.5", "0.9" })
+    double p;
+
+    private Graph g;
+    private boolean[][] alive;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        g = ER.generateERFromKAve(n, kAve, 42L);
+        SplittableRandom rng = new SplittableRandom(7L);
+        alive = new boolean[MASKS][n];
+        for (boolean[] mask : alive) {
+            for (int u = 0; u < n; u++) mask[u] = rng.nextDouble() < p;
+        }
+    }
+
+    @Benchmark
+    public int size() {
+        boolean[] mask = alive[next];
+        next = (next + 1) % MASKS;
+        return KCore.size(g, mask, k);
+    }
+}
@@ -0,0 +1,83 @@
+package sirsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.simulation.FastSARSimulator;
+import sirsim.simulation.FastSIRSimulator;
+import sirsim.simulation.SarResult;
+import sirsim.simulation.SirResult;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One FastSIR / FastSAR realization per invocation on a fixed ER graph, reusing the simulator via
+ * {@code reset} as the sweep drivers do. Seeds and the initial infected advance every invocation,
+ * so a score averages over realizations (including minor outbreaks near the threshold).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulatorBenchmark {
+    private static final double GAMMA = 1.0;
+    private static final double T_MAX = 200.0;
+    private static final double BETA = 0.0;
+
+    @Param({ "10000", "100000" })
+    int n;
+
+    @Param({ "5", "25" })
+    double kAve;
+
+    @Param({ "0.1", "0.5" })
+    double lambda;
+
+    @Param({ "-1.0", "0.0", "1.0" })
+    double alpha;
+
+    private FastSIRSimulator sir;
+    private FastSARSimulator sar;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Graph g = ER.generateERFromKAve(n, kAve, 42L);
+        int[] thresholds = new int[n];
+        Arrays.fill(thresholds, 1);
+        sir = new FastSIRSimulator(g, lambda, GAMMA, T_MAX, alpha, BETA, 0L);
+        sar = new FastSARSimulator(g, lambda, GAMMA, T_MAX, thresholds, alpha, BETA, 0L);
+        seed = 1L;
+    }
+
+    @Benchmark
+    public SirResult fastSir() {
+        long s = seed++;
+        return sir.reset(lambda, alpha, BETA, s).run(initial(s));
+    }
+
+    @Benchmark
+    public SarResult fastSar() {
+        long s = seed++;
+        return sar.reset(lambda, alpha, BETA, s).run(initial(s));
+    }
+
+    private int[] initial(long s) {
+        return new int[]{ new SplittableRandom(s).nextInt(n) };
+    }
+}
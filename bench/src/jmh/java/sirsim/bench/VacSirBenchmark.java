@@ -0,0 +1,66 @@
+package sirsim.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.simulation.VacSIRSimulator;
+import sirsim.simulation.VacSirResult;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One sequential VacSIR realization per invocation (the simulator has no reset, so its per-node
+ * arrays are part of the measured allocation). Parameters other than omega and r follow VacSIR.main.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VacSirBenchmark {
+    private static final double BETA = 0.168;
+    private static final double GAMMA = 3;
+    private static final double T_MAX = 120;
+    private static final double VAC_MAX = 0.5;
+
+    @Param({ "10000", "100000" })
+    int n;
+
+    @Param({ "5", "25" })
+    double kAve;
+
+    @Param({ "0.3", "0.45" })
+    double omega;
+
+    @Param({ "1", "2" })
+    int r;
+
+    private Graph g;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        g = ER.generateERFromKAve(n, kAve, 42L);
+        seed = 1L;
+    }
+
+    @Benchmark
+    public VacSirResult vacSir() {
+        long s = seed++;
+        int[] init = { new SplittableRandom(s).nextInt(n) };
+        return new VacSIRSimulator(g, omega, BETA, GAMMA, T_MAX, VAC_MAX, r, s).run(init);
+    }
+}
@@ -0,0 +1,270 @@
+package sirsim.bench;
+
+import sirsim.network.Graph;
+import sirsim.network.topology.ER;
+import sirsim.simulation.FastSARSimulator;
+import sirsim.simulation.FastSIRSimulator;
+import sirsim.sweep.SweepCell;
+import sirsim.sweep.SweepGrid;
+import sirsim.sweep.SweepRunner;
+import sirsim.utils.Logger;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Strong and weak scaling of a FastSAR/FastSIR sweep (the drivers' {@link SweepRunner} path) over
+ * thread counts and graph sizes. Strong scaling keeps the number of runs fixed; weak scaling runs
+ * {@code --runs-per-thread} runs per thread. Every point reports the median wall time over
+ * {@code --reps} repetitions with runs/s, events/s (state changes), per-thread CPU utilization,
+ * GC time and peak heap, written to {@code scaling.csv}, plus speedup/efficiency tables in
+ * {@code scaling_tables.md}.
+ *
+ * <pre>
+ * ./gradlew :bench:scaling -Pscaling.args="--model sar --sizes 10000,100000 --threads 1,2,4,8"
+ * </pre>
+ */
+public final class ScalingHarness {
+    private static final Logger logger = new Logger(ScalingHarness.class);
+
+    private static final double GAMMA = 1.0;
+    private static final double T_MAX = 200.0;
+    private static final double BETA = 0.0;
+
+    /** One (mode, n, threads) point, from the median repetition by wall time. */
+    record Point(String mode, int n, int threads, int runs, long wallNanos, long events,
+                 double utilMean, double utilMin, long gcMillis, long gcCount, long peakHeapBytes) {
+        double wallSeconds() { return wallNanos / 1e9; }
+        double runsPerSecond() { return runs / wallSeconds(); }
+        double eventsPerSecond() { return events / wallSeconds(); }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opt = parseArgs(args);
+        String model = opt.getOrDefault("--model", "sar");
+        if (!model.equals("sar") && !model.equals("sir")) throw new IllegalArgumentException("--model must be sar or sir");
+        int[] sizes = parseInts(opt.getOrDefault("--sizes", "10000,100000"));
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int[] threads = opt.containsKey("--threads") ? parseInts(opt.get("--threads")) : powersOfTwo(maxThreads);
+        double kAve = Double.parseDouble(opt.getOrDefault("--kave", "10"));
+        double lambda = Double.parseDouble(opt.getOrDefault("--lambda", "0.3"));
+        double alpha = Double.parseDouble(opt.getOrDefault("--alpha", "0.0"));
+        int strongRuns = Integer.parseInt(opt.getOrDefault("--runs", "256"));
+        int runsPerThread = Integer.parseInt(opt.getOrDefault("--runs-per-thread", "32"));
+        int reps = Integer.parseInt(opt.getOrDefault("--reps", "3"));
+        Path out = Path.of(opt.getOrDefault("--out", "build/results/scaling"));
+        Arrays.sort(threads);
+
+        logger.info("Scaling: model=%s, sizes=%s, threads=%s, kAve=%.2f, lambda=%.3f, alpha=%.2f",
+                model, Arrays.toString(sizes), Arrays.toString(threads), kAve, lambda, alpha);
+        ScalingHarness h = new ScalingHarness(model, lambda, alpha);
+        List<Point> points = new ArrayList<>();
+        for (int n : sizes) {
+            Graph g = ER.generateERFromKAve(n, kAve, 42L);
+            // JIT warm-up on this graph, not recorded
+            h.measure(g, threads[threads.length - 1], Math.min(strongRuns, 4 * threads[threads.length - 1]), "warmup");
+            for (int p : threads) points.add(h.median(g, p, strongRuns, reps, "strong"));
+            for (int p : threads) points.add(h.median(g, p, runsPerThread * p, reps, "weak"));
+        }
+
+        Files.createDirectories(out);
+        writeCsv(out.resolve("scaling.csv"), model, kAve, reps, points);
+        writeTables(out.resolve("scaling_tables.md"), points);
+        logger.info("Saved: %s, %s", out.resolve("scaling.csv"), out.resolve("scaling_tables.md"));
+    }
+
+    private final String model;
+    private final double lambda, alpha;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(p -> p.getType() == MemoryType.HEAP).toList();
+
+    private ScalingHarness(String model, double lambda, double alpha) {
+        this.model = model;
+        this.lambda = lambda;
+        this.alpha = alpha;
+    }
+
+    private Point median(Graph g, int threads, int runs, int reps, String mode) {
+        List<Point> all = new ArrayList<>();
+        for (int r = 0; r < reps; r++) all.add(measure(g, threads, runs, mode));
+        all.sort(Comparator.comparingLong(Point::wallNanos));
+        Point p = all.get(all.size() / 2);
+        logger.info("%s n=%d threads=%d runs=%d: %.3f s, %.1f runs/s, %.3g events/s, util %.2f (min %.2f), gc %d ms, peak heap %d MB",
+                mode, g.n, threads, runs, p.wallSeconds(), p.runsPerSecond(), p.eventsPerSecond(),
+                p.utilMean(), p.utilMin(), p.gcMillis(), p.peakHeapBytes() >> 20);
+        return p;
+    }
+
+    /** Runs {@code runs} realizations on {@code threads} workers through SweepRunner and samples the JVM counters. */
+    private Point measure(Graph g, int threads, int runs, String mode) {
+        System.gc();
+        long gcTime0 = 0, gcCount0 = 0;
+        for (GarbageCollectorMXBean b : gcBeans) { gcTime0 += b.getCollectionTime(); gcCount0 += b.getCollectionCount(); }
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        SweepGrid grid = new SweepGrid(1, new double[]{ alpha }, new double[]{ BETA }, new double[]{ lambda }, runs);
+        Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+        long wall;
+        try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+            long t0 = System.nanoTime();
+            SweepRunner.run(pool, grid, new Graph[]{ g }, () -> {
+                Worker w = new Worker(g);
+                workers.add(w);
+                return w;
+            }, (w, gg, cell) -> w.run(cell));
+            wall = System.nanoTime() - t0;
+        }
+
+        long gcTime = 0, gcCount = 0;
+        for (GarbageCollectorMXBean b : gcBeans) { gcTime += b.getCollectionTime(); gcCount += b.getCollectionCount(); }
+        long peak = 0;
+        for (MemoryPoolMXBean p : heapPools) peak += p.getPeakUsage().getUsed();
+
+        // utilization = CPU time spent in cells / wall time, per pool thread (threads that got no cell count as 0)
+        long events = 0, cpuSum = 0, cpuMin = workers.size() < threads ? 0 : Long.MAX_VALUE;
+        for (Worker w : workers) {
+            events += w.events;
+            cpuSum += w.cpuNanos;
+            cpuMin = Math.min(cpuMin, w.cpuNanos);
+        }
+        return new Point(mode, g.n, threads, runs, wall, events, cpuSum / ((double) wall * threads),
+                cpuMin / (double) wall, gcTime - gcTime0, gcCount - gcCount0, peak);
+    }
+
+    /** Per-thread simulator (reused via reset, as in the drivers) and counters. */
+    private final class Worker {
+        private final Graph g;
+        private final FastSIRSimulator sir;
+        private final FastSARSimulator sar;
+        long events, cpuNanos;
+
+        Worker(Graph g) {
+            this.g = g;
+            if (model.equals("sir")) {
+                this.sir = new FastSIRSimulator(g, lambda, GAMMA, T_MAX, alpha, BETA, 0L);
+                this.sar = null;
+            } else {
+                int[] thresholds = new int[g.n];
+                Arrays.fill(thresholds, 1);
+                this.sir = null;
+                this.sar = new FastSARSimulator(g, lambda, GAMMA, T_MAX, thresholds, alpha, BETA, 0L);
+            }
+        }
+
+        void run(SweepCell cell) {
+            long c0 = threadBean.getCurrentThreadCpuTime();
+            int[] init = { new SplittableRandom(cell.initSeed()).nextInt(g.n) };
+            // every recorded point after t=0 is one infection or recovery
+            if (sir != null) events += sir.reset(cell.lambda(), cell.alpha(), cell.beta(), cell.simSeed()).run(init).times.size() - 1;
+            else events += sar.reset(cell.lambda(), cell.alpha(), cell.beta(), cell.simSeed()).run(init).times.size() - 1;
+            cpuNanos += threadBean.getCurrentThreadCpuTime() - c0;
+        }
+    }
+
+    private static void writeCsv(Path path, String model, double kAve, int reps, List<Point> points) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("mode,model,n,kave,threads,runs,reps,wall_s,runs_per_s,events,events_per_s,cpu_util_mean,cpu_util_min,gc_ms,gc_count,peak_heap_mb,speedup,efficiency");
+            for (Point p : points) {
+                double[] se = speedupEfficiency(p, points);
+                out.printf(Locale.ROOT, "%s,%s,%d,%.3f,%d,%d,%d,%.6f,%.3f,%d,%.1f,%.4f,%.4f,%d,%d,%.1f,%.4f,%.4f%n",
+                        p.mode(), model, p.n(), kAve, p.threads(), p.runs(), reps, p.wallSeconds(), p.runsPerSecond(),
+                        p.events(), p.eventsPerSecond(), p.utilMean(), p.utilMin(), p.gcMillis(), p.gcCount(),
+                        p.peakHeapBytes() / (1024.0 * 1024.0), se[0], se[1]);
+            }
+        }
+    }
+
+    /**
+     * [speedup, efficiency] against the smallest thread count b of the same (mode, n). Strong:
+     * speedup = T_b / T_p, efficiency = speedup * b / p. Weak (work grows with p):
+     * efficiency = T_b / T_p, scaled speedup = efficiency * p / b.
+     */
+    private static double[] speedupEfficiency(Point p, List<Point> points) {
+        Point base = points.stream().filter(q -> q.mode().equals(p.mode()) && q.n() == p.n())
+                .min(Comparator.comparingInt(Point::threads)).orElseThrow();
+        double ratio = base.wallNanos() / (double) p.wallNanos();
+        double scale = p.threads() / (double) base.threads();
+        return p.mode().equals("strong") ? new double[]{ ratio, ratio / scale } : new double[]{ ratio * scale, ratio };
+    }
+
+    private static void writeTables(Path path, List<Point> points) throws IOException {
+        int[] threads = points.stream().mapToInt(Point::threads).distinct().sorted().toArray();
+        int[] sizes = points.stream().mapToInt(Point::n).distinct().sorted().toArray();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            for (String mode : new String[]{ "strong", "weak" }) {
+                for (int k = 0; k < 2; k++) {
+                    out.printf("## %s scaling: %s (relative to %d thread%s)%n%n", mode,
+                            k == 0 ? (mode.equals("weak") ? "scaled speedup" : "speedup") : "efficiency",
+                            threads[0], threads[0] == 1 ? "" : "s");
+                    StringBuilder head = new StringBuilder("| n |");
+                    StringBuilder rule = new StringBuilder("|---|");
+                    for (int t : threads) { head.append(' ').append(t).append(" |"); rule.append("---|"); }
+                    out.println(head);
+                    out.println(rule);
+                    for (int n : sizes) {
+                        StringBuilder row = new StringBuilder("| " + n + " |");
+                        for (int t : threads) {
+                            Point p = find(points, mode, n, t);
+                            row.append(p == null ? " - |" : String.format(Locale.ROOT, " %.2f |", speedupEfficiency(p, points)[k]));
+                        }
+                        out.println(row);
+                    }
+                    out.println();
+                }
+            }
+        }
+    }
+
+    private static Point find(List<Point> points, String mode, int n, int threads) {
+        for (Point p : points) {
+            if (p.mode().equals(mode) && p.n() == n && p.threads() == threads) return p;
+        }
+        return null;
+    }
+
+    private static int[] powersOfTwo(int max) {
+        List<Integer> r = new ArrayList<>();
+        for (int t = 1; t < max; t *= 2) r.add(t);
+        r.add(max);
+        return r.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> m = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.startsWith("--")) {
+                String v = "true";
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    v = args[++i];
+                }
+                m.put(a, v);
+            }
+        }
+        return m;
+    }
+}